@@ -0,0 +1,44 @@
+package net.laprun.sustainability.power.nuprocess;
+
+import java.util.ArrayDeque;
+
+/**
+ * A pool of {@link GrowableBuffer}s so that process output can be recorded repeatedly without allocating new buffers once
+ * the pooled buffers have grown to accommodate the typical output size.
+ */
+public class BufferPool {
+    private final ArrayDeque<GrowableBuffer> available = new ArrayDeque<>();
+    private final int initialBufferSize;
+    private final int maxPooled;
+
+    /**
+     * @param initialBufferSize the initial capacity of newly created buffers
+     * @param maxPooled the maximum number of buffers kept for reuse, additional released buffers being discarded
+     */
+    public BufferPool(int initialBufferSize, int maxPooled) {
+        this.initialBufferSize = initialBufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * Retrieves an empty buffer, reusing a previously released one if available
+     */
+    public synchronized GrowableBuffer acquire() {
+        final var buffer = available.pollFirst();
+        return buffer != null ? buffer : new GrowableBuffer(initialBufferSize);
+    }
+
+    /**
+     * Makes the specified buffer available for reuse. The buffer shouldn't be used by the caller anymore.
+     */
+    public synchronized void release(GrowableBuffer buffer) {
+        if (buffer != null && available.size() < maxPooled) {
+            buffer.reset();
+            available.offerFirst(buffer);
+        }
+    }
+
+    synchronized int available() {
+        return available.size();
+    }
+}
@@ -1,32 +1,98 @@
 package net.laprun.sustainability.power.nuprocess;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 
 import io.quarkus.logging.Log;
 
-class GrowableBuffer {
+/**
+ * A heap byte buffer growing geometrically as content is added to it. It can be {@link #reset()} to be reused (see
+ * {@link BufferPool}) and its content can be accessed without copying it.
+ */
+public class GrowableBuffer {
     private ByteBuffer buffer;
 
     public GrowableBuffer(int size) {
-        buffer = ByteBuffer.allocate(size);
+        buffer = ByteBuffer.allocate(Math.max(size, 1));
     }
 
     public void put(ByteBuffer input) {
-        final var start = System.nanoTime();
-        if (buffer.remaining() < input.remaining()) {
-            final var sizeIncrease = input.remaining() - buffer.remaining();
-            Log.debugf("Growing buffer. remaining: %d, asked: %d, capacity: %d, new capacity: %d", buffer.remaining(),
-                    input.remaining(), buffer.capacity(), buffer.capacity() + sizeIncrease);
-            var newBuffer = ByteBuffer.allocate(buffer.capacity() + sizeIncrease);
+        ensureCapacity(buffer.position() + input.remaining());
+        buffer.put(input);
+    }
+
+    /**
+     * Appends the specified region of the specified buffer's content to this buffer
+     */
+    public void put(GrowableBuffer source, int from, int to) {
+        final var length = to - from;
+        ensureCapacity(buffer.position() + length);
+        buffer.put(source.buffer.array(), from, length);
+    }
+
+    public byte get(int index) {
+        return buffer.get(index);
+    }
+
+    /**
+     * @return the number of bytes written to this buffer
+     */
+    public int length() {
+        return buffer.position();
+    }
+
+    public int capacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Only keeps the first bytes of the content
+     *
+     * @param length the number of bytes to keep
+     */
+    public void truncate(int length) {
+        if (length < 0 || length > buffer.position()) {
+            throw new IllegalArgumentException("Invalid length " + length + ", should be between 0 and " + buffer.position());
+        }
+        buffer.position(length);
+    }
+
+    /**
+     * Empties this buffer, keeping its capacity, so that it can be reused
+     */
+    public void reset() {
+        buffer.clear();
+    }
+
+    /**
+     * Provides a read-only view over the content of this buffer, without copying it. The view is only valid until this
+     * buffer is modified.
+     *
+     * @return a read-only {@link ByteBuffer} which content is between its position (0) and its limit
+     */
+    public ByteBuffer view() {
+        return buffer.asReadOnlyBuffer().flip();
+    }
+
+    /**
+     * Provides an {@link InputStream} over the content of this buffer, without copying it. The stream is only valid until
+     * this buffer is modified.
+     */
+    public InputStream inputStream() {
+        return new ByteArrayInputStream(buffer.array(), 0, buffer.position());
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > buffer.capacity()) {
+            // grow geometrically to avoid copying the content over and over when it keeps growing
+            final var newCapacity = Math.max(required, buffer.capacity() * 2);
+            Log.debugf("Growing buffer. length: %d, required: %d, capacity: %d, new capacity: %d", buffer.position(),
+                    required, buffer.capacity(), newCapacity);
+            final var newBuffer = ByteBuffer.allocate(newCapacity);
             buffer.flip();
             newBuffer.put(buffer);
             buffer = newBuffer;
         }
-        buffer.put(input);
-        Log.debugf("putting buffer took %d ns", System.nanoTime() - start);
-    }
-
-    public byte[] array() {
-        return buffer.array();
     }
 }
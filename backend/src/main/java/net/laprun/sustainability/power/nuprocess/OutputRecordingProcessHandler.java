@@ -1,8 +1,8 @@
 package net.laprun.sustainability.power.nuprocess;
 
-import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.CompletableFuture;
 
 import com.zaxxer.nuprocess.NuProcess;
@@ -11,7 +11,7 @@ import io.quarkus.logging.Log;
 
 public class OutputRecordingProcessHandler extends BaseProcessHandler {
     private final GrowableBuffer stdOutBuffer;
-    private final CompletableFuture<InputStream> output = new CompletableFuture<>();
+    private final CompletableFuture<GrowableBuffer> output = new CompletableFuture<>();
     private final boolean debug = false;
     private long startTime;
 
@@ -44,15 +44,15 @@ public class OutputRecordingProcessHandler extends BaseProcessHandler {
         }
 
         if (closed) {
-            final var array = stdOutBuffer.array();
             if (debug) {
-                Log.infof("array %d:\n\n%s\n\n", array.length, new String(array));
+                Log.infof("output %d:\n\n%s\n\n", stdOutBuffer.length(),
+                        StandardCharsets.UTF_8.decode(stdOutBuffer.view()));
             }
-            output.complete(new ByteArrayInputStream(array));
+            output.complete(stdOutBuffer);
         }
     }
 
     public CompletableFuture<InputStream> getInputStream() {
-        return output;
+        return output.thenApply(GrowableBuffer::inputStream);
     }
 }
@@ -1,20 +1,26 @@
 package net.laprun.sustainability.power.sensors;
 
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import io.quarkus.logging.Log;
+import net.laprun.sustainability.power.PowerClock;
 import net.laprun.sustainability.power.SensorMetadata;
 
 public abstract class AbstractPowerSensor implements PowerSensor {
-    protected final Measures measures = new MapMeasures();
+    protected final Measures measures = new LongKeyedMeasures();
     private final PIDRegistry registry = new PIDRegistry();
     private long lastUpdateEpoch;
+    private long lastUpdateNanos;
     private boolean started;
     @ConfigProperty(name = "power-server.enable-cpu-share-sampling", defaultValue = "false")
     protected boolean cpuSharesEnabled;
     private SensorMetadata metadata;
+    private PowerClock clock = PowerClock.SYSTEM;
 
     @Override
     public SensorMetadata metadata() {
@@ -26,6 +32,19 @@ public abstract class AbstractPowerSensor implements PowerSensor {
 
     abstract protected SensorMetadata nativeMetadata();
 
+    @Override
+    public PowerClock clock() {
+        return clock;
+    }
+
+    @Override
+    public void useClock(PowerClock clock) {
+        if (started) {
+            throw new IllegalStateException("Cannot change the clock of a started sensor");
+        }
+        this.clock = Objects.requireNonNull(clock, "Clock cannot be null");
+    }
+
     @Override
     public boolean wantsCPUShareSamplingEnabled() {
         return cpuSharesEnabled;
@@ -38,16 +57,24 @@ public abstract class AbstractPowerSensor implements PowerSensor {
 
     @Override
     public RegisteredPID register(long pid) {
-        Log.debugf("Registered pid: %d", pid);
-        final var key = RegisteredPID.create(pid);
+        return register(RegisteredPID.create(pid));
+    }
+
+    @Override
+    public RegisteredPID register(long pid, boolean includeDescendants) {
+        return register(RegisteredPID.create(pid, includeDescendants));
+    }
+
+    protected RegisteredPID register(RegisteredPID key) {
         registry.register(key);
+        Log.debugf("Registered pid: %s", key.pidAsString());
         return key;
     }
 
     @Override
     public void unregister(RegisteredPID registeredPID) {
         registry.unregister(registeredPID);
-        Log.debugf("Unregistered pid: %d", registeredPID.pid());
+        Log.debugf("Unregistered pid: %s", registeredPID.pidAsString());
     }
 
     protected int numberOfRegisteredPIDs() {
@@ -59,15 +86,29 @@ public abstract class AbstractPowerSensor implements PowerSensor {
         return registry.pids();
     }
 
+    /**
+     * @return the current snapshot of the processes registered with this sensor, which can be used to cache data derived
+     *         from the registered processes until the snapshot version changes
+     */
+    protected PIDRegistry.Snapshot registrySnapshot() {
+        return registry.snapshot();
+    }
+
     @Override
     public Set<String> registeredPIDsAsStrings() {
         return registry.pidsAsStrings();
     }
 
+    @Override
+    public Map<String, Double> aggregateDescendantsCPUShares(Map<String, Double> cpuShares) {
+        return registry.aggregateDescendantsCPUShares(cpuShares);
+    }
+
     @Override
     public void start() throws Exception {
         if (!started) {
-            lastUpdateEpoch = System.currentTimeMillis();
+            lastUpdateEpoch = clock.epochMillis();
+            lastUpdateNanos = clock.nanoTime();
             started = true;
             doStart();
         }
@@ -87,10 +128,17 @@ public abstract class AbstractPowerSensor implements PowerSensor {
     }
 
     public Measures update(long tick) {
-        final long newUpdateStartEpoch = System.currentTimeMillis();
-        Log.debugf("Sensor update last called: %dms ago", newUpdateStartEpoch - lastUpdateEpoch);
+        return update(tick, clock.epochMillis());
+    }
+
+    @Override
+    public Measures update(long tick, long newUpdateStartEpoch) {
+        // wall-clock time is only used to timestamp measures, intervals are computed using the monotonic clock
+        final long newUpdateStartNanos = clock.nanoTime();
+        Log.debugf("Sensor update last called: %dms ago", TimeUnit.NANOSECONDS.toMillis(newUpdateStartNanos - lastUpdateNanos));
         final var measures = doUpdate(lastUpdateEpoch, newUpdateStartEpoch);
         lastUpdateEpoch = newUpdateStartEpoch;
+        lastUpdateNanos = newUpdateStartNanos;
         return measures;
     }
 
@@ -98,5 +146,12 @@ public abstract class AbstractPowerSensor implements PowerSensor {
         return lastUpdateEpoch;
     }
 
+    /**
+     * @return the value of the monotonic clock, as given by {@link PowerClock#nanoTime()}, when the last update started
+     */
+    protected long lastUpdateNanos() {
+        return lastUpdateNanos;
+    }
+
     abstract protected Measures doUpdate(long lastUpdateEpoch, long newUpdateStartEpoch);
 }
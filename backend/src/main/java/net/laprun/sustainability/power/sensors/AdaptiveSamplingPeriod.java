@@ -0,0 +1,121 @@
+package net.laprun.sustainability.power.sensors;
+
+import java.time.Duration;
+
+import io.quarkus.logging.Log;
+import net.laprun.sustainability.power.SensorMeasure;
+import net.laprun.sustainability.power.analysis.total.Totaler;
+
+/**
+ * Adapts the sampling period between configured bounds depending on how steady power consumption is. The total power of
+ * each sample, as computed by a {@link Totaler}, is recorded over a rolling window: when its relative variability
+ * (coefficient of variation, i.e. standard deviation over mean) is high, the period is halved to capture the burst in more
+ * detail, while it is doubled when power has been steady over a full window, thus reducing the sampling overhead and the
+ * amount of recorded data on idle systems.
+ */
+class AdaptiveSamplingPeriod {
+    static final int WINDOW_SIZE = 8;
+    static final double STEADY_THRESHOLD = 0.02;
+    static final double BURST_THRESHOLD = 0.1;
+
+    private final Totaler totaler;
+    private final long minPeriodNanos;
+    private final long maxPeriodNanos;
+    private final double[] totals = new double[WINDOW_SIZE];
+    private long periodNanos;
+    private int count;
+    private int next;
+
+    AdaptiveSamplingPeriod(Totaler totaler, Duration minPeriod, Duration maxPeriod) {
+        if (minPeriod.isNegative() || minPeriod.isZero()) {
+            throw new IllegalArgumentException("Minimal sampling period must be positive, was: " + minPeriod);
+        }
+        if (maxPeriod.compareTo(minPeriod) < 0) {
+            throw new IllegalArgumentException(
+                    "Maximal sampling period " + maxPeriod + " must be greater than minimal sampling period " + minPeriod);
+        }
+        this.totaler = totaler;
+        this.minPeriodNanos = minPeriod.toNanos();
+        this.maxPeriodNanos = maxPeriod.toNanos();
+        // start with fine-grained sampling, coarsening it if power turns out to be steady
+        this.periodNanos = minPeriodNanos;
+    }
+
+    long periodNanos() {
+        return periodNanos;
+    }
+
+    /**
+     * Records the total power of the specified measures, adjusting the sampling period if needed
+     *
+     * @param measures the measures recorded by the sensor for the last sampling period
+     * @param pids the processes currently tracked by the sensor, used to find a representative measure if the sensor
+     *        doesn't record a system total
+     * @return the sampling period to use for the next sampling period, in nanoseconds
+     */
+    long record(Measures measures, Iterable<RegisteredPID> pids) {
+        final var measure = representativeMeasure(measures, pids);
+        if (measure != SensorMeasure.missing) {
+            record(totaler.computeTotalFrom(measure.components()));
+        }
+        return periodNanos;
+    }
+
+    void record(double total) {
+        totals[next] = total;
+        next = (next + 1) % WINDOW_SIZE;
+        if (count < WINDOW_SIZE) {
+            count++;
+        }
+        if (count < 2) {
+            return;
+        }
+
+        final var variation = coefficientOfVariation();
+        if (variation >= BURST_THRESHOLD && periodNanos > minPeriodNanos) {
+            updatePeriod(Math.max(minPeriodNanos, periodNanos / 2), variation);
+        } else if (count == WINDOW_SIZE && variation <= STEADY_THRESHOLD && periodNanos < maxPeriodNanos) {
+            updatePeriod(Math.min(maxPeriodNanos, periodNanos * 2), variation);
+        }
+    }
+
+    private void updatePeriod(long newPeriodNanos, double variation) {
+        Log.debugf("Power variation is %.3f, adjusting sampling period from %dms to %dms", variation,
+                periodNanos / 1_000_000, newPeriodNanos / 1_000_000);
+        periodNanos = newPeriodNanos;
+        // only consider samples taken with the new period from now on
+        count = 0;
+        next = 0;
+    }
+
+    private double coefficientOfVariation() {
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += totals[i];
+        }
+        final var mean = sum / count;
+        if (mean <= 0) {
+            return 0;
+        }
+        double squares = 0;
+        for (int i = 0; i < count; i++) {
+            final var delta = totals[i] - mean;
+            squares += delta * delta;
+        }
+        return Math.sqrt(squares / count) / mean;
+    }
+
+    private static SensorMeasure representativeMeasure(Measures measures, Iterable<RegisteredPID> pids) {
+        final var total = measures.getSystemTotal();
+        if (total != SensorMeasure.missing) {
+            return total;
+        }
+        for (RegisteredPID pid : pids) {
+            final var measure = measures.getOrDefault(pid);
+            if (measure != SensorMeasure.missing) {
+                return measure;
+            }
+        }
+        return SensorMeasure.missing;
+    }
+}
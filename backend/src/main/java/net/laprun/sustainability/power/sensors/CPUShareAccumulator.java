@@ -0,0 +1,205 @@
+package net.laprun.sustainability.power.sensors;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Accumulates the CPU shares sampled several times over a sampling period (over-sampling) to compute their average for
+ * each process, using primitive slots that are reused from one period to the next instead of boxing each sample.
+ * Processes are keyed by their primitive pid (cgroups and processes tracked with their descendants, which cannot be
+ * represented as such, being keyed by their {@link RegisteredPID#registrationId()}).
+ * <p>
+ * Each window only records the processes seen during that window, so that memory is bounded by the number of processes
+ * sampled over a window instead of growing with process churn. Averages are handed out as immutable {@link CPUShares}
+ * snapshots, which consumers can therefore read at their own pace, while the slots are reused for the next window.
+ */
+final class CPUShareAccumulator {
+    private final int windowSize;
+    private final Slots slots = new Slots(16);
+    private int samples;
+
+    CPUShareAccumulator(int windowSize) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Window size must be at least 1, was: " + windowSize);
+        }
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Records the specified CPU shares sample
+     *
+     * @param cpuShares a mapping of process identifiers (as strings) to their CPU share
+     * @return {@code true} if the window is complete, meaning that {@link #averages()} should be called, {@code false}
+     *         otherwise
+     */
+    boolean add(Map<String, Double> cpuShares) {
+        cpuShares.forEach((key, cpuShare) -> {
+            // drop null values to avoid skewing average even more
+            if (cpuShare != null && cpuShare > 0) {
+                slots.accumulate(key, cpuShare);
+            }
+        });
+        return ++samples >= windowSize;
+    }
+
+    /**
+     * Computes the average CPU share of each process over the current window, starting the next window
+     *
+     * @return a snapshot of the average CPU shares
+     */
+    CPUShares averages() {
+        final var averages = slots.averages();
+        slots.reset();
+        samples = 0;
+        return averages;
+    }
+
+    /**
+     * @return the number of slots currently allocated, exposed for testing
+     */
+    int allocatedSlots() {
+        return slots.capacity();
+    }
+
+    private static long parsePid(String key) {
+        final var length = key.length();
+        if (length == 0 || length > 18) {
+            return Long.MIN_VALUE;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            final var digit = key.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return Long.MIN_VALUE;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * The average CPU shares of processes over a sampling period, as an immutable snapshot: pids are sorted so that they
+     * can be looked up without hashing, only costing a couple of small arrays per period
+     */
+    static final class CPUShares {
+        static final CPUShares NONE = new CPUShares(new long[0], new double[0], Map.of());
+
+        private final long[] pids;
+        private final double[] values;
+        private final Map<String, Double> others;
+
+        private CPUShares(long[] pids, double[] values, Map<String, Double> others) {
+            this.pids = pids;
+            this.values = values;
+            this.others = others;
+        }
+
+        boolean isEmpty() {
+            return pids.length == 0 && others.isEmpty();
+        }
+
+        /**
+         * Retrieves the average CPU share of the specified process
+         *
+         * @param pid the process which CPU share we want to retrieve
+         * @return the average CPU share of the specified process or {@code 0} if unknown
+         */
+        double cpuShareFor(RegisteredPID pid) {
+            if (pid.isCgroup() || pid.includeDescendants()) {
+                return others.getOrDefault(pid.registrationId(), 0.0);
+            }
+            final var index = Arrays.binarySearch(pids, pid.pid());
+            return index >= 0 ? values[index] : 0;
+        }
+    }
+
+    /**
+     * Sums of the CPU shares sampled over the current window, reused across windows
+     */
+    private static final class Slots {
+        private final LongIntHashMap pids;
+        private final Map<String, Integer> others = new HashMap<>();
+        private long[] keys;
+        private double[] sums;
+        private int[] counts;
+        private int size;
+
+        private Slots(int expectedSize) {
+            pids = new LongIntHashMap(expectedSize);
+            keys = new long[expectedSize];
+            sums = new double[expectedSize];
+            counts = new int[expectedSize];
+        }
+
+        private void accumulate(String key, double cpuShare) {
+            final var slot = slotFor(key);
+            sums[slot] += cpuShare;
+            counts[slot]++;
+        }
+
+        private CPUShares averages() {
+            if (size == 0) {
+                return CPUShares.NONE;
+            }
+            final var sortedPids = new long[size - others.size()];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (keys[i] != Long.MIN_VALUE) {
+                    sortedPids[count++] = keys[i];
+                }
+            }
+            Arrays.sort(sortedPids);
+            final var averages = new double[sortedPids.length];
+            for (int i = 0; i < sortedPids.length; i++) {
+                averages[i] = average(pids.get(sortedPids[i]));
+            }
+            final Map<String, Double> otherAverages;
+            if (others.isEmpty()) {
+                otherAverages = Map.of();
+            } else {
+                otherAverages = new HashMap<>(others.size());
+                others.forEach((key, slot) -> otherAverages.put(key, average(slot)));
+            }
+            return new CPUShares(sortedPids, averages, otherAverages);
+        }
+
+        private double average(int slot) {
+            return counts[slot] > 0 ? sums[slot] / counts[slot] : 0;
+        }
+
+        private void reset() {
+            Arrays.fill(sums, 0, size, 0);
+            Arrays.fill(counts, 0, size, 0);
+            pids.clear();
+            others.clear();
+            size = 0;
+        }
+
+        private int capacity() {
+            return sums.length;
+        }
+
+        private int slotFor(String key) {
+            final var numeric = parsePid(key);
+            final int slot = numeric != Long.MIN_VALUE ? pids.get(numeric) : others.getOrDefault(key, LongIntHashMap.MISSING);
+            if (slot != LongIntHashMap.MISSING) {
+                return slot;
+            }
+            final var added = size++;
+            if (added >= sums.length) {
+                final var capacity = Math.max(16, sums.length * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                sums = Arrays.copyOf(sums, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+            }
+            keys[added] = numeric;
+            if (numeric != Long.MIN_VALUE) {
+                pids.put(numeric, added);
+            } else {
+                others.put(key, added);
+            }
+            return added;
+        }
+    }
+}
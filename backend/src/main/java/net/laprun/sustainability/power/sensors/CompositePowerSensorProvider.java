@@ -0,0 +1,173 @@
+package net.laprun.sustainability.power.sensors;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import io.quarkus.logging.Log;
+
+/**
+ * Selects the best available {@link PowerSensorProvider} among a set of providers, typically discovered via
+ * {@link ServiceLoader}. Providers are probed in parallel, probes that don't complete within the specified timeout being
+ * considered unavailable. Available providers are then tried in decreasing priority order until one of them successfully
+ * creates its sensor, so that lower-priority providers, which might be costlier to initialize, are not created at all if
+ * a higher-priority one is available.
+ */
+public final class CompositePowerSensorProvider implements PowerSensorProvider {
+    public static final Duration DEFAULT_PROBE_TIMEOUT = Duration.ofSeconds(2);
+    private static final Comparator<PowerSensorProvider> BY_DECREASING_PRIORITY = Comparator
+            .comparingInt(PowerSensorProvider::priority).reversed()
+            .thenComparing(PowerSensorProvider::name);
+
+    private final List<PowerSensorProvider> providers;
+    private final Duration probeTimeout;
+    private List<PowerSensorProvider> available;
+
+    public CompositePowerSensorProvider(Collection<? extends PowerSensorProvider> providers, Duration probeTimeout) {
+        if (probeTimeout.isNegative() || probeTimeout.isZero()) {
+            throw new IllegalArgumentException("Probe timeout must be positive, was: " + probeTimeout);
+        }
+        final var sorted = new ArrayList<PowerSensorProvider>(providers);
+        sorted.sort(BY_DECREASING_PRIORITY);
+        this.providers = List.copyOf(sorted);
+        this.probeTimeout = probeTimeout;
+    }
+
+    /**
+     * Creates a composite of the providers registered via {@link ServiceLoader}, providers that cannot be instantiated being
+     * ignored
+     *
+     * @param probeTimeout how long to wait for providers' availability probes
+     * @return a composite of the registered providers
+     */
+    public static CompositePowerSensorProvider load(Duration probeTimeout) {
+        final var providers = new ArrayList<PowerSensorProvider>();
+        ServiceLoader.load(PowerSensorProvider.class).stream().forEach(provider -> {
+            try {
+                providers.add(provider.get());
+            } catch (ServiceConfigurationError e) {
+                Log.infof("Ignoring power sensor provider %s: %s", provider.type().getName(), e.getMessage());
+            }
+        });
+        return new CompositePowerSensorProvider(providers, probeTimeout);
+    }
+
+    @Override
+    public String name() {
+        return "composite";
+    }
+
+    @Override
+    public int priority() {
+        return providers.isEmpty() ? 0 : providers.getFirst().priority();
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return !availableProviders().isEmpty();
+    }
+
+    /**
+     * Creates the sensor of the highest-priority available provider, falling back to the next available one if it fails
+     *
+     * @return a new {@link PowerSensor}
+     * @throws RuntimeException if no available provider could create its sensor
+     */
+    @Override
+    public PowerSensor create() {
+        final var candidates = availableProviders();
+        RuntimeException failure = null;
+        for (PowerSensorProvider provider : candidates) {
+            try {
+                final var sensor = provider.create();
+                Log.infof("Using %s power sensor", provider.name());
+                return sensor;
+            } catch (RuntimeException e) {
+                Log.infof("Couldn't create %s power sensor, trying next available one. Cause: %s", provider.name(),
+                        e.getMessage());
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        throw new RuntimeException("No available power sensor for platform " + System.getProperty("os.name")
+                + ", known providers: " + names(providers), failure);
+    }
+
+    /**
+     * Creates the sensor of the specified provider, without probing its availability
+     *
+     * @param name the name of the provider to use
+     * @return a new {@link PowerSensor}
+     * @throws IllegalArgumentException if no provider with the specified name is known
+     */
+    public PowerSensor create(String name) {
+        for (PowerSensorProvider provider : providers) {
+            if (provider.name().equals(name)) {
+                Log.infof("Using explicitly selected %s power sensor", name);
+                return provider.create();
+            }
+        }
+        throw new IllegalArgumentException("Unknown power sensor provider: " + name + ", known providers: " + names(providers));
+    }
+
+    /**
+     * @return the providers which probes succeeded, in decreasing priority order, probing them on the first call
+     */
+    synchronized List<PowerSensorProvider> availableProviders() {
+        if (available == null) {
+            available = probe();
+        }
+        return available;
+    }
+
+    private List<PowerSensorProvider> probe() {
+        final var probes = new ArrayList<Callable<Boolean>>(providers.size());
+        providers.forEach(provider -> probes.add(provider::isAvailable));
+        // don't wait for the executor to terminate as it would block on probes that don't react to interruption
+        final var executor = Executors.newVirtualThreadPerTaskExecutor();
+        final List<Future<Boolean>> results;
+        try {
+            results = executor.invokeAll(probes, probeTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        final var result = new ArrayList<PowerSensorProvider>(providers.size());
+        for (int i = 0; i < providers.size(); i++) {
+            final var provider = providers.get(i);
+            try {
+                if (results.get(i).get()) {
+                    result.add(provider);
+                } else {
+                    Log.debugf("%s power sensor is not available", provider.name());
+                }
+            } catch (CancellationException e) {
+                Log.infof("%s power sensor probe timed out after %dms", provider.name(), probeTimeout.toMillis());
+            } catch (ExecutionException e) {
+                Log.infof("%s power sensor probe failed: %s", provider.name(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+        return List.copyOf(result);
+    }
+
+    private static List<String> names(List<PowerSensorProvider> providers) {
+        return providers.stream().map(PowerSensorProvider::name).toList();
+    }
+}
@@ -0,0 +1,200 @@
+package net.laprun.sustainability.power.sensors;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.laprun.sustainability.power.SensorMeasure;
+
+/**
+ * Sits between the sensor and the subscribers when the sensor is sampled at a higher frequency than the published sampling
+ * period: raw readings are recorded into a {@link RawSampleBuffer} without allocating and, at the end of each sampling
+ * period, the readings taken during that period are downsampled into the published measure. Streams can also request a
+ * different resolution, in which case measures at that resolution are downsampled from the raw readings as soon as enough
+ * of them have been taken, which means that several of them might be published at once for resolutions finer than the
+ * sampling period.
+ * <p>
+ * Sampling methods must be called from the sampling thread, while resolutions can be requested from any thread.
+ */
+class DownsamplingStage {
+    private static final Resolution[] NO_RESOLUTIONS = new Resolution[0];
+
+    private final PowerSensor sensor;
+    private final RawSampleBuffer buffer;
+    private final long rawPeriodNanos;
+    private final double[] scratch;
+    private long lastEpoch = -1;
+    private long periodStartSequence;
+    // copy-on-write: mutated while holding this instance's lock, read without locking when publishing
+    private volatile Resolution[] resolutions = NO_RESOLUTIONS;
+
+    DownsamplingStage(PowerSensor sensor, Duration rawPeriod, Duration retention) {
+        if (!sensor.supportsRawSampling()) {
+            throw new IllegalArgumentException(sensor.getClass().getSimpleName() + " doesn't support raw sampling");
+        }
+        this.rawPeriodNanos = rawPeriod.toNanos();
+        if (rawPeriodNanos <= 0) {
+            throw new IllegalArgumentException("Raw sampling period must be positive, was: " + rawPeriod);
+        }
+        this.sensor = sensor;
+        final var capacity = Math.max(1, retention.toNanos() / rawPeriodNanos);
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Retention " + retention + " is too long for raw sampling period " + rawPeriod);
+        }
+        this.buffer = new RawSampleBuffer(sensor.metadata(), (int) capacity);
+        this.scratch = new double[buffer.componentCardinality()];
+    }
+
+    long rawPeriodNanos() {
+        return rawPeriodNanos;
+    }
+
+    /**
+     * Takes a raw reading from the sensor, recording it into the buffer
+     *
+     * @param endEpoch the end of the interval covered by the reading, in milliseconds since the epoch
+     */
+    void sample(long endEpoch) {
+        final var durationNs = sensor.sampleInto(scratch);
+        final var startEpoch = lastEpoch < 0 ? endEpoch - durationNs / 1_000_000 : lastEpoch;
+        buffer.record(scratch, startEpoch, endEpoch, durationNs);
+        lastEpoch = endEpoch;
+    }
+
+    /**
+     * Downsamples the readings taken since the last call into the measures to publish for the period that just ended,
+     * attributed to each of the specified processes, along with the measures for the requested resolutions that became
+     * available since then
+     *
+     * @param pids the processes currently tracked by the sensor
+     * @return the measures to publish
+     */
+    DownsampledMeasures publish(Iterable<RegisteredPID> pids) {
+        final var current = resolutions;
+        final var sequence = buffer.sequence();
+        final var periodStart = Math.max(periodStartSequence, buffer.oldestSequence());
+        final var measure = buffer.downsample(periodStart, sequence);
+        periodStartSequence = sequence;
+
+        final var atResolutions = new SensorMeasure[current.length][];
+        for (int i = 0; i < current.length; i++) {
+            atResolutions[i] = current[i].downsample(buffer, periodStart);
+        }
+        final var measures = new DownsampledMeasures(current, atResolutions);
+        if (measure != SensorMeasure.missing) {
+            // readings are system-wide so all processes get the same measure
+            measures.record(RegisteredPID.SYSTEM_TOTAL_REGISTERED_PID, measure);
+            for (RegisteredPID pid : pids) {
+                measures.record(pid, measure);
+            }
+        }
+        return measures;
+    }
+
+    /**
+     * Checks that measures can be provided at the specified resolution
+     *
+     * @param resolution the requested resolution
+     * @throws IllegalArgumentException if the resolution is finer than the raw sampling period or too coarse to be
+     *         computed from the retained raw readings
+     */
+    void checkResolution(Duration resolution) {
+        readingsFor(resolution);
+    }
+
+    synchronized void addResolution(Duration resolution) {
+        final var current = resolutions;
+        for (Resolution existing : current) {
+            if (existing.duration.equals(resolution)) {
+                existing.subscribers++;
+                return;
+            }
+        }
+        final var updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = new Resolution(resolution, readingsFor(resolution));
+        resolutions = updated;
+    }
+
+    synchronized void removeResolution(Duration resolution) {
+        final var current = resolutions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].duration.equals(resolution) && --current[i].subscribers == 0) {
+                final var updated = Arrays.copyOf(current, current.length - 1);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                resolutions = updated;
+                return;
+            }
+        }
+    }
+
+    private long readingsFor(Duration resolution) {
+        final var readings = resolution.toNanos() / rawPeriodNanos;
+        if (readings < 1) {
+            throw new IllegalArgumentException("Resolution " + resolution + " is finer than the raw sampling period "
+                    + Duration.ofNanos(rawPeriodNanos));
+        }
+        // leave room for the readings taken during a sampling period so that they are still available when publishing
+        if (readings > buffer.capacity() / 2) {
+            throw new IllegalArgumentException("Resolution " + resolution + " is too coarse for the retained raw readings, "
+                    + "maximal resolution is " + Duration.ofNanos(rawPeriodNanos * (buffer.capacity() / 2)));
+        }
+        return readings;
+    }
+
+    private static final class Resolution {
+        private final Duration duration;
+        private final long readings;
+        private int subscribers = 1;
+        // only accessed from the sampling thread
+        private long nextSequence = -1;
+
+        private Resolution(Duration duration, long readings) {
+            this.duration = duration;
+            this.readings = readings;
+        }
+
+        private SensorMeasure[] downsample(RawSampleBuffer buffer, long periodStart) {
+            final var sequence = buffer.sequence();
+            if (nextSequence < 0) {
+                // start with the readings of the period during which the resolution was requested
+                nextSequence = periodStart;
+            }
+            nextSequence = Math.max(nextSequence, buffer.oldestSequence());
+            final List<SensorMeasure> measures = new ArrayList<>((int) ((sequence - nextSequence) / readings));
+            while (sequence - nextSequence >= readings) {
+                measures.add(buffer.downsample(nextSequence, nextSequence + readings));
+                nextSequence += readings;
+            }
+            return measures.toArray(new SensorMeasure[0]);
+        }
+    }
+
+    /**
+     * The measures published at the end of a sampling period, along with the measures at the requested resolutions that
+     * became available during that period
+     */
+    static final class DownsampledMeasures extends LongKeyedMeasures {
+        private static final SensorMeasure[] NONE = new SensorMeasure[0];
+        private final Resolution[] resolutions;
+        private final SensorMeasure[][] atResolutions;
+
+        private DownsampledMeasures(Resolution[] resolutions, SensorMeasure[][] atResolutions) {
+            this.resolutions = resolutions;
+            this.atResolutions = atResolutions;
+        }
+
+        /**
+         * @param resolution the requested resolution
+         * @return the system-wide measures at the specified resolution that became available during the sampling period
+         */
+        SensorMeasure[] atResolution(Duration resolution) {
+            for (int i = 0; i < resolutions.length; i++) {
+                if (resolutions[i].duration.equals(resolution)) {
+                    return atResolutions[i];
+                }
+            }
+            return NONE;
+        }
+    }
+}
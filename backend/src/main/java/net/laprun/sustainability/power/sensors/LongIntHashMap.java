@@ -0,0 +1,133 @@
+package net.laprun.sustainability.power.sensors;
+
+import java.util.Arrays;
+
+/**
+ * A minimal open-addressing (linear probing) hash map associating primitive {@code long} keys (typically process
+ * identifiers) to primitive {@code int} values (typically indices into arrays), so that lookups on hot paths neither box
+ * keys nor allocate.
+ */
+public final class LongIntHashMap {
+    /**
+     * Value returned by {@link #get(long)} when no value is associated with the requested key
+     */
+    public static final int MISSING = -1;
+    // used to mark empty slots, which means this key cannot be stored
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public LongIntHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Associates the specified value to the specified key, replacing any existing association
+     *
+     * @param key the key, which cannot be {@link Long#MIN_VALUE}
+     * @param value the value, which cannot be {@link #MISSING}
+     */
+    public void put(long key, int value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Unsupported key: " + key);
+        }
+        if (value == MISSING) {
+            throw new IllegalArgumentException("Unsupported value: " + value);
+        }
+        if (2 * (size + 1) > keys.length) {
+            rehash(keys.length * 2);
+        }
+        int slot = slotFor(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+
+    /**
+     * Retrieves the value associated with the specified key
+     *
+     * @param key the key
+     * @return the associated value or {@link #MISSING} if there is no such value
+     */
+    public int get(long key) {
+        if (key == EMPTY) {
+            return MISSING;
+        }
+        int slot = slotFor(key);
+        long current;
+        while ((current = keys[slot]) != EMPTY) {
+            if (current == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != MISSING;
+    }
+
+    /**
+     * @return an independent copy of this map
+     */
+    public LongIntHashMap copy() {
+        final var copy = new LongIntHashMap(0);
+        copy.keys = keys.clone();
+        copy.values = values.clone();
+        copy.mask = mask;
+        copy.size = size;
+        return copy;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, EMPTY);
+            size = 0;
+        }
+    }
+
+    private int slotFor(long key) {
+        // spread the bits since process identifiers are mostly sequential
+        final var hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void rehash(int capacity) {
+        final var oldKeys = keys;
+        final var oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        // keep the load factor at most 0.5
+        return Math.max(8, Integer.highestOneBit(Math.max(expectedSize, 1) * 2 - 1) << 1);
+    }
+}
@@ -0,0 +1,146 @@
+package net.laprun.sustainability.power.sensors;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.StringJoiner;
+
+import net.laprun.sustainability.power.SensorMeasure;
+
+/**
+ * A {@link Measures} implementation storing measures in an open-addressing table keyed by {@link RegisteredPID#id()} so that
+ * retrieving a measure neither hashes strings nor allocates.
+ * <p>
+ * The table is meant to be written by a single sampling thread while being read concurrently by subscribers: writes are
+ * serialized and publish each slot value with release semantics after its key, while readers are lock-free and read the
+ * value with acquire semantics, thus always observing a fully-constructed {@link SensorMeasure}. Growing the table or
+ * clearing it publishes a new table via a volatile reference, readers still working on the previous one seeing consistent,
+ * if slightly stale, values.
+ */
+public class LongKeyedMeasures implements Measures {
+    private static final long FREE = RegisteredPID.SYSTEM_TOTAL_PID;
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(SensorMeasure[].class);
+
+    private volatile Table table = new Table(DEFAULT_CAPACITY);
+    // the system total is kept separately since its key is used to mark free slots
+    private volatile SensorMeasure systemTotal;
+
+    @Override
+    public synchronized Measures record(RegisteredPID pid, SensorMeasure sensorMeasure) {
+        final long key = pid.id();
+        if (key == FREE) {
+            systemTotal = sensorMeasure;
+            return this;
+        }
+
+        var current = table;
+        if (!current.put(key, sensorMeasure)) {
+            current = current.grow();
+            current.put(key, sensorMeasure);
+            table = current;
+        }
+        return this;
+    }
+
+    @Override
+    public SensorMeasure getOrDefault(RegisteredPID pid) {
+        final long key = pid.id();
+        final SensorMeasure measure = key == FREE ? systemTotal : table.get(key);
+        return measure == null ? SensorMeasure.missing : measure;
+    }
+
+    @Override
+    public synchronized void clear() {
+        table = new Table(DEFAULT_CAPACITY);
+        systemTotal = null;
+    }
+
+    @Override
+    public String toString() {
+        final var joiner = new StringJoiner(", ", "{", "}");
+        final var totalMeasure = systemTotal;
+        if (totalMeasure != null) {
+            joiner.add(RegisteredPID.SYSTEM_TOTAL_PID + "=" + totalMeasure);
+        }
+        final var current = table;
+        for (int i = 0; i < current.keys.length; i++) {
+            final var value = (SensorMeasure) VALUES.getAcquire(current.values, i);
+            if (value != null) {
+                joiner.add(current.keys[i] + "=" + value);
+            }
+        }
+        return joiner.toString();
+    }
+
+    private static final class Table {
+        private final long[] keys;
+        private final SensorMeasure[] values;
+        private final int mask;
+        private int size;
+
+        private Table(int capacity) {
+            keys = new long[capacity];
+            Arrays.fill(keys, FREE);
+            values = new SensorMeasure[capacity];
+            mask = capacity - 1;
+        }
+
+        private static int indexFor(long key, int mask) {
+            final long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+
+        /**
+         * Records the value, returning {@code false} if the table needs to grow before the key can be added
+         */
+        private boolean put(long key, SensorMeasure value) {
+            int index = indexFor(key, mask);
+            while (true) {
+                final long existing = keys[index];
+                if (existing == key) {
+                    VALUES.setRelease(values, index, value);
+                    return true;
+                }
+                if (existing == FREE) {
+                    // keep load factor at or below 0.5
+                    if ((size + 1) * 2 > keys.length) {
+                        return false;
+                    }
+                    // the value is published after the key: readers seeing the key but not yet the value treat it as missing
+                    keys[index] = key;
+                    VALUES.setRelease(values, index, value);
+                    size++;
+                    return true;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        private SensorMeasure get(long key) {
+            int index = indexFor(key, mask);
+            for (int probes = 0; probes < keys.length; probes++) {
+                final long existing = keys[index];
+                if (existing == key) {
+                    return (SensorMeasure) VALUES.getAcquire(values, index);
+                }
+                if (existing == FREE) {
+                    return null;
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        private Table grow() {
+            final var grown = new Table(keys.length * 2);
+            for (int i = 0; i < keys.length; i++) {
+                final var value = (SensorMeasure) VALUES.getAcquire(values, i);
+                if (keys[i] != FREE && value != null) {
+                    grown.put(keys[i], value);
+                }
+            }
+            return grown;
+        }
+    }
+}
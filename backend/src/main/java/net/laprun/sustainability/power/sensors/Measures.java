@@ -28,7 +28,6 @@ public interface Measures {
         return SensorMeasure.missing;
     }
 
-    @SuppressWarnings("unused")
     default SensorMeasure getSystemTotal() {
         return getOrDefault(RegisteredPID.SYSTEM_TOTAL_REGISTERED_PID);
     }
@@ -1,33 +1,163 @@
 package net.laprun.sustainability.power.sensors;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
+/**
+ * Keeps track of the processes registered with a {@link PowerSensor}. Registrations happen on request threads while the
+ * sampling thread reads the registered processes on each tick so, instead of sharing a mutable set, each registration
+ * change publishes a new immutable {@link Snapshot}, sampling ticks only reading the current one via a single volatile
+ * read, without locking or re-computing anything.
+ */
 public class PIDRegistry {
-    private final Set<RegisteredPID> pids = new HashSet<>();
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private final ProcessParents parents = new ProcessParents();
 
-    public void register(RegisteredPID registeredPID) {
-        if (!RegisteredPID.SYSTEM_TOTAL_REGISTERED_PID.equals(registeredPID)) {
+    public synchronized void register(RegisteredPID registeredPID) {
+        if (!RegisteredPID.SYSTEM_TOTAL_REGISTERED_PID.equals(registeredPID) && !snapshot.pids.contains(registeredPID)) {
+            final var pids = new LinkedHashSet<>(snapshot.pids);
             pids.add(registeredPID);
+            snapshot = snapshot.next(pids);
         }
     }
 
-    public void unregister(RegisteredPID registeredPID) {
-        if (!RegisteredPID.SYSTEM_TOTAL_REGISTERED_PID.equals(registeredPID)) {
+    public synchronized void unregister(RegisteredPID registeredPID) {
+        if (!RegisteredPID.SYSTEM_TOTAL_REGISTERED_PID.equals(registeredPID) && snapshot.pids.contains(registeredPID)) {
+            final var pids = new LinkedHashSet<>(snapshot.pids);
             pids.remove(registeredPID);
+            snapshot = snapshot.next(pids);
         }
     }
 
+    /**
+     * Retrieves the current snapshot of registered processes
+     *
+     * @return the current {@link Snapshot}
+     */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Retrieves the string representations of the registered process identifiers, including the descendants of processes
+     * registered with descendants tracking, which are re-discovered when this method is called, the parent relationships
+     * of all processes being refreshed once and shared by all trees. When no process is registered with descendants
+     * tracking, the precomputed set from the current snapshot is returned as-is.
+     *
+     * @return the string representations of the process identifiers currently tracked
+     */
     public Set<String> pidsAsStrings() {
-        return pids.stream().map(RegisteredPID::pidAsString).collect(Collectors.toSet());
+        final var current = snapshot;
+        if (current.trees.length == 0) {
+            return current.pidsAsStringsSet;
+        }
+        final var pidsAsStrings = new HashSet<>(current.pidsAsStringsSet);
+        synchronized (parents) {
+            parents.refresh();
+            for (ProcessTree tree : current.trees) {
+                pidsAsStrings.addAll(tree.refresh(parents));
+            }
+        }
+        return pidsAsStrings;
+    }
+
+    /**
+     * Aggregates the CPU shares of the descendants of processes registered with descendants tracking with their root's,
+     * under the {@link RegisteredPID#registrationId()} of the registration
+     *
+     * @param cpuShares a mapping of process identifiers (as strings) to their CPU share, as computed for the process
+     *        identifiers returned by {@link #pidsAsStrings()}
+     * @return the updated mapping
+     */
+    public Map<String, Double> aggregateDescendantsCPUShares(Map<String, Double> cpuShares) {
+        final var trees = snapshot.trees;
+        if (trees.length == 0 || cpuShares.isEmpty()) {
+            return cpuShares;
+        }
+        final var aggregated = new HashMap<>(cpuShares);
+        for (ProcessTree tree : trees) {
+            tree.aggregateInto(aggregated);
+        }
+        return aggregated;
     }
 
     public Set<RegisteredPID> pids() {
-        return pids;
+        return snapshot.pids;
     }
 
     public int size() {
-        return pids.size();
+        return snapshot.pids.size();
+    }
+
+    /**
+     * An immutable view of the registered processes at a given point in time, along with their precomputed string
+     * representations.
+     */
+    public static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(0, Set.of(), Map.of());
+
+        private final long version;
+        private final Set<RegisteredPID> pids;
+        private final RegisteredPID[] pidsArray;
+        private final String[] pidsAsStrings;
+        private final Set<String> pidsAsStringsSet;
+        private final Map<RegisteredPID, ProcessTree> treesByRoot;
+        private final ProcessTree[] trees;
+
+        private Snapshot(long version, Set<RegisteredPID> pids, Map<RegisteredPID, ProcessTree> treesByRoot) {
+            this.version = version;
+            this.pids = Set.copyOf(pids);
+            this.pidsArray = pids.toArray(RegisteredPID[]::new);
+            this.pidsAsStrings = Arrays.stream(pidsArray).map(RegisteredPID::pidAsString).toArray(String[]::new);
+            this.pidsAsStringsSet = Set.copyOf(Arrays.asList(pidsAsStrings));
+            this.treesByRoot = Map.copyOf(treesByRoot);
+            this.trees = treesByRoot.values().toArray(ProcessTree[]::new);
+        }
+
+        private Snapshot next(Set<RegisteredPID> pids) {
+            // keep the already known trees so that their discovered descendants are not lost
+            final var nextTrees = new HashMap<RegisteredPID, ProcessTree>();
+            for (RegisteredPID pid : pids) {
+                if (pid.includeDescendants()) {
+                    final var known = treesByRoot.get(pid);
+                    nextTrees.put(pid, known != null ? known : new ProcessTree(pid));
+                }
+            }
+            return new Snapshot(version + 1, pids, nextTrees);
+        }
+
+        /**
+         * @return a number incremented each time the set of registered processes changes
+         */
+        public long version() {
+            return version;
+        }
+
+        public Set<RegisteredPID> pids() {
+            return pids;
+        }
+
+        /**
+         * @return the registered processes, in registration order; callers must not modify the returned array
+         */
+        public RegisteredPID[] pidsArray() {
+            return pidsArray;
+        }
+
+        /**
+         * @return the string representations of the registered processes, matching {@link #pidsArray()}; callers must not
+         *         modify the returned array
+         */
+        public String[] pidsAsStrings() {
+            return pidsAsStrings;
+        }
+
+        public int size() {
+            return pidsArray.length;
+        }
     }
 }
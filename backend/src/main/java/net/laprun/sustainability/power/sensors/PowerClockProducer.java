@@ -0,0 +1,23 @@
+package net.laprun.sustainability.power.sensors;
+
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Singleton;
+
+import io.quarkus.arc.DefaultBean;
+import net.laprun.sustainability.power.PowerClock;
+
+/**
+ * Produces the {@link PowerClock} shared by the stages of the measuring pipeline, defaulting to the sensor's clock (i.e. the
+ * system clock unless the sensor runs on its own time base, e.g. when replaying a trace), which tests and benchmarks can
+ * replace with a {@link net.laprun.sustainability.power.SimulatedClock} by providing their own bean, which is then also used by the sensor.
+ */
+@Singleton
+public class PowerClockProducer {
+
+    @Produces
+    @Singleton
+    @DefaultBean
+    public PowerClock clock(PowerSensor sensor) {
+        return sensor.clock();
+    }
+}
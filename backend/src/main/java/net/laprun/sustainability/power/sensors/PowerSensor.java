@@ -1,7 +1,9 @@
 package net.laprun.sustainability.power.sensors;
 
+import java.util.Map;
 import java.util.Set;
 
+import net.laprun.sustainability.power.PowerClock;
 import net.laprun.sustainability.power.SensorMetadata;
 
 /**
@@ -22,10 +24,61 @@ public interface PowerSensor {
 
     void enableCPUShareSampling(boolean enable);
 
-    default long adjustSamplingPeriodIfNeeded(long requestedSamplingPeriodInMillis) {
+    /**
+     * Computes the period at which this sensor needs to be sampled to provide measures at the requested period, without
+     * configuring the sensor
+     *
+     * @param requestedSamplingPeriodInMillis the requested sampling period, in milliseconds
+     * @return the period at which this sensor should actually be sampled, in milliseconds
+     * @throws IllegalArgumentException if this sensor doesn't support the requested sampling period
+     */
+    default long effectiveSamplingPeriod(long requestedSamplingPeriodInMillis) {
         return requestedSamplingPeriodInMillis;
     }
 
+    /**
+     * Configures this sensor to be sampled at the requested period, which needs to happen before it is started
+     *
+     * @param requestedSamplingPeriodInMillis the requested sampling period, in milliseconds
+     * @return the period at which this sensor should actually be sampled, in milliseconds, as computed by
+     *         {@link #effectiveSamplingPeriod(long)}
+     * @throws IllegalArgumentException if this sensor doesn't support the requested sampling period
+     */
+    default long adjustSamplingPeriodIfNeeded(long requestedSamplingPeriodInMillis) {
+        return effectiveSamplingPeriod(requestedSamplingPeriodInMillis);
+    }
+
+    /**
+     * Whether this sensor can be sampled at a period which changes over time, e.g. when the sampling period is adaptive
+     *
+     * @return {@code false} if this sensor produces measures at the cadence configured when it was started, {@code true}
+     *         otherwise
+     */
+    default boolean supportsVariableSamplingPeriod() {
+        return true;
+    }
+
+    /**
+     * Retrieves the clock this sensor uses to timestamp measures and compute intervals, which other stages of the measuring
+     * pipeline should use as well so that they share a consistent time base
+     *
+     * @return the clock used by this sensor
+     */
+    default PowerClock clock() {
+        return PowerClock.SYSTEM;
+    }
+
+    /**
+     * Sets the clock this sensor should use, which needs to happen before the sensor is started
+     *
+     * @param clock the clock to use
+     * @throws UnsupportedOperationException if this sensor only supports the system clock
+     * @throws IllegalStateException if the sensor is already started
+     */
+    default void useClock(PowerClock clock) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " only supports the system clock");
+    }
+
     /**
      * Stops measuring power consumption
      */
@@ -64,6 +117,42 @@ public interface PowerSensor {
      */
     RegisteredPID register(long pid);
 
+    /**
+     * Registers the provided process identifier (pid) with the sensor, optionally tracking its descendants (e.g. processes
+     * spawned by a shell or a build tool) along with it, in which case their CPU shares are aggregated into the process'.
+     *
+     * @param pid the process identifier which power consumption is supposed to be tracked
+     * @param includeDescendants whether the descendants of the process should be tracked along with it
+     * @return a {@link RegisteredPID} recording the tracking of the specified pid by the sensor
+     */
+    default RegisteredPID register(long pid, boolean includeDescendants) {
+        if (includeDescendants) {
+            throw new UnsupportedOperationException(getClass().getSimpleName() + " doesn't support tracking descendants");
+        }
+        return register(pid);
+    }
+
+    /**
+     * Whether this sensor can track cgroups (v2) as a whole, see {@link #registerCgroup(String)}
+     *
+     * @return {@code true} if cgroups can be registered with this sensor, {@code false} otherwise
+     */
+    default boolean supportsCgroups() {
+        return false;
+    }
+
+    /**
+     * Registers the provided cgroup (v2) with the sensor so that the power consumption of all the processes it contains is
+     * tracked as a whole, attribution being performed based on the CPU time consumed by the cgroup.
+     *
+     * @param cgroupPath the path of the cgroup, relative to the cgroup hierarchy root (e.g. {@code system.slice/foo.service})
+     * @return a {@link RegisteredPID} recording the tracking of the specified cgroup by the sensor
+     * @throws UnsupportedOperationException if this sensor doesn't support tracking cgroups
+     */
+    default RegisteredPID registerCgroup(String cgroupPath) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " doesn't support tracking cgroups");
+    }
+
     /**
      * Updates the ongoing {@link Measures} being recorded by this sensor for the given tick
      *
@@ -73,6 +162,42 @@ public interface PowerSensor {
      */
     Measures update(long tick);
 
+    /**
+     * Updates the ongoing {@link Measures} being recorded by this sensor for the given tick, the sampling interval ending at
+     * the specified time, as scheduled by the sampler, instead of the time at which this method is actually called
+     *
+     * @param tick an ordinal value tracking the number of recorded measures being taken by the sensor since it started
+     *        measuring power consumption
+     * @param intervalEndEpoch the end of the sampling interval, in milliseconds since the epoch
+     * @return the {@link Measures} object recording the measures this sensor has taken since it started measuring
+     */
+    default Measures update(long tick, long intervalEndEpoch) {
+        return update(tick);
+    }
+
+    /**
+     * Whether this sensor can take raw readings at a higher frequency than the sampling period via
+     * {@link #sampleInto(double[])}, which requires its measures to be system-wide, i.e. not attributed to processes by the
+     * sensor itself
+     *
+     * @return {@code true} if this sensor supports raw sampling, {@code false} otherwise
+     */
+    default boolean supportsRawSampling() {
+        return false;
+    }
+
+    /**
+     * Takes a raw, system-wide reading of the sensor's components, writing their values into the provided array, indexed
+     * as specified by this sensor's metadata, without allocating. The reading covers the interval since the previous one.
+     *
+     * @param components the array into which the components values are written
+     * @return the duration of the interval covered by this reading in nanoseconds, as measured by a monotonic clock
+     * @throws UnsupportedOperationException if this sensor doesn't support raw sampling
+     */
+    default long sampleInto(double[] components) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " doesn't support raw sampling");
+    }
+
     /**
      * Unregisters the specified {@link RegisteredPID} with this sensor thus signaling that clients are not interested in
      * tracking the consumption of the associated process anymore
@@ -84,5 +209,16 @@ public interface PowerSensor {
 
     Set<String> registeredPIDsAsStrings();
 
+    /**
+     * Aggregates the CPU shares of the descendants of processes registered with descendants tracking into their root's
+     *
+     * @param cpuShares a mapping of process identifiers (as strings) to their CPU share, as computed for the process
+     *        identifiers returned by {@link #registeredPIDsAsStrings()}
+     * @return the updated mapping
+     */
+    default Map<String, Double> aggregateDescendantsCPUShares(Map<String, Double> cpuShares) {
+        return cpuShares;
+    }
+
     Set<RegisteredPID> registeredPIDs();
 }
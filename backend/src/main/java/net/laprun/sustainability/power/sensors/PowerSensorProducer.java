@@ -1,28 +1,51 @@
 package net.laprun.sustainability.power.sensors;
 
+import java.time.Duration;
+import java.util.Optional;
+
+import jakarta.enterprise.inject.Instance;
 import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 
-import net.laprun.sustainability.power.sensors.linux.rapl.IntelRAPLSensor;
-import net.laprun.sustainability.power.sensors.macos.powermetrics.ProcessMacOSPowermetricsSensor;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import net.laprun.sustainability.power.SimulatedClock;
 
 @Singleton
 public class PowerSensorProducer {
-    private static final String OS_NAME = System.getProperty("os.name").toLowerCase();
+    /**
+     * The name of the {@link PowerSensorProvider} to use, bypassing availability probes, the best available one being
+     * selected if not set
+     */
+    @ConfigProperty(name = "power-server.sensor")
+    Optional<String> sensorName;
+
+    /**
+     * How long to wait for sensor providers' availability probes
+     */
+    @ConfigProperty(name = "power-server.sensor.probe-timeout", defaultValue = "PT2S")
+    Duration probeTimeout;
+
+    /**
+     * The clock replacing the system clock, if any, the default {@link net.laprun.sustainability.power.PowerClock} bean being
+     * the sensor's own clock
+     */
+    @Inject
+    Instance<SimulatedClock> clock;
 
     @Produces
+    @Singleton
     public PowerSensor sensor() {
-        return determinePowerSensor();
+        final var providers = CompositePowerSensorProvider.load(probeTimeout);
+        final var sensor = sensorName.map(providers::create).orElseGet(providers::create);
+        if (clock.isResolvable()) {
+            sensor.useClock(clock.get());
+        }
+        return sensor;
     }
 
     public static PowerSensor determinePowerSensor() {
-        if (OS_NAME.contains("mac os x")) {
-            return new ProcessMacOSPowermetricsSensor();
-        }
-
-        if (!OS_NAME.contains("linux")) {
-            throw new RuntimeException("Unsupported platform: " + System.getProperty("os.name"));
-        }
-        return new IntelRAPLSensor();
+        return CompositePowerSensorProvider.load(CompositePowerSensorProvider.DEFAULT_PROBE_TIMEOUT).create();
     }
 }
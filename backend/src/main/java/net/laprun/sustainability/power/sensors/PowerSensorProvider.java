@@ -0,0 +1,43 @@
+package net.laprun.sustainability.power.sensors;
+
+/**
+ * A service provider interface allowing {@link PowerSensor} implementations to be discovered via
+ * {@link java.util.ServiceLoader}. Implementations are registered by listing them in a
+ * {@code META-INF/services/net.laprun.sustainability.power.sensors.PowerSensorProvider} file, the best available one
+ * being selected at startup by {@link CompositePowerSensorProvider}.
+ * <p>
+ * Availability probes are expected to be cheap (e.g. checking the OS or the presence of files) since all providers are
+ * probed, while costly initialization (e.g. spawning processes to extract metadata) should happen in {@link #create()}
+ * which is only called for the selected provider.
+ */
+public interface PowerSensorProvider {
+    /**
+     * @return a unique name identifying this provider, which can be used to explicitly select it
+     */
+    String name();
+
+    /**
+     * The priority of this provider, providers with a higher priority being preferred when several are available
+     *
+     * @return the priority of this provider
+     */
+    default int priority() {
+        return 0;
+    }
+
+    /**
+     * Probes whether the sensor provided by this provider can be used on the current system
+     *
+     * @return {@code true} if the sensor can be used, {@code false} otherwise
+     * @throws Exception if an error occurred while probing, in which case the provider is considered unavailable
+     */
+    boolean isAvailable() throws Exception;
+
+    /**
+     * Creates the sensor
+     *
+     * @return a new {@link PowerSensor}
+     * @throws RuntimeException if the sensor couldn't be created
+     */
+    PowerSensor create();
+}
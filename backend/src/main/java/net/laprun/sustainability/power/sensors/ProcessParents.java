@@ -0,0 +1,221 @@
+package net.laprun.sustainability.power.sensors;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A snapshot of the parent relationships of all running processes, shared by all the {@link ProcessTree}s of a
+ * {@link PIDRegistry} so that process discovery happens once per {@link #refresh()} instead of once per tree. Parents are
+ * cached: each refresh only lists the running processes and resolves the parent of the processes which weren't running on
+ * the previous one, exited processes being dropped and their children re-resolved. On Linux, listing processes only
+ * requires reading the {@code /proc} directory, the {@code stat} file of a process being read only when it first appears.
+ * <p>
+ * Instances are not thread-safe.
+ */
+class ProcessParents {
+    /**
+     * Value returned by {@link Source#parentOf(long)} when the parent of a process cannot be resolved
+     */
+    static final long NO_PARENT = -1;
+    private static final int NONE = -1;
+
+    private final Source source;
+    // double-buffered so that each refresh can look up the previous one without allocating
+    private LongIntHashMap index = new LongIntHashMap(256);
+    private LongIntHashMap previousIndex = new LongIntHashMap(256);
+    private long[] pids = new long[0];
+    private long[] parents = new long[0];
+    private long[] previousPids = new long[0];
+    private long[] previousParents = new long[0];
+    private int[] firstChild = new int[0];
+    private int[] nextSibling = new int[0];
+    private int size;
+
+    ProcessParents() {
+        this(Files.isReadable(Path.of("/proc/self/stat")) ? new ProcFSSource() : new ProcessHandleSource());
+    }
+
+    ProcessParents(Source source) {
+        this.source = source;
+    }
+
+    /**
+     * Lists the running processes, resolving the parents of the processes which appeared since the previous refresh
+     */
+    void refresh() {
+        final var live = source.pids();
+
+        // the current state becomes the previous one, which is then used to avoid resolving known parents again
+        final var knownIndex = index;
+        final var knownPids = pids;
+        final var knownParents = parents;
+        index = previousIndex;
+        pids = previousPids;
+        parents = previousParents;
+        previousIndex = knownIndex;
+        previousPids = knownPids;
+        previousParents = knownParents;
+
+        if (pids.length < live.length) {
+            final var capacity = Math.max(live.length, 2 * pids.length);
+            pids = new long[capacity];
+            parents = new long[capacity];
+        }
+        index.clear();
+        size = 0;
+        for (long pid : live) {
+            final var known = previousIndex.get(pid);
+            pids[size] = pid;
+            parents[size] = known != LongIntHashMap.MISSING ? previousParents[known] : source.parentOf(pid);
+            index.put(pid, size++);
+        }
+        // processes which parent exited since the previous refresh have been re-parented
+        for (int i = 0; i < size; i++) {
+            if (!index.containsKey(parents[i]) && previousIndex.containsKey(parents[i])) {
+                parents[i] = source.parentOf(pids[i]);
+            }
+        }
+
+        if (firstChild.length < pids.length) {
+            firstChild = new int[pids.length];
+            nextSibling = new int[pids.length];
+        }
+        Arrays.fill(firstChild, 0, size, NONE);
+        for (int i = 0; i < size; i++) {
+            final var parent = index.get(parents[i]);
+            if (parent != LongIntHashMap.MISSING) {
+                nextSibling[i] = firstChild[parent];
+                firstChild[parent] = i;
+            } else {
+                nextSibling[i] = NONE;
+            }
+        }
+    }
+
+    /**
+     * Records the descendants of the specified process, as of the last {@link #refresh()}, breadth-first, stopping once the
+     * specified array is full
+     *
+     * @param root the process which descendants are requested
+     * @param into the array into which to record the identifiers of the descendants
+     * @return the number of descendants recorded into the specified array
+     */
+    int descendantsOf(long root, long[] into) {
+        final var rootSlot = index.get(root);
+        if (rootSlot == LongIntHashMap.MISSING) {
+            return 0;
+        }
+        int count = 0;
+        // the recorded descendants double as the queue of processes which children remain to be recorded
+        int next = 0;
+        int slot = rootSlot;
+        while (true) {
+            for (int child = firstChild[slot]; child != NONE && count < into.length; child = nextSibling[child]) {
+                into[count++] = pids[child];
+            }
+            if (next == count || count == into.length) {
+                break;
+            }
+            slot = index.get(into[next++]);
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of processes known as of the last {@link #refresh()}
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Provides information about the running processes
+     */
+    interface Source {
+        /**
+         * @return the identifiers of the running processes
+         */
+        long[] pids();
+
+        /**
+         * @param pid the identifier of a process
+         * @return the identifier of the parent of the specified process or {@link #NO_PARENT} if it cannot be resolved, e.g.
+         *         because the process exited
+         */
+        long parentOf(long pid);
+    }
+
+    private static class ProcFSSource implements Source {
+        private final File proc = new File("/proc");
+
+        @Override
+        public long[] pids() {
+            final var entries = proc.list();
+            if (entries == null) {
+                return new long[0];
+            }
+            final var pids = new long[entries.length];
+            int count = 0;
+            for (String entry : entries) {
+                if (isNumeric(entry)) {
+                    pids[count++] = Long.parseLong(entry);
+                }
+            }
+            return Arrays.copyOf(pids, count);
+        }
+
+        @Override
+        public long parentOf(long pid) {
+            final byte[] stat;
+            try {
+                stat = Files.readAllBytes(Path.of("/proc", Long.toString(pid), "stat"));
+            } catch (IOException e) {
+                // the process exited
+                return NO_PARENT;
+            }
+            // format is "pid (comm) state ppid ...", comm possibly containing spaces and parentheses
+            int position = stat.length - 1;
+            while (position >= 0 && stat[position] != ')') {
+                position--;
+            }
+            // skip ") " and the state, followed by a space
+            position += 4;
+            if (position <= 3 || position >= stat.length) {
+                return NO_PARENT;
+            }
+            long parent = 0;
+            for (; position < stat.length && stat[position] >= '0' && stat[position] <= '9'; position++) {
+                parent = 10 * parent + (stat[position] - '0');
+            }
+            return parent;
+        }
+
+        private static boolean isNumeric(String entry) {
+            for (int i = 0; i < entry.length(); i++) {
+                final var c = entry.charAt(i);
+                if (c < '0' || c > '9') {
+                    return false;
+                }
+            }
+            return !entry.isEmpty();
+        }
+    }
+
+    private static class ProcessHandleSource implements Source {
+        @Override
+        public long[] pids() {
+            return ProcessHandle.allProcesses().mapToLong(ProcessHandle::pid).toArray();
+        }
+
+        @Override
+        public long parentOf(long pid) {
+            return ProcessHandle.of(pid)
+                    .flatMap(ProcessHandle::parent)
+                    .map(ProcessHandle::pid)
+                    .orElse(NO_PARENT);
+        }
+    }
+}
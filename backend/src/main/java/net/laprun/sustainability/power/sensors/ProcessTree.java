@@ -0,0 +1,83 @@
+package net.laprun.sustainability.power.sensors;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import io.quarkus.logging.Log;
+
+/**
+ * Keeps track of the descendants of a process so that their CPU shares can be aggregated into their root's. Descendants
+ * are re-discovered on each {@link #refresh(ProcessParents)}, from the parent relationships of all processes shared by all
+ * trees, the set of descendants only being re-created when they changed. To keep the cost bounded with deep or wide process
+ * trees, at most {@link #MAX_DESCENDANTS} descendants are tracked.
+ */
+class ProcessTree {
+    static final int MAX_DESCENDANTS = 256;
+
+    private final long rootPid;
+    private final String rootPidAsString;
+    private final String registrationId;
+    private final int maxDescendants;
+    private final long[] discovered;
+    private long[] known = new long[0];
+    private Set<String> descendants = Set.of();
+
+    ProcessTree(RegisteredPID root) {
+        this(root, MAX_DESCENDANTS);
+    }
+
+    ProcessTree(RegisteredPID root, int maxDescendants) {
+        this.rootPidAsString = root.pidAsString();
+        this.registrationId = root.registrationId();
+        this.rootPid = Long.parseLong(rootPidAsString);
+        this.maxDescendants = maxDescendants;
+        this.discovered = new long[maxDescendants];
+    }
+
+    /**
+     * Re-discovers the descendants of the root process, new processes being picked up and exited ones being dropped
+     *
+     * @param parents the parent relationships of all processes, which must have been refreshed beforehand
+     * @return the string representations of the identifiers of the currently known descendants
+     */
+    Set<String> refresh(ProcessParents parents) {
+        final var count = parents.descendantsOf(rootPid, discovered);
+        Arrays.sort(discovered, 0, count);
+        if (!Arrays.equals(discovered, 0, count, known, 0, known.length)) {
+            known = Arrays.copyOf(discovered, count);
+            descendants = Arrays.stream(known)
+                    .mapToObj(Long::toString)
+                    .collect(Collectors.toUnmodifiableSet());
+            if (count == maxDescendants) {
+                Log.debugf("Process %s has more than %d descendants, only tracking the first ones", rootPidAsString,
+                        maxDescendants);
+            }
+        }
+        return descendants;
+    }
+
+    Set<String> descendants() {
+        return descendants;
+    }
+
+    /**
+     * Records the CPU share of the root and its known descendants in the specified mapping, under the root's registration
+     * identifier so that the root's own share is left untouched for registrations not tracking descendants
+     *
+     * @param cpuShares a mapping of process identifiers (as strings) to their CPU share
+     */
+    void aggregateInto(Map<String, Double> cpuShares) {
+        double total = cpuShares.getOrDefault(rootPidAsString, 0.0);
+        for (String descendant : descendants) {
+            final var share = cpuShares.get(descendant);
+            if (share != null && share > 0) {
+                total += share;
+            }
+        }
+        if (total > 0) {
+            cpuShares.put(registrationId, total);
+        }
+    }
+}
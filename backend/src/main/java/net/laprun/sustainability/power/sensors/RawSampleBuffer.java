@@ -0,0 +1,129 @@
+package net.laprun.sustainability.power.sensors;
+
+import net.laprun.sustainability.power.SensorMeasure;
+import net.laprun.sustainability.power.SensorMetadata;
+import net.laprun.sustainability.power.SensorUnit;
+import net.laprun.sustainability.power.measures.NoDurationSensorMeasure;
+
+/**
+ * A fixed-size ring buffer of raw, system-wide sensor readings, stored in primitive arrays (one per component) so that
+ * recording a reading doesn't allocate. Readings are identified by a monotonically increasing sequence number, which
+ * makes it possible to downsample any range of readings still held by the buffer into a single {@link SensorMeasure}:
+ * power-like components are averaged, weighted by the duration of each reading, while cumulative components (e.g. raw
+ * energy counters, as identified by their unit) keep the last reading's value.
+ * <p>
+ * This class is not thread-safe: readings must be recorded and downsampled from the same thread.
+ */
+final class RawSampleBuffer {
+    private final int capacity;
+    private final double[][] components;
+    private final boolean[] cumulative;
+    private final long[] startEpochs;
+    private final long[] endEpochs;
+    private final long[] durationsNs;
+    private long sequence;
+
+    RawSampleBuffer(SensorMetadata metadata, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1, was: " + capacity);
+        }
+        this.capacity = capacity;
+        final var cardinality = metadata.componentCardinality();
+        components = new double[cardinality][capacity];
+        cumulative = new boolean[cardinality];
+        metadata.components().values()
+                .forEach(cm -> cumulative[cm.index()] = cm.unit().isCommensurableWith(SensorUnit.J));
+        startEpochs = new long[capacity];
+        endEpochs = new long[capacity];
+        durationsNs = new long[capacity];
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    int componentCardinality() {
+        return components.length;
+    }
+
+    /**
+     * @return the sequence number that the next recorded reading will be assigned
+     */
+    long sequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the sequence number of the oldest reading still held by this buffer
+     */
+    long oldestSequence() {
+        return Math.max(0, sequence - capacity);
+    }
+
+    /**
+     * Records the specified reading, copying its values
+     *
+     * @param values the components values of the reading, indexed as specified by the sensor metadata
+     * @param startEpoch the start of the interval covered by the reading, in milliseconds since the epoch
+     * @param endEpoch the end of the interval covered by the reading, in milliseconds since the epoch
+     * @param durationNs the duration of the interval covered by the reading, as measured using a monotonic clock
+     * @return the sequence number assigned to the reading
+     */
+    long record(double[] values, long startEpoch, long endEpoch, long durationNs) {
+        final var slot = (int) (sequence % capacity);
+        for (int component = 0; component < components.length; component++) {
+            components[component][slot] = values[component];
+        }
+        startEpochs[slot] = startEpoch;
+        endEpochs[slot] = endEpoch;
+        durationsNs[slot] = durationNs;
+        return sequence++;
+    }
+
+    /**
+     * Downsamples the readings in the specified range into a single measure
+     *
+     * @param fromSequence the sequence number of the first reading to consider, inclusive
+     * @param toSequence the sequence number of the last reading to consider, exclusive
+     * @return a {@link SensorMeasure} covering the interval of the considered readings or {@link SensorMeasure#missing} if
+     *         the range is empty
+     * @throws IllegalArgumentException if the range contains readings that are not held by this buffer (anymore or yet)
+     */
+    SensorMeasure downsample(long fromSequence, long toSequence) {
+        if (fromSequence < oldestSequence() || toSequence > sequence) {
+            throw new IllegalArgumentException("Readings [" + fromSequence + "," + toSequence + ") are not available, only ["
+                    + oldestSequence() + "," + sequence + ") are");
+        }
+        if (toSequence <= fromSequence) {
+            return SensorMeasure.missing;
+        }
+
+        final var firstSlot = (int) (fromSequence % capacity);
+        final var lastSlot = (int) ((toSequence - 1) % capacity);
+        long totalDurationNs = 0;
+        for (long s = fromSequence; s < toSequence; s++) {
+            totalDurationNs += durationsNs[(int) (s % capacity)];
+        }
+        final var result = new double[components.length];
+        for (int component = 0; component < components.length; component++) {
+            final var values = components[component];
+            if (cumulative[component]) {
+                result[component] = values[lastSlot];
+            } else if (totalDurationNs > 0) {
+                double weighted = 0;
+                for (long s = fromSequence; s < toSequence; s++) {
+                    final var slot = (int) (s % capacity);
+                    weighted += values[slot] * durationsNs[slot];
+                }
+                result[component] = weighted / totalDurationNs;
+            } else {
+                double sum = 0;
+                for (long s = fromSequence; s < toSequence; s++) {
+                    sum += values[(int) (s % capacity)];
+                }
+                result[component] = sum / (toSequence - fromSequence);
+            }
+        }
+        return new NoDurationSensorMeasure(result, startEpochs[firstSlot], endEpochs[lastSlot], totalDurationNs);
+    }
+}
@@ -1,14 +1,58 @@
 package net.laprun.sustainability.power.sensors;
 
-public record RegisteredPID(String stringForMatching) {
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A process (or group of processes) tracked by a {@link PowerSensor}. The different representations of the process
+ * identifier are computed once, when the instance is created, so that they can be retrieved cheaply when sampling.
+ */
+public final class RegisteredPID {
 
     public static final long SYSTEM_TOTAL_PID = Long.MIN_VALUE;
     public static final RegisteredPID SYSTEM_TOTAL_REGISTERED_PID = new RegisteredPID(SYSTEM_TOTAL_PID);
+    public static final String CGROUP_PREFIX = "cgroup:";
+    public static final String DESCENDANTS_SUFFIX = "+descendants";
+    // cgroups and processes tracked with their descendants don't have a numerical identifier distinct from the process' so
+    // we assign them synthetic ones, which cannot collide with actual pids
+    private static final Map<String, Long> SYNTHETIC_IDS = new ConcurrentHashMap<>();
+    private static final AtomicLong NEXT_SYNTHETIC_ID = new AtomicLong(SYSTEM_TOTAL_PID + 1);
+
+    private final String stringForMatching;
+    private final String pidAsString;
+    private final String registrationId;
+    private final long pid;
+    private final long id;
+    private final boolean includeDescendants;
+    private final boolean cgroup;
+
+    /**
+     * @param stringForMatching the padded string representation of the process identifier
+     * @param includeDescendants whether the descendants of the process are tracked along with it, their CPU shares being
+     *        aggregated into the process'
+     */
+    public RegisteredPID(String stringForMatching, boolean includeDescendants) {
+        this.stringForMatching = Objects.requireNonNull(stringForMatching);
+        this.includeDescendants = includeDescendants;
+        this.pidAsString = stringForMatching.trim();
+        this.cgroup = pidAsString.startsWith(CGROUP_PREFIX);
+        this.registrationId = includeDescendants ? pidAsString + DESCENDANTS_SUFFIX : pidAsString;
+        this.pid = cgroup ? SYSTEM_TOTAL_PID : Long.parseLong(pidAsString);
+        this.id = cgroup || includeDescendants
+                ? SYNTHETIC_IDS.computeIfAbsent(registrationId, unused -> NEXT_SYNTHETIC_ID.getAndIncrement())
+                : pid;
+    }
 
     private RegisteredPID(long pid) {
         this(prepare(pid));
     }
 
+    private RegisteredPID(String stringForMatching) {
+        this(stringForMatching, false);
+    }
+
     public static String prepare(long pid) {
         // pad pid with spaces to have exact match on pid instead of randomly matching in the middle of something else
         return " " + pid + " ";
@@ -22,11 +66,104 @@ public record RegisteredPID(String stringForMatching) {
         return SYSTEM_TOTAL_PID == pid ? SYSTEM_TOTAL_REGISTERED_PID : new RegisteredPID(pid);
     }
 
+    /**
+     * Creates a {@link RegisteredPID} for the specified process, optionally tracking its descendants (i.e. children,
+     * grand-children, etc.) along with it
+     *
+     * @param pid the process identifier
+     * @param includeDescendants whether the descendants of the process should be tracked along with it
+     * @return a {@link RegisteredPID} representing the specified process (and its descendants, if requested)
+     */
+    public static RegisteredPID create(long pid, boolean includeDescendants) {
+        if (!includeDescendants || SYSTEM_TOTAL_PID == pid) {
+            return create(pid);
+        }
+        return new RegisteredPID(prepare(pid), true);
+    }
+
+    /**
+     * Creates a {@link RegisteredPID} tracking all the processes belonging to the specified cgroup (v2) instead of a single
+     * process
+     *
+     * @param cgroupPath the path of the cgroup, relative to the cgroup hierarchy root (e.g. {@code system.slice/foo.service})
+     * @return a {@link RegisteredPID} representing the specified cgroup
+     */
+    public static RegisteredPID forCgroup(String cgroupPath) {
+        return new RegisteredPID(prepare(CGROUP_PREFIX + normalizeCgroupPath(cgroupPath)));
+    }
+
+    public static String normalizeCgroupPath(String cgroupPath) {
+        var normalized = cgroupPath.trim();
+        while (normalized.startsWith("/")) {
+            normalized = normalized.substring(1);
+        }
+        while (normalized.endsWith("/")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return normalized;
+    }
+
+    public String stringForMatching() {
+        return stringForMatching;
+    }
+
+    public boolean includeDescendants() {
+        return includeDescendants;
+    }
+
+    public boolean isCgroup() {
+        return cgroup;
+    }
+
+    /**
+     * @return the process identifier
+     * @throws NumberFormatException if this instance represents a cgroup, which doesn't have a process identifier
+     */
     public long pid() {
-        return Long.parseLong(stringForMatching().trim());
+        if (cgroup) {
+            throw new NumberFormatException("cgroups don't have a process identifier: " + pidAsString);
+        }
+        return pid;
+    }
+
+    /**
+     * Retrieves a {@code long} key uniquely identifying this registration, suitable to index primitive-keyed data
+     * structures: a process tracked both with and without its descendants thus gets a distinct key for each registration
+     *
+     * @return the process identifier or, for cgroups and processes tracked with their descendants, a synthetic negative
+     *         identifier
+     */
+    public long id() {
+        return id;
     }
 
     public String pidAsString() {
-        return stringForMatching().trim();
+        return pidAsString;
+    }
+
+    /**
+     * Retrieves a string uniquely identifying this registration, which is the string representation of the process
+     * identifier unless descendants are tracked, in which case {@link #DESCENDANTS_SUFFIX} is appended to it
+     *
+     * @return the string identifying this registration, e.g. to key the CPU share aggregated over the process' descendants
+     */
+    public String registrationId() {
+        return registrationId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof RegisteredPID that && includeDescendants == that.includeDescendants
+                && stringForMatching.equals(that.stringForMatching));
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * stringForMatching.hashCode() + Boolean.hashCode(includeDescendants);
+    }
+
+    @Override
+    public String toString() {
+        return "RegisteredPID[stringForMatching=" + stringForMatching + ", includeDescendants=" + includeDescendants + "]";
     }
 }
@@ -0,0 +1,279 @@
+package net.laprun.sustainability.power.sensors;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import io.quarkus.logging.Log;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.subscription.BackPressureFailure;
+import io.smallrye.mutiny.subscription.BackPressureStrategy;
+import io.smallrye.mutiny.subscription.Cancellable;
+import io.smallrye.mutiny.subscription.MultiEmitter;
+import io.smallrye.mutiny.tuples.Tuple2;
+import net.laprun.sustainability.power.SensorMeasure;
+import net.laprun.sustainability.power.measures.ExternalCPUShareSensorMeasure;
+
+/**
+ * Shares a single subscription to the sampling stream among all the subscribers interested in measures, so that the sensor
+ * is read exactly once per tick regardless of the number of subscribers. Each sample is demultiplexed to per-process
+ * channels, the measure for a given process being computed once and then emitted to all the subscribers of that process.
+ * Subscribers only keep the latest measure if they cannot keep up, so that slow consumers cannot accumulate unbounded
+ * backlogs, unless they need every measure (e.g. to persist them), in which case measures are buffered up to a bound past
+ * which the stream fails instead of silently dropping measures.
+ * <p>
+ * The sampling stream is subscribed to when the first subscriber arrives and cancelled when the last one leaves, processes
+ * being unregistered from the sensor when their last subscriber leaves.
+ * <p>
+ * When raw readings are downsampled by a {@link DownsamplingStage}, subscribers can request measures at a different
+ * resolution than the sampling period, such streams getting their own channel.
+ */
+class SamplingHub {
+    @SuppressWarnings("unchecked")
+    private static final MultiEmitter<? super SensorMeasure>[] NO_SINKS = new MultiEmitter[0];
+    private static final Channel[] NO_CHANNELS = new Channel[0];
+
+    private final PowerSensor sensor;
+    private final Multi<Tuple2<Measures, CPUShareAccumulator.CPUShares>> source;
+    private final DownsamplingStage downsampling;
+    private final Map<ChannelKey, Channel> channels = new HashMap<>();
+    // copy of the channels values, iterated on each tick without locking
+    private volatile Channel[] activeChannels = NO_CHANNELS;
+    private Cancellable upstream;
+    private int subscribers;
+
+    SamplingHub(PowerSensor sensor, Multi<Tuple2<Measures, CPUShareAccumulator.CPUShares>> source) {
+        this(sensor, source, null);
+    }
+
+    SamplingHub(PowerSensor sensor, Multi<Tuple2<Measures, CPUShareAccumulator.CPUShares>> source,
+            DownsamplingStage downsampling) {
+        this.sensor = sensor;
+        this.source = source;
+        this.downsampling = downsampling;
+    }
+
+    /**
+     * Streams the measures attributed to the specified process, which is registered with the sensor when subscribed to
+     *
+     * @param registeredPID the process which measures we're interested in
+     * @return a stream of {@link SensorMeasure} for the specified process
+     */
+    Multi<SensorMeasure> stream(RegisteredPID registeredPID) {
+        return stream(registeredPID, null);
+    }
+
+    /**
+     * Streams the measures attributed to the specified process at the specified resolution, the process being registered
+     * with the sensor when subscribed to
+     *
+     * @param registeredPID the process which measures we're interested in
+     * @param resolution the interval each measure should cover or {@code null} to get one measure per sampling period
+     * @return a stream of {@link SensorMeasure} for the specified process
+     * @throws IllegalArgumentException if the requested resolution cannot be provided
+     */
+    Multi<SensorMeasure> stream(RegisteredPID registeredPID, Duration resolution) {
+        if (resolution != null) {
+            if (downsampling == null) {
+                throw new IllegalArgumentException("Custom resolutions are only available when raw sampling is enabled");
+            }
+            downsampling.checkResolution(resolution);
+        }
+        return Multi.createFrom().emitter(subscriber(new ChannelKey(registeredPID, resolution)), BackPressureStrategy.LATEST);
+    }
+
+    /**
+     * Streams all the measures attributed to the specified process, which is registered with the sensor when subscribed to,
+     * buffering them if the subscriber cannot keep up
+     *
+     * @param registeredPID the process which measures we're interested in
+     * @param bufferSize the maximum number of measures waiting for the subscriber, the stream failing with a
+     *        {@link BackPressureFailure} once exceeded
+     * @return a stream of {@link SensorMeasure} for the specified process
+     */
+    Multi<SensorMeasure> bufferedStream(RegisteredPID registeredPID, int bufferSize) {
+        return Multi.createFrom().emitter(subscriber(new ChannelKey(registeredPID, null)), bufferSize)
+                .onFailure(BackPressureFailure.class)
+                .invoke(failure -> Log.errorf("Subscriber for %s fell more than %d measures behind, failing its stream",
+                        registeredPID.registrationId(), bufferSize));
+    }
+
+    private Consumer<MultiEmitter<? super SensorMeasure>> subscriber(ChannelKey key) {
+        return emitter -> {
+            add(key, emitter);
+            emitter.onTermination(() -> remove(key, emitter));
+        };
+    }
+
+    synchronized int subscribers() {
+        return subscribers;
+    }
+
+    private synchronized void add(ChannelKey key, MultiEmitter<? super SensorMeasure> sink) {
+        var channel = channels.get(key);
+        if (channel == null) {
+            // the process might have been unregistered if all its previous subscribers left
+            registerWithSensor(key.registeredPID);
+            if (key.resolution != null) {
+                downsampling.addResolution(key.resolution);
+            }
+            channel = new Channel(key.registeredPID, key.resolution);
+            channels.put(key, channel);
+            activeChannels = channels.values().toArray(NO_CHANNELS);
+        }
+        channel.add(sink);
+        if (subscribers++ == 0) {
+            upstream = source.subscribe().with(this::dispatch, this::fail);
+        }
+    }
+
+    private synchronized void remove(ChannelKey key, MultiEmitter<? super SensorMeasure> sink) {
+        final var channel = channels.get(key);
+        if (channel == null || !channel.remove(sink)) {
+            return;
+        }
+        if (channel.isEmpty()) {
+            channels.remove(key);
+            activeChannels = channels.values().toArray(NO_CHANNELS);
+            if (key.resolution != null) {
+                downsampling.removeResolution(key.resolution);
+            }
+            if (!isStillStreamed(key.registeredPID)) {
+                sensor.unregister(key.registeredPID);
+            }
+        }
+        if (--subscribers == 0 && upstream != null) {
+            upstream.cancel();
+            upstream = null;
+        }
+    }
+
+    private boolean isStillStreamed(RegisteredPID registeredPID) {
+        for (ChannelKey key : channels.keySet()) {
+            if (key.registeredPID.equals(registeredPID)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void registerWithSensor(RegisteredPID registeredPID) {
+        if (RegisteredPID.SYSTEM_TOTAL_REGISTERED_PID.equals(registeredPID)) {
+            return;
+        }
+        if (registeredPID.isCgroup()) {
+            sensor.registerCgroup(registeredPID.pidAsString().substring(RegisteredPID.CGROUP_PREFIX.length()));
+        } else {
+            sensor.register(registeredPID.pid(), registeredPID.includeDescendants());
+        }
+    }
+
+    private void dispatch(Tuple2<Measures, CPUShareAccumulator.CPUShares> sample) {
+        for (Channel channel : activeChannels) {
+            if (channel.resolution == null) {
+                final var measure = withExternalCPUShareIfAvailable(channel.registeredPID, sample);
+                if (SensorMeasure.missing != measure) {
+                    channel.emit(measure);
+                }
+            } else if (sample.getItem1() instanceof DownsamplingStage.DownsampledMeasures downsampled
+                    && downsampled.getOrDefault(channel.registeredPID) != SensorMeasure.missing) {
+                // CPU shares are only sampled over the sampling period so use the same share for all its measures
+                final var cpuShare = sample.getItem2().cpuShareFor(channel.registeredPID);
+                for (SensorMeasure measure : downsampled.atResolution(channel.resolution)) {
+                    channel.emit(cpuShare > 0 ? new ExternalCPUShareSensorMeasure(measure, cpuShare) : measure);
+                }
+            }
+        }
+    }
+
+    private void fail(Throwable failure) {
+        Log.debugf("Sampling failed: %s", failure);
+        final Channel[] failed;
+        synchronized (this) {
+            failed = activeChannels;
+            upstream = null;
+        }
+        // failing sinks removes them, and their channels, via their termination callback
+        for (Channel channel : failed) {
+            channel.fail(failure);
+        }
+    }
+
+    /**
+     * Completes all the streams currently served by this hub, stopping sampling
+     */
+    void complete() {
+        for (Channel channel : activeChannels) {
+            channel.complete();
+        }
+    }
+
+    static SensorMeasure withExternalCPUShareIfAvailable(RegisteredPID pid,
+            Tuple2<Measures, CPUShareAccumulator.CPUShares> tuple) {
+        final var measure = tuple.getItem1().getOrDefault(pid);
+        final var cpuShare = tuple.getItem2().cpuShareFor(pid);
+        if (cpuShare > 0) {
+            return new ExternalCPUShareSensorMeasure(measure, cpuShare);
+        }
+        return measure;
+    }
+
+    private record ChannelKey(RegisteredPID registeredPID, Duration resolution) {
+    }
+
+    private static final class Channel {
+        private final RegisteredPID registeredPID;
+        private final Duration resolution;
+        // copy-on-write: mutated while holding the hub's lock, read without locking when dispatching
+        private volatile MultiEmitter<? super SensorMeasure>[] sinks = NO_SINKS;
+
+        private Channel(RegisteredPID registeredPID, Duration resolution) {
+            this.registeredPID = registeredPID;
+            this.resolution = resolution;
+        }
+
+        private void add(MultiEmitter<? super SensorMeasure> sink) {
+            final var current = sinks;
+            final var updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = sink;
+            sinks = updated;
+        }
+
+        private boolean remove(MultiEmitter<? super SensorMeasure> sink) {
+            final var current = sinks;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == sink) {
+                    final var updated = Arrays.copyOf(current, current.length - 1);
+                    System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                    sinks = updated;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean isEmpty() {
+            return sinks.length == 0;
+        }
+
+        private void emit(SensorMeasure measure) {
+            for (MultiEmitter<? super SensorMeasure> sink : sinks) {
+                sink.emit(measure);
+            }
+        }
+
+        private void fail(Throwable failure) {
+            for (MultiEmitter<? super SensorMeasure> sink : sinks) {
+                sink.fail(failure);
+            }
+        }
+
+        private void complete() {
+            for (MultiEmitter<? super SensorMeasure> sink : sinks) {
+                sink.complete();
+            }
+        }
+    }
+}
@@ -1,12 +1,10 @@
 package net.laprun.sustainability.power.sensors;
 
 import java.time.Duration;
-import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -15,30 +13,71 @@ import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import io.quarkus.logging.Log;
 import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
 import io.smallrye.mutiny.infrastructure.Infrastructure;
 import io.smallrye.mutiny.subscription.Cancellable;
-import io.smallrye.mutiny.tuples.Tuple2;
 import net.laprun.sustainability.power.ProcessUtils;
 import net.laprun.sustainability.power.SensorMeasure;
 import net.laprun.sustainability.power.SensorMetadata;
-import net.laprun.sustainability.power.measures.ExternalCPUShareSensorMeasure;
+import net.laprun.sustainability.power.SensorUnit;
+import net.laprun.sustainability.power.analysis.total.Totaler;
+import net.laprun.sustainability.power.persistence.BatchingPersister;
 import net.laprun.sustainability.power.persistence.Persistence;
 import net.laprun.sustainability.power.sensors.cpu.CPUShare;
+import net.laprun.sustainability.power.sensors.cpu.CgroupExtractionStrategy;
 
 @ApplicationScoped
 public class SamplingMeasurer {
 
     public static final String DEFAULT_SAMPLING_PERIOD = "PT1S";
+    // measures waiting for the persister before persisted streams fail, i.e. about 17 minutes at the default sampling period
+    private static final int PERSISTED_BUFFER_SIZE = 1024;
     @Inject
     PowerSensor sensor;
 
     @Inject
     Persistence persistence;
 
+    @Inject
+    BatchingPersister persister;
+
     @ConfigProperty(name = "power-server.sampling-period", defaultValue = DEFAULT_SAMPLING_PERIOD)
     Duration samplingPeriod;
 
-    private Multi<Tuple2<Measures, Map<String, Double>>> periodicSensorCheck;
+    /**
+     * Whether the sampling period should adapt to the variability of the power consumption, between the minimal and maximal
+     * sampling periods
+     */
+    @ConfigProperty(name = "power-server.sampling-period.adaptive", defaultValue = "false")
+    boolean adaptiveSamplingPeriod;
+
+    /**
+     * The minimal sampling period when adaptive, defaulting to the configured sampling period
+     */
+    @ConfigProperty(name = "power-server.sampling-period.min")
+    Optional<Duration> minSamplingPeriod;
+
+    /**
+     * The maximal sampling period when adaptive, defaulting to ten times the minimal sampling period
+     */
+    @ConfigProperty(name = "power-server.sampling-period.max")
+    Optional<Duration> maxSamplingPeriod;
+
+    /**
+     * The period at which the sensor is read when raw sampling is enabled, readings being downsampled to the sampling
+     * period. Raw sampling is disabled if not set or if the sensor doesn't support it.
+     */
+    @ConfigProperty(name = "power-server.raw-sampling.period")
+    Optional<Duration> rawSamplingPeriod;
+
+    /**
+     * How long raw readings are retained, which bounds the coarsest resolution that can be requested for a stream
+     */
+    @ConfigProperty(name = "power-server.raw-sampling.retention", defaultValue = "PT1M")
+    Duration rawSamplingRetention;
+
+    private volatile SamplingHub hub;
+    private volatile SamplingScheduler scheduler;
     private final Map<Long, Cancellable> manuallyTrackedProcesses = new ConcurrentHashMap<>();
 
     public PowerSensor sensor() {
@@ -51,47 +90,127 @@ public class SamplingMeasurer {
     }
 
     public Multi<SensorMeasure> uncheckedStream(long pid) throws Exception {
-        final var registeredPID = track(pid);
-        return periodicSensorCheck.map(combined -> withExternalCPUShareIfAvailable(registeredPID, combined))
-                .filter(m -> SensorMeasure.missing != m);
-    }
-
-    private SensorMeasure withExternalCPUShareIfAvailable(RegisteredPID pid, Tuple2<Measures, Map<String, Double>> tuple) {
-        final var measure = tuple.getItem1().getOrDefault(pid);
-        final var cpuShares = tuple.getItem2();
-        if (!cpuShares.isEmpty()) {
-            final var cpuShare = cpuShares.get(pid.pidAsString());
-            if (cpuShare != null && cpuShare > 0) {
-                return new ExternalCPUShareSensorMeasure(measure, cpuShare);
-            }
-        }
-        return measure;
+        return uncheckedStream(pid, false);
+    }
+
+    /**
+     * Streams power consumption measures for the specified process, optionally tracking its descendants along with it
+     *
+     * @param pid the process identifier
+     * @param includeDescendants whether the descendants of the process (e.g. processes spawned by a shell) should be tracked
+     *        along with it, their CPU shares being aggregated into the process'
+     * @return a stream of {@link SensorMeasure}
+     * @throws Exception if an error occurred while measuring the power consumption
+     */
+    public Multi<SensorMeasure> uncheckedStream(long pid, boolean includeDescendants) throws Exception {
+        return streamFor(track(pid, includeDescendants));
+    }
+
+    /**
+     * Streams power consumption measures for the specified process at the specified resolution, measures being downsampled
+     * from the raw readings of the sensor instead of being published once per sampling period
+     *
+     * @param pid the process identifier
+     * @param includeDescendants whether the descendants of the process should be tracked along with it
+     * @param resolution the interval each measure should cover, {@code null} to get one measure per sampling period
+     * @return a stream of {@link SensorMeasure}
+     * @throws IllegalArgumentException if raw sampling is not enabled or if the resolution cannot be provided
+     * @throws Exception if an error occurred while measuring the power consumption
+     */
+    public Multi<SensorMeasure> uncheckedStream(long pid, boolean includeDescendants, Duration resolution) throws Exception {
+        return hub.stream(track(pid, includeDescendants), resolution);
+    }
+
+    /**
+     * Streams power consumption measures attributed to all the processes contained in the specified cgroup (v2)
+     *
+     * @param cgroupPath the path of the cgroup, relative to the cgroup hierarchy root (e.g. {@code system.slice/foo.service})
+     * @return a stream of {@link SensorMeasure}
+     * @throws IllegalArgumentException if the specified cgroup doesn't exist
+     * @throws UnsupportedOperationException if the sensor doesn't support tracking cgroups
+     * @throws Exception if an error occurred while measuring the power consumption
+     */
+    public Multi<SensorMeasure> streamCgroup(String cgroupPath) throws Exception {
+        return streamFor(trackCgroup(cgroupPath));
+    }
+
+    private Multi<SensorMeasure> streamFor(RegisteredPID registeredPID) {
+        return hub.stream(registeredPID);
     }
 
     public Multi<Long> measureIdStream(String appName, long pid, String session) throws Exception {
-        return uncheckedStream(pid)
+        return measureIdStream(appName, pid, session, false);
+    }
+
+    public Multi<Long> measureIdStream(String appName, long pid, String session, boolean includeDescendants)
+            throws Exception {
+        return persisted(hub.bufferedStream(track(pid, includeDescendants), PERSISTED_BUFFER_SIZE), appName, session);
+    }
+
+    public Multi<Long> cgroupMeasureIdStream(String appName, String cgroupPath, String session) throws Exception {
+        return persisted(hub.bufferedStream(trackCgroup(cgroupPath), PERSISTED_BUFFER_SIZE), appName, session);
+    }
+
+    private Multi<Long> persisted(Multi<SensorMeasure> measures, String appName, String session) {
+        // submitting doesn't block worker threads, the next measure only being requested once the persister accepted the
+        // previous one so that a saturated persister holds the stream back; measures are written in batches, identifiers
+        // being emitted once their batch is committed
+        return measures
                 .emitOn(Infrastructure.getDefaultWorkerPool())
                 .onItem()
-                .transform(m -> persistence.save(m, appName, session).id);
+                .transformToUniAndConcatenate(m -> Uni.createFrom().completionStage(persister.submit(m, appName, session)))
+                .onItem()
+                .transformToUniAndMerge(written -> Uni.createFrom().completionStage(written));
+    }
+
+    /**
+     * Waits until the measures recorded so far by the {@code measureIdStream} methods and tracked applications have been
+     * persisted, so that they can be queried
+     */
+    public void flushPersistedMeasures() {
+        persister.flush();
     }
 
     public void startTrackingApp(String appName, long pid, String session) throws Exception {
-        final var tracked = measureIdStream(appName, pid, session).subscribe().with(unused -> {
+        startTrackingApp(appName, pid, session, false);
+    }
+
+    public void startTrackingApp(String appName, long pid, String session, boolean includeDescendants) throws Exception {
+        final var tracked = measureIdStream(appName, pid, session, includeDescendants).subscribe().with(unused -> {
         });
         manuallyTrackedProcesses.put(pid, tracked);
     }
 
     RegisteredPID track(long pid) throws Exception {
-        final var registeredPID = sensor.register(pid);
+        return track(pid, false);
+    }
 
-        startSamplingIfNeeded();
+    RegisteredPID track(long pid, boolean includeDescendants) throws Exception {
+        // descendants' CPU shares are only aggregated when sampled externally, native attribution ignoring them
+        if (includeDescendants && !sensor.wantsCPUShareSamplingEnabled()) {
+            Log.warnf("Descendants of process %d cannot be tracked without CPU share sampling, only tracking the process",
+                    pid);
+            includeDescendants = false;
+        }
+        return track(RegisteredPID.create(pid, includeDescendants));
+    }
+
+    RegisteredPID trackCgroup(String cgroupPath) throws Exception {
+        if (!sensor.supportsCgroups()) {
+            throw new UnsupportedOperationException(sensor.getClass().getSimpleName() + " doesn't support tracking cgroups");
+        }
+        return track(RegisteredPID.forCgroup(validCgroupOrFail(cgroupPath)));
+    }
 
-        periodicSensorCheck = periodicSensorCheck.onCancellation().invoke(() -> sensor.unregister(registeredPID));
+    private RegisteredPID track(RegisteredPID registeredPID) throws Exception {
+        // the process is registered by the hub when its first subscriber arrives and unregistered once its last one leaves,
+        // so that streams nobody subscribes to don't leave it registered
+        startSamplingIfNeeded();
         return registeredPID;
     }
 
-    private void startSamplingIfNeeded() throws Exception {
-        if (!sensor.isStarted()) {
+    private synchronized void startSamplingIfNeeded() throws Exception {
+        if (hub == null || !sensor.isStarted()) {
             // check if sensor wants a different sampling period
             final var samplingPeriodMillis = samplingPeriod.toMillis();
             final var adjusted = sensor.adjustSamplingPeriodIfNeeded(samplingPeriodMillis);
@@ -99,61 +218,81 @@ public class SamplingMeasurer {
                 Log.infof("%s sensor adjusted its sampling period to %dms", sensor.getClass().getSimpleName(), adjusted);
             }
 
+            final var period = Duration.ofMillis(adjusted);
+            final var adaptivePeriod = adaptiveSamplingPeriodIfEnabled(period);
+            final var downsampling = downsamplingStageIfEnabled(period);
+
             // start sensor
             sensor.start();
 
-            // manage external CPU share sampling
+            // sample from a dedicated thread, over-sampling CPU shares (if enabled) over each sampling period and averaging
+            // them to produce one value for the power measure interval
             final var overSamplingFactor = 3;
-            final Multi<Map<String, Double>> cpuSharesMulti;
-            final var cpuSharesTicks = Multi.createFrom().ticks()
-                    // over sample but over a shorter period to ensure we have an average that covers most of the sampling period
-                    .every(samplingPeriod.minus(50, ChronoUnit.MILLIS).dividedBy(overSamplingFactor))
-                    .emitOn(Infrastructure.getDefaultWorkerPool());
-            if (sensor.wantsCPUShareSamplingEnabled()) {
-                // if enabled, record a cpu share for each tick, group by the over sampling factor and average over these aggregates to produce one value for the power measure interval
-                cpuSharesMulti = cpuSharesTicks
-                        .map(tick -> CPUShare.cpuSharesFor(sensor.registeredPIDsAsStrings()))
-                        .group()
-                        .intoLists()
-                        .of(overSamplingFactor)
-                        .map(cpuShares -> {
-                            // first convert list of mappings pid -> cpu to mapping pid -> list of cpu shares
-                            Map<String, List<Double>> pidToRecordedCPUShares = new HashMap<>();
-                            cpuShares.forEach(cpuShare -> cpuShare.forEach(
-                                    (p, cpu) -> {
-                                        if (cpu != null && cpu > 0) { // drop null values to avoid skewing average even more
-                                            pidToRecordedCPUShares.computeIfAbsent(p, unused -> new ArrayList<>()).add(cpu);
-                                        }
-                                    }));
-                            // then reduce each cpu shares list to their average
-                            Map<String, Double> averages = new HashMap<>(pidToRecordedCPUShares.size());
-                            pidToRecordedCPUShares.forEach((p, values) -> averages.put(p,
-                                    values.stream().mapToDouble(Double::doubleValue).average().orElse(0)));
-                            return averages;
-                        });
-            } else {
-                // otherwise, only emit an empty map to signify no external cpu share was recorded
-                cpuSharesMulti = cpuSharesTicks.map(unused -> Map.of());
-            }
+            final Supplier<Map<String, Double>> cpuSharesSampler = sensor.wantsCPUShareSamplingEnabled()
+                    ? () -> sensor.aggregateDescendantsCPUShares(
+                            CPUShare.cpuSharesFor(sensor.registeredPIDsAsStrings(), sensor.clock()))
+                    : null;
+            scheduler = new SamplingScheduler(sensor, period, overSamplingFactor, cpuSharesSampler, adaptivePeriod,
+                    downsampling);
 
-            // manage periodic power sampling, measuring sensor values over the sampling period
-            final var sensorSamplerMulti = Multi.createFrom().ticks()
-                    .every(samplingPeriod)
-                    .map(sensor::update)
-                    .broadcast()
-                    .withCancellationAfterLastSubscriberDeparture()
-                    .toAtLeast(1)
-                    .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
-
-            // combine both multis
-            periodicSensorCheck = Multi.createBy()
-                    .combining()
-                    .streams(sensorSamplerMulti, cpuSharesMulti)
-                    .asTuple();
+            // the hub is the only subscriber so that the sensor is read once per tick, subscribers being notified off the
+            // sampling thread
+            final var periodicSensorCheck = scheduler.samples().emitOn(Infrastructure.getDefaultWorkerPool());
+            hub = new SamplingHub(sensor, periodicSensorCheck, downsampling);
 
         }
     }
 
+    private DownsamplingStage downsamplingStageIfEnabled(Duration period) {
+        if (rawSamplingPeriod.isEmpty()) {
+            return null;
+        }
+        final var rawPeriod = rawSamplingPeriod.get();
+        if (!sensor.supportsRawSampling()) {
+            Log.infof("%s sensor doesn't support raw sampling, ignoring raw sampling period",
+                    sensor.getClass().getSimpleName());
+            return null;
+        }
+        if (rawPeriod.compareTo(period) >= 0) {
+            Log.infof("Raw sampling period %dms is not shorter than the sampling period %dms, ignoring it", rawPeriod.toMillis(),
+                    period.toMillis());
+            return null;
+        }
+        Log.infof("Raw sampling enabled every %dms, retaining readings for %ds", rawPeriod.toMillis(),
+                rawSamplingRetention.toSeconds());
+        return new DownsamplingStage(sensor, rawPeriod, rawSamplingRetention);
+    }
+
+    private AdaptiveSamplingPeriod adaptiveSamplingPeriodIfEnabled(Duration period) {
+        if (!adaptiveSamplingPeriod) {
+            return null;
+        }
+        if (!sensor.supportsVariableSamplingPeriod()) {
+            Log.infof("%s sensor only supports a fixed sampling period, ignoring adaptive sampling period",
+                    sensor.getClass().getSimpleName());
+            return null;
+        }
+        final Totaler totaler;
+        try {
+            totaler = new Totaler(sensor.metadata(), SensorUnit.W);
+        } catch (IllegalArgumentException e) {
+            Log.infof("Cannot compute total power for %s sensor, using fixed sampling period. Cause: %s",
+                    sensor.getClass().getSimpleName(), e.getMessage());
+            return null;
+        }
+        // bounds are requested periods which the sensor might need to be sampled at differently, as the base period is
+        final var min = minSamplingPeriod.map(this::effectiveSamplingPeriod).orElse(period);
+        final var max = maxSamplingPeriod.map(this::effectiveSamplingPeriod)
+                .filter(p -> p.compareTo(min) >= 0)
+                .orElse(min.multipliedBy(10));
+        Log.infof("Adaptive sampling period enabled, between %dms and %dms", min.toMillis(), max.toMillis());
+        return new AdaptiveSamplingPeriod(totaler, min, max);
+    }
+
+    private Duration effectiveSamplingPeriod(Duration requested) {
+        return Duration.ofMillis(sensor.effectiveSamplingPeriod(requested.toMillis()));
+    }
+
     /**
      * Starts measuring even in the absence of registered PID. This will record the system's total energy consumption.
      *
@@ -167,6 +306,10 @@ public class SamplingMeasurer {
         return ProcessUtils.validPIDOrFail(pid);
     }
 
+    public String validCgroupOrFail(String cgroupPath) {
+        return CgroupExtractionStrategy.validCgroupOrFail(cgroupPath);
+    }
+
     public SensorMetadata metadata() {
         return sensor.metadata();
     }
@@ -175,6 +318,18 @@ public class SamplingMeasurer {
         return samplingPeriod;
     }
 
+    /**
+     * Retrieves the sampling period currently in use, which might differ from the configured one if the sensor adjusted it
+     * or if the sampling period is adaptive, in which case measures might not be evenly spaced: the interval each measure
+     * covers is given by its {@link SensorMeasure#startMs()} and {@link SensorMeasure#endMs()}
+     *
+     * @return the sampling period currently in use or the configured one if sampling hasn't started yet
+     */
+    public Duration effectiveSamplingPeriod() {
+        final var current = scheduler;
+        return current != null ? current.effectivePeriod() : samplingPeriod;
+    }
+
     public Persistence persistence() {
         return persistence;
     }
@@ -183,6 +338,9 @@ public class SamplingMeasurer {
         sensor.stop();
         manuallyTrackedProcesses.values().forEach(Cancellable::cancel);
         manuallyTrackedProcesses.clear();
+        if (hub != null) {
+            hub.complete();
+        }
     }
 
     @SuppressWarnings("unused")
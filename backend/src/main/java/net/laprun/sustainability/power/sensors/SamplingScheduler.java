@@ -0,0 +1,222 @@
+package net.laprun.sustainability.power.sensors;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import io.quarkus.logging.Log;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.subscription.MultiEmitter;
+import io.smallrye.mutiny.tuples.Tuple2;
+import net.laprun.sustainability.power.PowerClock;
+
+/**
+ * Drives sampling from a dedicated, high-priority platform thread, ticks being aligned to absolute deadlines computed from
+ * the (theoretical) boundary of the previous period, instead of being re-scheduled relative to when the previous tick
+ * actually happened, so that they don't drift over time. Each sampling period is divided into sub-periods at the end of
+ * which CPU shares are sampled, the last sub-sample of a period being taken right before the sensor is updated, so that
+ * both are anchored to the same period boundaries. The end of each sampling interval is computed from its deadline and
+ * passed to the sensor so that consecutive measures have contiguous, exact interval bounds.
+ * <p>
+ * The lateness of each tick with respect to its deadline (jitter) is measured. If sampling falls behind by more than a
+ * full period (e.g. after the machine was suspended), the missed periods are skipped instead of being sampled in a burst.
+ * <p>
+ * If an {@link AdaptiveSamplingPeriod} is provided, the period is re-evaluated at the end of each sampling period, the next
+ * deadlines being computed from the boundary of the period that just ended.
+ * <p>
+ * Time is given by the sensor's {@link PowerClock}, so that sampling can run faster than
+ * real time when the sensor uses a simulated clock.
+ * <p>
+ * If a {@link DownsamplingStage} is provided, the sensor is sampled at the stage's raw sampling period instead of once
+ * per sampling period, the published measures being downsampled from the raw readings at the end of each period. CPU
+ * shares are still only sampled the configured number of times per period, on the raw ticks closest to each sub-period
+ * boundary.
+ */
+class SamplingScheduler {
+    private final PowerSensor sensor;
+    private final long initialPeriodNanos;
+    private final int subSamples;
+    private final Supplier<Map<String, Double>> cpuSharesSampler;
+    private final AdaptiveSamplingPeriod adaptivePeriod;
+    private final DownsamplingStage downsampling;
+    private volatile long effectivePeriodNanos;
+    private volatile long lastJitterNanos;
+    private volatile long maxJitterNanos;
+
+    /**
+     * @param sensor the sensor to update at the end of each sampling period
+     * @param samplingPeriod the sampling period
+     * @param subSamples the number of CPU shares sub-samples taken over each sampling period
+     * @param cpuSharesSampler the CPU shares sampler or {@code null} if CPU shares shouldn't be sampled
+     */
+    SamplingScheduler(PowerSensor sensor, Duration samplingPeriod, int subSamples,
+            Supplier<Map<String, Double>> cpuSharesSampler) {
+        this(sensor, samplingPeriod, subSamples, cpuSharesSampler, null);
+    }
+
+    /**
+     * @param sensor the sensor to update at the end of each sampling period
+     * @param samplingPeriod the initial sampling period, ignored if an adaptive sampling period is provided
+     * @param subSamples the number of CPU shares sub-samples taken over each sampling period
+     * @param cpuSharesSampler the CPU shares sampler or {@code null} if CPU shares shouldn't be sampled
+     * @param adaptivePeriod the {@link AdaptiveSamplingPeriod} adjusting the sampling period after each sample or
+     *        {@code null} to use a fixed period
+     */
+    SamplingScheduler(PowerSensor sensor, Duration samplingPeriod, int subSamples,
+            Supplier<Map<String, Double>> cpuSharesSampler, AdaptiveSamplingPeriod adaptivePeriod) {
+        this(sensor, samplingPeriod, subSamples, cpuSharesSampler, adaptivePeriod, null);
+    }
+
+    /**
+     * @param sensor the sensor to update at the end of each sampling period
+     * @param samplingPeriod the initial sampling period, ignored if an adaptive sampling period is provided
+     * @param subSamples the number of CPU shares sub-samples taken over each sampling period
+     * @param cpuSharesSampler the CPU shares sampler or {@code null} if CPU shares shouldn't be sampled
+     * @param adaptivePeriod the {@link AdaptiveSamplingPeriod} adjusting the sampling period after each sample or
+     *        {@code null} to use a fixed period
+     * @param downsampling the {@link DownsamplingStage} recording raw readings taken at a higher frequency or {@code null}
+     *        to only read the sensor once per sampling period
+     */
+    SamplingScheduler(PowerSensor sensor, Duration samplingPeriod, int subSamples,
+            Supplier<Map<String, Double>> cpuSharesSampler, AdaptiveSamplingPeriod adaptivePeriod,
+            DownsamplingStage downsampling) {
+        if (subSamples < 1) {
+            throw new IllegalArgumentException("Number of sub-samples must be at least 1, was: " + subSamples);
+        }
+        this.initialPeriodNanos = adaptivePeriod != null ? adaptivePeriod.periodNanos() : samplingPeriod.toNanos();
+        if (initialPeriodNanos < subSamples) {
+            throw new IllegalArgumentException("Sampling period is too short: " + Duration.ofNanos(initialPeriodNanos));
+        }
+        this.sensor = sensor;
+        this.subSamples = subSamples;
+        this.cpuSharesSampler = cpuSharesSampler;
+        this.adaptivePeriod = adaptivePeriod;
+        this.downsampling = downsampling;
+        this.effectivePeriodNanos = initialPeriodNanos;
+    }
+
+    /**
+     * Creates a stream of samples, a sampling thread being started for each subscription and stopped when the subscription
+     * terminates
+     *
+     * @return a stream of sensor measures along with the CPU shares averaged over the same sampling period
+     */
+    Multi<Tuple2<Measures, CPUShareAccumulator.CPUShares>> samples() {
+        return Multi.createFrom().emitter(emitter -> {
+            final var thread = Thread.ofPlatform()
+                    .name("power-sampler")
+                    .daemon()
+                    .priority(Thread.MAX_PRIORITY)
+                    .start(() -> run(emitter));
+            emitter.onTermination(thread::interrupt);
+        });
+    }
+
+    /**
+     * @return the sampling period currently in use, which might differ from the initial one if the period is adaptive
+     */
+    Duration effectivePeriod() {
+        return Duration.ofNanos(effectivePeriodNanos);
+    }
+
+    /**
+     * @return the lateness of the last tick with respect to its deadline, in nanoseconds
+     */
+    long lastJitterNanos() {
+        return lastJitterNanos;
+    }
+
+    /**
+     * @return the maximum observed lateness of ticks with respect to their deadline, in nanoseconds
+     */
+    long maxJitterNanos() {
+        return maxJitterNanos;
+    }
+
+    private void run(MultiEmitter<? super Tuple2<Measures, CPUShareAccumulator.CPUShares>> emitter) {
+        final var accumulator = cpuSharesSampler != null ? new CPUShareAccumulator(subSamples) : null;
+        // use the sensor's clock so that ticks and measures share the same time base
+        final var clock = sensor.clock();
+        final long originNanos = clock.nanoTime();
+        final long originEpoch = clock.epochMillis();
+        long periodNanos = initialPeriodNanos;
+        long ticksPerPeriod = ticksPerPeriod(periodNanos);
+        long periodStart = originNanos;
+        long subTick = 0;
+        long tick = 0;
+        try {
+            while (!emitter.isCancelled()) {
+                subTick++;
+                long deadline = deadline(periodStart, periodNanos, subTick, ticksPerPeriod);
+                if (!clock.sleepUntil(deadline)) {
+                    return;
+                }
+
+                long lateness = clock.nanoTime() - deadline;
+                if (lateness >= periodNanos) {
+                    // skip whole missed periods, keeping ticks aligned on period boundaries
+                    final var missedPeriods = lateness / periodNanos;
+                    Log.debugf("Sampling fell behind by %dms, skipping %d periods", TimeUnit.NANOSECONDS.toMillis(lateness),
+                            missedPeriods);
+                    periodStart += missedPeriods * periodNanos;
+                    deadline = deadline(periodStart, periodNanos, subTick, ticksPerPeriod);
+                    lateness = clock.nanoTime() - deadline;
+                }
+                recordJitter(lateness);
+
+                final var epoch = originEpoch + TimeUnit.NANOSECONDS.toMillis(deadline - originNanos);
+                if (downsampling != null) {
+                    downsampling.sample(epoch);
+                }
+
+                if (accumulator != null && isCPUShareSubSample(subTick, ticksPerPeriod)) {
+                    accumulator.add(cpuSharesSampler.get());
+                }
+
+                if (subTick == ticksPerPeriod) {
+                    tick++;
+                    final Measures measures = downsampling != null ? downsampling.publish(sensor.registeredPIDs())
+                            : sensor.update(tick, epoch);
+                    final var cpuShares = accumulator != null ? accumulator.averages()
+                            : CPUShareAccumulator.CPUShares.NONE;
+                    emitter.emit(Tuple2.of(measures, cpuShares));
+
+                    // the next period starts at the boundary of the one that just ended, regardless of its duration
+                    periodStart = deadline;
+                    subTick = 0;
+                    if (adaptivePeriod != null) {
+                        periodNanos = adaptivePeriod.record(measures, sensor.registeredPIDs());
+                        ticksPerPeriod = ticksPerPeriod(periodNanos);
+                        effectivePeriodNanos = periodNanos;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            emitter.fail(e);
+        }
+    }
+
+    private long ticksPerPeriod(long periodNanos) {
+        // when sampling raw readings, tick at the raw sampling period, but at least as often as CPU shares are sampled
+        return downsampling != null ? Math.max(subSamples, periodNanos / downsampling.rawPeriodNanos()) : subSamples;
+    }
+
+    private boolean isCPUShareSubSample(long subTick, long ticksPerPeriod) {
+        // true on the first tick at or after each CPU share sub-period boundary, i.e. on every tick when not sampling raw
+        // readings
+        return subTick * subSamples / ticksPerPeriod != (subTick - 1) * subSamples / ticksPerPeriod;
+    }
+
+    private static long deadline(long periodStart, long periodNanos, long subTick, long ticksPerPeriod) {
+        // compute from the period start each time instead of adding sub-periods to avoid accumulating rounding errors
+        return periodStart + subTick * periodNanos / ticksPerPeriod;
+    }
+
+    private void recordJitter(long lateness) {
+        lastJitterNanos = lateness;
+        if (lateness > maxJitterNanos) {
+            maxJitterNanos = lateness;
+        }
+    }
+}
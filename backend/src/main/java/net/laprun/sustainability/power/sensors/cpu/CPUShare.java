@@ -1,16 +1,34 @@
 package net.laprun.sustainability.power.sensors.cpu;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
+
+import net.laprun.sustainability.power.PowerClock;
 
 public enum CPUShare {
     ;
 
-    public static Map<String, Double> cpuSharesFor(Set<String> pids) {
-        return cpuSharesFor(pids, PSExtractionStrategy.INSTANCE);
+    // prefer reading procfs directly when available (i.e. on Linux) to avoid spawning a process on each call
+    private static final ExtractionStrategy DEFAULT_STRATEGY = ProcfsExtractionStrategy.isAvailable()
+            ? ProcfsExtractionStrategy.INSTANCE
+            : PSExtractionStrategy.INSTANCE;
+
+    public static Map<String, Double> cpuSharesFor(Set<String> pids, PowerClock clock) {
+        if (pids.stream().noneMatch(CgroupExtractionStrategy::isCgroupKey)) {
+            return cpuSharesFor(pids, DEFAULT_STRATEGY, clock);
+        }
+
+        // cgroups are tracked using their own accounting, separately from processes
+        final var byType = pids.stream().collect(Collectors.partitioningBy(CgroupExtractionStrategy::isCgroupKey,
+                Collectors.toSet()));
+        final var cpuShares = new HashMap<>(cpuSharesFor(byType.get(false), DEFAULT_STRATEGY, clock));
+        cpuShares.putAll(cpuSharesFor(byType.get(true), CgroupExtractionStrategy.INSTANCE, clock));
+        return cpuShares;
     }
 
-    public static Map<String, Double> cpuSharesFor(Set<String> pids, ExtractionStrategy strategy) {
-        return strategy.cpuSharesFor(pids);
+    public static Map<String, Double> cpuSharesFor(Set<String> pids, ExtractionStrategy strategy, PowerClock clock) {
+        return strategy.cpuSharesFor(pids, clock);
     }
 }
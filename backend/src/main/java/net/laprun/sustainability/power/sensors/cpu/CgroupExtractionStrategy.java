@@ -0,0 +1,193 @@
+package net.laprun.sustainability.power.sensors.cpu;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import io.quarkus.logging.Log;
+import io.vertx.core.impl.cpu.CpuCoreSensor;
+import net.laprun.sustainability.power.PowerClock;
+import net.laprun.sustainability.power.sensors.RegisteredPID;
+
+/**
+ * An {@link ExtractionStrategy} computing the CPU share of cgroups (v2), identified by keys of the form
+ * {@code cgroup:<path relative to the cgroup hierarchy root>}, over the interval since the previous call. The CPU time
+ * consumed by all the processes of each cgroup is read from the {@code usage_usec} entry of its {@code cpu.stat} file and
+ * compared to the total CPU time available on the host over the same interval, as measured by the sensor's clock. Files
+ * are kept open and re-read using positional reads into a reused buffer.
+ * <p>
+ * Note that a cgroup only gets a CPU share the second time it is asked about since the first call is needed to get a
+ * reference point.
+ */
+public class CgroupExtractionStrategy implements ExtractionStrategy {
+    public static final CgroupExtractionStrategy INSTANCE = new CgroupExtractionStrategy(Path.of("/sys/fs/cgroup"));
+    private static final String CPU_STAT = "cpu.stat";
+    private static final byte[] USAGE_USEC = "usage_usec ".getBytes();
+    // cpu.stat is only a few lines long
+    private static final int BUFFER_SIZE = 512;
+
+    private final Path cgroupRoot;
+    private final int cpus = CpuCoreSensor.availableProcessors();
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final Map<String, CgroupStat> cgroups = new HashMap<>();
+
+    CgroupExtractionStrategy(Path cgroupRoot) {
+        this.cgroupRoot = cgroupRoot;
+    }
+
+    /**
+     * Checks that the specified cgroup exists and exposes CPU accounting information
+     *
+     * @param cgroupPath the path of the cgroup, relative to the cgroup hierarchy root
+     * @return the normalized cgroup path
+     * @throws IllegalArgumentException if the specified cgroup doesn't exist or doesn't provide CPU accounting information
+     */
+    public static String validCgroupOrFail(String cgroupPath) {
+        return INSTANCE.validOrFail(cgroupPath);
+    }
+
+    String validOrFail(String cgroupPath) {
+        final var normalized = RegisteredPID.normalizeCgroupPath(cgroupPath);
+        final var cgroup = cgroupRoot.resolve(normalized).normalize();
+        if (!cgroup.startsWith(cgroupRoot) || !Files.isReadable(cgroup.resolve(CPU_STAT))) {
+            throw new IllegalArgumentException("Unknown cgroup or cgroup without CPU accounting: " + cgroupPath);
+        }
+        return normalized;
+    }
+
+    static boolean isCgroupKey(String key) {
+        return key.startsWith(RegisteredPID.CGROUP_PREFIX);
+    }
+
+    @Override
+    public Map<String, Double> cpuSharesFor(Set<String> cgroupKeys) {
+        return cpuSharesFor(cgroupKeys, PowerClock.SYSTEM);
+    }
+
+    @Override
+    public Map<String, Double> cpuSharesFor(Set<String> cgroupKeys, PowerClock clock) {
+        return cpuSharesFor(cgroupKeys, clock.nanoTime());
+    }
+
+    synchronized Map<String, Double> cpuSharesFor(Set<String> cgroupKeys, long nowNanos) {
+        // stop tracking cgroups we're not interested in anymore
+        for (Iterator<Map.Entry<String, CgroupStat>> it = cgroups.entrySet().iterator(); it.hasNext();) {
+            final var entry = it.next();
+            if (!cgroupKeys.contains(entry.getKey())) {
+                entry.getValue().close();
+                it.remove();
+            }
+        }
+
+        if (cgroupKeys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        final var cpuShares = new HashMap<String, Double>(cgroupKeys.size());
+        for (String key : cgroupKeys) {
+            if (!isCgroupKey(key)) {
+                continue;
+            }
+            var cgroup = cgroups.get(key);
+            try {
+                if (cgroup == null) {
+                    final var path = cgroupRoot.resolve(key.substring(RegisteredPID.CGROUP_PREFIX.length())).resolve(CPU_STAT);
+                    cgroup = new CgroupStat(FileChannel.open(path, StandardOpenOption.READ));
+                    cgroups.put(key, cgroup);
+                }
+                final var usageUsec = readUsageUsec(cgroup.channel);
+                if (cgroup.lastUsageUsec >= 0 && nowNanos - cgroup.lastReadNanos > 0) {
+                    // usage is in µs, available CPU time over the interval is the elapsed time on each CPU
+                    final var availableNanos = (double) (nowNanos - cgroup.lastReadNanos) * cpus;
+                    final var share = (usageUsec - cgroup.lastUsageUsec) * 1000 / availableNanos;
+                    Log.debugf("%s -> cpu: %dµs/%.0fns = %3.2f", key, usageUsec - cgroup.lastUsageUsec, availableNanos, share);
+                    cpuShares.put(key, share);
+                }
+                cgroup.lastUsageUsec = usageUsec;
+                cgroup.lastReadNanos = nowNanos;
+            } catch (IOException | RuntimeException e) {
+                // cgroup most likely removed
+                Log.debugf("Failed to extract CPU share for %s, cause: %s", key, e);
+                if (cgroup != null) {
+                    cgroup.close();
+                }
+                cgroups.remove(key);
+            }
+        }
+        return cpuShares;
+    }
+
+    private long readUsageUsec(FileChannel channel) throws IOException {
+        buffer.clear();
+        final var read = Math.max(channel.read(buffer, 0), 0);
+        return parseUsageUsec(buffer.array(), read);
+    }
+
+    /**
+     * Extracts the {@code usage_usec} value from the content of a cgroup's {@code cpu.stat} file
+     *
+     * @param bytes the content of the file
+     * @param length the number of valid bytes in the specified array
+     * @return the CPU time consumed by all the processes in the cgroup, in micro seconds
+     */
+    static long parseUsageUsec(byte[] bytes, int length) {
+        int lineStart = 0;
+        while (lineStart < length) {
+            if (startsWith(bytes, lineStart, length, USAGE_USEC)) {
+                long value = 0;
+                for (int i = lineStart + USAGE_USEC.length; i < length && bytes[i] != '\n'; i++) {
+                    final var digit = bytes[i];
+                    if (digit < '0' || digit > '9') {
+                        throw new NumberFormatException("Invalid character in input: '" + Character.toString(digit) + "'");
+                    }
+                    value = value * 10 + (digit - '0');
+                }
+                return value;
+            }
+            // go to next line
+            while (lineStart < length && bytes[lineStart] != '\n') {
+                lineStart++;
+            }
+            lineStart++;
+        }
+        throw new IllegalArgumentException("No usage_usec entry found in cpu.stat");
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, int length, byte[] prefix) {
+        if (length - offset < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class CgroupStat {
+        private final FileChannel channel;
+        private long lastUsageUsec = -1;
+        private long lastReadNanos;
+
+        private CgroupStat(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+}
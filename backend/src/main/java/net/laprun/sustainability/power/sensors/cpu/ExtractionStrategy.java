@@ -3,6 +3,20 @@ package net.laprun.sustainability.power.sensors.cpu;
 import java.util.Map;
 import java.util.Set;
 
+import net.laprun.sustainability.power.PowerClock;
+
 public interface ExtractionStrategy {
     Map<String, Double> cpuSharesFor(Set<String> pids);
+
+    /**
+     * Computes the CPU shares of the specified processes, strategies computing shares over the interval elapsed since their
+     * previous call measuring it using the specified clock
+     *
+     * @param pids the identifiers of the processes (as strings) which CPU shares we want to compute
+     * @param clock the clock of the sensor the CPU shares are computed for
+     * @return a mapping of process identifiers (as strings) to their CPU share
+     */
+    default Map<String, Double> cpuSharesFor(Set<String> pids, PowerClock clock) {
+        return cpuSharesFor(pids);
+    }
 }
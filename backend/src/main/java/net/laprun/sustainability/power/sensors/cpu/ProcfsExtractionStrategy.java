@@ -0,0 +1,218 @@
+package net.laprun.sustainability.power.sensors.cpu;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import io.quarkus.logging.Log;
+
+/**
+ * An {@link ExtractionStrategy} computing, without spawning any process, the CPU share of each process over the interval
+ * since the previous call, using Linux' procfs. The CPU time (user + system, in jiffies) consumed by each process, as
+ * read from {@code /proc/<pid>/stat}, is compared to the CPU time elapsed for the whole system, as read from
+ * {@code /proc/stat}. Files are kept open and re-read using positional reads into a reused buffer.
+ * <p>
+ * Note that a process only gets a CPU share the second time it is asked about since the first call is needed to get a
+ * reference point.
+ */
+public class ProcfsExtractionStrategy implements ExtractionStrategy {
+    public static final ProcfsExtractionStrategy INSTANCE = new ProcfsExtractionStrategy(Path.of("/proc"));
+    // /proc/<pid>/stat lines are usually less than 400 bytes long, the first line of /proc/stat is much shorter
+    private static final int BUFFER_SIZE = 1024;
+    // utime and stime are respectively the 14th and 15th fields, i.e. the 12th and 13th after the command name
+    private static final int UTIME_FIELD_AFTER_COMM = 11;
+    // user, nice, system, idle, iowait, irq, softirq and steal, guest time being already accounted for in user time
+    private static final int CPU_TIME_FIELDS = 8;
+
+    private final Path procRoot;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final Map<String, ProcessStat> processes = new HashMap<>();
+    private FileChannel systemStat;
+    private long lastTotalJiffies = -1;
+
+    ProcfsExtractionStrategy(Path procRoot) {
+        this.procRoot = procRoot;
+    }
+
+    /**
+     * Determines whether procfs is available so that this strategy can be used
+     *
+     * @return {@code true} if {@code /proc/stat} can be read, {@code false} otherwise
+     */
+    public static boolean isAvailable() {
+        return Files.isReadable(INSTANCE.procRoot.resolve("stat"));
+    }
+
+    @Override
+    public synchronized Map<String, Double> cpuSharesFor(Set<String> pids) {
+        // stop tracking processes we're not interested in anymore
+        for (Iterator<Map.Entry<String, ProcessStat>> it = processes.entrySet().iterator(); it.hasNext();) {
+            final var entry = it.next();
+            if (!pids.contains(entry.getKey())) {
+                entry.getValue().close();
+                it.remove();
+            }
+        }
+
+        if (pids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        final long totalJiffies;
+        try {
+            totalJiffies = readTotalJiffies();
+        } catch (IOException e) {
+            Log.warnf("Failed to read system CPU time, cause: %s", e);
+            return Collections.emptyMap();
+        }
+        final var elapsedJiffies = lastTotalJiffies < 0 ? 0 : totalJiffies - lastTotalJiffies;
+        lastTotalJiffies = totalJiffies;
+
+        final var cpuShares = new HashMap<String, Double>(pids.size());
+        for (String pid : pids) {
+            var process = processes.get(pid);
+            try {
+                if (process == null) {
+                    process = new ProcessStat(open(procRoot.resolve(pid).resolve("stat")));
+                    processes.put(pid, process);
+                }
+                final var jiffies = readProcessJiffies(process.channel);
+                if (process.lastJiffies >= 0 && elapsedJiffies > 0) {
+                    final var share = (double) (jiffies - process.lastJiffies) / elapsedJiffies;
+                    Log.debugf("pid: %s -> cpu: %d/%d jiffies = %3.2f", pid, jiffies - process.lastJiffies, elapsedJiffies,
+                            share);
+                    cpuShares.put(pid, share);
+                }
+                process.lastJiffies = jiffies;
+            } catch (IOException | RuntimeException e) {
+                // process most likely exited
+                Log.debugf("Failed to extract CPU share for pid %s, cause: %s", pid, e);
+                if (process != null) {
+                    process.close();
+                }
+                processes.remove(pid);
+            }
+        }
+        return cpuShares;
+    }
+
+    private long readTotalJiffies() throws IOException {
+        if (systemStat == null) {
+            systemStat = open(procRoot.resolve("stat"));
+        }
+        final var read = read(systemStat);
+        return parseTotalJiffies(buffer.array(), read);
+    }
+
+    private long readProcessJiffies(FileChannel channel) throws IOException {
+        final var read = read(channel);
+        return parseProcessJiffies(buffer.array(), read);
+    }
+
+    private int read(FileChannel channel) throws IOException {
+        buffer.clear();
+        // procfs files are re-generated on each read from offset 0 so use a positional read instead of re-opening
+        return Math.max(channel.read(buffer, 0), 0);
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.READ);
+    }
+
+    /**
+     * Extracts the CPU time (user + system) consumed by a process from the content of its {@code /proc/<pid>/stat} file
+     *
+     * @param bytes the content of the file
+     * @param length the number of valid bytes in the specified array
+     * @return the CPU time consumed by the process, in jiffies
+     */
+    static long parseProcessJiffies(byte[] bytes, int length) {
+        // the command name can contain spaces and parentheses so start after the last closing parenthesis
+        int index = length - 1;
+        while (index >= 0 && bytes[index] != ')') {
+            index--;
+        }
+        if (index < 0) {
+            throw new IllegalArgumentException("Invalid process stat content: no command name found");
+        }
+        index += 2; // skip ") "
+
+        // skip fields up to utime
+        for (int field = 0; field < UTIME_FIELD_AFTER_COMM; field++) {
+            while (index < length && bytes[index] != ' ') {
+                index++;
+            }
+            index++;
+        }
+
+        long jiffies = 0;
+        for (int field = 0; field < 2; field++) {
+            long value = 0;
+            while (index < length && bytes[index] != ' ' && bytes[index] != '\n') {
+                value = value * 10 + digit(bytes[index++]);
+            }
+            jiffies += value;
+            index++;
+        }
+        return jiffies;
+    }
+
+    /**
+     * Extracts the total CPU time elapsed for the system from the content of {@code /proc/stat}
+     *
+     * @param bytes the content of the file, only the first line, aggregating all CPUs, is needed
+     * @param length the number of valid bytes in the specified array
+     * @return the total CPU time (including idle time) elapsed across all CPUs, in jiffies
+     */
+    static long parseTotalJiffies(byte[] bytes, int length) {
+        if (length < 4 || bytes[0] != 'c' || bytes[1] != 'p' || bytes[2] != 'u' || bytes[3] != ' ') {
+            throw new IllegalArgumentException("Invalid system stat content: should start with aggregated cpu line");
+        }
+        int index = 4;
+        long total = 0;
+        for (int field = 0; field < CPU_TIME_FIELDS && index < length && bytes[index] != '\n'; field++) {
+            // skip separator(s)
+            while (index < length && bytes[index] == ' ') {
+                index++;
+            }
+            long value = 0;
+            while (index < length && bytes[index] != ' ' && bytes[index] != '\n') {
+                value = value * 10 + digit(bytes[index++]);
+            }
+            total += value;
+        }
+        return total;
+    }
+
+    private static int digit(byte b) {
+        if (b < '0' || b > '9') {
+            throw new NumberFormatException("Invalid character in input: '" + Character.toString(b) + "'");
+        }
+        return b - '0';
+    }
+
+    private static class ProcessStat {
+        private final FileChannel channel;
+        private long lastJiffies = -1;
+
+        private ProcessStat(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+}
@@ -1,13 +1,18 @@
 package net.laprun.sustainability.power.sensors.linux.rapl;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
+/**
+ * A {@link RAPLFile} keeping the underlying channel open and re-reading the file from its start using positional reads into a
+ * reused buffer so that no process needs to be spawned and no garbage is created when extracting energy values.
+ */
 class ByteBufferRAPLFile implements RAPLFile {
+    // energy_uj values are at most 20 digits long (unsigned 64 bits) followed by a new line
     private static final int CAPACITY = 64;
     private final ByteBuffer buffer;
     private final FileChannel channel;
@@ -17,51 +22,55 @@ class ByteBufferRAPLFile implements RAPLFile {
         buffer = ByteBuffer.allocate(CAPACITY);
     }
 
-    static RAPLFile createFrom(Path file) {
+    static ByteBufferRAPLFile createFrom(Path file) {
         try {
-            return new ByteBufferRAPLFile(new RandomAccessFile(file.toFile(), "r").getChannel());
-        } catch (FileNotFoundException e) {
+            return new ByteBufferRAPLFile(FileChannel.open(file, StandardOpenOption.READ));
+        } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
-    @Override
-    public String contentAsString() {
-        // todo: untested
+    private int read() {
+        buffer.clear();
         try {
-            channel.read(buffer);
+            // sysfs attributes are re-generated on each read from offset 0 so use a positional read instead of re-opening
+            final var read = channel.read(buffer, 0);
+            return Math.max(read, 0);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
-        if (buffer.hasRemaining()) {
-            buffer.flip();
-            var bytes = new byte[buffer.remaining()];
-            buffer.get(bytes);
-            return new String(bytes);
-        }
-        return "";
     }
 
+    @Override
+    public String contentAsString() {
+        final var read = read();
+        return new String(buffer.array(), 0, read, StandardCharsets.US_ASCII).trim();
+    }
+
+    @Override
     public long extractEnergyInMicroJoules() {
-        try {
-            channel.read(buffer);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        final var read = read();
+        final var bytes = buffer.array();
         long value = 0;
-        // will work even better if we can hard code as a static final const the length, in case won't change or is defined by spec
-        for (int i = 0; i < CAPACITY; i++) {
-            byte digit = buffer.get(i);
+        for (int i = 0; i < read; i++) {
+            final byte digit = bytes[i];
             if (digit >= '0' && digit <= '9') {
                 value = value * 10 + (digit - '0');
+            } else if (digit == '\n') {
+                return value;
             } else {
-                if (digit == '\n') {
-                    return value;
-                }
-                // Invalid character; handle accordingly or throw an exception
                 throw new NumberFormatException("Invalid character in input: '" + Character.toString(digit) + "'");
             }
         }
         return value;
     }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
@@ -1,170 +1,31 @@
 package net.laprun.sustainability.power.sensors.linux.rapl;
 
-import static net.laprun.sustainability.power.SensorUnit.*;
-
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.util.*;
-import java.util.function.BiConsumer;
-
-import io.quarkus.logging.Log;
-import net.laprun.sustainability.power.SensorMetadata;
-import net.laprun.sustainability.power.measures.NoDurationSensorMeasure;
-import net.laprun.sustainability.power.sensors.AbstractPowerSensor;
-import net.laprun.sustainability.power.sensors.Measures;
+import java.util.Collection;
+import java.util.SortedMap;
 
 /**
- * A sensor using Intel's RAPL accessed via Linux' powercap system.
+ * A sensor using Intel's RAPL accessed via Linux' powercap system, only considering zones exposed by the
+ * {@code intel-rapl} control type.
  */
-public class IntelRAPLSensor extends AbstractPowerSensor {
-    private final RAPLFile[] raplFiles;
-    private final int rawOffset;
-    private SensorMetadata nativeMetadata;
-    private final long[] lastMeasuredSensorValues;
+public class IntelRAPLSensor extends PowercapSensor {
+    static final String INTEL_RAPL_CONTROL_TYPE = "intel-rapl";
 
     /**
-     * Initializes the RAPL sensor
+     * Initializes the RAPL sensor using the zones discovered in the {@code intel-rapl} powercap control type
      */
     public IntelRAPLSensor() {
-        this(defaultRAPLFiles());
+        super(PowercapTopology.discover().domains(zone -> INTEL_RAPL_CONTROL_TYPE.equals(zone.controlType())));
     }
 
     protected IntelRAPLSensor(String... raplFilePaths) {
-        this(fromPaths(raplFilePaths));
-        cpuSharesEnabled = false;
-    }
-
-    private static SortedMap<String, RAPLFile> fromPaths(String... raplFilePaths) {
-        if (raplFilePaths == null || raplFilePaths.length == 0) {
-            throw new IllegalArgumentException("Must provide at least one RAPL file");
-        }
-
-        final var files = new TreeMap<String, RAPLFile>();
-        for (String raplFilePath : raplFilePaths) {
-            addFileIfReadable(raplFilePath, files);
-        }
-        return files;
-    }
-
-    private static SortedMap<String, RAPLFile> defaultRAPLFiles() {
-        // if we total system energy is not available, read package and DRAM if possible
-        // todo: check Intel doc
-        final var files = new TreeMap<String, RAPLFile>();
-        if (!addFileIfReadable("/sys/class/powercap/intel-rapl/intel-rapl:1/energy_uj", files)) {
-            addFileIfReadable("/sys/class/powercap/intel-rapl/intel-rapl:0/energy_uj", files);
-            addFileIfReadable("/sys/class/powercap/intel-rapl/intel-rapl:0/intel-rapl:0:2/energy_uj", files);
-        }
-        return files;
+        super(raplFilePaths);
     }
 
-    @SuppressWarnings("NonAsciiCharacters")
     IntelRAPLSensor(SortedMap<String, RAPLFile> files) {
-        if (files.isEmpty())
-            throw new RuntimeException("Failed to get RAPL energy readings, probably due to lack of read access ");
-
-        raplFiles = files.values().toArray(new RAPLFile[0]);
-        rawOffset = files.size();
-        final var metadata = new ArrayList<SensorMetadata.ComponentMetadata>(rawOffset * 2);
-        int fileNb = 0;
-        for (String name : files.keySet()) {
-            metadata.add(new SensorMetadata.ComponentMetadata(name, fileNb, name, false, mW));
-            final var rawName = name + "_uj";
-            metadata.add(new SensorMetadata.ComponentMetadata(rawName, fileNb + rawOffset,
-                    name + " (raw micro Joule data)", false, µJ));
-            fileNb++;
-        }
-        this.nativeMetadata = new SensorMetadata(metadata,
-                "Linux RAPL derived information, see https://www.kernel.org/doc/html/latest/power/powercap/powercap.html");
-        lastMeasuredSensorValues = new long[raplFiles.length];
-    }
-
-    private static boolean addFileIfReadable(String raplFileAsString, SortedMap<String, RAPLFile> files) {
-        final var path = Path.of(raplFileAsString);
-        if (Files.exists(path)) {
-            // get metric name
-            final var nameFile = path.resolveSibling("name");
-            if (!Files.exists(nameFile)) {
-                throw new IllegalStateException("No name associated with " + raplFileAsString);
-            }
-
-            try {
-                final var raplFile = RAPLFile.createFrom(path);
-                final var name = RAPLFile.createFrom(nameFile).contentAsString().trim();
-                files.put(name, raplFile);
-            } catch (Exception e) {
-                Log.debugf("Couldn't read file: %s, cause: %s", nameFile, e);
-                return false;
-            }
-            return true;
-        }
-        return false;
-    }
-
-    @Override
-    public void doStart() {
-        // perform an initial measure to prime the data
-        readAndRecordSensor(null, lastUpdateEpoch());
-    }
-
-    /**
-     * Computes the power in mW based on the current, previous energy (in micro Joules) measures and sampling frequency.
-     *
-     * @param componentIndex the index of the component being measured
-     * @param sensorValue the micro Joules energy reading
-     * @param newMeasureTime the epoch of the new measure being taken
-     * @return the power over the interval defined by the sampling frequency in mW
-     */
-    private double computePowerInMilliWatts(int componentIndex, long sensorValue, long newMeasureTime) {
-        return computePowerInMilliWatts(sensorValue, lastMeasuredSensorValues[componentIndex], newMeasureTime,
-                lastUpdateEpoch());
-    }
-
-    static double computePowerInMilliWatts(long newMicroJoules, long prevMicroJoules, long newMeasureTimeMS,
-            long prevMeasureTimeMS) {
-        assert newMicroJoules > prevMicroJoules : "RAPL overflow occurred, need to deal with it!";
-        assert newMeasureTimeMS > prevMeasureTimeMS : "Not enough time elapsed between measures or order of times problem";
-        final var msBetweenMeasures = newMeasureTimeMS - prevMeasureTimeMS;
-        return (double) (newMicroJoules - prevMicroJoules) / msBetweenMeasures;
-    }
-
-    @Override
-    protected SensorMetadata nativeMetadata() {
-        try {
-            return nativeMetadata;
-        } finally {
-            // "forget" metadata once it's used in parent
-            nativeMetadata = null;
-        }
-    }
-
-    @Override
-    protected Measures doUpdate(long lastUpdateEpoch, long newUpdateStartEpoch) {
-        final var measure = new double[metadata().componentCardinality()];
-        readAndRecordSensor((value, index) -> {
-            measure[index] = computePowerInMilliWatts(index, value, newUpdateStartEpoch);
-            measure[index + rawOffset] = value;
-        },
-                newUpdateStartEpoch);
-
-        final var single = new NoDurationSensorMeasure(measure, lastUpdateEpoch, newUpdateStartEpoch);
-        registeredPIDs().forEach(pid -> measures.record(pid, single));
-
-        return measures;
-    }
-
-    protected void readAndRecordSensor(BiConsumer<Long, Integer> onReadingSensorValueAtIndex, long newUpdateStartEpoch) {
-        for (int i = 0; i < raplFiles.length; i++) {
-            final var value = raplFiles[i].extractEnergyInMicroJoules();
-            if (onReadingSensorValueAtIndex != null) {
-                onReadingSensorValueAtIndex.accept(value, i);
-            }
-            // record sensor value for next measure
-            lastMeasuredSensorValues[i] = value;
-        }
+        super(files);
     }
 
-    // for test purposes
-    RAPLFile raplFile(int index) {
-        return raplFiles[index];
+    IntelRAPLSensor(Collection<RAPLDomain> domains) {
+        super(domains);
     }
 }
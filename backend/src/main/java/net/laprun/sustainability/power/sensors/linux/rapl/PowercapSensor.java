@@ -0,0 +1,286 @@
+package net.laprun.sustainability.power.sensors.linux.rapl;
+
+import static net.laprun.sustainability.power.SensorUnit.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+import io.quarkus.logging.Log;
+import net.laprun.sustainability.power.SensorMetadata;
+import net.laprun.sustainability.power.measures.NoDurationSensorMeasure;
+import net.laprun.sustainability.power.sensors.AbstractPowerSensor;
+import net.laprun.sustainability.power.sensors.Measures;
+import net.laprun.sustainability.power.sensors.RegisteredPID;
+
+/**
+ * A sensor reading the energy counters exposed by Linux' powercap system, regardless of the control types (e.g.
+ * {@code intel-rapl}, {@code amd-rapl} or {@code intel-rapl-mmio}) providing them.
+ */
+public class PowercapSensor extends AbstractPowerSensor {
+    private static final double NANOS_PER_MILLI = 1_000_000d;
+    private final RAPLFile[] raplFiles;
+    private final long[] maxEnergyRanges;
+    private final long[] wraparounds;
+    private final int rawOffset;
+    private SensorMetadata nativeMetadata;
+    private final long[] lastMeasuredSensorValues;
+    private final long[] lastReadNanos;
+    private final long[] readNanos;
+
+    /**
+     * Initializes the sensor using the zones discovered in all available powercap control types
+     */
+    public PowercapSensor() {
+        this(PowercapTopology.discover().domains(zone -> true));
+    }
+
+    protected PowercapSensor(String... raplFilePaths) {
+        this(fromPaths(raplFilePaths).values());
+        cpuSharesEnabled = false;
+    }
+
+    private static SortedMap<String, RAPLDomain> fromPaths(String... raplFilePaths) {
+        if (raplFilePaths == null || raplFilePaths.length == 0) {
+            throw new IllegalArgumentException("Must provide at least one RAPL file");
+        }
+
+        final var domains = new TreeMap<String, RAPLDomain>();
+        for (String raplFilePath : raplFilePaths) {
+            addFileIfReadable(raplFilePath, domains);
+        }
+        return domains;
+    }
+
+    PowercapSensor(SortedMap<String, RAPLFile> files) {
+        this(files.entrySet().stream().map(e -> new RAPLDomain(e.getKey(), e.getValue())).toList());
+    }
+
+    @SuppressWarnings("NonAsciiCharacters")
+    PowercapSensor(Collection<RAPLDomain> domains) {
+        if (domains.isEmpty())
+            throw new RuntimeException("Failed to get powercap energy readings, probably due to lack of read access ");
+
+        // only record power for domains contributing to the total so that power components can be summed without double
+        // counting, those come first, while raw energy is recorded for all domains
+        final var sorted = new ArrayList<>(domains);
+        sorted.sort(Comparator.comparing(domain -> !domain.contributesToTotal()));
+        raplFiles = sorted.stream().map(RAPLDomain::energyFile).toArray(RAPLFile[]::new);
+        maxEnergyRanges = sorted.stream().mapToLong(RAPLDomain::maxEnergyRangeInMicroJoules).toArray();
+        rawOffset = (int) sorted.stream().filter(RAPLDomain::contributesToTotal).count();
+        final var metadata = new ArrayList<SensorMetadata.ComponentMetadata>(rawOffset + sorted.size());
+        int fileNb = 0;
+        for (var domain : sorted) {
+            final var name = domain.name();
+            if (domain.contributesToTotal()) {
+                metadata.add(new SensorMetadata.ComponentMetadata(name, fileNb, name, false, mW));
+            }
+            final var rawName = name + "_uj";
+            metadata.add(new SensorMetadata.ComponentMetadata(rawName, fileNb + rawOffset,
+                    name + " (raw micro Joule data)", false, µJ));
+            fileNb++;
+        }
+        this.nativeMetadata = new SensorMetadata(metadata,
+                "Linux powercap derived information, see https://www.kernel.org/doc/html/latest/power/powercap/powercap.html");
+        lastMeasuredSensorValues = new long[raplFiles.length];
+        lastReadNanos = new long[raplFiles.length];
+        readNanos = new long[raplFiles.length];
+        wraparounds = new long[raplFiles.length];
+    }
+
+    private static boolean addFileIfReadable(String raplFileAsString, SortedMap<String, RAPLDomain> domains) {
+        final var path = Path.of(raplFileAsString);
+        if (Files.exists(path)) {
+            // get metric name
+            final var nameFile = path.resolveSibling("name");
+            if (!Files.exists(nameFile)) {
+                throw new IllegalStateException("No name associated with " + raplFileAsString);
+            }
+
+            try (var nameRAPLFile = RAPLFile.createFrom(nameFile)) {
+                final var raplFile = RAPLFile.createFrom(path);
+                final var name = nameRAPLFile.contentAsString().trim();
+                domains.put(name, new RAPLDomain(name, raplFile, RAPLDomain.readMaxEnergyRange(path)));
+            } catch (Exception e) {
+                Log.debugf("Couldn't read file: %s, cause: %s", nameFile, e);
+                return false;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean supportsCgroups() {
+        return true;
+    }
+
+    @Override
+    public RegisteredPID registerCgroup(String cgroupPath) {
+        // measures are system-wide and attributed externally, so cgroups are recorded just like processes
+        return register(RegisteredPID.forCgroup(cgroupPath));
+    }
+
+    @Override
+    public void doStart() {
+        // perform an initial measure to prime the data
+        readAndRecordSensor(null);
+    }
+
+    /**
+     * Computes the power in mW based on the current, previous energy (in micro Joules) measures and the monotonic time elapsed
+     * between both readings of the counter.
+     *
+     * @param componentIndex the index of the component being measured
+     * @param sensorValue the micro Joules energy reading
+     * @return the power over the interval between both readings in mW
+     */
+    private double computePowerInMilliWatts(int componentIndex, long sensorValue) {
+        return computePowerInMilliWatts(sensorValue, lastMeasuredSensorValues[componentIndex], maxEnergyRanges[componentIndex],
+                readNanos[componentIndex], lastReadNanos[componentIndex]);
+    }
+
+    private void recordWraparoundIfNeeded(int componentIndex, long sensorValue) {
+        if (Long.compareUnsigned(sensorValue, lastMeasuredSensorValues[componentIndex]) < 0) {
+            wraparounds[componentIndex]++;
+            Log.debugf("Energy counter for component %d wrapped around (%d wraparounds so far)", componentIndex,
+                    wraparounds[componentIndex]);
+        }
+    }
+
+    static double computePowerInMilliWatts(long newMicroJoules, long prevMicroJoules, long newMeasureTimeNs,
+            long prevMeasureTimeNs) {
+        return computePowerInMilliWatts(newMicroJoules, prevMicroJoules, RAPLDomain.UNKNOWN_MAX_ENERGY_RANGE,
+                newMeasureTimeNs, prevMeasureTimeNs);
+    }
+
+    static double computePowerInMilliWatts(long newMicroJoules, long prevMicroJoules, long maxEnergyRangeInMicroJoules,
+            long newMeasureTimeNs, long prevMeasureTimeNs) {
+        // compare the difference instead of the values since nanoTime values can overflow
+        assert newMeasureTimeNs - prevMeasureTimeNs > 0 : "Not enough time elapsed between measures or order of times problem";
+        final var nsBetweenMeasures = newMeasureTimeNs - prevMeasureTimeNs;
+        // µJ/ns = 10^6 mW
+        return (double) energyDeltaInMicroJoules(newMicroJoules, prevMicroJoules, maxEnergyRangeInMicroJoules)
+                * NANOS_PER_MILLI / nsBetweenMeasures;
+    }
+
+    /**
+     * Computes the energy consumed between two readings of a RAPL energy counter, accounting for the counter wrapping around.
+     *
+     * @param newMicroJoules the new counter value
+     * @param prevMicroJoules the previous counter value
+     * @param maxEnergyRangeInMicroJoules the value at which the counter wraps around, if known,
+     *        {@link RAPLDomain#UNKNOWN_MAX_ENERGY_RANGE} otherwise
+     * @return the energy consumed between both readings in micro Joules
+     */
+    static long energyDeltaInMicroJoules(long newMicroJoules, long prevMicroJoules, long maxEnergyRangeInMicroJoules) {
+        if (Long.compareUnsigned(newMicroJoules, prevMicroJoules) >= 0) {
+            return newMicroJoules - prevMicroJoules;
+        }
+        // counter wrapped around: if we know its range, account for the energy up to the max value then from 0
+        // otherwise, assume a full 64-bits counter, which two's complement subtraction handles
+        return maxEnergyRangeInMicroJoules > 0 ? (maxEnergyRangeInMicroJoules - prevMicroJoules) + newMicroJoules
+                : newMicroJoules - prevMicroJoules;
+    }
+
+    /**
+     * Retrieves how many times the energy counter associated with the specified component wrapped around since this sensor
+     * was created
+     *
+     * @param component the name of the component for which we want to retrieve the number of wraparounds
+     * @return the number of wraparounds for the specified component
+     * @throws IllegalArgumentException if the specified component is unknown or is not associated with an energy counter
+     */
+    public long wraparoundsFor(String component) {
+        final var index = metadata().metadataFor(component).index();
+        if (index < rawOffset) {
+            return wraparounds[index];
+        }
+        final var fileIndex = index - rawOffset;
+        if (fileIndex >= raplFiles.length) {
+            throw new IllegalArgumentException("Component " + component + " is not associated with an energy counter");
+        }
+        return wraparounds[fileIndex];
+    }
+
+    @Override
+    protected SensorMetadata nativeMetadata() {
+        try {
+            return nativeMetadata;
+        } finally {
+            // "forget" metadata once it's used in parent
+            nativeMetadata = null;
+        }
+    }
+
+    @Override
+    protected Measures doUpdate(long lastUpdateEpoch, long newUpdateStartEpoch) {
+        final var measure = new double[metadata().componentCardinality()];
+        final var previousReadNanos = lastReadNanos[0];
+        readAndRecordSensor((value, index) -> {
+            recordWraparoundIfNeeded(index, value);
+            if (index < rawOffset) {
+                measure[index] = computePowerInMilliWatts(index, value);
+            }
+            measure[index + rawOffset] = value;
+        });
+
+        // wall-clock epochs are only kept as metadata, the measure's duration is the monotonic interval between readings
+        final var single = new NoDurationSensorMeasure(measure, lastUpdateEpoch, newUpdateStartEpoch,
+                lastReadNanos[0] - previousReadNanos);
+        registeredPIDs().forEach(pid -> measures.record(pid, single));
+
+        return measures;
+    }
+
+    @Override
+    public boolean supportsRawSampling() {
+        return true;
+    }
+
+    @Override
+    public long sampleInto(double[] components) {
+        // same as doUpdate but without allocating (including capturing lambdas) since this might be called at high frequency
+        final var previousReadNanos = lastReadNanos[0];
+        for (int i = 0; i < raplFiles.length; i++) {
+            final var value = raplFiles[i].extractEnergyInMicroJoules();
+            readNanos[i] = clock().nanoTime();
+            recordWraparoundIfNeeded(i, value);
+            if (i < rawOffset) {
+                components[i] = computePowerInMilliWatts(i, value);
+            }
+            components[i + rawOffset] = value;
+            lastMeasuredSensorValues[i] = value;
+            lastReadNanos[i] = readNanos[i];
+        }
+        return lastReadNanos[0] - previousReadNanos;
+    }
+
+    protected void readAndRecordSensor(BiConsumer<Long, Integer> onReadingSensorValueAtIndex) {
+        for (int i = 0; i < raplFiles.length; i++) {
+            final var value = raplFiles[i].extractEnergyInMicroJoules();
+            // record when the counter was read as close as possible to the read itself
+            readNanos[i] = clock().nanoTime();
+            if (onReadingSensorValueAtIndex != null) {
+                onReadingSensorValueAtIndex.accept(value, i);
+            }
+            // record sensor value for next measure
+            lastMeasuredSensorValues[i] = value;
+            lastReadNanos[i] = readNanos[i];
+        }
+    }
+
+    // for test purposes
+    long readNanos(int index) {
+        return readNanos[index];
+    }
+
+    RAPLFile raplFile(int index) {
+        return raplFiles[index];
+    }
+
+    long maxEnergyRange(int index) {
+        return maxEnergyRanges[index];
+    }
+}
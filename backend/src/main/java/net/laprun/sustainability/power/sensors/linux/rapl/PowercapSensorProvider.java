@@ -0,0 +1,35 @@
+package net.laprun.sustainability.power.sensors.linux.rapl;
+
+import java.nio.file.Files;
+
+import net.laprun.sustainability.power.sensors.PowerSensor;
+import net.laprun.sustainability.power.sensors.PowerSensorProvider;
+
+/**
+ * Provides a {@link PowercapSensor} on Linux systems exposing the powercap framework
+ */
+public class PowercapSensorProvider implements PowerSensorProvider {
+    public static final String NAME = "powercap";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public int priority() {
+        // reading files in-process is cheap
+        return 100;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return System.getProperty("os.name").toLowerCase().contains("linux")
+                && Files.isDirectory(PowercapTopology.DEFAULT_ROOT);
+    }
+
+    @Override
+    public PowerSensor create() {
+        return new PowercapSensor();
+    }
+}
@@ -0,0 +1,242 @@
+package net.laprun.sustainability.power.sensors.linux.rapl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import io.quarkus.logging.Log;
+
+/**
+ * Discovers the powercap zones exposed under a root directory (typically {@code /sys/class/powercap}) by recursively walking
+ * it. Zones are identified structurally (directories containing both {@code energy_uj} and {@code name} files) so that the
+ * flat symbolic links that sysfs exposes at the root are de-duplicated with the nested zones they point to and so that
+ * discovery can be tested against directory fixtures.
+ */
+final class PowercapTopology {
+    static final Path DEFAULT_ROOT = Path.of("/sys/class/powercap");
+    // sysfs powercap trees are shallow: control type / package / sub-zone, with some slack for intermediate directories
+    private static final int MAX_DEPTH = 6;
+    // when the same domain is exposed by several control types (e.g. package via both MSR and MMIO interfaces), prefer the
+    // one from the first matching control type in this list, other control types being considered afterwards
+    static final List<String> CONTROL_TYPE_PRIORITY = List.of("intel-rapl", "amd-rapl", "intel-rapl-mmio");
+
+    private final List<PowercapZone> roots;
+    private final List<PowercapZone> zones;
+
+    private PowercapTopology(List<PowercapZone> roots, List<PowercapZone> zones) {
+        this.roots = roots;
+        this.zones = zones;
+    }
+
+    static PowercapTopology discover() {
+        return discover(DEFAULT_ROOT);
+    }
+
+    static PowercapTopology discover(Path root) {
+        final var zones = new ArrayList<PowercapZone>();
+        final var roots = new ArrayList<PowercapZone>();
+        if (Files.isDirectory(root)) {
+            final var visited = new HashSet<Path>();
+            // entries at the root are usually symbolic links (to control types and to all zones, flattened) so follow them
+            for (Path entry : sortedEntries(root)) {
+                walk(entry, null, null, 1, visited, roots, zones);
+            }
+        }
+        // disambiguate top-level zones first since sub-zones are named after their parent
+        disambiguateNames(roots);
+        disambiguateNames(zones.stream().filter(zone -> !zone.isRoot()).toList());
+        return new PowercapTopology(List.copyOf(roots), List.copyOf(zones));
+    }
+
+    private static void walk(Path dir, String controlType, PowercapZone parent, int depth, Set<Path> visited,
+            List<PowercapZone> roots, List<PowercapZone> zones) {
+        if (depth > MAX_DEPTH || !Files.isDirectory(dir)) {
+            return;
+        }
+
+        final Path realPath;
+        try {
+            realPath = dir.toRealPath();
+        } catch (IOException e) {
+            Log.debugf("Couldn't resolve %s, cause: %s", dir, e);
+            return;
+        }
+        if (!visited.add(realPath)) {
+            return;
+        }
+
+        PowercapZone zone = null;
+        if (isZone(realPath)) {
+            final var name = readName(realPath);
+            if (name != null) {
+                if (controlType == null) {
+                    // zone reached directly via a flattened link: its control type is the first non-zone ancestor
+                    controlType = controlTypeOf(realPath);
+                    if (parent == null && isZone(realPath.getParent())) {
+                        // nested zone reached via a flattened link: it will be reached again from its parent
+                        visited.remove(realPath);
+                        return;
+                    }
+                }
+                zone = new PowercapZone(realPath, name, controlType, parent);
+                zones.add(zone);
+                if (parent == null) {
+                    roots.add(zone);
+                }
+            }
+        } else if (controlType == null) {
+            controlType = realPath.getFileName().toString();
+        } else if (parent != null) {
+            // only zones can contain sub-zones
+            return;
+        }
+
+        final var currentControlType = controlType;
+        final var currentParent = zone != null ? zone : parent;
+        for (Path child : sortedEntries(realPath)) {
+            // below the root, do not follow symbolic links (e.g. sysfs' subsystem or device links) to avoid cycles
+            if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                walk(child, currentControlType, currentParent, depth + 1, visited, roots, zones);
+            }
+        }
+    }
+
+    private static boolean isZone(Path dir) {
+        return dir != null && Files.isRegularFile(dir.resolve(PowercapZone.ENERGY_FILE))
+                && Files.isRegularFile(dir.resolve(PowercapZone.NAME_FILE));
+    }
+
+    private static String controlTypeOf(Path zoneDir) {
+        var current = zoneDir.getParent();
+        while (current != null && isZone(current)) {
+            current = current.getParent();
+        }
+        return current != null && current.getFileName() != null ? current.getFileName().toString() : "";
+    }
+
+    private static String readName(Path zoneDir) {
+        try (var nameFile = RAPLFile.createFrom(zoneDir.resolve(PowercapZone.NAME_FILE))) {
+            return normalize(nameFile.contentAsString());
+        } catch (Exception e) {
+            Log.debugf("Couldn't read name of zone %s, cause: %s", zoneDir, e);
+            return null;
+        }
+    }
+
+    /**
+     * Normalizes zone names across vendors and drivers so that they can be used as component names: lower-cased, with
+     * whitespace and underscores replaced by dashes (e.g. {@code Package_0} becomes {@code package-0})
+     *
+     * @param name the zone name as read from its {@code name} file
+     * @return the normalized name
+     */
+    static String normalize(String name) {
+        return name.trim().toLowerCase(Locale.ROOT).replaceAll("[\\s_]+", "-");
+    }
+
+    private static int priorityOf(PowercapZone zone) {
+        final var index = CONTROL_TYPE_PRIORITY.indexOf(zone.controlType());
+        return index < 0 ? CONTROL_TYPE_PRIORITY.size() : index;
+    }
+
+    private static List<Path> sortedEntries(Path dir) {
+        try (Stream<Path> entries = Files.list(dir)) {
+            return entries.sorted(Comparator.comparing(Path::toString)).toList();
+        } catch (IOException e) {
+            Log.debugf("Couldn't list %s, cause: %s", dir, e);
+            return List.of();
+        }
+    }
+
+    private static void disambiguateNames(List<PowercapZone> zones) {
+        final var byName = new HashMap<String, List<PowercapZone>>();
+        zones.forEach(zone -> byName.computeIfAbsent(zone.controlType() + "/" + zone.componentName(), k -> new ArrayList<>())
+                .add(zone));
+        byName.values().stream()
+                .filter(sameName -> sameName.size() > 1)
+                .forEach(sameName -> {
+                    // use the zone's directory name, which is unique (e.g. intel-rapl:0), to disambiguate
+                    for (PowercapZone zone : sameName) {
+                        zone.disambiguate(zone.path().getFileName().toString());
+                    }
+                });
+    }
+
+    /**
+     * @return the top-level zones, i.e. zones which are not sub-zones of another one
+     */
+    List<PowercapZone> roots() {
+        return roots;
+    }
+
+    /**
+     * @return all discovered zones, parents being listed before their children
+     */
+    List<PowercapZone> zones() {
+        return zones;
+    }
+
+    /**
+     * @return the names of the control types (e.g. {@code intel-rapl}) for which at least one zone was discovered
+     */
+    Set<String> controlTypes() {
+        final var controlTypes = new HashSet<String>();
+        zones.forEach(zone -> controlTypes.add(zone.controlType()));
+        return controlTypes;
+    }
+
+    /**
+     * Determines which of the discovered zones need to be added up to get the total energy consumption without counting any
+     * domain twice: if a platform ({@code psys}) zone exists, it covers everything else. Otherwise, each top-level zone is
+     * counted along with its sub-zones which are not already included in it (i.e. DRAM).
+     *
+     * @param zonesToConsider a filter selecting which zones to consider (e.g. only zones of a given control type)
+     * @return the zones which energy needs to be added up to get the total consumption
+     */
+    List<PowercapZone> totalContributors(Predicate<PowercapZone> zonesToConsider) {
+        final var considered = zones.stream().filter(zonesToConsider).toList();
+        final var psys = considered.stream().filter(PowercapZone::isPsys).toList();
+        if (!psys.isEmpty()) {
+            return psys;
+        }
+        return considered.stream().filter(zone -> !zone.isIncludedInParent()).toList();
+    }
+
+    /**
+     * Creates the {@link RAPLDomain}s associated with the selected zones, only recording power for the zones that contribute
+     * to the total consumption, as determined by {@link #totalContributors(Predicate)}, so that components can be summed
+     * without double counting.
+     *
+     * @param zonesToConsider a filter selecting which zones to consider (e.g. only zones of a given control type)
+     * @return the {@link RAPLDomain}s associated with the selected zones which energy can be read
+     */
+    List<RAPLDomain> domains(Predicate<PowercapZone> zonesToConsider) {
+        final var contributors = new HashSet<>(totalContributors(zonesToConsider));
+        final var domains = new ArrayList<RAPLDomain>();
+        final Map<String, RAPLDomain> byName = new HashMap<>();
+        zones.stream().filter(zonesToConsider).sorted(Comparator.comparingInt(PowercapTopology::priorityOf)).forEach(zone -> {
+            // component names are only unique per control type: if several control types expose the same domain, only keep
+            // the zone from the preferred control type
+            if (byName.containsKey(zone.componentName())) {
+                Log.debugf("Ignoring %s which is already provided by another control type", zone);
+                return;
+            }
+            final var domain = RAPLDomain.from(zone, contributors.contains(zone));
+            if (domain != null && byName.putIfAbsent(domain.name(), domain) == null) {
+                domains.add(domain);
+            }
+        });
+        return domains;
+    }
+}
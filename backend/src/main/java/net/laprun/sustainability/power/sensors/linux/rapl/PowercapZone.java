@@ -0,0 +1,106 @@
+package net.laprun.sustainability.power.sensors.linux.rapl;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A powercap zone, i.e. a directory exposing an {@code energy_uj} counter along with its {@code name}, as discovered by
+ * {@link PowercapTopology}. Zones form a tree: sub-zones (e.g. {@code core}, {@code uncore} or {@code dram}) are children of
+ * their package zone.
+ */
+final class PowercapZone {
+    static final String ENERGY_FILE = "energy_uj";
+    static final String NAME_FILE = "name";
+    static final String MAX_ENERGY_RANGE_FILE = "max_energy_range_uj";
+    static final String PSYS = "psys";
+    static final String DRAM = "dram";
+
+    private final Path path;
+    private final String name;
+    private final String controlType;
+    private final PowercapZone parent;
+    private final List<PowercapZone> children = new ArrayList<>();
+    private String suffix;
+
+    PowercapZone(Path path, String name, String controlType, PowercapZone parent) {
+        this.path = path;
+        this.name = name;
+        this.controlType = controlType;
+        this.parent = parent;
+        if (parent != null) {
+            parent.children.add(this);
+        }
+    }
+
+    Path path() {
+        return path;
+    }
+
+    Path energyFile() {
+        return path.resolve(ENERGY_FILE);
+    }
+
+    Path maxEnergyRangeFile() {
+        return path.resolve(MAX_ENERGY_RANGE_FILE);
+    }
+
+    /**
+     * @return the name of the zone as reported by its {@code name} file, e.g. {@code package-0} or {@code core}
+     */
+    String name() {
+        return name;
+    }
+
+    /**
+     * @return the name of the control type this zone belongs to, e.g. {@code intel-rapl}
+     */
+    String controlType() {
+        return controlType;
+    }
+
+    PowercapZone parent() {
+        return parent;
+    }
+
+    List<PowercapZone> children() {
+        return Collections.unmodifiableList(children);
+    }
+
+    boolean isRoot() {
+        return parent == null;
+    }
+
+    boolean isPsys() {
+        return PSYS.equals(name);
+    }
+
+    /**
+     * Determines whether the energy reported by this zone is already accounted for by its parent. Per the RAPL
+     * specification, the package domain includes its core (PP0) and uncore (PP1) sub-domains but not the DRAM one.
+     *
+     * @return {@code true} if this zone's energy is included in its parent's, {@code false} otherwise
+     */
+    boolean isIncludedInParent() {
+        return parent != null && !DRAM.equals(name);
+    }
+
+    /**
+     * @return a name for this zone which is unique within its control type, qualifying sub-zones with their parent's name so
+     *         that, e.g., DRAM domains of different sockets can be told apart
+     */
+    String componentName() {
+        final var qualified = parent == null ? name : parent.componentName() + "-" + name;
+        return suffix == null ? qualified : qualified + "-" + suffix;
+    }
+
+    void disambiguate(String suffix) {
+        this.suffix = suffix;
+    }
+
+    @Override
+    public String toString() {
+        return componentName() + " (" + controlType + ": " + path + ")";
+    }
+}
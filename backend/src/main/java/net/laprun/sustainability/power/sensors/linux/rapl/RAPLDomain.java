@@ -0,0 +1,51 @@
+package net.laprun.sustainability.power.sensors.linux.rapl;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import io.quarkus.logging.Log;
+
+/**
+ * A powercap energy domain (e.g. package, core, dram) as exposed via its {@code energy_uj} counter.
+ *
+ * @param name the name of the domain, as used for the associated sensor component
+ * @param energyFile the {@link RAPLFile} giving access to the domain's energy counter
+ * @param maxEnergyRangeInMicroJoules the value at which the energy counter wraps around, as read from the domain's
+ *        {@code max_energy_range_uj} file, or {@link #UNKNOWN_MAX_ENERGY_RANGE} if not available
+ * @param contributesToTotal whether the domain's energy needs to be added to other domains' to get the total consumption
+ *        or if it is already accounted for by another domain (e.g. a core domain is included in its package)
+ */
+record RAPLDomain(String name, RAPLFile energyFile, long maxEnergyRangeInMicroJoules, boolean contributesToTotal) {
+    static final long UNKNOWN_MAX_ENERGY_RANGE = -1;
+
+    RAPLDomain(String name, RAPLFile energyFile, long maxEnergyRangeInMicroJoules) {
+        this(name, energyFile, maxEnergyRangeInMicroJoules, true);
+    }
+
+    RAPLDomain(String name, RAPLFile energyFile) {
+        this(name, energyFile, UNKNOWN_MAX_ENERGY_RANGE);
+    }
+
+    static RAPLDomain from(PowercapZone zone, boolean contributesToTotal) {
+        final var energyFile = zone.energyFile();
+        try {
+            return new RAPLDomain(zone.componentName(), RAPLFile.createFrom(energyFile), readMaxEnergyRange(energyFile),
+                    contributesToTotal);
+        } catch (Exception e) {
+            Log.debugf("Couldn't read file: %s, cause: %s", energyFile, e);
+            return null;
+        }
+    }
+
+    static long readMaxEnergyRange(Path energyFile) {
+        final var maxEnergyRangeFile = energyFile.resolveSibling(PowercapZone.MAX_ENERGY_RANGE_FILE);
+        if (Files.exists(maxEnergyRangeFile)) {
+            try (var raplFile = RAPLFile.createFrom(maxEnergyRangeFile)) {
+                return raplFile.extractEnergyInMicroJoules();
+            } catch (Exception e) {
+                Log.debugf("Couldn't read file: %s, cause: %s", maxEnergyRangeFile, e);
+            }
+        }
+        return UNKNOWN_MAX_ENERGY_RANGE;
+    }
+}
@@ -2,12 +2,26 @@ package net.laprun.sustainability.power.sensors.linux.rapl;
 
 import java.nio.file.Path;
 
-interface RAPLFile {
+import io.quarkus.logging.Log;
+
+interface RAPLFile extends AutoCloseable {
     long extractEnergyInMicroJoules();
 
     String contentAsString();
 
+    @Override
+    default void close() {
+    }
+
     static RAPLFile createFrom(Path file) {
+        // check once whether we can read the file directly (running as root, with CAP_DAC_READ_SEARCH or with relaxed powercap
+        // permissions) in which case we keep the file open and read it in-process, without spawning anything
+        try {
+            return ByteBufferRAPLFile.createFrom(file);
+        } catch (Exception e) {
+            Log.debugf("Couldn't read %s directly, falling back to process-based reading. Cause: %s", file, e);
+        }
+
         // assume that file is readable in test mode, so run without sudo
         // note that this will fail in a realistic environment
         return new ProcessReadRAPLFile(file, !TestMode.enabled);
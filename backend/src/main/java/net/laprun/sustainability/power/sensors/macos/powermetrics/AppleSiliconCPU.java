@@ -3,7 +3,7 @@ package net.laprun.sustainability.power.sensors.macos.powermetrics;
 import static net.laprun.sustainability.power.SensorUnit.*;
 import static net.laprun.sustainability.power.sensors.macos.powermetrics.MacOSPowermetricsSensor.*;
 
-import java.util.HashMap;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import net.laprun.sustainability.power.SensorMetadata;
@@ -20,6 +20,8 @@ class AppleSiliconCPU extends CPU {
     private static final String COMBINED = "Combined";
     private static final String POWER_INDICATOR = " Power: ";
     private static final int POWER_INDICATOR_LENGTH = POWER_INDICATOR.length();
+    private static final byte[] POWER_INDICATOR_BYTES = Bytes.ascii(POWER_INDICATOR);
+    private static final byte[] COMBINED_BYTES = Bytes.ascii(COMBINED);
 
     public AppleSiliconCPU() {
     }
@@ -49,26 +51,31 @@ class AppleSiliconCPU extends CPU {
     }
 
     @Override
-    public boolean doneExtractingPowerComponents(String line, HashMap<String, Number> powerComponents) {
+    public boolean doneExtractingPowerComponents(ByteBuffer bytes, int lineStart, int lineEnd, double[] powerComponents) {
         // looking for line fitting the: "<name> Power: xxx mW" pattern and add all of the associated values together
-        final var powerIndex = line.indexOf(POWER_INDICATOR);
+        final var powerIndex = Bytes.indexOf(bytes, POWER_INDICATOR_BYTES, lineStart, lineEnd);
         // lines with `-` as the second char are disregarded as of the form: "E-Cluster Power: 6 mW" which fits the pattern but shouldn't be considered
         // also ignore Combined Power if available since it is the sum of the other components
-        if (powerIndex >= 0 && '-' != line.charAt(1) && !line.startsWith("Combined")) {
-            // get component name
-            final var name = line.substring(0, powerIndex);
-            // extract power value
-            final int value;
-            try {
-                value = Integer.parseInt(line.substring(powerIndex + POWER_INDICATOR_LENGTH, line.indexOf('m') - 1));
-            } catch (Exception e) {
-                throw new IllegalStateException("Cannot parse power value from line '" + line + "'", e);
+        if (powerIndex > lineStart && '-' != bytes.get(lineStart + 1)
+                && !Bytes.startsWith(bytes, lineStart, lineEnd, COMBINED_BYTES)) {
+            // get component name, only considering known components
+            final var index = componentIndexFor(bytes, lineStart, powerIndex);
+            if (index >= 0) {
+                // extract power value
+                final var valueStart = powerIndex + POWER_INDICATOR_LENGTH;
+                final int value;
+                try {
+                    value = (int) Bytes.parseLong(bytes, valueStart, Bytes.skipNonWhitespace(bytes, valueStart, lineEnd));
+                } catch (Exception e) {
+                    throw new IllegalStateException(
+                            "Cannot parse power value from line '" + Bytes.toString(bytes, lineStart, lineEnd) + "'", e);
+                }
+                powerComponents[index] = value;
             }
-            powerComponents.put(name, value);
         }
 
         // we break out once we 've found all the extracted components (in this case, only cpuShare is not extracted)
-        return powerComponents.size() == metadata().componentCardinality() - 1;
+        return extractedCount(powerComponents) == metadata().componentCardinality() - 1;
     }
 
     @Override
@@ -0,0 +1,220 @@
+package net.laprun.sustainability.power.sensors.macos.powermetrics;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Helpers to scan and parse ASCII content directly from a {@link ByteBuffer}, using absolute indices so that the buffer's
+ * position is never modified and no intermediate objects need to be created.
+ */
+enum Bytes {
+    ;
+
+    // powers of 10 which can be exactly represented as doubles
+    private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+            1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+    // largest mantissa that can be exactly represented as a double
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    static int indexOf(ByteBuffer bytes, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static int indexOf(ByteBuffer bytes, byte[] pattern, int from, int to) {
+        final var last = to - pattern.length;
+        for (int i = from; i <= last; i++) {
+            if (regionMatches(bytes, i, pattern)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static int lastIndexOf(ByteBuffer bytes, byte value, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (bytes.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static boolean regionMatches(ByteBuffer bytes, int index, byte[] pattern) {
+        if (index < 0 || index + pattern.length > bytes.limit()) {
+            return false;
+        }
+        for (int i = 0; i < pattern.length; i++) {
+            if (bytes.get(index + i) != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean startsWith(ByteBuffer bytes, int from, int to, byte[] prefix) {
+        return to - from >= prefix.length && regionMatches(bytes, from, prefix);
+    }
+
+    static boolean endsWith(ByteBuffer bytes, int from, int to, byte[] suffix) {
+        return to - from >= suffix.length && regionMatches(bytes, to - suffix.length, suffix);
+    }
+
+    /**
+     * Checks whether the specified region contains exactly the specified ASCII string
+     */
+    static boolean contentEquals(ByteBuffer bytes, int from, int to, String ascii) {
+        if (to - from != ascii.length()) {
+            return false;
+        }
+        for (int i = 0; i < ascii.length(); i++) {
+            if (bytes.get(from + i) != ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int skipWhitespace(ByteBuffer bytes, int from, int to) {
+        while (from < to && isWhitespace(bytes.get(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    static int skipNonWhitespace(ByteBuffer bytes, int from, int to) {
+        while (from < to && !isWhitespace(bytes.get(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    static int trimEnd(ByteBuffer bytes, int from, int to) {
+        while (to > from && isWhitespace(bytes.get(to - 1))) {
+            to--;
+        }
+        return to;
+    }
+
+    static boolean isNumberChar(byte b) {
+        return (b >= '0' && b <= '9') || b == '.' || b == '-' || b == '+' || b == 'e' || b == 'E';
+    }
+
+    static int skipNumber(ByteBuffer bytes, int from, int to) {
+        while (from < to && isNumberChar(bytes.get(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    static long parseLong(ByteBuffer bytes, int from, int to) {
+        if (from >= to) {
+            throw new NumberFormatException("Empty number");
+        }
+        final var negative = bytes.get(from) == '-';
+        var i = negative ? from + 1 : from;
+        if (i >= to) {
+            throw new NumberFormatException("No digits in number");
+        }
+        long value = 0;
+        for (; i < to; i++) {
+            final var digit = bytes.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Invalid character in number: '" + (char) bytes.get(i) + "'");
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses the integer found in the specified region, returning the specified default value instead of failing if the
+     * region doesn't contain a valid integer
+     */
+    static long parseLong(ByteBuffer bytes, int from, int to, long defaultValue) {
+        final var negative = from < to && bytes.get(from) == '-';
+        var i = negative ? from + 1 : from;
+        if (i >= to || to - i > 18) {
+            return defaultValue;
+        }
+        long value = 0;
+        for (; i < to; i++) {
+            final var digit = bytes.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return defaultValue;
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    /**
+     * Parses the decimal number found in the specified region. Numbers with at most 15 significant digits and no exponent,
+     * i.e. what powermetrics outputs, are parsed in place with the same result as {@link Double#parseDouble(String)}, other
+     * numbers falling back to it.
+     */
+    static double parseDouble(ByteBuffer bytes, int from, int to) {
+        if (from >= to) {
+            throw new NumberFormatException("Empty number");
+        }
+        final var negative = bytes.get(from) == '-';
+        var i = negative || bytes.get(from) == '+' ? from + 1 : from;
+        long mantissa = 0;
+        int fractionDigits = -1;
+        boolean hasDigits = false;
+        for (; i < to; i++) {
+            final var b = bytes.get(i);
+            if (b >= '0' && b <= '9') {
+                hasDigits = true;
+                mantissa = mantissa * 10 + (b - '0');
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+                if (mantissa >= MAX_EXACT_MANTISSA) {
+                    return parseDoubleSlow(bytes, from, to);
+                }
+            } else if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (b == 'e' || b == 'E') {
+                return parseDoubleSlow(bytes, from, to);
+            } else {
+                throw new NumberFormatException("Invalid character in number: '" + (char) b + "'");
+            }
+        }
+        if (!hasDigits) {
+            throw new NumberFormatException("No digits in number");
+        }
+        if (fractionDigits >= POWERS_OF_TEN.length) {
+            return parseDoubleSlow(bytes, from, to);
+        }
+        // both operands are exactly represented so the division is correctly rounded, as Double.parseDouble would be
+        final var value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+    private static double parseDoubleSlow(ByteBuffer bytes, int from, int to) {
+        return Double.parseDouble(toString(bytes, from, to));
+    }
+
+    static String toString(ByteBuffer bytes, int from, int to) {
+        final var chars = new byte[to - from];
+        bytes.get(from, chars);
+        return new String(chars, StandardCharsets.US_ASCII);
+    }
+}
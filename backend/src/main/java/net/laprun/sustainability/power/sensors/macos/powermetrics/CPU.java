@@ -1,18 +1,55 @@
 package net.laprun.sustainability.power.sensors.macos.powermetrics;
 
-import java.util.HashMap;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import net.laprun.sustainability.power.SensorMetadata;
 
 abstract class CPU {
     private SensorMetadata metadata;
+    private String[] componentNames = new String[0];
+    private int[] componentIndices = new int[0];
 
     void addComponentIfFound(String line, List<SensorMetadata.ComponentMetadata> components) {
         throw new IllegalStateException("Shouldn't be called as this processing is unneeded for this implementation");
     }
 
-    abstract boolean doneExtractingPowerComponents(String line, HashMap<String, Number> powerComponents);
+    /**
+     * Extracts the power components found on the specified line, if any
+     *
+     * @param bytes the powermetrics output
+     * @param lineStart the index at which the line starts
+     * @param lineEnd the index at which the line ends (exclusive)
+     * @param powerComponents the extracted power components so far, indexed by component index, components which haven't
+     *        been extracted yet being {@link Double#NaN}
+     * @return {@code true} if all the power components have been extracted, {@code false} otherwise
+     */
+    abstract boolean doneExtractingPowerComponents(ByteBuffer bytes, int lineStart, int lineEnd, double[] powerComponents);
+
+    /**
+     * Retrieves the index of the metadata component which name is found in the specified region, without creating a new
+     * {@link String}
+     *
+     * @return the index of the matching component or {@code -1} if no component matches
+     */
+    int componentIndexFor(ByteBuffer bytes, int from, int to) {
+        for (int i = 0; i < componentNames.length; i++) {
+            if (Bytes.contentEquals(bytes, from, to, componentNames[i])) {
+                return componentIndices[i];
+            }
+        }
+        return -1;
+    }
+
+    static int extractedCount(double[] powerComponents) {
+        int count = 0;
+        for (double value : powerComponents) {
+            if (!Double.isNaN(value)) {
+                count++;
+            }
+        }
+        return count;
+    }
 
     SensorMetadata metadata() {
         return metadata;
@@ -20,6 +57,13 @@ abstract class CPU {
 
     void setMetadata(SensorMetadata metadata) {
         this.metadata = metadata;
+        final var components = metadata.components().values().toArray(SensorMetadata.ComponentMetadata[]::new);
+        this.componentNames = new String[components.length];
+        this.componentIndices = new int[components.length];
+        for (int i = 0; i < components.length; i++) {
+            componentNames[i] = components[i].name();
+            componentIndices[i] = components[i].index();
+        }
     }
 
     abstract boolean doneAfterComponentsInitialization(List<SensorMetadata.ComponentMetadata> components);
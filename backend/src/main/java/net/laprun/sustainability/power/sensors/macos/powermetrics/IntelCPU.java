@@ -4,12 +4,13 @@ import static net.laprun.sustainability.power.SensorUnit.*;
 import static net.laprun.sustainability.power.sensors.macos.powermetrics.MacOSPowermetricsSensor.CPU_SHARE;
 import static net.laprun.sustainability.power.sensors.macos.powermetrics.MacOSPowermetricsSensor.PACKAGE;
 
-import java.util.HashMap;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import net.laprun.sustainability.power.SensorMetadata;
 
 class IntelCPU extends CPU {
+    private static final byte[] INTEL_BYTES = Bytes.ascii("Intel ");
 
     private static final SensorMetadata.ComponentMetadata packageComponent = new SensorMetadata.ComponentMetadata(PACKAGE, 0,
             "Intel energy model derived package power (CPUs+GT+SA)", true, W);
@@ -17,18 +18,24 @@ class IntelCPU extends CPU {
             "Computed share of CPU", false, decimalPercentage);
 
     @Override
-    public boolean doneExtractingPowerComponents(String line, HashMap<String, Number> powerComponents) {
+    public boolean doneExtractingPowerComponents(ByteBuffer bytes, int lineStart, int lineEnd, double[] powerComponents) {
         // line should look like: Intel energy model derived package power (CPUs+GT+SA): 8.53W
-        final var powerIndex = line.indexOf("Intel ");
+        final var powerIndex = Bytes.indexOf(bytes, INTEL_BYTES, lineStart, lineEnd);
         if (powerIndex >= 0) {
-            final var powerStartIndex = line.indexOf(':') + 1;
             final float value;
             try {
-                value = Float.parseFloat(line.substring(powerStartIndex, line.indexOf('W')));
+                final var colonIndex = Bytes.indexOf(bytes, (byte) ':', powerIndex, lineEnd);
+                final var powerStartIndex = Bytes.skipWhitespace(bytes, colonIndex + 1, lineEnd);
+                final var powerEndIndex = Bytes.indexOf(bytes, (byte) 'W', powerStartIndex, lineEnd);
+                if (colonIndex < 0 || powerEndIndex < 0) {
+                    throw new IllegalArgumentException("Missing power value");
+                }
+                value = (float) Bytes.parseDouble(bytes, powerStartIndex, powerEndIndex);
             } catch (Exception e) {
-                throw new IllegalStateException("Cannot parse power value from line '" + line + "'", e);
+                throw new IllegalStateException(
+                        "Cannot parse power value from line '" + Bytes.toString(bytes, lineStart, lineEnd) + "'", e);
             }
-            powerComponents.put(PACKAGE, value);
+            powerComponents[packageComponent.index()] = value;
             return true;
         }
 
@@ -1,6 +1,8 @@
 package net.laprun.sustainability.power.sensors.macos.powermetrics;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import io.quarkus.logging.Log;
 import net.laprun.sustainability.power.SensorMetadata;
@@ -43,6 +45,8 @@ public abstract class MacOSPowermetricsSensor extends AbstractPowerSensor {
 
     private CPU cpu;
     private long lastCalled;
+    // only rebuilt when the registered processes change
+    private ProcessIndex processes = ProcessIndex.EMPTY;
 
     @Override
     public boolean supportsProcessAttribution() {
@@ -62,28 +66,53 @@ public abstract class MacOSPowermetricsSensor extends AbstractPowerSensor {
     protected void doStart() {
         // nothing to do here by default
         if (Log.isDebugEnabled()) {
-            lastCalled = System.currentTimeMillis();
+            lastCalled = clock().epochMillis();
         }
     }
 
-    Measures extractPowerMeasure(InputStream powerMeasureInput, long lastUpdateEpoch, long newUpdateEpoch) {
+    Measures extractPowerMeasure(ByteBuffer sample, long lastUpdateEpoch, long newUpdateEpoch) {
         if (Log.isDebugEnabled()) {
-            final var start = System.currentTimeMillis();
+            final var start = clock().epochMillis();
             Log.debugf("powermetrics measure extraction last called %dms ago", (start - lastCalled));
             lastCalled = start;
         }
-        PowerMetricsParser.extractPowerMeasure(powerMeasureInput, measures, lastUpdateEpoch, newUpdateEpoch, registeredPIDs(),
-                metadata(), cpu);
+        processes = processes.updatedFor(registrySnapshot());
+        PowerMetricsParser.extractPowerMeasure(sample, measures, lastUpdateEpoch, newUpdateEpoch, processes, metadata(), cpu,
+                intervalFromSample());
         return measures;
     }
 
+    /**
+     * Whether measures should cover the time elapsed according to the powermetrics sample they're extracted from, which is
+     * only meaningful when samples are output continuously, instead of the time elapsed since the last update
+     *
+     * @return {@code true} if the elapsed time reported by samples should be used, {@code false} otherwise
+     */
+    protected boolean intervalFromSample() {
+        return false;
+    }
+
     @Override
     protected Measures doUpdate(long lastUpdateEpoch, long newUpdateStartEpoch) {
-        return extractPowerMeasure(getInputStream(), lastUpdateEpoch, newUpdateStartEpoch);
+        return extractPowerMeasure(getSample(), lastUpdateEpoch, newUpdateStartEpoch);
     }
 
     protected abstract InputStream getInputStream();
 
+    /**
+     * Retrieves the raw powermetrics output for the next sample, which will be parsed in place. By default, this reads the
+     * whole content of {@link #getInputStream()}.
+     *
+     * @return a {@link ByteBuffer} which content between its position and limit is the sample output
+     */
+    protected ByteBuffer getSample() {
+        try (var input = getInputStream()) {
+            return ByteBuffer.wrap(input.readAllBytes());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     @Override
     public void unregister(RegisteredPID registeredPID) {
         super.unregister(registeredPID);
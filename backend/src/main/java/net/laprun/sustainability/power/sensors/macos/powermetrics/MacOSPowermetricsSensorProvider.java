@@ -0,0 +1,33 @@
+package net.laprun.sustainability.power.sensors.macos.powermetrics;
+
+import net.laprun.sustainability.power.sensors.PowerSensor;
+import net.laprun.sustainability.power.sensors.PowerSensorProvider;
+
+/**
+ * Provides a {@link ProcessMacOSPowermetricsSensor} on macOS. Creating the sensor spawns a {@code powermetrics} process to
+ * extract the sensor's metadata, which is why this only happens once the provider is selected.
+ */
+public class MacOSPowermetricsSensorProvider implements PowerSensorProvider {
+    public static final String NAME = "powermetrics";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public int priority() {
+        // lower than in-process sensors since this requires running an external process
+        return 50;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return System.getProperty("os.name").toLowerCase().contains("mac os x");
+    }
+
+    @Override
+    public PowerSensor create() {
+        return new ProcessMacOSPowermetricsSensor();
+    }
+}
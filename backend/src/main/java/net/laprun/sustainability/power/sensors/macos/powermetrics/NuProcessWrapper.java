@@ -1,16 +1,24 @@
 package net.laprun.sustainability.power.sensors.macos.powermetrics;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import com.zaxxer.nuprocess.NuProcess;
 import com.zaxxer.nuprocess.NuProcessBuilder;
 
 import net.laprun.sustainability.power.nuprocess.BaseProcessHandler;
 
+/**
+ * Runs a single long-lived {@code powermetrics -i <period>} process, which output is split into samples as it arrives,
+ * instead of starting a new process for each sample.
+ */
 public class NuProcessWrapper implements ProcessWrapper {
-    private PowermetricsProcessHandler measureHandler;
-    private String periodInMilliSecondsAsString;
+    // leave powermetrics time to emit its first sample, which is only complete once the next one starts
+    private static final long SAMPLE_TIMEOUT_GRACE_MS = 1000;
+    private StreamingPowermetricsProcessHandler measureHandler;
+    private long periodInMilliSeconds;
 
     @SuppressWarnings("UnusedReturnValue")
     public static NuProcess exec(BaseProcessHandler handler) {
@@ -31,7 +39,7 @@ public class NuProcessWrapper implements ProcessWrapper {
 
     @Override
     public void start(long periodInMilliSeconds) {
-        this.periodInMilliSecondsAsString = Long.toString(periodInMilliSeconds);
+        this.periodInMilliSeconds = periodInMilliSeconds;
     }
 
     @Override
@@ -49,17 +57,24 @@ public class NuProcessWrapper implements ProcessWrapper {
 
     @Override
     public InputStream streamForMeasure() {
+        return runningHandler().nextSample(sampleTimeoutMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public ByteBuffer sampleForMeasure() {
+        return runningHandler().nextSampleView(sampleTimeoutMs(), TimeUnit.MILLISECONDS);
+    }
+
+    private StreamingPowermetricsProcessHandler runningHandler() {
         if (!isRunning()) {
-            measureHandler = new PowermetricsProcessHandler(27000, "cpu_power,tasks",
-                    "--show-process-samp-norm", "--show-process-gpu", "-i",
-                    periodInMilliSecondsAsString, "-n", "1");
+            measureHandler = new StreamingPowermetricsProcessHandler("cpu_power,tasks",
+                    "--show-process-samp-norm", "--show-process-gpu", "-i", Long.toString(periodInMilliSeconds));
             exec(measureHandler);
-            try {
-                return measureHandler.getInputStream().get();
-            } catch (InterruptedException | ExecutionException e) {
-                throw new RuntimeException(e);
-            }
         }
-        throw new IllegalStateException("Measure is still running");
+        return measureHandler;
+    }
+
+    private long sampleTimeoutMs() {
+        return 2 * periodInMilliSeconds + SAMPLE_TIMEOUT_GRACE_MS;
     }
 }
@@ -6,25 +6,27 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
 
 import io.quarkus.logging.Log;
 import net.laprun.sustainability.power.SensorMetadata;
 import net.laprun.sustainability.power.measures.NoDurationSensorMeasure;
 import net.laprun.sustainability.power.measures.PartialSensorMeasure;
+import net.laprun.sustainability.power.sensors.LongIntHashMap;
 import net.laprun.sustainability.power.sensors.Measures;
 import net.laprun.sustainability.power.sensors.RegisteredPID;
 
 public enum PowerMetricsParser {
     ;
 
-    private static final String DURATION_SUFFIX = "ms elapsed) ***";
-    private static final int DURATION_SUFFIX_LENGTH = DURATION_SUFFIX.length();
+    private static final byte[] DURATION_SUFFIX = Bytes.ascii("ms elapsed) ***");
+    private static final byte[] ALL_TASKS = Bytes.ascii("ALL_TASKS");
+    private static final byte[] TASKS_HEADER = Bytes.ascii("Name ");
+    private static final byte[] ID_HEADER = Bytes.ascii(" ID ");
+    private static final byte NEW_LINE = '\n';
     private static final String TASKS_SECTION_MARKER = "*** Running tasks ***";
     private static final String CPU_USAGE_SECTION_MARKER = "**** Processor usage ****";
 
@@ -71,127 +73,203 @@ public enum PowerMetricsParser {
 
     static void extractPowerMeasure(InputStream powerMeasureInput, Measures current, long lastUpdateEpoch, long newUpdateEpoch,
             Set<RegisteredPID> registeredPIDs, SensorMetadata metadata, CPU cpu) {
-        final long startMs = lastUpdateEpoch;
+        final ByteBuffer sample;
         try {
-            // Should not be closed since it closes the process
-            BufferedReader input = new BufferedReader(new InputStreamReader(powerMeasureInput));
-            String line;
+            sample = ByteBuffer.wrap(powerMeasureInput.readAllBytes());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        extractPowerMeasure(sample, current, lastUpdateEpoch, newUpdateEpoch, ProcessIndex.of(registeredPIDs), metadata, cpu,
+                false);
+    }
 
+    /**
+     * Extracts the power measure from the specified powermetrics sample output, scanning its bytes directly between its
+     * position and limit (neither of which are modified) without creating objects for each line
+     *
+     * @param processes the index of the registered processes to look for, which can be reused across samples as long as
+     *        the registered processes don't change
+     * @param intervalFromSample whether the measure should cover the time elapsed according to the sample, up to
+     *        {@code newUpdateEpoch}, instead of the time elapsed since {@code lastUpdateEpoch}
+     */
+    static void extractPowerMeasure(ByteBuffer sample, Measures current, long lastUpdateEpoch, long newUpdateEpoch,
+            ProcessIndex processes, SensorMetadata metadata, CPU cpu, boolean intervalFromSample) {
+        try {
             double totalSampledCPU = -1;
             double totalSampledGPU = -1;
-            // copy the pids so that we can remove them as soon as we've processed them
-            final var pidsToProcess = new HashSet<>(registeredPIDs);
-            // remove total system "pid"
-            pidsToProcess.remove(RegisteredPID.SYSTEM_TOTAL_REGISTERED_PID);
+            final var pids = processes.pids;
+            final var pidIndex = processes.byPid;
+            final var canonicalIndex = processes.canonicalIndex;
+            var pidsToProcess = processes.distinctProcesses();
+            // column at which process identifiers start in the tasks section, as given by the section's header
+            var idColumn = -1;
             // start measure
-            final var pidMeasures = new HashMap<RegisteredPID, ProcessRecord>(registeredPIDs.size());
-            final var powerComponents = new HashMap<String, Number>(metadata.componentCardinality());
+            final var pidMeasures = new ProcessRecord[pids.length];
+            // power components by index, NaN marking the ones which haven't been extracted yet
+            final var powerComponents = new double[metadata.componentCardinality()];
+            Arrays.fill(powerComponents, Double.NaN);
             var duration = -1L;
-            Section processes = null;
-            Section cpuSection = null;
-            while ((line = input.readLine()) != null) {
-                if (line.isEmpty()) {
+            boolean inProcesses = false;
+            boolean processesDone = false;
+            boolean inCPUSection = false;
+            final var limit = sample.limit();
+            int lineEnd;
+            for (int lineStart = sample.position(); lineStart < limit; lineStart = lineEnd + 1) {
+                lineEnd = Bytes.indexOf(sample, NEW_LINE, lineStart, limit);
+                if (lineEnd < 0) {
+                    lineEnd = limit;
+                }
+                if (lineEnd == lineStart) {
                     continue;
                 }
 
-                if (line.charAt(0) == '*') {
+                if (sample.get(lineStart) == '*') {
+                    final var end = Bytes.trimEnd(sample, lineStart, lineEnd);
                     // check if we have the sample duration
-                    if (duration == -1 && line.endsWith(DURATION_SUFFIX)) {
-                        final var startLookingIndex = line.length() - DURATION_SUFFIX_LENGTH;
-                        final var lastOpenParenIndex = line.lastIndexOf('(', startLookingIndex);
-                        if (lastOpenParenIndex > 0) {
-                            duration = Math.round(Float.parseFloat(line.substring(lastOpenParenIndex + 1, startLookingIndex)));
+                    if (duration == -1 && Bytes.endsWith(sample, lineStart, end, DURATION_SUFFIX)) {
+                        final var startLookingIndex = end - DURATION_SUFFIX.length;
+                        final var lastOpenParenIndex = Bytes.lastIndexOf(sample, (byte) '(', lineStart, startLookingIndex);
+                        if (lastOpenParenIndex > lineStart) {
+                            duration = Math.round((float) Bytes.parseDouble(sample, lastOpenParenIndex + 1,
+                                    startLookingIndex));
                         }
                         continue;
                     }
 
                     // check for the beginning of tasks section
-                    if (processes == null && line.equals(TASKS_SECTION_MARKER)) {
-                        // make flag null to indicate it needs to be set to true on the next iteration, to avoid processing the marker line for processes
-                        processes = new Section();
+                    if (!inProcesses && Bytes.contentEquals(sample, lineStart, end, TASKS_SECTION_MARKER)) {
+                        inProcesses = true;
                         continue;
                     }
 
-                    if (cpuSection == null && line.equals(CPU_USAGE_SECTION_MARKER)) {
-                        cpuSection = new Section();
-                        continue;
+                    if (!inCPUSection && Bytes.contentEquals(sample, lineStart, end, CPU_USAGE_SECTION_MARKER)) {
+                        inCPUSection = true;
                     }
 
                     continue;
                 }
 
+                final var isTotals = Bytes.startsWith(sample, lineStart, lineEnd, ALL_TASKS);
                 // first, look for process line detailing share
-                if (processes != null && !processes.done && !pidsToProcess.isEmpty()) {
-                    if (line.startsWith("ALL_TASKS")) {
-                        processes.done = true; // we reached the end of the process section
+                if (inProcesses && !processesDone && pidsToProcess > 0) {
+                    if (isTotals) {
+                        processesDone = true; // we reached the end of the process section
+                    } else if (idColumn < 0 && Bytes.startsWith(sample, lineStart, lineEnd, TASKS_HEADER)) {
+                        final var idHeaderIndex = Bytes.indexOf(sample, ID_HEADER, lineStart, lineEnd);
+                        if (idHeaderIndex > 0) {
+                            idColumn = idHeaderIndex + 1 - lineStart;
+                        }
                     } else {
-                        for (RegisteredPID pid : pidsToProcess) {
-                            if (line.contains(pid.stringForMatching())) {
-                                pidMeasures.put(pid, new ProcessRecord(line));
-                                pidsToProcess.remove(pid);
-                                break;
+                        // extract the process identifier once and look it up instead of looking for each pid in the line
+                        final var idStart = idStartFor(sample, lineStart, lineEnd, idColumn);
+                        if (idStart >= 0) {
+                            final var idEnd = Bytes.skipNonWhitespace(sample, idStart, lineEnd);
+                            final var index = pidIndex.get(Bytes.parseLong(sample, idStart, idEnd, Long.MIN_VALUE));
+                            if (index != LongIntHashMap.MISSING && pidMeasures[index] == null) {
+                                pidMeasures[index] = new ProcessRecord(sample, idStart, lineEnd);
+                                pidsToProcess--;
                             }
                         }
                     }
                 }
 
                 // then skip all lines until we get the totals
-                if (totalSampledCPU < 0 && line.startsWith("ALL_TASKS")) {
-                    final var totals = new ProcessRecord(line);
+                if (totalSampledCPU < 0 && isTotals) {
+                    final var totals = ProcessRecord.fromLine(sample, lineStart, lineEnd);
                     // compute ratio
                     totalSampledCPU = totals.cpu;
                     totalSampledGPU = totals.gpu > 0 ? totals.gpu : 0;
-                    if (!pidsToProcess.isEmpty()) {
-                        Log.warnf("Couldn't find processes: %s",
-                                Arrays.toString(pidsToProcess.stream().map(RegisteredPID::pid).toArray(Long[]::new)));
+                    if (pidsToProcess > 0) {
+                        final var notFound = new ArrayList<String>(pidsToProcess);
+                        for (int i = 0; i < pids.length; i++) {
+                            if (pidMeasures[canonicalIndex[i]] == null) {
+                                notFound.add(pids[i].pidAsString());
+                            }
+                        }
+                        Log.warnf("Couldn't find processes: %s", notFound);
                     }
                 }
 
-                // we need an exit condition to break out of the loop, otherwise we'll just keep looping forever since there are always new lines since the process is periodical
-                // fixme: perhaps we should relaunch the process on each update loop instead of keeping it running? Not sure which is more efficient
-                if (cpuSection != null && !cpuSection.done && cpu.doneExtractingPowerComponents(line, powerComponents)) {
+                // we need an exit condition to break out of the loop once we've extracted all the power components
+                if (inCPUSection && cpu.doneExtractingPowerComponents(sample, lineStart, lineEnd, powerComponents)) {
                     break;
                 }
             }
 
-            double finalTotalSampledGPU = totalSampledGPU;
-            double finalTotalSampledCPU = totalSampledCPU;
+            for (int i = 0; i < powerComponents.length; i++) {
+                if (Double.isNaN(powerComponents[i])) {
+                    powerComponents[i] = 0;
+                }
+            }
+
             final var endMs = newUpdateEpoch;
-            final var durationMs = duration;
+            final var startMs = intervalFromSample && duration > 0 ? endMs - duration : lastUpdateEpoch;
 
             // handle total system measure separately
             final var systemTotalMeasure = getSystemTotalMeasure(metadata, powerComponents);
-            recordMeasure(RegisteredPID.SYSTEM_TOTAL_REGISTERED_PID, current, systemTotalMeasure, startMs, endMs, durationMs);
+            recordMeasure(RegisteredPID.SYSTEM_TOTAL_REGISTERED_PID, current, systemTotalMeasure, startMs, endMs, duration);
 
-            pidMeasures.forEach((pid, record) -> {
-                final var attributedMeasure = record.asAttributedMeasure(metadata, powerComponents, finalTotalSampledCPU,
-                        finalTotalSampledGPU);
-                recordMeasure(pid, current, attributedMeasure, startMs, endMs, durationMs);
-            });
+            for (int i = 0; i < pids.length; i++) {
+                final var record = pidMeasures[canonicalIndex[i]];
+                if (record != null) {
+                    final var attributedMeasure = record.asAttributedMeasure(metadata, powerComponents, totalSampledCPU,
+                            totalSampledGPU);
+                    recordMeasure(pids[i], current, attributedMeasure, startMs, endMs, duration);
+                }
+            }
         } catch (Exception exception) {
             throw new RuntimeException(exception);
         }
     }
 
+    /**
+     * Locates the process identifier on the specified task line. Process names might contain spaces so we rely on the
+     * column given by the section's header if available, falling back to looking for the first integer, after the name's
+     * first word, directly followed by a decimal number (the CPU time)
+     *
+     * @return the index at which the process identifier starts or {@code -1} if it couldn't be found
+     */
+    static int idStartFor(ByteBuffer bytes, int lineStart, int lineEnd, int idColumn) {
+        if (idColumn > 0) {
+            final var candidate = lineStart + idColumn;
+            if (candidate < lineEnd && Bytes.isWhitespace(bytes.get(candidate - 1))) {
+                final var first = bytes.get(candidate);
+                if (Bytes.isDigit(first) || first == '-') {
+                    return candidate;
+                }
+            }
+        }
+
+        int tokenEnd = Bytes.skipNonWhitespace(bytes, Bytes.skipWhitespace(bytes, lineStart, lineEnd), lineEnd);
+        while (tokenEnd < lineEnd) {
+            final var tokenStart = Bytes.skipWhitespace(bytes, tokenEnd, lineEnd);
+            tokenEnd = Bytes.skipNonWhitespace(bytes, tokenStart, lineEnd);
+            if (Bytes.parseLong(bytes, tokenStart, tokenEnd, Long.MIN_VALUE) != Long.MIN_VALUE) {
+                final var nextStart = Bytes.skipWhitespace(bytes, tokenEnd, lineEnd);
+                final var nextEnd = Bytes.skipNonWhitespace(bytes, nextStart, lineEnd);
+                if (nextStart < nextEnd && Bytes.isDigit(bytes.get(nextStart))
+                        && Bytes.indexOf(bytes, (byte) '.', nextStart, nextEnd) >= 0) {
+                    return tokenStart;
+                }
+            }
+        }
+        return -1;
+    }
+
     private static void recordMeasure(RegisteredPID pid, Measures current, double[] components, long startMs, long endMs,
             long duration) {
         current.record(pid, duration > 0 ? new PartialSensorMeasure(components, startMs, endMs, duration)
                 : new NoDurationSensorMeasure(components, startMs, endMs));
     }
 
-    private static double[] getSystemTotalMeasure(SensorMetadata metadata, Map<String, Number> powerComponents) {
+    private static double[] getSystemTotalMeasure(SensorMetadata metadata, double[] powerComponents) {
         final var measure = new double[metadata.componentCardinality()];
         metadata.components().forEach((name, cm) -> {
             final var index = cm.index();
-            final var value = CPU_SHARE.equals(name) ? 1.0
-                    : powerComponents.getOrDefault(name, 0).doubleValue();
+            final var value = CPU_SHARE.equals(name) ? 1.0 : powerComponents[index];
             measure[index] = value;
         });
 
         return measure;
     }
-
-    private static class Section {
-        boolean done;
-    }
 }
@@ -0,0 +1,218 @@
+package net.laprun.sustainability.power.sensors.macos.powermetrics;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+import io.quarkus.logging.Log;
+import net.laprun.sustainability.power.nuprocess.BufferPool;
+import net.laprun.sustainability.power.nuprocess.GrowableBuffer;
+
+/**
+ * Incrementally splits the output of a long-running {@code powermetrics -i <period>} process into sample frames, as the
+ * output arrives. Each sample starts with a {@code *** Sampled system activity} header line and a frame is considered
+ * complete as soon as the line reporting the overall power (see {@link #SAMPLE_END_MARKERS}) is seen, so that samples
+ * don't have to wait for the next one to be output, falling back to the header of the next sample (or the end of the
+ * output). Anything output outside of samples (e.g. the machine information preamble) is discarded.
+ * <p>
+ * Completed frames are queued until they are retrieved using {@link #nextSample(long, TimeUnit)}, which only returns the
+ * most recent one, older ones being stale by then. Only the most recent {@link #MAX_PENDING_SAMPLES} samples are kept if
+ * they are not consumed fast enough. Frames are recorded into pooled buffers which are recycled once consumed, so that no
+ * new buffer is needed once sampling reaches a steady state.
+ */
+class PowermetricsSampleStream {
+    static final String SAMPLE_HEADER = "*** Sampled system activity";
+    static final int MAX_PENDING_SAMPLES = 8;
+    private static final byte[] SAMPLE_HEADER_BYTES = SAMPLE_HEADER.getBytes(StandardCharsets.US_ASCII);
+    /**
+     * Starts of the lines reporting the overall power, output last by the {@code cpu_power} sampler, on Apple Silicon
+     * (depending on the macOS version) and Intel processors, respectively
+     */
+    static final byte[][] SAMPLE_END_MARKERS = {
+            Bytes.ascii("Combined Power"),
+            Bytes.ascii("Package Power"),
+            Bytes.ascii("Intel energy model derived package power")
+    };
+    private static final int DEFAULT_CAPACITY = 32 * 1024;
+
+    // pending samples, the sample being accumulated and the one being consumed can all be reused
+    private final BufferPool pool = new BufferPool(DEFAULT_CAPACITY, MAX_PENDING_SAMPLES + 2);
+    private final LinkedBlockingDeque<GrowableBuffer> samples = new LinkedBlockingDeque<>(MAX_PENDING_SAMPLES);
+    private GrowableBuffer current = pool.acquire();
+    // whether the current buffer starts with a sample header, if not, its content is discarded
+    private boolean sampleStarted;
+    // start of the first line that hasn't been completely scanned yet
+    private int scanFrom;
+    // the sample last handed to the consumer, which can be recycled once the next one is requested
+    private GrowableBuffer consumed;
+    private volatile boolean closed;
+
+    /**
+     * Records the specified output chunk, queuing any sample completed by it
+     *
+     * @param chunk the output chunk, which is fully consumed
+     */
+    synchronized void onOutput(ByteBuffer chunk) {
+        if (!chunk.hasRemaining()) {
+            return;
+        }
+        current.put(chunk);
+        scan();
+    }
+
+    /**
+     * Signals that no more output will be received, queuing the sample being currently accumulated, if any
+     */
+    synchronized void onClosed() {
+        if (sampleStarted && current.length() > 0) {
+            queue(current);
+            current = pool.acquire();
+        } else {
+            current.reset();
+        }
+        sampleStarted = false;
+        scanFrom = 0;
+        closed = true;
+    }
+
+    /**
+     * Retrieves the most recent complete sample, waiting up to the specified time for one to become available, older
+     * pending samples being dropped. The previously retrieved sample is recycled when this method is called so it shouldn't
+     * be used anymore.
+     *
+     * @param timeout how long to wait for a sample
+     * @param unit the unit of the timeout
+     * @return an {@link InputStream} over the sample's output
+     * @throws IllegalStateException if no sample became available within the specified time
+     */
+    InputStream nextSample(long timeout, TimeUnit unit) {
+        return nextSampleBuffer(timeout, unit).inputStream();
+    }
+
+    /**
+     * Retrieves the most recent complete sample as a read-only {@link ByteBuffer} view over the sample's output, without
+     * copying it
+     *
+     * @see #nextSample(long, TimeUnit)
+     */
+    ByteBuffer nextSampleView(long timeout, TimeUnit unit) {
+        return nextSampleBuffer(timeout, unit).view();
+    }
+
+    private GrowableBuffer nextSampleBuffer(long timeout, TimeUnit unit) {
+        pool.release(consumed);
+        consumed = null;
+        try {
+            var sample = closed ? samples.poll() : samples.poll(timeout, unit);
+            if (sample == null) {
+                throw new IllegalStateException(
+                        "No powermetrics sample received within " + unit.toMillis(timeout) + "ms");
+            }
+            // only the most recent sample reflects the current power consumption
+            GrowableBuffer newer;
+            while ((newer = samples.poll()) != null) {
+                pool.release(sample);
+                sample = newer;
+                Log.debugf("powermetrics samples are not consumed fast enough, skipping stale sample");
+            }
+            consumed = sample;
+            return sample;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    int pendingSamples() {
+        return samples.size();
+    }
+
+    private void scan() {
+        int lineStart = scanFrom;
+        int lineEnd;
+        while ((lineEnd = indexOfNewLine(lineStart)) >= 0) {
+            if ((!sampleStarted || lineStart > 0) && startsWith(lineStart, lineEnd, SAMPLE_HEADER_BYTES)) {
+                if (sampleStarted) {
+                    // the current sample is complete
+                    complete(lineStart);
+                } else {
+                    // drop whatever preceded the first sample
+                    keepFrom(lineStart);
+                    sampleStarted = true;
+                }
+                lineEnd -= lineStart;
+                lineStart = 0;
+            } else if (sampleStarted && isSampleEnd(lineStart, lineEnd)) {
+                // nothing else is needed from this sample, no need to wait for the next one
+                complete(lineEnd + 1);
+                sampleStarted = false;
+                lineStart = 0;
+                continue;
+            }
+            lineStart = lineEnd + 1;
+        }
+        scanFrom = lineStart;
+
+        // we don't need to keep what precedes a sample
+        if (!sampleStarted && scanFrom > 0) {
+            keepFrom(scanFrom);
+            scanFrom = 0;
+        }
+    }
+
+    // queues the current sample, up to the specified index, moving what follows it to a new buffer
+    private void complete(int end) {
+        final var next = pool.acquire();
+        next.put(current, end, current.length());
+        current.truncate(end);
+        queue(current);
+        current = next;
+    }
+
+    private void keepFrom(int index) {
+        final var next = pool.acquire();
+        next.put(current, index, current.length());
+        pool.release(current);
+        current = next;
+    }
+
+    private boolean isSampleEnd(int lineStart, int lineEnd) {
+        for (byte[] marker : SAMPLE_END_MARKERS) {
+            if (startsWith(lineStart, lineEnd, marker)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean startsWith(int lineStart, int lineEnd, byte[] prefix) {
+        if (lineEnd - lineStart < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (current.get(lineStart + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int indexOfNewLine(int from) {
+        final var length = current.length();
+        for (int i = from; i < length; i++) {
+            if (current.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void queue(GrowableBuffer sample) {
+        while (!samples.offerLast(sample)) {
+            pool.release(samples.pollFirst());
+            Log.debugf("powermetrics samples are not consumed fast enough, dropping oldest sample");
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package net.laprun.sustainability.power.sensors.macos.powermetrics;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import net.laprun.sustainability.power.sensors.LongIntHashMap;
+import net.laprun.sustainability.power.sensors.PIDRegistry;
+import net.laprun.sustainability.power.sensors.RegisteredPID;
+
+/**
+ * Indexes the registered processes powermetrics knows about (i.e. excluding the system total and cgroups) by pid, so that
+ * task lines can be matched with a single lookup. The index only depends on the registered processes so it is built once
+ * per {@link PIDRegistry.Snapshot} and reused across samples until the registered processes change.
+ */
+final class ProcessIndex {
+    static final ProcessIndex EMPTY = new ProcessIndex(-1, new RegisteredPID[0]);
+
+    private final long version;
+    final RegisteredPID[] pids;
+    final LongIntHashMap byPid;
+    // the same process might be registered several times (e.g. with and without its descendants), in which case all its
+    // registrations point to the index of its first registration
+    final int[] canonicalIndex;
+
+    private ProcessIndex(long version, RegisteredPID[] registered) {
+        this.version = version;
+        this.pids = Arrays.stream(registered)
+                .filter(pid -> !RegisteredPID.SYSTEM_TOTAL_REGISTERED_PID.equals(pid) && !pid.isCgroup())
+                .toArray(RegisteredPID[]::new);
+        this.byPid = new LongIntHashMap(pids.length);
+        this.canonicalIndex = new int[pids.length];
+        for (int i = 0; i < pids.length; i++) {
+            final var pid = pids[i].pid();
+            final var existing = byPid.get(pid);
+            if (existing == LongIntHashMap.MISSING) {
+                byPid.put(pid, i);
+                canonicalIndex[i] = i;
+            } else {
+                canonicalIndex[i] = existing;
+            }
+        }
+    }
+
+    /**
+     * Creates an index for the specified processes, which isn't associated with any registry snapshot
+     *
+     * @param registered the processes to index
+     * @return a new {@link ProcessIndex}
+     */
+    static ProcessIndex of(Collection<RegisteredPID> registered) {
+        return new ProcessIndex(-1, registered.toArray(RegisteredPID[]::new));
+    }
+
+    /**
+     * Retrieves an index for the processes in the specified snapshot, reusing this one if it was built for the same
+     * snapshot version
+     *
+     * @param snapshot the current registry snapshot
+     * @return this index if it's still up to date, a new one otherwise
+     */
+    ProcessIndex updatedFor(PIDRegistry.Snapshot snapshot) {
+        return version == snapshot.version() ? this : new ProcessIndex(snapshot.version(), snapshot.pidsArray());
+    }
+
+    /**
+     * @return the number of distinct processes to look for
+     */
+    int distinctProcesses() {
+        return byPid.size();
+    }
+}
@@ -1,33 +1,55 @@
 package net.laprun.sustainability.power.sensors.macos.powermetrics;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 public class ProcessMacOSPowermetricsSensor extends MacOSPowermetricsSensor {
-    private static final int MINIMAL_PERIOD_MS = 700;
-    private final ProcessWrapper processWrapper = new NuProcessWrapper();
+    private static final int MINIMAL_PERIOD_MS = 100;
+    private final ProcessWrapper processWrapper;
     private long samplingPeriodInMillis;
 
     public ProcessMacOSPowermetricsSensor() {
+        this(new NuProcessWrapper(), null);
+    }
+
+    ProcessMacOSPowermetricsSensor(ProcessWrapper processWrapper, InputStream metadataInputStream) {
+        this.processWrapper = processWrapper;
         // extract metadata
         try {
-            initMetadata(NuProcessWrapper.metadataInputStream());
+            initMetadata(metadataInputStream != null ? metadataInputStream : NuProcessWrapper.metadataInputStream());
         } catch (Exception e) {
             throw new RuntimeException("Couldn't extract sensor metadata", e);
         }
     }
 
     @Override
-    public long adjustSamplingPeriodIfNeeded(long requestedSamplingPeriodInMillis) {
+    public long effectiveSamplingPeriod(long requestedSamplingPeriodInMillis) {
+        // powermetrics runs continuously so there is no per-sample startup cost to account for anymore
         if (requestedSamplingPeriodInMillis < MINIMAL_PERIOD_MS) {
-            throw new IllegalArgumentException(
-                    "powermetrics takes around 500ms of incompressible time for each sample, set the sampling period to at least "
-                            +
-                            MINIMAL_PERIOD_MS + " milliseconds to get useful results to also account for processing time.");
+            throw new IllegalArgumentException("Set the sampling period to at least " + MINIMAL_PERIOD_MS
+                    + " milliseconds to leave enough time to process powermetrics' output.");
         }
-        samplingPeriodInMillis = requestedSamplingPeriodInMillis - 600;
+        return requestedSamplingPeriodInMillis;
+    }
+
+    @Override
+    public long adjustSamplingPeriodIfNeeded(long requestedSamplingPeriodInMillis) {
+        samplingPeriodInMillis = effectiveSamplingPeriod(requestedSamplingPeriodInMillis);
         return samplingPeriodInMillis;
     }
 
+    @Override
+    public boolean supportsVariableSamplingPeriod() {
+        // powermetrics outputs samples at the interval it was started with
+        return false;
+    }
+
+    @Override
+    protected boolean intervalFromSample() {
+        // each sample covers the time elapsed since the previous one was output by the running powermetrics process
+        return true;
+    }
+
     @Override
     public void doStart() {
         super.doStart();
@@ -39,6 +61,11 @@ public class ProcessMacOSPowermetricsSensor extends MacOSPowermetricsSensor {
         return processWrapper.streamForMeasure();
     }
 
+    @Override
+    protected ByteBuffer getSample() {
+        return processWrapper.sampleForMeasure();
+    }
+
     @Override
     public void stop() {
         if (isStarted()) {
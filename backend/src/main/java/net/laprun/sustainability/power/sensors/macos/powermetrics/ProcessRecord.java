@@ -3,24 +3,23 @@ package net.laprun.sustainability.power.sensors.macos.powermetrics;
 import static net.laprun.sustainability.power.sensors.macos.powermetrics.MacOSPowermetricsSensor.CPU_SHARE;
 import static net.laprun.sustainability.power.sensors.macos.powermetrics.MacOSPowermetricsSensor.GPU;
 
-import java.util.Map;
+import java.nio.ByteBuffer;
 
 import net.laprun.sustainability.power.SensorMetadata;
-import net.laprun.sustainability.power.sensors.RegisteredPID;
 
 class ProcessRecord {
     final double cpu;
     final double gpu;
-    final String pid;
+    final long pid;
 
-    double[] asAttributedMeasure(SensorMetadata metadata, Map<String, Number> powerComponents, final double totalSampledCPU,
+    double[] asAttributedMeasure(SensorMetadata metadata, double[] powerComponents, final double totalSampledCPU,
             final double totalSampledGPU) {
         final var cpuShare = cpu / totalSampledCPU;
         final var measure = new double[metadata.componentCardinality()];
 
         metadata.components().forEach((name, cm) -> {
             final var index = cm.index();
-            final var value = CPU_SHARE.equals(name) ? cpuShare : powerComponents.getOrDefault(name, 0).doubleValue();
+            final var value = CPU_SHARE.equals(name) ? cpuShare : powerComponents[index];
 
             if (cm.isAttributed()) {
                 final double attributionFactor;
@@ -38,7 +37,17 @@ class ProcessRecord {
         return measure;
     }
 
-    public ProcessRecord(String line) throws IllegalArgumentException {
+    /**
+     * Parses the process information from the specified line, where the process identifier is known to start at the
+     * specified index (process names might contain spaces so we cannot reliably locate the identifier from the start of the
+     * line)
+     *
+     * @param bytes the powermetrics output
+     * @param idStart the index at which the process identifier starts
+     * @param lineEnd the index at which the line ends (exclusive)
+     * @throws IllegalArgumentException if the line doesn't conform to the expected format
+     */
+    ProcessRecord(ByteBuffer bytes, int idStart, int lineEnd) throws IllegalArgumentException {
         // Expected normal output:
         //Name                               ID     CPU ms/s  samp ms/s  User%  Deadlines (<2 ms, 2-5 ms)  Wakeups (Intr, Pkg idle)  GPU ms/s
         //iTerm2                             1008   46.66     46.91      83.94  0.00    0.00               30.46   0.00              0.00
@@ -46,85 +55,44 @@ class ProcessRecord {
         //Name                               ID     CPU ms/s  samp ms/s [total]     User%  Deadlines/s [total] (<2 ms, 2-5 ms)  Wakeups/s [total] (Intr, Pkg idle)  Dead  GPU ms/s
         //WindowServer                       406    493.74    493.96    [5165.88  ] 64.82  65.95   [690    ] 0.00    [0      ]  656.62  [6870   ] 4.21    [44     ] N     0.00
         try {
-            // Trim leading/trailing whitespace
-            line = line.trim();
-
-            // Find first whitespace block after process name (marks start of ID)
-            int idStart = findFirstWhitespace(line);
-            if (idStart == -1) {
-                throw new IllegalArgumentException("Cannot find ID in line: " + line);
-            }
-
-            // Skip whitespace to get to ID
-            idStart = skipWhitespace(line, idStart);
-            int idEnd = findNextWhitespace(line, idStart);
-            pid = RegisteredPID.prepare(line.substring(idStart, idEnd));
+            final int idEnd = Bytes.skipNonWhitespace(bytes, idStart, lineEnd);
+            pid = Bytes.parseLong(bytes, idStart, idEnd);
 
             // Skip CPU ms/s column (skip whitespace, then number, then whitespace)
-            int pos = skipWhitespace(line, idEnd);
-            pos = skipNumber(line, pos);
+            int pos = Bytes.skipWhitespace(bytes, idEnd, lineEnd);
+            pos = Bytes.skipNumber(bytes, pos, lineEnd);
 
             // Now at samp ms/s
-            pos = skipWhitespace(line, pos);
-            int sampStart = pos;
-            int sampEnd = skipNumber(line, sampStart);
-            cpu = Double.parseDouble(line.substring(sampStart, sampEnd));
+            final int sampStart = Bytes.skipWhitespace(bytes, pos, lineEnd);
+            final int sampEnd = Bytes.skipNumber(bytes, sampStart, lineEnd);
+            cpu = Bytes.parseDouble(bytes, sampStart, sampEnd);
 
-            // Skip to end and work backwards to find GPU ms/s
             // The GPU value is the last numeric value on the line
-            int lastNumEnd = line.length();
-            while (lastNumEnd > 0 && Character.isWhitespace(line.charAt(lastNumEnd - 1))) {
-                lastNumEnd--;
-            }
-
+            final int lastNumEnd = Bytes.trimEnd(bytes, sampEnd, lineEnd);
             int lastNumStart = lastNumEnd;
-            while (lastNumStart > 0 && isNumberChar(line.charAt(lastNumStart - 1))) {
+            while (lastNumStart > sampEnd && Bytes.isNumberChar(bytes.get(lastNumStart - 1))) {
                 lastNumStart--;
             }
 
             if (lastNumStart < lastNumEnd) {
-                gpu = Double.parseDouble(line.substring(lastNumStart, lastNumEnd));
+                gpu = Bytes.parseDouble(bytes, lastNumStart, lastNumEnd);
             } else {
-                throw new IllegalArgumentException("Cannot find GPU value in line: " + line);
+                throw new IllegalArgumentException("Cannot find GPU value");
             }
-
         } catch (Exception e) {
-            throw new IllegalArgumentException("Received line doesn't conform to expected format: " + line, e);
-        }
-    }
-
-    private static int findFirstWhitespace(String line) {
-        for (int i = 0; i < line.length(); i++) {
-            if (Character.isWhitespace(line.charAt(i))) {
-                return i;
-            }
-        }
-        return -1;
-    }
-
-    private static int skipWhitespace(String line, int pos) {
-        while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) {
-            pos++;
-        }
-        return pos;
-    }
-
-    private static int findNextWhitespace(String line, int pos) {
-        while (pos < line.length() && !Character.isWhitespace(line.charAt(pos))) {
-            pos++;
-        }
-        return pos;
-    }
-
-    private static int skipNumber(String line, int pos) {
-        while (pos < line.length() && isNumberChar(line.charAt(pos))) {
-            pos++;
+            throw new IllegalArgumentException(
+                    "Received line doesn't conform to expected format: " + Bytes.toString(bytes, idStart, lineEnd), e);
         }
-        return pos;
     }
 
-    private static boolean isNumberChar(char c) {
-        return Character.isDigit(c) || c == '.' || c == '-' || c == 'e' || c == 'E';
+    /**
+     * Parses the process information from the specified line, assuming the process name doesn't contain any space, which is
+     * the case for the {@code ALL_TASKS} summary line
+     */
+    static ProcessRecord fromLine(ByteBuffer bytes, int lineStart, int lineEnd) {
+        final int nameStart = Bytes.skipWhitespace(bytes, lineStart, lineEnd);
+        final int nameEnd = Bytes.skipNonWhitespace(bytes, nameStart, lineEnd);
+        return new ProcessRecord(bytes, Bytes.skipWhitespace(bytes, nameEnd, lineEnd), lineEnd);
     }
 
     @Override
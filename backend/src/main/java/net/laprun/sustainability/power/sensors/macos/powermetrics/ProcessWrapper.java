@@ -1,6 +1,8 @@
 package net.laprun.sustainability.power.sensors.macos.powermetrics;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 public interface ProcessWrapper {
 
@@ -12,6 +14,19 @@ public interface ProcessWrapper {
 
     InputStream streamForMeasure();
 
+    /**
+     * Retrieves the output of the next sample as a {@link ByteBuffer} so that it can be parsed in place
+     *
+     * @return a {@link ByteBuffer} which content between its position and limit is the sample output
+     */
+    default ByteBuffer sampleForMeasure() {
+        try (var input = streamForMeasure()) {
+            return ByteBuffer.wrap(input.readAllBytes());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     static String[] preparePowermetricsCommand(String[] command) {
         final var additionalArgsCardinality = 5;
         final var args = new String[command.length + additionalArgsCardinality];
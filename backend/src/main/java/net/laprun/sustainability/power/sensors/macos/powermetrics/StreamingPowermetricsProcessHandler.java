@@ -0,0 +1,56 @@
+package net.laprun.sustainability.power.sensors.macos.powermetrics;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import net.laprun.sustainability.power.nuprocess.BaseProcessHandler;
+
+/**
+ * Handles a long-running {@code powermetrics -i <period>} process, splitting its output into samples as it arrives.
+ */
+public class StreamingPowermetricsProcessHandler extends BaseProcessHandler {
+    private final PowermetricsSampleStream samples = new PowermetricsSampleStream();
+    private volatile boolean stopping;
+
+    public StreamingPowermetricsProcessHandler(String... command) {
+        super(command);
+    }
+
+    @Override
+    protected String[] initCommand(String... command) {
+        return ProcessWrapper.preparePowermetricsCommand(command);
+    }
+
+    @Override
+    public void onStdout(ByteBuffer buffer, boolean closed) {
+        if (buffer.hasRemaining()) {
+            samples.onOutput(buffer);
+        }
+        if (closed) {
+            samples.onClosed();
+        }
+    }
+
+    @Override
+    public void onExit(int statusCode) {
+        // the process is expected to be killed when stopped so only report errors if that's not the case
+        if (!stopping) {
+            super.onExit(statusCode);
+        }
+    }
+
+    @Override
+    public void stop() {
+        stopping = true;
+        super.stop();
+    }
+
+    InputStream nextSample(long timeout, TimeUnit unit) {
+        return samples.nextSample(timeout, unit);
+    }
+
+    ByteBuffer nextSampleView(long timeout, TimeUnit unit) {
+        return samples.nextSampleView(timeout, unit);
+    }
+}
@@ -0,0 +1,306 @@
+package net.laprun.sustainability.power.sensors.replay;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.laprun.sustainability.power.SensorMetadata;
+import net.laprun.sustainability.power.SensorUnit;
+
+/**
+ * A recorded sequence of sensor samples, along with the metadata of the sensor that produced them and, optionally, the CPU
+ * shares of processes over each sample's interval, so that any sensor's output can be replayed.
+ * <p>
+ * Traces are stored as text, one sample per line, after a header line listing the components along with their unit:
+ *
+ * <pre>
+ * # optional documentation
+ * offset_ms,package-0[mW],package-0_uj[µJ],cpu_shares
+ * 100,1250.5,1234567,1234=0.25;5678=0.1
+ * 200,1300.0,1364567,1234=0.3
+ * </pre>
+ *
+ * Each sample covers the interval between the previous sample's offset (or {@code 0} for the first sample) and its own
+ * offset, in milliseconds since the beginning of the trace. The {@code cpu_shares} column is optional and lists the CPU
+ * share of processes (identified by their pid as a string) over the sample's interval.
+ */
+public final class Trace {
+    static final String OFFSET_COLUMN = "offset_ms";
+    static final String CPU_SHARES_COLUMN = "cpu_shares";
+
+    private final SensorMetadata metadata;
+    private final long[] offsets;
+    private final double[][] values;
+    private final boolean[] cumulative;
+    private final String[] sharePids;
+    private final double[][] shares;
+
+    private Trace(SensorMetadata metadata, long[] offsets, double[][] values, String[] sharePids, double[][] shares) {
+        this.metadata = metadata;
+        this.offsets = offsets;
+        this.values = values;
+        this.sharePids = sharePids;
+        this.shares = shares;
+        cumulative = new boolean[values.length];
+        metadata.components().values()
+                .forEach(cm -> cumulative[cm.index()] = cm.unit().isCommensurableWith(SensorUnit.J));
+    }
+
+    public static Builder builder(SensorMetadata metadata) {
+        return new Builder(metadata);
+    }
+
+    public static Trace read(Path path) throws IOException {
+        try (var reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return parse(reader);
+        }
+    }
+
+    public static Trace parse(Reader reader) throws IOException {
+        final var lines = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        String documentation = null;
+        Builder builder = null;
+        boolean hasShares = false;
+        int lineNumber = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.startsWith("#")) {
+                if (builder == null && documentation == null) {
+                    documentation = line.substring(1).trim();
+                }
+                continue;
+            }
+
+            final var columns = line.split(",", -1);
+            if (builder == null) {
+                if (!OFFSET_COLUMN.equals(columns[0].trim())) {
+                    throw new IllegalArgumentException("Invalid trace header at line " + lineNumber + ", should start with '"
+                            + OFFSET_COLUMN + "': " + line);
+                }
+                hasShares = CPU_SHARES_COLUMN.equals(columns[columns.length - 1].trim());
+                final var componentCount = columns.length - (hasShares ? 2 : 1);
+                final var components = new ArrayList<SensorMetadata.ComponentMetadata>(componentCount);
+                for (int i = 0; i < componentCount; i++) {
+                    components.add(parseComponent(columns[i + 1].trim(), i, lineNumber));
+                }
+                builder = new Builder(new SensorMetadata(components, documentation != null ? documentation : "Replayed trace"));
+                continue;
+            }
+
+            final var componentCount = builder.metadata.componentCardinality();
+            if (columns.length != componentCount + (hasShares ? 2 : 1)) {
+                throw new IllegalArgumentException("Invalid number of columns at line " + lineNumber + ": " + line);
+            }
+            try {
+                final var sample = new double[componentCount];
+                for (int i = 0; i < componentCount; i++) {
+                    sample[i] = Double.parseDouble(columns[i + 1]);
+                }
+                final var cpuShares = hasShares ? parseShares(columns[columns.length - 1].trim()) : Map.<String, Double> of();
+                builder.sample(Long.parseLong(columns[0].trim()), sample, cpuShares);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid sample at line " + lineNumber + ": " + line, e);
+            }
+        }
+        if (builder == null) {
+            throw new IllegalArgumentException("Trace doesn't have a header");
+        }
+        return builder.build();
+    }
+
+    private static SensorMetadata.ComponentMetadata parseComponent(String column, int index, int lineNumber) {
+        final var unitStart = column.lastIndexOf('[');
+        if (unitStart <= 0 || !column.endsWith("]")) {
+            throw new IllegalArgumentException("Invalid component at line " + lineNumber + ", should be 'name[unit]': " + column);
+        }
+        final var name = column.substring(0, unitStart);
+        return new SensorMetadata.ComponentMetadata(name, index, name, false,
+                SensorUnit.of(column.substring(unitStart + 1, column.length() - 1)));
+    }
+
+    private static Map<String, Double> parseShares(String column) {
+        if (column.isEmpty()) {
+            return Map.of();
+        }
+        final var cpuShares = new LinkedHashMap<String, Double>();
+        for (String entry : column.split(";")) {
+            final var separator = entry.indexOf('=');
+            if (separator <= 0) {
+                throw new NumberFormatException("Invalid CPU share, should be 'pid=share': " + entry);
+            }
+            cpuShares.put(entry.substring(0, separator).trim(), Double.parseDouble(entry.substring(separator + 1)));
+        }
+        return cpuShares;
+    }
+
+    public void write(Writer writer) throws IOException {
+        final var documentation = metadata.documentation();
+        if (documentation != null && !documentation.isBlank()) {
+            writer.write("# " + documentation.replace('\n', ' ') + "\n");
+        }
+        final var header = new StringBuilder(OFFSET_COLUMN);
+        for (int i = 0; i < values.length; i++) {
+            final var component = metadata.metadataFor(i);
+            header.append(',').append(component.name()).append('[').append(component.unit()).append(']');
+        }
+        if (sharePids.length > 0) {
+            header.append(',').append(CPU_SHARES_COLUMN);
+        }
+        writer.write(header.append('\n').toString());
+
+        final var line = new StringBuilder();
+        for (int sample = 0; sample < offsets.length; sample++) {
+            line.setLength(0);
+            line.append(offsets[sample]);
+            for (double[] component : values) {
+                line.append(',').append(component[sample]);
+            }
+            if (sharePids.length > 0) {
+                line.append(',');
+                var first = true;
+                for (int pid = 0; pid < sharePids.length; pid++) {
+                    final var share = shares[pid][sample];
+                    if (share > 0) {
+                        line.append(first ? "" : ";").append(sharePids[pid]).append('=').append(share);
+                        first = false;
+                    }
+                }
+            }
+            writer.write(line.append('\n').toString());
+        }
+    }
+
+    public SensorMetadata metadata() {
+        return metadata;
+    }
+
+    public int size() {
+        return offsets.length;
+    }
+
+    /**
+     * @return the duration covered by this trace, in milliseconds
+     */
+    public long durationMs() {
+        return offsets.length == 0 ? 0 : offsets[offsets.length - 1];
+    }
+
+    /**
+     * @return the processes which CPU shares were recorded, identified by their pid as a string
+     */
+    public List<String> cpuSharePids() {
+        return List.of(sharePids);
+    }
+
+    /**
+     * Integrates the recorded values over the specified interval, samples being considered constant over their interval:
+     * each component's value (and each process' CPU share) multiplied by the time its sample overlaps the interval is
+     * added to the provided sums, except for cumulative components (e.g. energy counters, as identified by their unit),
+     * which sum is replaced by the value of the last sample overlapping the interval.
+     *
+     * @param fromMs the start of the interval, in milliseconds since the beginning of the trace
+     * @param toMs the end of the interval, in milliseconds since the beginning of the trace
+     * @param componentSums the sums to update for each component, indexed as specified by the metadata
+     * @param shareSums the sums to update for each process, indexed as the processes returned by {@link #cpuSharePids()}
+     * @return the time covered by samples within the interval, in milliseconds
+     */
+    long integrate(long fromMs, long toMs, double[] componentSums, double[] shareSums) {
+        // find the first sample which interval ends after the interval start
+        var sample = Arrays.binarySearch(offsets, fromMs);
+        sample = sample >= 0 ? sample + 1 : -sample - 1;
+        long covered = 0;
+        for (; sample < offsets.length; sample++) {
+            final var sampleStart = sample == 0 ? 0 : offsets[sample - 1];
+            if (sampleStart >= toMs) {
+                break;
+            }
+            final var overlap = Math.min(toMs, offsets[sample]) - Math.max(fromMs, sampleStart);
+            if (overlap <= 0) {
+                continue;
+            }
+            covered += overlap;
+            for (int i = 0; i < values.length; i++) {
+                componentSums[i] = cumulative[i] ? values[i][sample] : componentSums[i] + values[i][sample] * overlap;
+            }
+            for (int i = 0; i < sharePids.length; i++) {
+                shareSums[i] += shares[i][sample] * overlap;
+            }
+        }
+        return covered;
+    }
+
+    boolean isCumulative(int component) {
+        return cumulative[component];
+    }
+
+    /**
+     * Accumulates samples to create a {@link Trace}, e.g. while recording a sensor's output
+     */
+    public static final class Builder {
+        private final SensorMetadata metadata;
+        private final List<Long> offsets = new ArrayList<>();
+        private final List<double[]> samples = new ArrayList<>();
+        private final List<Map<String, Double>> cpuShares = new ArrayList<>();
+        private final Map<String, Integer> sharePids = new LinkedHashMap<>();
+
+        private Builder(SensorMetadata metadata) {
+            this.metadata = metadata;
+        }
+
+        /**
+         * Adds a sample
+         *
+         * @param offsetMs the end of the interval covered by the sample, in milliseconds since the beginning of the trace,
+         *        which must be greater than the previous sample's
+         * @param components the components values, indexed as specified by the metadata
+         * @param cpuShares the CPU shares of processes over the sample's interval, keyed by pid as a string
+         * @return this builder
+         */
+        public Builder sample(long offsetMs, double[] components, Map<String, Double> cpuShares) {
+            if (offsetMs < 0 || (!offsets.isEmpty() && offsetMs <= offsets.getLast())) {
+                throw new IllegalArgumentException("Sample offsets must be positive and increasing, got " + offsetMs
+                        + " after " + (offsets.isEmpty() ? "start" : offsets.getLast()));
+            }
+            if (components.length != metadata.componentCardinality()) {
+                throw new IllegalArgumentException("Expected " + metadata.componentCardinality() + " components, got "
+                        + components.length);
+            }
+            offsets.add(offsetMs);
+            samples.add(components.clone());
+            this.cpuShares.add(cpuShares);
+            cpuShares.keySet().forEach(pid -> sharePids.putIfAbsent(pid, sharePids.size()));
+            return this;
+        }
+
+        public Trace build() {
+            final var size = offsets.size();
+            final var cardinality = metadata.componentCardinality();
+            final var values = new double[cardinality][size];
+            final var shares = new double[sharePids.size()][size];
+            for (int sample = 0; sample < size; sample++) {
+                final var components = samples.get(sample);
+                for (int i = 0; i < cardinality; i++) {
+                    values[i][sample] = components[i];
+                }
+                final var sampleIndex = sample;
+                cpuShares.get(sample).forEach((pid, share) -> shares[sharePids.get(pid)][sampleIndex] = share);
+            }
+            return new Trace(metadata, offsets.stream().mapToLong(Long::longValue).toArray(), values,
+                    sharePids.keySet().toArray(new String[0]), shares);
+        }
+    }
+}
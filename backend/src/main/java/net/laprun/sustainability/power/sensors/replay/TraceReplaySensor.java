@@ -0,0 +1,148 @@
+package net.laprun.sustainability.power.sensors.replay;
+
+import java.util.Arrays;
+import java.util.List;
+
+import io.quarkus.logging.Log;
+import net.laprun.sustainability.power.PowerClock;
+import net.laprun.sustainability.power.SensorMetadata;
+import net.laprun.sustainability.power.measures.ExternalCPUShareSensorMeasure;
+import net.laprun.sustainability.power.measures.NoDurationSensorMeasure;
+import net.laprun.sustainability.power.sensors.AbstractPowerSensor;
+import net.laprun.sustainability.power.sensors.Measures;
+import net.laprun.sustainability.power.sensors.RegisteredPID;
+
+/**
+ * A sensor replaying a recorded {@link Trace}, regardless of the sensor that produced it, on a {@link VirtualClock} running
+ * at a multiple of real time, which makes it possible to exercise the whole measuring pipeline with reproducible inputs and
+ * at a higher throughput than a real sensor would allow.
+ * <p>
+ * The virtual clock is this sensor's {@link #clock()} so that the whole pipeline (sampling, measures, persistence and
+ * rollups) runs on virtual time: sampling periods are expressed in virtual time, the scheduler sleeping for a fraction of
+ * them in real time, and measures are timestamped using virtual time. Each measure is computed from the trace samples that
+ * overlap its interval, weighted by their overlap, cumulative components (e.g. energy counters) taking the value of the
+ * last overlapping sample. If the trace recorded CPU shares, they are attributed to registered processes with the same
+ * pid, so CPU share sampling is disabled. Once the end of the trace is reached, it is either replayed from the start or
+ * measures stop being recorded.
+ */
+public class TraceReplaySensor extends AbstractPowerSensor {
+    private final Trace trace;
+    private final double speed;
+    private final boolean loop;
+    private final double[] componentSums;
+    private final double[] shareSums;
+    private final List<String> sharePids;
+    private long replayOriginMs;
+    private boolean ended;
+
+    public TraceReplaySensor(Trace trace, double speed, boolean loop) {
+        if (trace.size() == 0 || trace.durationMs() == 0) {
+            throw new IllegalArgumentException("Cannot replay an empty trace");
+        }
+        if (!(speed > 0) || Double.isInfinite(speed)) {
+            throw new IllegalArgumentException("Speed must be a positive number, was: " + speed);
+        }
+        this.trace = trace;
+        this.speed = speed;
+        this.loop = loop;
+        this.componentSums = new double[trace.metadata().componentCardinality()];
+        this.sharePids = trace.cpuSharePids();
+        this.shareSums = new double[sharePids.size()];
+        cpuSharesEnabled = false;
+        useClock(PowerClock.SYSTEM);
+    }
+
+    /**
+     * Replays the trace on a {@link VirtualClock} running at this sensor's speed relative to the specified clock, the virtual
+     * clock becoming this sensor's {@link #clock()}
+     *
+     * @param clock the reference clock
+     */
+    @Override
+    public void useClock(PowerClock clock) {
+        super.useClock(new VirtualClock(clock, clock.epochMillis(), speed));
+    }
+
+    @Override
+    protected SensorMetadata nativeMetadata() {
+        return trace.metadata();
+    }
+
+    @Override
+    public void enableCPUShareSampling(boolean enable) {
+        // CPU shares are replayed from the trace
+    }
+
+    @Override
+    protected void doStart() {
+        // the trace is replayed from its start when the sensor starts
+        replayOriginMs = lastUpdateEpoch();
+        ended = false;
+    }
+
+    /**
+     * @return the virtual clock used by this sensor, as returned by {@link #clock()}
+     */
+    public VirtualClock virtualClock() {
+        return (VirtualClock) clock();
+    }
+
+    @Override
+    protected Measures doUpdate(long lastUpdateEpoch, long newUpdateStartEpoch) {
+        // updates are already given in virtual time
+        final var measure = replay(lastUpdateEpoch - replayOriginMs, newUpdateStartEpoch - replayOriginMs);
+        if (measure == null) {
+            measures.clear();
+            return measures;
+        }
+
+        final var replayed = new NoDurationSensorMeasure(measure, lastUpdateEpoch, newUpdateStartEpoch);
+        for (RegisteredPID pid : registeredPIDs()) {
+            final var index = sharePids.indexOf(pid.pidAsString());
+            final var share = index >= 0 ? shareSums[index] : 0;
+            measures.record(pid, share > 0 ? new ExternalCPUShareSensorMeasure(replayed, share) : replayed);
+        }
+        return measures;
+    }
+
+    /**
+     * Computes the components values (and CPU shares) over the specified interval of the trace, looping over the trace if
+     * needed
+     *
+     * @return the components values or {@code null} if the trace has ended
+     */
+    private double[] replay(long fromMs, long toMs) {
+        final var duration = trace.durationMs();
+        if (!loop && fromMs >= duration) {
+            if (!ended) {
+                Log.infof("End of replayed trace reached after %dms of virtual time", duration);
+                ended = true;
+            }
+            return null;
+        }
+
+        Arrays.fill(componentSums, 0);
+        Arrays.fill(shareSums, 0);
+        long covered = 0;
+        // split the interval into the parts falling within each replay of the trace
+        for (long cycleStart = Math.floorDiv(fromMs, duration) * duration; cycleStart < toMs; cycleStart += duration) {
+            covered += trace.integrate(Math.max(fromMs, cycleStart) - cycleStart, Math.min(toMs, cycleStart + duration)
+                    - cycleStart, componentSums, shareSums);
+            if (!loop) {
+                break;
+            }
+        }
+        if (covered == 0) {
+            return null;
+        }
+
+        final var result = new double[componentSums.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = trace.isCumulative(i) ? componentSums[i] : componentSums[i] / covered;
+        }
+        for (int i = 0; i < shareSums.length; i++) {
+            shareSums[i] /= covered;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,58 @@
+package net.laprun.sustainability.power.sensors.replay;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.eclipse.microprofile.config.ConfigProvider;
+
+import io.quarkus.logging.Log;
+import net.laprun.sustainability.power.sensors.PowerSensor;
+import net.laprun.sustainability.power.sensors.PowerSensorProvider;
+
+/**
+ * Provides a {@link TraceReplaySensor} when a trace to replay is configured using the {@code power-server.replay.trace}
+ * property, in which case it takes precedence over the platform sensors. The replay speed factor is configured using
+ * {@code power-server.replay.speed} (defaulting to {@code 1}) and whether the trace is replayed in a loop using
+ * {@code power-server.replay.loop} (defaulting to {@code true}).
+ */
+public class TraceReplaySensorProvider implements PowerSensorProvider {
+    public static final String NAME = "replay";
+    static final String TRACE_PROPERTY = "power-server.replay.trace";
+    static final String SPEED_PROPERTY = "power-server.replay.speed";
+    static final String LOOP_PROPERTY = "power-server.replay.loop";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public int priority() {
+        // only available when explicitly configured, in which case it should be preferred
+        return 1000;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return ConfigProvider.getConfig().getOptionalValue(TRACE_PROPERTY, String.class)
+                .map(trace -> Files.isReadable(Path.of(trace)))
+                .orElse(false);
+    }
+
+    @Override
+    public PowerSensor create() {
+        final var config = ConfigProvider.getConfig();
+        final var path = Path.of(config.getOptionalValue(TRACE_PROPERTY, String.class)
+                .orElseThrow(() -> new IllegalStateException("No trace to replay, set " + TRACE_PROPERTY)));
+        final var speed = config.getOptionalValue(SPEED_PROPERTY, Double.class).orElse(1.0);
+        final var loop = config.getOptionalValue(LOOP_PROPERTY, Boolean.class).orElse(true);
+        try {
+            final var trace = Trace.read(path);
+            Log.infof("Replaying %d samples (%dms) from %s at %.1fx speed", trace.size(), trace.durationMs(), path, speed);
+            return new TraceReplaySensor(trace, speed, loop);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package net.laprun.sustainability.power.sensors.replay;
+
+import net.laprun.sustainability.power.PowerClock;
+
+/**
+ * A clock running at a multiple of the speed of a reference clock from a given origin, both clocks showing the same time
+ * at the origin: when running at 10× speed, 1 second elapsing on the reference clock corresponds to 10 seconds elapsing on
+ * this clock.
+ */
+public final class VirtualClock implements PowerClock {
+    private final PowerClock reference;
+    private final long originMs;
+    private final long originNanos;
+    private final double speed;
+
+    public VirtualClock(PowerClock reference, long originMs, double speed) {
+        if (!(speed > 0) || Double.isInfinite(speed)) {
+            throw new IllegalArgumentException("Speed must be a positive number, was: " + speed);
+        }
+        this.reference = reference;
+        this.originMs = originMs;
+        this.originNanos = reference.nanoTime();
+        this.speed = speed;
+    }
+
+    public double speed() {
+        return speed;
+    }
+
+    public long originMs() {
+        return originMs;
+    }
+
+    /**
+     * Converts the specified reference time to the corresponding virtual time
+     *
+     * @param referenceMs a time as given by the reference clock, in milliseconds since the epoch
+     * @return the corresponding virtual time, in milliseconds since the epoch
+     */
+    public long toVirtual(long referenceMs) {
+        return originMs + Math.round((referenceMs - originMs) * speed);
+    }
+
+    @Override
+    public long epochMillis() {
+        return toVirtual(reference.epochMillis());
+    }
+
+    @Override
+    public long nanoTime() {
+        return originNanos + Math.round((reference.nanoTime() - originNanos) * speed);
+    }
+
+    /**
+     * Blocks until this clock reaches the specified deadline, which happens {@link #speed()} times sooner on the reference
+     * clock
+     */
+    @Override
+    public boolean sleepUntil(long deadlineNanos) {
+        // round up so that this clock has reached the deadline once the reference one reached its converted value
+        return reference.sleepUntil(originNanos + (long) Math.ceil((deadlineNanos - originNanos) / speed));
+    }
+}
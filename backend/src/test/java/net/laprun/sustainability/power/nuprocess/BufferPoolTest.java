@@ -0,0 +1,67 @@
+package net.laprun.sustainability.power.nuprocess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class BufferPoolTest {
+
+    @Test
+    void buffersShouldGrowGeometrically() {
+        final var buffer = new GrowableBuffer(4);
+        buffer.put(ByteBuffer.wrap(new byte[5]));
+        assertEquals(8, buffer.capacity());
+        buffer.put(ByteBuffer.wrap(new byte[4]));
+        assertEquals(16, buffer.capacity());
+        buffer.put(ByteBuffer.wrap(new byte[100]));
+        assertEquals(109, buffer.capacity());
+        assertEquals(109, buffer.length());
+    }
+
+    @Test
+    void viewShouldExposeContentWithoutCopying() throws IOException {
+        final var buffer = new GrowableBuffer(16);
+        buffer.put(ByteBuffer.wrap("hello world".getBytes(StandardCharsets.US_ASCII)));
+        buffer.truncate(5);
+
+        final var view = buffer.view();
+        assertTrue(view.isReadOnly());
+        assertEquals(0, view.position());
+        assertEquals(5, view.limit());
+        assertEquals("hello", StandardCharsets.US_ASCII.decode(view).toString());
+        assertThrows(ReadOnlyBufferException.class, () -> buffer.view().put(0, (byte) 'j'));
+        assertEquals("hello", new String(buffer.inputStream().readAllBytes(), StandardCharsets.US_ASCII));
+
+        final var copy = new GrowableBuffer(1);
+        copy.put(buffer, 1, 4);
+        assertEquals("ell", StandardCharsets.US_ASCII.decode(copy.view()).toString());
+    }
+
+    @Test
+    void releasedBuffersShouldBeReusedOnceReset() {
+        final var pool = new BufferPool(8, 1);
+        final var buffer = pool.acquire();
+        buffer.put(ByteBuffer.wrap(new byte[100]));
+        pool.release(buffer);
+        assertEquals(1, pool.available());
+
+        final var reused = pool.acquire();
+        assertSame(buffer, reused);
+        assertEquals(0, reused.length());
+        // capacity is kept so that no re-allocation is needed
+        assertEquals(100, reused.capacity());
+
+        // pool is bounded
+        pool.release(reused);
+        pool.release(new GrowableBuffer(8));
+        assertEquals(1, pool.available());
+    }
+}
@@ -0,0 +1,39 @@
+package net.laprun.sustainability.power.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import net.laprun.sustainability.power.PowerClock;
+import net.laprun.sustainability.power.SensorMeasure;
+import net.laprun.sustainability.power.SimulatedClock;
+import net.laprun.sustainability.power.sensors.test.TestPowerSensor;
+
+class AbstractPowerSensorTest {
+
+    @Test
+    void updatesShouldUseSensorClock() throws Exception {
+        final var clock = new SimulatedClock(10_000);
+        final var sensor = new TestPowerSensor();
+        assertSame(PowerClock.SYSTEM, sensor.clock());
+        sensor.useClock(clock);
+        final var pid = sensor.register(1);
+        sensor.start();
+
+        // simulate an hour of sampling
+        SensorMeasure last = null;
+        for (int tick = 1; tick <= 3600; tick++) {
+            clock.advance(Duration.ofSeconds(1));
+            last = sensor.update(tick).getOrDefault(pid);
+            assertEquals(1000, last.durationMs());
+        }
+        assertEquals(10_000 + Duration.ofHours(1).toMillis() - 1000, last.startMs());
+        assertEquals(10_000 + Duration.ofHours(1).toMillis(), last.endMs());
+
+        assertThrows(IllegalStateException.class, () -> sensor.useClock(PowerClock.SYSTEM));
+    }
+}
@@ -0,0 +1,83 @@
+package net.laprun.sustainability.power.sensors;
+
+import static net.laprun.sustainability.power.SensorUnit.W;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import net.laprun.sustainability.power.SensorMetadata;
+import net.laprun.sustainability.power.analysis.total.Totaler;
+import net.laprun.sustainability.power.measures.NoDurationSensorMeasure;
+
+class AdaptiveSamplingPeriodTest {
+    private static final long MIN = Duration.ofMillis(100).toNanos();
+    private static final long MAX = Duration.ofMillis(800).toNanos();
+
+    @Test
+    void steadyPowerShouldCoarsenSamplingUpToMaximum() {
+        final var adaptive = adaptive();
+        assertEquals(MIN, adaptive.periodNanos());
+        for (int i = 0; i < AdaptiveSamplingPeriod.WINDOW_SIZE; i++) {
+            adaptive.record(10.0);
+        }
+        assertEquals(2 * MIN, adaptive.periodNanos());
+        for (int i = 0; i < 10 * AdaptiveSamplingPeriod.WINDOW_SIZE; i++) {
+            adaptive.record(10.0);
+        }
+        assertEquals(MAX, adaptive.periodNanos());
+    }
+
+    @Test
+    void burstsShouldRefineSamplingDownToMinimum() {
+        final var adaptive = adaptive();
+        for (int i = 0; i < 3 * AdaptiveSamplingPeriod.WINDOW_SIZE; i++) {
+            adaptive.record(10.0);
+        }
+        assertEquals(MAX, adaptive.periodNanos());
+
+        adaptive.record(10.0);
+        adaptive.record(20.0);
+        assertEquals(MAX / 2, adaptive.periodNanos());
+        for (int i = 0; i < 10; i++) {
+            adaptive.record(i % 2 == 0 ? 5.0 : 30.0);
+        }
+        assertEquals(MIN, adaptive.periodNanos());
+    }
+
+    @Test
+    void shouldUseSystemTotalOrFirstAvailableMeasure() {
+        final var adaptive = adaptive();
+        final var measures = new LongKeyedMeasures();
+        final var pid = RegisteredPID.create(42);
+        measures.record(pid, new NoDurationSensorMeasure(new double[] { 10.0 }, 0, 100));
+        for (int i = 0; i < AdaptiveSamplingPeriod.WINDOW_SIZE - 1; i++) {
+            adaptive.record(measures, List.of(pid));
+        }
+        measures.record(RegisteredPID.SYSTEM_TOTAL_REGISTERED_PID, new NoDurationSensorMeasure(new double[] { 10.0 }, 0, 100));
+        assertEquals(2 * MIN, adaptive.record(measures, List.of()));
+        // missing measures are ignored
+        assertEquals(2 * MIN, adaptive.record(new LongKeyedMeasures(), List.of(pid)));
+    }
+
+    @Test
+    void invalidBoundsShouldBeRejected() {
+        final var totaler = totaler();
+        assertThrows(IllegalArgumentException.class,
+                () -> new AdaptiveSamplingPeriod(totaler, Duration.ZERO, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> new AdaptiveSamplingPeriod(totaler, Duration.ofSeconds(2), Duration.ofSeconds(1)));
+    }
+
+    private static AdaptiveSamplingPeriod adaptive() {
+        return new AdaptiveSamplingPeriod(totaler(), Duration.ofNanos(MIN), Duration.ofNanos(MAX));
+    }
+
+    private static Totaler totaler() {
+        return new Totaler(new SensorMetadata(List.of(new SensorMetadata.ComponentMetadata("cpu", 0, "CPU", true, W)),
+                "test"), W);
+    }
+}
@@ -0,0 +1,78 @@
+package net.laprun.sustainability.power.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class CPUShareAccumulatorTest {
+
+    @Test
+    void shouldAverageNonNullSamplesOverWindow() {
+        final var accumulator = new CPUShareAccumulator(3);
+        final var cgroup = RegisteredPID.forCgroup("system.slice/foo.service");
+        final Map<String, Double> withNull = new HashMap<>();
+        withNull.put("12", null);
+        withNull.put("34", 0.3);
+
+        assertFalse(accumulator.add(Map.of("12", 0.2, "34", 0.1, cgroup.pidAsString(), 0.4)));
+        assertFalse(accumulator.add(withNull));
+        assertTrue(accumulator.add(Map.of("12", 0.4, "34", 0.0)));
+
+        final var averages = accumulator.averages();
+        // null and zero values are ignored so as not to skew the average
+        assertEquals(0.3, averages.cpuShareFor(RegisteredPID.create(12)), 0.0001);
+        assertEquals(0.2, averages.cpuShareFor(RegisteredPID.create(34)), 0.0001);
+        assertEquals(0.4, averages.cpuShareFor(cgroup), 0.0001);
+        assertEquals(0, averages.cpuShareFor(RegisteredPID.create(56)));
+        assertEquals(0, averages.cpuShareFor(RegisteredPID.SYSTEM_TOTAL_REGISTERED_PID));
+    }
+
+    @Test
+    void windowsShouldBeIndependent() {
+        final var accumulator = new CPUShareAccumulator(1);
+        assertTrue(accumulator.add(Map.of("12", 0.2)));
+        final var first = accumulator.averages();
+
+        // processes seen in the next window shouldn't impact the previous window's averages
+        assertTrue(accumulator.add(Map.of("1000", 0.5, "12", 0.1)));
+        assertEquals(0.2, first.cpuShareFor(RegisteredPID.create(12)), 0.0001);
+        assertEquals(0, first.cpuShareFor(RegisteredPID.create(1000)));
+        final var second = accumulator.averages();
+
+        // nor should processes only seen in a previous window appear in later ones
+        assertTrue(accumulator.add(Map.of("12", 0.6)));
+        assertEquals(0.1, second.cpuShareFor(RegisteredPID.create(12)), 0.0001);
+        assertEquals(0.5, second.cpuShareFor(RegisteredPID.create(1000)), 0.0001);
+        final var third = accumulator.averages();
+        assertEquals(0.6, third.cpuShareFor(RegisteredPID.create(12)), 0.0001);
+        assertEquals(0, third.cpuShareFor(RegisteredPID.create(1000)));
+        // averages are snapshots, which consumers lagging behind can still read once later windows completed
+        assertEquals(0.2, first.cpuShareFor(RegisteredPID.create(12)), 0.0001);
+        assertEquals(0.5, second.cpuShareFor(RegisteredPID.create(1000)), 0.0001);
+        assertTrue(CPUShareAccumulator.CPUShares.NONE.isEmpty());
+        assertEquals(0, CPUShareAccumulator.CPUShares.NONE.cpuShareFor(RegisteredPID.create(12)));
+    }
+
+    @Test
+    void slotsShouldRemainBoundedUnderProcessChurn() {
+        final var accumulator = new CPUShareAccumulator(3);
+        long pid = 1000;
+        for (int window = 0; window < 10_000; window++) {
+            // a long-running process along with short-lived ones, which are never seen again
+            for (int sample = 0; sample < 3; sample++) {
+                accumulator.add(Map.of("12", 0.1, Long.toString(pid++), 0.2, Long.toString(pid++), 0.3));
+            }
+            final var averages = accumulator.averages();
+            assertEquals(0.1, averages.cpuShareFor(RegisteredPID.create(12)), 0.0001);
+            assertEquals(0.2, averages.cpuShareFor(RegisteredPID.create(pid - 2)), 0.0001);
+            assertEquals(0, averages.cpuShareFor(RegisteredPID.create(pid - 8)));
+        }
+        // 7 processes per window fit in the initial slots
+        assertEquals(16, accumulator.allocatedSlots());
+    }
+}
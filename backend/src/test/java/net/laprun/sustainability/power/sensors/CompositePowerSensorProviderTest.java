@@ -0,0 +1,122 @@
+package net.laprun.sustainability.power.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import net.laprun.sustainability.power.sensors.test.TestPowerSensor;
+
+class CompositePowerSensorProviderTest {
+    private static final Duration TIMEOUT = Duration.ofMillis(200);
+
+    @Test
+    void highestPriorityAvailableProviderShouldBeSelected() {
+        final var low = new Provider("low", 1, true);
+        final var high = new Provider("high", 10, true);
+        final var unavailable = new Provider("unavailable", 100, false);
+        final var composite = new CompositePowerSensorProvider(List.of(low, unavailable, high), TIMEOUT);
+
+        assertTrue(composite.isAvailable());
+        assertEquals(List.of(high, low), composite.availableProviders());
+        assertSame(high.sensor, composite.create());
+        // lower-priority providers are not created when a higher-priority one is available
+        assertEquals(0, low.created.get());
+    }
+
+    @Test
+    void failingAndSlowProbesShouldBeConsideredUnavailable() {
+        final var blocked = new CountDownLatch(1);
+        final var slow = new Provider("slow", 100, true) {
+            @Override
+            public boolean isAvailable() throws Exception {
+                blocked.await();
+                return true;
+            }
+        };
+        final var failing = new Provider("failing", 50, true) {
+            @Override
+            public boolean isAvailable() {
+                throw new IllegalStateException("boom");
+            }
+        };
+        final var available = new Provider("available", 1, true);
+        final var composite = new CompositePowerSensorProvider(List.of(slow, failing, available), TIMEOUT);
+
+        final var start = System.nanoTime();
+        assertEquals(List.of(available), composite.availableProviders());
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos());
+        blocked.countDown();
+    }
+
+    @Test
+    void shouldFallBackToNextProviderIfCreationFails() {
+        final var broken = new Provider("broken", 10, true) {
+            @Override
+            public PowerSensor create() {
+                throw new RuntimeException("Couldn't read counters");
+            }
+        };
+        final var fallback = new Provider("fallback", 1, true);
+        final var composite = new CompositePowerSensorProvider(List.of(broken, fallback), TIMEOUT);
+        assertSame(fallback.sensor, composite.create());
+    }
+
+    @Test
+    void explicitlySelectedProviderShouldNotBeProbed() {
+        final var unavailable = new Provider("unavailable", 1, false);
+        final var composite = new CompositePowerSensorProvider(List.of(unavailable), TIMEOUT);
+        assertSame(unavailable.sensor, composite.create("unavailable"));
+        assertThrows(IllegalArgumentException.class, () -> composite.create("unknown"));
+    }
+
+    @Test
+    void shouldFailIfNoProviderIsAvailable() {
+        final var composite = new CompositePowerSensorProvider(List.of(new Provider("unavailable", 1, false)), TIMEOUT);
+        assertFalse(composite.isAvailable());
+        assertThrows(RuntimeException.class, composite::create);
+    }
+
+    private static class Provider implements PowerSensorProvider {
+        private final String name;
+        private final int priority;
+        private final boolean available;
+        private final PowerSensor sensor = new TestPowerSensor();
+        private final AtomicInteger created = new AtomicInteger();
+
+        private Provider(String name, int priority, boolean available) {
+            this.name = name;
+            this.priority = priority;
+            this.available = available;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public int priority() {
+            return priority;
+        }
+
+        @Override
+        public boolean isAvailable() throws Exception {
+            return available;
+        }
+
+        @Override
+        public PowerSensor create() {
+            created.incrementAndGet();
+            return sensor;
+        }
+    }
+}
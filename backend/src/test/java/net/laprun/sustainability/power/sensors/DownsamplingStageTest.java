@@ -0,0 +1,113 @@
+package net.laprun.sustainability.power.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import net.laprun.sustainability.power.SensorMeasure;
+import net.laprun.sustainability.power.sensors.test.TestPowerSensor;
+
+class DownsamplingStageTest {
+    private static final Duration RAW_PERIOD = Duration.ofMillis(10);
+
+    @Test
+    void shouldPublishReadingsTakenDuringPeriodForAllProcesses() {
+        final var sensor = new RawSensor();
+        final var stage = new DownsamplingStage(sensor, RAW_PERIOD, Duration.ofSeconds(1));
+        final var pid = RegisteredPID.create(42);
+        sample(stage, 0, 10);
+
+        final var measures = stage.publish(List.of(pid));
+        final var measure = measures.getOrDefault(pid);
+        assertEquals(4.5, measure.components()[0], 0.0001);
+        assertEquals(9 * 100, measure.components()[1], 0.0001);
+        assertEquals(0, measure.startMs());
+        assertEquals(100, measure.endMs());
+        assertSame(measure, measures.getSystemTotal());
+
+        // the next period only considers the readings taken since the last publication
+        sample(stage, 10, 20);
+        assertEquals(14.5, stage.publish(List.of(pid)).getOrDefault(pid).components()[0], 0.0001);
+
+        // nothing to publish if no readings were taken
+        assertSame(SensorMeasure.missing, stage.publish(List.of(pid)).getOrDefault(pid));
+    }
+
+    @Test
+    void requestedResolutionsShouldBeDownsampledFromRawReadings() {
+        final var sensor = new RawSensor();
+        final var stage = new DownsamplingStage(sensor, RAW_PERIOD, Duration.ofSeconds(1));
+        final var resolution = Duration.ofMillis(40);
+        stage.addResolution(resolution);
+        sample(stage, 0, 10);
+
+        var atResolution = stage.publish(List.of()).atResolution(resolution);
+        assertEquals(2, atResolution.length);
+        assertEquals(1.5, atResolution[0].components()[0], 0.0001);
+        assertEquals(5.5, atResolution[1].components()[0], 0.0001);
+        assertEquals(40, atResolution[1].startMs());
+        assertEquals(80, atResolution[1].endMs());
+
+        // remaining readings are carried over to the next period
+        sample(stage, 10, 20);
+        atResolution = stage.publish(List.of()).atResolution(resolution);
+        assertEquals(3, atResolution.length);
+        assertEquals(80, atResolution[0].startMs());
+        assertEquals(9.5, atResolution[0].components()[0], 0.0001);
+
+        // resolutions are only computed while requested
+        stage.removeResolution(resolution);
+        sample(stage, 20, 30);
+        assertEquals(0, stage.publish(List.of()).atResolution(resolution).length);
+    }
+
+    @Test
+    void resolutionsShouldBeBoundedByRawPeriodAndRetention() {
+        final var stage = new DownsamplingStage(new RawSensor(), RAW_PERIOD, Duration.ofSeconds(1));
+        stage.checkResolution(RAW_PERIOD);
+        stage.checkResolution(Duration.ofMillis(500));
+        assertThrows(IllegalArgumentException.class, () -> stage.checkResolution(Duration.ofMillis(5)));
+        assertThrows(IllegalArgumentException.class, () -> stage.checkResolution(Duration.ofMillis(510)));
+    }
+
+    @Test
+    void sensorsNotSupportingRawSamplingShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new DownsamplingStage(new TestPowerSensor(), RAW_PERIOD, Duration.ofSeconds(1)));
+    }
+
+    private static void sample(DownsamplingStage stage, int from, int to) {
+        for (int i = from; i < to; i++) {
+            stage.sample((i + 1) * RAW_PERIOD.toMillis());
+        }
+    }
+
+    /**
+     * Sensor which n-th raw reading (starting at 0) reports n mW and a cumulative energy of n * 100 µJ
+     */
+    private static class RawSensor extends TestPowerSensor {
+        private int readings;
+
+        private RawSensor() {
+            super(RawSampleBufferTest.METADATA);
+        }
+
+        @Override
+        public boolean supportsRawSampling() {
+            return true;
+        }
+
+        @Override
+        public long sampleInto(double[] components) {
+            components[0] = readings;
+            components[1] = readings * 100;
+            readings++;
+            return RAW_PERIOD.toNanos();
+        }
+    }
+}
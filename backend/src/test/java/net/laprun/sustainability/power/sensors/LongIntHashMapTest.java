@@ -0,0 +1,48 @@
+package net.laprun.sustainability.power.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LongIntHashMapTest {
+
+    @Test
+    void shouldStoreAndRetrieveValuesWhileGrowing() {
+        final var map = new LongIntHashMap(2);
+        for (int i = 0; i < 1000; i++) {
+            map.put(i * 7L, i);
+        }
+        assertEquals(1000, map.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, map.get(i * 7L));
+        }
+        assertEquals(LongIntHashMap.MISSING, map.get(3));
+        assertFalse(map.containsKey(-2));
+
+        map.put(7, 42);
+        assertEquals(1000, map.size());
+        assertEquals(42, map.get(7));
+    }
+
+    @Test
+    void clearShouldRemoveAllEntries() {
+        final var map = new LongIntHashMap(4);
+        map.put(-1, 1);
+        map.put(0, 2);
+        assertTrue(map.containsKey(-1));
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(LongIntHashMap.MISSING, map.get(0));
+        assertEquals(LongIntHashMap.MISSING, map.get(Long.MIN_VALUE));
+    }
+
+    @Test
+    void unsupportedKeysAndValuesShouldBeRejected() {
+        final var map = new LongIntHashMap(4);
+        assertThrows(IllegalArgumentException.class, () -> map.put(Long.MIN_VALUE, 0));
+        assertThrows(IllegalArgumentException.class, () -> map.put(1, LongIntHashMap.MISSING));
+    }
+}
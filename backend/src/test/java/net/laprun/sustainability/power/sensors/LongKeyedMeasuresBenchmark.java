@@ -0,0 +1,62 @@
+package net.laprun.sustainability.power.sensors;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import net.laprun.sustainability.power.measures.NoDurationSensorMeasure;
+
+/**
+ * Measures the cost of looking up the measure of a registered process, which happens for each tracked process on each
+ * sample and shouldn't allocate: {@code gc.alloc.rate.norm}, as reported by the {@code gc} profiler, should be close to 0
+ * B/op. Run with: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=net.laprun.sustainability.power.sensors.LongKeyedMeasuresBenchmark} from the {@code backend} directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LongKeyedMeasuresBenchmark {
+    private LongKeyedMeasures measures;
+    private RegisteredPID[] pids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        measures = new LongKeyedMeasures();
+        pids = new RegisteredPID[32];
+        for (int i = 0; i < pids.length; i++) {
+            pids[i] = RegisteredPID.create(i + 1);
+            measures.record(pids[i], new NoDurationSensorMeasure(new double[] { i }, 0, 1));
+        }
+    }
+
+    @Benchmark
+    public double lookup() {
+        next = (next + 1) % pids.length;
+        return measures.getOrDefault(pids[next]).components()[0];
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LongKeyedMeasuresBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,59 @@
+package net.laprun.sustainability.power.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+import net.laprun.sustainability.power.SensorMeasure;
+import net.laprun.sustainability.power.measures.NoDurationSensorMeasure;
+
+class LongKeyedMeasuresTest {
+
+    @Test
+    void shouldRetrieveRecordedMeasuresAcrossGrowth() {
+        final var measures = new LongKeyedMeasures();
+        final var pids = new RegisteredPID[100];
+        for (int i = 0; i < pids.length; i++) {
+            pids[i] = RegisteredPID.create(1000 + i * 64L);
+            measures.record(pids[i], measure(i));
+        }
+        for (int i = 0; i < pids.length; i++) {
+            assertEquals(i, measures.getOrDefault(pids[i]).components()[0], 0.0001);
+        }
+        assertSame(SensorMeasure.missing, measures.getOrDefault(RegisteredPID.create(42)));
+    }
+
+    @Test
+    void shouldOverwritePreviousMeasure() {
+        final var measures = new LongKeyedMeasures();
+        final var pid = RegisteredPID.create(1234);
+        measures.record(pid, measure(1));
+        final var last = measure(2);
+        measures.record(RegisteredPID.create(1234), last);
+        assertSame(last, measures.getOrDefault(pid));
+    }
+
+    @Test
+    void shouldHandleSystemTotalAndCgroups() {
+        final var measures = new LongKeyedMeasures();
+        assertSame(SensorMeasure.missing, measures.getSystemTotal());
+        final var total = measure(1);
+        measures.record(RegisteredPID.SYSTEM_TOTAL_REGISTERED_PID, total);
+        assertSame(total, measures.getSystemTotal());
+
+        final var cgroup = RegisteredPID.forCgroup("system.slice/foo.service");
+        final var cgroupMeasure = measure(2);
+        measures.record(cgroup, cgroupMeasure);
+        assertSame(cgroupMeasure, measures.getOrDefault(RegisteredPID.forCgroup("/system.slice/foo.service/")));
+        assertSame(SensorMeasure.missing, measures.getOrDefault(RegisteredPID.forCgroup("system.slice/bar.service")));
+
+        measures.clear();
+        assertSame(SensorMeasure.missing, measures.getSystemTotal());
+        assertSame(SensorMeasure.missing, measures.getOrDefault(cgroup));
+    }
+
+    private static SensorMeasure measure(double value) {
+        return new NoDurationSensorMeasure(new double[] { value }, 0, 1);
+    }
+}
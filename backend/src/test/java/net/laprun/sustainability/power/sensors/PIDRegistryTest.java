@@ -0,0 +1,207 @@
+package net.laprun.sustainability.power.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import net.laprun.sustainability.power.measures.NoDurationSensorMeasure;
+
+class PIDRegistryTest {
+
+    @Test
+    void descendantsShouldOnlyBeIncludedWhenRequested() throws Exception {
+        final var process = new ProcessBuilder("sh", "-c", "sleep 30 & wait").start();
+        try {
+            final var registry = new PIDRegistry();
+            final var flat = RegisteredPID.create(process.pid());
+            registry.register(flat);
+            assertEquals(1, registry.pidsAsStrings().size());
+            registry.unregister(flat);
+
+            final var tree = RegisteredPID.create(process.pid(), true);
+            assertTrue(tree.includeDescendants());
+            registry.register(tree);
+            final var child = waitForChild(process);
+            final var pids = registry.pidsAsStrings();
+            assertTrue(pids.contains(Long.toString(process.pid())));
+            assertTrue(pids.contains(Long.toString(child)));
+
+            registry.unregister(tree);
+            assertTrue(registry.pidsAsStrings().isEmpty());
+        } finally {
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly().waitFor(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void descendantsCPUSharesShouldBeAggregatedIntoRoot() throws Exception {
+        final var process = new ProcessBuilder("sh", "-c", "sleep 30 & wait").start();
+        try {
+            final var registry = new PIDRegistry();
+            registry.register(RegisteredPID.create(process.pid(), true));
+            final var child = waitForChild(process);
+            registry.pidsAsStrings();
+
+            final var root = Long.toString(process.pid());
+            final Map<String, Double> shares = new HashMap<>();
+            shares.put(root, 0.1);
+            shares.put(Long.toString(child), 0.25);
+            shares.put("1", 0.5);
+            final var aggregated = registry.aggregateDescendantsCPUShares(shares);
+            assertEquals(0.35, aggregated.get(root + RegisteredPID.DESCENDANTS_SUFFIX), 0.0001);
+            // the root's own share is kept for registrations not tracking descendants
+            assertEquals(0.1, aggregated.get(root), 0.0001);
+            // unrelated processes are left untouched
+            assertEquals(0.5, aggregated.get("1"), 0.0001);
+        } finally {
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly().waitFor(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void processTrackedWithAndWithoutDescendantsShouldBeKeptApart() throws Exception {
+        final var process = new ProcessBuilder("sh", "-c", "sleep 30 & wait").start();
+        try {
+            final var registry = new PIDRegistry();
+            final var flat = RegisteredPID.create(process.pid());
+            final var tree = RegisteredPID.create(process.pid(), true);
+            registry.register(flat);
+            registry.register(tree);
+            assertEquals(2, registry.size());
+            final var child = waitForChild(process);
+            assertEquals(2, registry.pidsAsStrings().size());
+
+            final Map<String, Double> shares = new HashMap<>();
+            shares.put(flat.pidAsString(), 0.1);
+            shares.put(Long.toString(child), 0.25);
+            final var accumulator = new CPUShareAccumulator(1);
+            accumulator.add(registry.aggregateDescendantsCPUShares(shares));
+            final var averages = accumulator.averages();
+            assertEquals(0.1, averages.cpuShareFor(flat), 0.0001);
+            assertEquals(0.35, averages.cpuShareFor(tree), 0.0001);
+
+            // each registration gets its own measure
+            final var measures = new LongKeyedMeasures();
+            final var flatMeasure = new NoDurationSensorMeasure(new double[] { 1 }, 0, 1);
+            final var treeMeasure = new NoDurationSensorMeasure(new double[] { 2 }, 0, 1);
+            measures.record(flat, flatMeasure);
+            measures.record(tree, treeMeasure);
+            assertSame(flatMeasure, measures.getOrDefault(flat));
+            assertSame(treeMeasure, measures.getOrDefault(tree));
+
+            registry.unregister(tree);
+            assertEquals(Set.of(flat.pidAsString()), registry.pidsAsStrings());
+        } finally {
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly().waitFor(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void descendantsDiscoveryShouldBeBounded() throws Exception {
+        final var process = new ProcessBuilder("sh", "-c", "sleep 30 & sleep 30 & sleep 30 & wait").start();
+        try {
+            final var tree = new ProcessTree(RegisteredPID.create(process.pid(), true), 2);
+            final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (process.descendants().count() < 3 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            final var parents = new ProcessParents();
+            parents.refresh();
+            assertEquals(2, tree.refresh(parents).size());
+        } finally {
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly().waitFor(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void aggregationShouldBeNoOpWithoutTrees() {
+        final var registry = new PIDRegistry();
+        registry.register(RegisteredPID.create(42));
+        final Map<String, Double> shares = Map.of("42", 0.2);
+        assertEquals(shares, registry.aggregateDescendantsCPUShares(shares));
+        assertFalse(RegisteredPID.create(42, false).includeDescendants());
+    }
+
+    @Test
+    void registrationChangesShouldPublishNewSnapshots() {
+        final var registry = new PIDRegistry();
+        final var initial = registry.snapshot();
+        assertEquals(0, initial.size());
+
+        final var pid = RegisteredPID.create(42);
+        registry.register(pid);
+        final var registered = registry.snapshot();
+        assertEquals(initial.version() + 1, registered.version());
+        assertEquals(0, initial.size());
+        assertEquals(pid, registered.pidsArray()[0]);
+        assertEquals("42", registered.pidsAsStrings()[0]);
+        // without descendants tracking, ticks reuse the snapshot's precomputed set
+        assertSame(registry.pidsAsStrings(), registry.pidsAsStrings());
+
+        // registering an already registered process or unregistering an unknown one doesn't change anything
+        registry.register(RegisteredPID.create(42));
+        registry.unregister(RegisteredPID.create(43));
+        assertSame(registered, registry.snapshot());
+
+        registry.unregister(pid);
+        assertEquals(registered.version() + 1, registry.snapshot().version());
+        assertTrue(registry.pids().isEmpty());
+        assertEquals(1, registered.size());
+    }
+
+    @Test
+    void concurrentRegistrationsShouldNotBreakReaders() throws Exception {
+        final var registry = new PIDRegistry();
+        final var threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t * 1000;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    final var pid = RegisteredPID.create(offset + i);
+                    registry.register(pid);
+                    if (i % 2 == 0) {
+                        registry.unregister(pid);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        boolean running = true;
+        while (running) {
+            final var snapshot = registry.snapshot();
+            assertEquals(snapshot.pidsArray().length, snapshot.pidsAsStrings().length);
+            running = false;
+            for (Thread thread : threads) {
+                running |= thread.isAlive();
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(threads.length * 250, registry.size());
+    }
+
+    private static long waitForChild(Process process) throws InterruptedException {
+        final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            final var child = process.children().findFirst();
+            if (child.isPresent()) {
+                return child.get().pid();
+            }
+            Thread.sleep(10);
+        }
+        throw new IllegalStateException("No child process spawned");
+    }
+}
@@ -0,0 +1,114 @@
+package net.laprun.sustainability.power.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class ProcessParentsTest {
+
+    @Test
+    void descendantsShouldBeFoundBreadthFirst() {
+        final var source = new FakeSource();
+        source.processes.putAll(Map.of(1L, 0L, 10L, 1L, 11L, 10L, 12L, 10L, 13L, 11L, 20L, 1L));
+        final var parents = new ProcessParents(source);
+        parents.refresh();
+
+        assertArrayEquals(new long[] { 11, 12, 13 }, descendants(parents, 10, 10));
+        assertArrayEquals(new long[] { 13 }, descendants(parents, 11, 10));
+        assertArrayEquals(new long[0], descendants(parents, 13, 10));
+        assertArrayEquals(new long[0], descendants(parents, 42, 10));
+        // children are recorded before grand-children when the number of descendants is bounded
+        final var bounded = new long[2];
+        assertEquals(2, parents.descendantsOf(10, bounded));
+        Arrays.sort(bounded);
+        assertArrayEquals(new long[] { 11, 12 }, bounded);
+    }
+
+    @Test
+    void onlyNewProcessesShouldBeResolved() {
+        final var source = new FakeSource();
+        source.processes.putAll(Map.of(1L, 0L, 10L, 1L, 11L, 10L));
+        final var parents = new ProcessParents(source);
+        parents.refresh();
+        assertEquals(3, source.resolved);
+
+        parents.refresh();
+        assertEquals(3, source.resolved);
+
+        source.processes.put(12L, 11L);
+        parents.refresh();
+        assertEquals(4, source.resolved);
+        assertArrayEquals(new long[] { 11, 12 }, descendants(parents, 10, 10));
+    }
+
+    @Test
+    void exitedProcessesShouldBeDropped() {
+        final var source = new FakeSource();
+        source.processes.putAll(Map.of(1L, 0L, 10L, 1L, 11L, 10L, 12L, 11L));
+        final var parents = new ProcessParents(source);
+        parents.refresh();
+
+        // the intermediate process exits, its child being re-parented
+        source.processes.remove(11L);
+        source.processes.put(12L, 1L);
+        parents.refresh();
+        assertEquals(3, parents.size());
+        assertEquals(5, source.resolved);
+        assertArrayEquals(new long[0], descendants(parents, 10, 10));
+        assertArrayEquals(new long[] { 10, 12 }, descendants(parents, 1, 10));
+
+        // a re-used identifier is resolved again
+        source.processes.put(11L, 1L);
+        parents.refresh();
+        assertEquals(6, source.resolved);
+        assertArrayEquals(new long[] { 10, 11, 12 }, descendants(parents, 1, 10));
+    }
+
+    @Test
+    void treeShouldOnlyRecreateDescendantsWhenTheyChange() {
+        final var source = new FakeSource();
+        source.processes.putAll(Map.of(1L, 0L, 10L, 1L, 11L, 10L));
+        final var parents = new ProcessParents(source);
+        final var tree = new ProcessTree(RegisteredPID.create(10, true));
+        parents.refresh();
+        final var descendants = tree.refresh(parents);
+        assertEquals(Set.of("11"), descendants);
+
+        parents.refresh();
+        assertSame(descendants, tree.refresh(parents));
+
+        source.processes.put(12L, 10L);
+        parents.refresh();
+        assertEquals(Set.of("11", "12"), tree.refresh(parents));
+    }
+
+    private static long[] descendants(ProcessParents parents, long root, int max) {
+        final var into = new long[max];
+        final var descendants = Arrays.copyOf(into, parents.descendantsOf(root, into));
+        Arrays.sort(descendants);
+        return descendants;
+    }
+
+    private static class FakeSource implements ProcessParents.Source {
+        private final Map<Long, Long> processes = new LinkedHashMap<>();
+        private int resolved;
+
+        @Override
+        public long[] pids() {
+            return processes.keySet().stream().mapToLong(Long::longValue).toArray();
+        }
+
+        @Override
+        public long parentOf(long pid) {
+            resolved++;
+            return processes.getOrDefault(pid, ProcessParents.NO_PARENT);
+        }
+    }
+}
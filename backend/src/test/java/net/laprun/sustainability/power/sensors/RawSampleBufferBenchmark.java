@@ -0,0 +1,58 @@
+package net.laprun.sustainability.power.sensors;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the cost of recording a raw sensor reading, which happens at the sensor's native rate and shouldn't allocate:
+ * {@code gc.alloc.rate.norm}, as reported by the {@code gc} profiler, should be close to 0 B/op. Run with:
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=net.laprun.sustainability.power.sensors.RawSampleBufferBenchmark} from the {@code backend} directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RawSampleBufferBenchmark {
+    private RawSampleBuffer buffer;
+    private double[] values;
+    private long time;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        buffer = new RawSampleBuffer(RawSampleBufferTest.METADATA, 1024);
+        values = new double[buffer.componentCardinality()];
+    }
+
+    @Benchmark
+    public long record() {
+        time++;
+        values[0] = time;
+        values[1] = time * 10;
+        return buffer.record(values, time, time + 1, 1_000_000);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RawSampleBufferBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
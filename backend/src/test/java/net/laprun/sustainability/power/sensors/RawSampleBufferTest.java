@@ -0,0 +1,61 @@
+package net.laprun.sustainability.power.sensors;
+
+import static net.laprun.sustainability.power.SensorUnit.mW;
+import static net.laprun.sustainability.power.SensorUnit.µJ;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import net.laprun.sustainability.power.SensorMeasure;
+import net.laprun.sustainability.power.SensorMetadata;
+
+class RawSampleBufferTest {
+    static final SensorMetadata METADATA = new SensorMetadata(List.of(
+            new SensorMetadata.ComponentMetadata("cpu", 0, "CPU", true, mW),
+            new SensorMetadata.ComponentMetadata("cpu_uj", 1, "CPU energy", false, µJ)),
+            "Test metadata with a power and an energy component");
+
+    @Test
+    void powerShouldBeAveragedWeightedByDurationWhileEnergyKeepsLastValue() {
+        final var buffer = new RawSampleBuffer(METADATA, 8);
+        buffer.record(new double[] { 10, 1000 }, 0, 10, 10_000_000);
+        buffer.record(new double[] { 40, 2000 }, 10, 40, 30_000_000);
+
+        final var measure = buffer.downsample(0, 2);
+        assertEquals(32.5, measure.components()[0], 0.0001);
+        assertEquals(2000, measure.components()[1], 0.0001);
+        assertEquals(0, measure.startMs());
+        assertEquals(40, measure.endMs());
+        assertEquals(40_000_000, measure.durationNs());
+    }
+
+    @Test
+    void readingsShouldWrapAroundWhenBufferIsFull() {
+        final var buffer = new RawSampleBuffer(METADATA, 4);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, buffer.record(new double[] { i, i * 100 }, i * 10L, (i + 1) * 10L, 10_000_000));
+        }
+        assertEquals(10, buffer.sequence());
+        assertEquals(6, buffer.oldestSequence());
+
+        final var measure = buffer.downsample(6, 10);
+        assertEquals(7.5, measure.components()[0], 0.0001);
+        assertEquals(900, measure.components()[1], 0.0001);
+        assertEquals(60, measure.startMs());
+        assertEquals(100, measure.endMs());
+
+        // overwritten or not yet recorded readings are not available
+        assertThrows(IllegalArgumentException.class, () -> buffer.downsample(5, 10));
+        assertThrows(IllegalArgumentException.class, () -> buffer.downsample(6, 11));
+    }
+
+    @Test
+    void emptyRangeShouldBeMissing() {
+        final var buffer = new RawSampleBuffer(METADATA, 4);
+        assertSame(SensorMeasure.missing, buffer.downsample(0, 0));
+    }
+}
@@ -0,0 +1,145 @@
+package net.laprun.sustainability.power.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.subscription.BackPressureFailure;
+import io.smallrye.mutiny.subscription.Cancellable;
+import io.smallrye.mutiny.subscription.MultiEmitter;
+import io.smallrye.mutiny.tuples.Tuple2;
+import net.laprun.sustainability.power.SensorMeasure;
+import net.laprun.sustainability.power.sensors.test.TestPowerSensor;
+
+class SamplingHubTest {
+
+    @Test
+    void sensorShouldBeReadOncePerTickRegardlessOfSubscribers() {
+        final var sensor = new TestPowerSensor();
+        final var first = sensor.register(1);
+        final var second = sensor.register(2);
+        final var updates = new AtomicInteger();
+        final var ticks = new AtomicReference<MultiEmitter<? super Long>>();
+        final Multi<Tuple2<Measures, CPUShareAccumulator.CPUShares>> source = Multi.createFrom().<Long> emitter(ticks::set)
+                .map(tick -> {
+                    updates.incrementAndGet();
+                    return Tuple2.of(sensor.update(tick), CPUShareAccumulator.CPUShares.NONE);
+                });
+        final var hub = new SamplingHub(sensor, source);
+
+        final int subscribers = 1000;
+        final var firstReceived = new AtomicInteger();
+        final var secondReceived = new AtomicInteger();
+        final List<Cancellable> subscriptions = new ArrayList<>(subscribers);
+        for (int i = 0; i < subscribers; i++) {
+            if (i % 4 == 0) {
+                subscriptions.add(hub.stream(first).subscribe().with(unused -> firstReceived.incrementAndGet()));
+            } else {
+                subscriptions.add(hub.stream(second).subscribe().with(unused -> secondReceived.incrementAndGet()));
+            }
+        }
+        assertEquals(subscribers, hub.subscribers());
+
+        ticks.get().emit(1L);
+        ticks.get().emit(2L);
+        assertEquals(2, updates.get());
+        assertEquals(2 * subscribers / 4, firstReceived.get());
+        assertEquals(2 * 3 * subscribers / 4, secondReceived.get());
+
+        // processes are only unregistered once their last subscriber leaves
+        subscriptions.subList(0, subscribers - 1).forEach(Cancellable::cancel);
+        assertEquals(1, hub.subscribers());
+        assertEquals(1, sensor.registeredPIDs().size());
+        assertTrue(sensor.registeredPIDs().contains(second));
+
+        subscriptions.getLast().cancel();
+        assertEquals(0, hub.subscribers());
+        assertTrue(sensor.registeredPIDs().isEmpty());
+        assertTrue(ticks.get().isCancelled());
+    }
+
+    @Test
+    void resubscribingShouldRegisterProcessAgain() {
+        final var sensor = new TestPowerSensor();
+        final var pid = sensor.register(42);
+        final var hub = new SamplingHub(sensor, Multi.createFrom().emitter(unused -> {
+        }));
+        final var stream = hub.stream(pid);
+
+        stream.subscribe().with(unused -> {
+        }).cancel();
+        assertTrue(sensor.registeredPIDs().isEmpty());
+
+        final var subscription = stream.subscribe().with(unused -> {
+        });
+        assertTrue(sensor.registeredPIDs().contains(pid));
+        subscription.cancel();
+    }
+
+    @Test
+    void processesShouldOnlyBeRegisteredOnceSubscribed() {
+        final var sensor = new TestPowerSensor();
+        final var pid = RegisteredPID.create(42, true);
+        final var hub = new SamplingHub(sensor, Multi.createFrom().emitter(unused -> {
+        }));
+
+        final var stream = hub.bufferedStream(pid, 1);
+        assertTrue(sensor.registeredPIDs().isEmpty());
+
+        final var subscription = stream.subscribe().with(unused -> {
+        });
+        assertTrue(sensor.registeredPIDs().contains(pid));
+        subscription.cancel();
+        assertTrue(sensor.registeredPIDs().isEmpty());
+    }
+
+    @Test
+    void bufferedStreamsShouldFailInsteadOfDroppingMeasures() {
+        final var sensor = new TestPowerSensor();
+        final var pid = RegisteredPID.create(42);
+        final var ticks = new AtomicReference<MultiEmitter<? super Long>>();
+        final Multi<Tuple2<Measures, CPUShareAccumulator.CPUShares>> source = Multi.createFrom().<Long> emitter(ticks::set)
+                .map(tick -> Tuple2.of(sensor.update(tick), CPUShareAccumulator.CPUShares.NONE));
+        final var hub = new SamplingHub(sensor, source);
+
+        // a subscriber which never requests any measure
+        final var failure = new AtomicReference<Throwable>();
+        hub.bufferedStream(pid, 2).subscribe().withSubscriber(new Flow.Subscriber<SensorMeasure>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+            }
+
+            @Override
+            public void onNext(SensorMeasure item) {
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                failure.set(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        ticks.get().emit(1L);
+        ticks.get().emit(2L);
+        assertNull(failure.get());
+
+        ticks.get().emit(3L);
+        assertInstanceOf(BackPressureFailure.class, failure.get());
+        assertEquals(0, hub.subscribers());
+        assertTrue(sensor.registeredPIDs().isEmpty());
+    }
+}
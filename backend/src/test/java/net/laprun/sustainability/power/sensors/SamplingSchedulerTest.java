@@ -0,0 +1,66 @@
+package net.laprun.sustainability.power.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import net.laprun.sustainability.power.sensors.test.TestPowerSensor;
+
+class SamplingSchedulerTest {
+
+    @Test
+    void ticksShouldBeAlignedOnPeriodBoundaries() throws Exception {
+        final var sensor = new TestPowerSensor();
+        final var pid = sensor.register(42);
+        sensor.start();
+        final int subSamples = 4;
+        final var subSampled = new AtomicInteger();
+        final List<Integer> subSamplesAtTick = new CopyOnWriteArrayList<>();
+        final List<Long> intervalEnds = new CopyOnWriteArrayList<>();
+        final var scheduler = new SamplingScheduler(sensor, Duration.ofMillis(40), subSamples, () -> {
+            subSampled.incrementAndGet();
+            return Map.of("42", 0.5);
+        });
+
+        final int expectedTicks = 5;
+        final var done = new CountDownLatch(expectedTicks);
+        final var subscription = scheduler.samples().subscribe().with(sample -> {
+            subSamplesAtTick.add(subSampled.get());
+            intervalEnds.add(sample.getItem1().getOrDefault(pid).endMs());
+            assertEquals(0.5, sample.getItem2().cpuShareFor(pid), 0.0001);
+            done.countDown();
+        });
+        try {
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        } finally {
+            subscription.cancel();
+        }
+
+        for (int i = 0; i < expectedTicks; i++) {
+            // CPU shares are sub-sampled over each period, the last sub-sample being taken right before the sensor update
+            assertEquals((i + 1) * subSamples, subSamplesAtTick.get(i).intValue());
+        }
+        for (int i = 1; i < expectedTicks; i++) {
+            // interval bounds are computed from deadlines, not from when the sensor was actually updated
+            assertEquals(40, intervalEnds.get(i) - intervalEnds.get(i - 1), 1);
+        }
+        assertTrue(scheduler.maxJitterNanos() >= scheduler.lastJitterNanos());
+    }
+
+    @Test
+    void invalidParametersShouldBeRejected() {
+        final var sensor = new TestPowerSensor();
+        assertThrows(IllegalArgumentException.class, () -> new SamplingScheduler(sensor, Duration.ofMillis(100), 0, null));
+        assertThrows(IllegalArgumentException.class, () -> new SamplingScheduler(sensor, Duration.ofNanos(2), 3, null));
+    }
+}
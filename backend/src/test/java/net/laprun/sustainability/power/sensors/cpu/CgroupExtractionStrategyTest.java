@@ -0,0 +1,122 @@
+package net.laprun.sustainability.power.sensors.cpu;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.vertx.core.impl.cpu.CpuCoreSensor;
+import net.laprun.sustainability.power.SimulatedClock;
+import net.laprun.sustainability.power.sensors.RegisteredPID;
+
+class CgroupExtractionStrategyTest {
+    private static final String CGROUP = "system.slice/foo.service";
+    private static final String KEY = RegisteredPID.forCgroup(CGROUP).pidAsString();
+    private Path root;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        root = Files.createTempDirectory("cgroup");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void parseUsageUsecShouldFindEntry() {
+        final var bytes = cpuStat(123456).getBytes(StandardCharsets.US_ASCII);
+        assertThat(CgroupExtractionStrategy.parseUsageUsec(bytes, bytes.length)).isEqualTo(123456L);
+
+        final var reordered = "user_usec 10\nusage_usec 42\n".getBytes(StandardCharsets.US_ASCII);
+        assertThat(CgroupExtractionStrategy.parseUsageUsec(reordered, reordered.length)).isEqualTo(42L);
+    }
+
+    @Test
+    void parseUsageUsecShouldFailIfEntryIsMissing() {
+        final var bytes = "user_usec 10\nsystem_usec 5\n".getBytes(StandardCharsets.US_ASCII);
+        assertThrows(IllegalArgumentException.class, () -> CgroupExtractionStrategy.parseUsageUsec(bytes, bytes.length));
+    }
+
+    @Test
+    void cpuSharesShouldBeComputedFromUsageDeltas() throws IOException {
+        final var strategy = new CgroupExtractionStrategy(root);
+        writeCpuStat(CGROUP, 1_000_000);
+
+        final var keys = Set.of(KEY);
+        // first call only records reference values
+        assertThat(strategy.cpuSharesFor(keys, 0)).isEmpty();
+
+        // cgroup used 250ms of CPU over 1s
+        writeCpuStat(CGROUP, 1_250_000);
+        final var cpuShares = strategy.cpuSharesFor(keys, TimeUnit.SECONDS.toNanos(1));
+        assertThat(cpuShares).hasSize(1);
+        assertThat(cpuShares.get(KEY)).isEqualTo(0.25 / CpuCoreSensor.availableProcessors());
+    }
+
+    @Test
+    void intervalsShouldBeMeasuredUsingSensorClock() throws IOException {
+        final var strategy = new CgroupExtractionStrategy(root);
+        final var clock = new SimulatedClock(0);
+        writeCpuStat(CGROUP, 1_000_000);
+
+        final var keys = Set.of(KEY);
+        assertThat(strategy.cpuSharesFor(keys, clock)).isEmpty();
+
+        // cgroup used 500ms of CPU over 2s according to the sensor's clock
+        writeCpuStat(CGROUP, 1_500_000);
+        clock.advance(Duration.ofSeconds(2));
+        assertThat(strategy.cpuSharesFor(keys, clock).get(KEY)).isEqualTo(0.25 / CpuCoreSensor.availableProcessors());
+    }
+
+    @Test
+    void processKeysAndRemovedCgroupsShouldBeIgnored() throws IOException {
+        final var strategy = new CgroupExtractionStrategy(root);
+        writeCpuStat(CGROUP, 1_000_000);
+
+        final var removed = RegisteredPID.forCgroup("removed.slice").pidAsString();
+        final var keys = Set.of(KEY, removed, "1234");
+        assertThat(strategy.cpuSharesFor(keys, 0)).isEmpty();
+        writeCpuStat(CGROUP, 1_000_000);
+        final var cpuShares = strategy.cpuSharesFor(keys, TimeUnit.SECONDS.toNanos(1));
+        assertThat(cpuShares).hasSize(1);
+        assertThat(cpuShares.get(KEY)).isEqualTo(0.0);
+    }
+
+    @Test
+    void validationShouldNormalizePathAndRejectUnknownCgroups() throws IOException {
+        writeCpuStat(CGROUP, 0);
+        // cgroups outside the hierarchy root shouldn't be accessible
+        final var strategy = new CgroupExtractionStrategy(root.resolve("system.slice"));
+        writeCpuStat("other.slice", 0);
+
+        assertThat(strategy.validOrFail("/foo.service/")).isEqualTo("foo.service");
+        assertThrows(IllegalArgumentException.class, () -> strategy.validOrFail("unknown.service"));
+        assertThrows(IllegalArgumentException.class, () -> strategy.validOrFail("../other.slice"));
+    }
+
+    private void writeCpuStat(String cgroup, long usageUsec) throws IOException {
+        final var dir = Files.createDirectories(root.resolve(cgroup));
+        Files.writeString(dir.resolve("cpu.stat"), cpuStat(usageUsec));
+    }
+
+    private static String cpuStat(long usageUsec) {
+        return "usage_usec " + usageUsec + "\nuser_usec " + usageUsec / 2 + "\nsystem_usec " + usageUsec / 2
+                + "\nnr_periods 0\nnr_throttled 0\nthrottled_usec 0\n";
+    }
+}
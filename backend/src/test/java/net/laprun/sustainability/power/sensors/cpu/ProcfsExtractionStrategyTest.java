@@ -0,0 +1,124 @@
+package net.laprun.sustainability.power.sensors.cpu;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ProcfsExtractionStrategyTest {
+    private Path proc;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        proc = Files.createTempDirectory("proc");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(proc)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void parseProcessJiffiesShouldAddUserAndSystemTimes() {
+        final var stat = processStat("1234", "java", 1500, 250);
+        assertThat(parseProcessJiffies(stat)).isEqualTo(1750L);
+    }
+
+    @Test
+    void parseProcessJiffiesShouldHandleCommandNamesWithSpacesAndParentheses() {
+        final var stat = processStat("1234", "my (weird) cmd", 42, 8);
+        assertThat(parseProcessJiffies(stat)).isEqualTo(50L);
+    }
+
+    @Test
+    void parseTotalJiffiesShouldOnlyConsiderAggregatedLine() {
+        final var stat = systemStat(100, 10, 50, 1000, 5, 1, 2, 3) + "cpu0 50 5 25 500 2 0 1 1 0 0\n";
+        final var bytes = stat.getBytes(StandardCharsets.US_ASCII);
+        assertThat(ProcfsExtractionStrategy.parseTotalJiffies(bytes, bytes.length)).isEqualTo(1171L);
+    }
+
+    @Test
+    void parseTotalJiffiesShouldFailOnInvalidContent() {
+        final var bytes = "intr 1 2 3".getBytes(StandardCharsets.US_ASCII);
+        assertThrows(IllegalArgumentException.class, () -> ProcfsExtractionStrategy.parseTotalJiffies(bytes, bytes.length));
+    }
+
+    @Test
+    void cpuSharesShouldBeComputedOverInterval() throws IOException {
+        final var strategy = new ProcfsExtractionStrategy(proc);
+        writeSystemStat(1000);
+        writeProcessStat("1234", 100, 50);
+        writeProcessStat("5678", 10, 0);
+
+        // first call only records reference values
+        final var pids = Set.of("1234", "5678");
+        assertThat(strategy.cpuSharesFor(pids)).isEmpty();
+
+        writeSystemStat(1400);
+        writeProcessStat("1234", 200, 90); // 140 jiffies out of 400
+        writeProcessStat("5678", 30, 0); // 20 jiffies out of 400
+        var cpuShares = strategy.cpuSharesFor(pids);
+        assertThat(cpuShares).hasSize(2);
+        assertThat(cpuShares.get("1234")).isEqualTo(140.0 / 400);
+        assertThat(cpuShares.get("5678")).isEqualTo(20.0 / 400);
+
+        // shares are computed over the last interval only, not over the lifetime of the processes
+        writeSystemStat(1600);
+        cpuShares = strategy.cpuSharesFor(pids);
+        assertThat(cpuShares.get("1234")).isEqualTo(0.0);
+        assertThat(cpuShares.get("5678")).isEqualTo(0.0);
+    }
+
+    @Test
+    void exitedProcessesShouldBeIgnored() throws IOException {
+        final var strategy = new ProcfsExtractionStrategy(proc);
+        writeSystemStat(1000);
+        writeProcessStat("1234", 100, 50);
+
+        assertThat(strategy.cpuSharesFor(Set.of("1234", "999999"))).isEmpty();
+        writeSystemStat(1100);
+        writeProcessStat("1234", 150, 50);
+        final var cpuShares = strategy.cpuSharesFor(Set.of("1234", "999999"));
+        assertThat(cpuShares).hasSize(1);
+        assertThat(cpuShares).doesNotContainKey("999999");
+        assertThat(cpuShares.get("1234")).isEqualTo(0.5);
+    }
+
+    private void writeSystemStat(long idle) throws IOException {
+        Files.writeString(proc.resolve("stat"), systemStat(100, 0, 100, idle, 0, 0, 0, 0) + "cpu0 1 2 3 4 5 6 7 8 9 10\n");
+    }
+
+    private void writeProcessStat(String pid, long utime, long stime) throws IOException {
+        final var dir = Files.createDirectories(proc.resolve(pid));
+        Files.writeString(dir.resolve("stat"), processStat(pid, "java", utime, stime));
+    }
+
+    private static long parseProcessJiffies(String stat) {
+        final var bytes = stat.getBytes(StandardCharsets.US_ASCII);
+        return ProcfsExtractionStrategy.parseProcessJiffies(bytes, bytes.length);
+    }
+
+    private static String systemStat(long user, long nice, long system, long idle, long iowait, long irq, long softirq,
+            long steal) {
+        // guest and guest_nice are already accounted for in user and nice
+        return "cpu  " + user + " " + nice + " " + system + " " + idle + " " + iowait + " " + irq + " " + softirq + " " + steal
+                + " 7 9\n";
+    }
+
+    private static String processStat(String pid, String comm, long utime, long stime) {
+        return pid + " (" + comm + ") S 1 " + pid + " " + pid + " 0 -1 4194560 22788 0 0 0 " + utime + " " + stime
+                + " 0 0 20 0 28 0 12345 7254130688 95860 18446744073709551615 1 1 0 0 0 0 0 4096 17103 0 0 0 17 3 0 0 0 0 0\n";
+    }
+}
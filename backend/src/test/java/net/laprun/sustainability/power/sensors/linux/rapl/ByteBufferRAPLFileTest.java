@@ -0,0 +1,31 @@
+package net.laprun.sustainability.power.sensors.linux.rapl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class ByteBufferRAPLFileTest {
+    @Test
+    void shouldExtractEnergyInMicroJoules() {
+        try (var reader = ByteBufferRAPLFile.createFrom(
+                ResourceHelper.getResourcePath(getClass(), "rapl/intel-rapl_1/energy_uj"))) {
+            assertEquals(12345, reader.extractEnergyInMicroJoules());
+            // reading again should re-read from the start of the file
+            assertEquals(12345, reader.extractEnergyInMicroJoules());
+        }
+    }
+
+    @Test
+    void shouldExtractName() {
+        try (var reader = ByteBufferRAPLFile.createFrom(ResourceHelper.getResourcePath(getClass(), "rapl/intel-rapl_1/name"))) {
+            assertEquals("CPU", reader.contentAsString());
+        }
+    }
+
+    @Test
+    void shouldFailOnInvalidEnergyValue() {
+        try (var reader = ByteBufferRAPLFile.createFrom(ResourceHelper.getResourcePath(getClass(), "rapl/intel-rapl_1/name"))) {
+            assertThrows(NumberFormatException.class, reader::extractEnergyInMicroJoules);
+        }
+    }
+}
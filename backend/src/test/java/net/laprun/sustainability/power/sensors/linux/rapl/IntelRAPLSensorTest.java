@@ -3,6 +3,8 @@ package net.laprun.sustainability.power.sensors.linux.rapl;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
@@ -25,6 +27,15 @@ public class IntelRAPLSensorTest {
         checkComponent(metadata, "GPU_uj", 3);
     }
 
+    @Test
+    void maxEnergyRangeShouldBeReadIfAvailable() {
+        final var clazz = getClass();
+        final var sensor = new IntelRAPLSensor(ResourceHelper.getResourcePathAsString(clazz, "rapl/intel-rapl_1/energy_uj"),
+                ResourceHelper.getResourcePathAsString(clazz, "rapl/intel-rapl_2/energy_uj"));
+        assertEquals(262143328850L, sensor.maxEnergyRange(0));
+        assertEquals(RAPLDomain.UNKNOWN_MAX_ENERGY_RANGE, sensor.maxEnergyRange(1));
+    }
+
     @BeforeAll
     static void beforeAll() {
         TestMode.enabled = true;
@@ -75,24 +86,48 @@ public class IntelRAPLSensorTest {
 
     @Test
     void basicWattComputationShouldWork() {
-        final var power = IntelRAPLSensor.computePowerInMilliWatts(200, 100, 2000, 1000);
+        // 100µJ over 1s
+        final var power = IntelRAPLSensor.computePowerInMilliWatts(200, 100, 2_000_000_000L, 1_000_000_000L);
         assertEquals((double) 100 / 1000, power);
     }
 
+    @Test
+    void wattComputationShouldNotBeQuantizedToMilliseconds() {
+        // 1000µJ over 1.5ms
+        final var power = IntelRAPLSensor.computePowerInMilliWatts(2000, 1000, 3_500_000L, 2_000_000L);
+        assertEquals(1000 / 1.5, power, 1e-9);
+    }
+
+    @Test
+    void energyDeltaShouldAccountForWraparound() {
+        assertEquals(100, IntelRAPLSensor.energyDeltaInMicroJoules(200, 100, 1000));
+        // counter wrapped around its max energy range
+        assertEquals(150, IntelRAPLSensor.energyDeltaInMicroJoules(50, 900, 1000));
+        // unknown range: assume a full unsigned 64-bit counter
+        assertEquals(150, IntelRAPLSensor.energyDeltaInMicroJoules(50, -100, RAPLDomain.UNKNOWN_MAX_ENERGY_RANGE));
+        // values above Long.MAX_VALUE are valid unsigned counter values
+        assertEquals(10, IntelRAPLSensor.energyDeltaInMicroJoules(Long.MIN_VALUE + 5, Long.MAX_VALUE - 4,
+                RAPLDomain.UNKNOWN_MAX_ENERGY_RANGE));
+    }
+
     private static class TestIntelRAPLSensor extends IntelRAPLSensor {
         TestIntelRAPLSensor(SortedMap<String, RAPLFile> files) {
             super(files);
         }
 
+        TestIntelRAPLSensor(Collection<RAPLDomain> domains) {
+            super(domains);
+        }
+
         @Override
-        protected void readAndRecordSensor(BiConsumer<Long, Integer> onReadingSensorValueAtIndex, long newUpdateStartEpoch) {
+        protected void readAndRecordSensor(BiConsumer<Long, Integer> onReadingSensorValueAtIndex) {
             // also record measure time so that we can run tests with proper time recording behavior instead of fixing times
             BiConsumer<Long, Integer> consumer = (measure, index) -> ((TestRAPLFile) raplFile(index))
-                    .recordMeasureTime(newUpdateStartEpoch);
+                    .recordMeasureTime(readNanos(index));
             if (onReadingSensorValueAtIndex != null) {
                 consumer = consumer.andThen(onReadingSensorValueAtIndex);
             }
-            super.readAndRecordSensor(consumer, newUpdateStartEpoch);
+            super.readAndRecordSensor(consumer);
         }
     }
 
@@ -108,9 +143,24 @@ public class IntelRAPLSensorTest {
         assertEquals(2, components.length);
         assertEquals(2, raplFile.callCount());
         final var interval = raplFile.measureTimeFor(1) - raplFile.measureTimeFor(0);
-        final var expected = (double) (raplFile.valueAt(1) - raplFile.valueAt(0)) / interval;
+        final var expected = (double) (raplFile.valueAt(1) - raplFile.valueAt(0)) * 1_000_000 / interval;
         assertEquals(expected, components[0]);
         assertEquals(20000, components[1]);
+        assertEquals(interval, measures.getOrDefault(pid).durationNs());
+    }
+
+    @Test
+    void wraparoundShouldBeHandledAndCounted() throws Exception {
+        final var raplFile = new TestRAPLFile(900L, 50L);
+        final var sensor = new TestIntelRAPLSensor(List.of(new RAPLDomain("sensor", raplFile, 1000L)));
+        sensor.start();
+        Thread.sleep(10); // ensure we get enough time between the measure performed during start and the first update
+        final var pid = sensor.register(1234L);
+        final var components = sensor.update(1L).getOrDefault(pid).components();
+        final var interval = raplFile.measureTimeFor(1) - raplFile.measureTimeFor(0);
+        assertEquals((double) 150 * 1_000_000 / interval, components[0]);
+        assertEquals(50, components[1]);
+        assertEquals(1, sensor.wraparoundsFor("sensor"));
     }
 
     @SuppressWarnings("SameParameterValue")
@@ -0,0 +1,183 @@
+package net.laprun.sustainability.power.sensors.linux.rapl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import net.laprun.sustainability.power.SensorUnit;
+
+public class PowercapTopologyTest {
+    @BeforeAll
+    static void beforeAll() {
+        TestMode.enabled = true;
+    }
+
+    @AfterAll
+    static void afterAll() {
+        TestMode.enabled = false;
+    }
+
+    @Test
+    void shouldDiscoverZoneTree() {
+        final var topology = discover("rapl/powercap-dual-socket");
+
+        assertEquals(Set.of("intel-rapl", "intel-rapl-mmio"), topology.controlTypes());
+        // names are unique per control type
+        assertEquals(List.of("package-0", "package-1", "package-0"),
+                topology.roots().stream().map(PowercapZone::componentName).toList());
+        assertEquals(8, topology.zones().size());
+
+        final var package1 = topology.roots().get(1);
+        assertEquals(List.of("package-1-core", "package-1-dram"),
+                package1.children().stream().map(PowercapZone::componentName).toList());
+        package1.children().forEach(child -> assertEquals(package1, child.parent()));
+    }
+
+    @Test
+    void duplicatedNamesShouldBeDisambiguated() throws IOException {
+        final var root = Files.createTempDirectory("powercap");
+        try {
+            final var controlType = Files.createDirectories(root.resolve("amd-rapl"));
+            createZone(createZone(controlType.resolve("amd-rapl:0"), "package").resolve("amd-rapl:0:0"), "core");
+            createZone(createZone(controlType.resolve("amd-rapl:1"), "package").resolve("amd-rapl:1:0"), "core");
+
+            assertEquals(List.of("package-amd-rapl:0", "package-amd-rapl:0-core", "package-amd-rapl:1",
+                    "package-amd-rapl:1-core"),
+                    PowercapTopology.discover(root).zones().stream().map(PowercapZone::componentName).toList());
+        } finally {
+            delete(root);
+        }
+    }
+
+    @Test
+    void totalShouldNotCountSubZonesTwice() {
+        final var topology = discover("rapl/powercap-dual-socket");
+        final var contributors = topology.totalContributors(PowercapTopologyTest::isIntelRAPL).stream()
+                .map(PowercapZone::componentName)
+                .toList();
+        // core and uncore are included in their package but DRAM isn't
+        assertEquals(List.of("package-0", "package-0-dram", "package-1", "package-1-dram"),
+                contributors);
+    }
+
+    @Test
+    void psysShouldBeTheOnlyTotalContributorIfAvailable() {
+        final var topology = discover("rapl/powercap-psys");
+        assertEquals(List.of("psys"), topology.totalContributors(PowercapTopologyTest::isIntelRAPL).stream()
+                .map(PowercapZone::componentName).toList());
+    }
+
+    @Test
+    void sensorMetadataShouldOnlyReportPowerForTotalContributors() {
+        final var topology = discover("rapl/powercap-dual-socket");
+        final var metadata = new IntelRAPLSensor(topology.domains(PowercapTopologyTest::isIntelRAPL)).metadata();
+
+        // 4 power components + 7 raw energy components
+        assertEquals(11, metadata.componentCardinality());
+        final var powerComponents = metadata.components().values().stream()
+                .filter(cm -> cm.unit() == SensorUnit.mW)
+                .map(cm -> cm.name())
+                .toList();
+        assertEquals(4, powerComponents.size());
+        assertTrue(powerComponents.contains("package-1-dram"));
+        assertFalse(powerComponents.contains("package-1-core"));
+        assertTrue(metadata.exists("package-1-core_uj"));
+        assertTrue(metadata.exists("package-0-uncore_uj"));
+    }
+
+    @Test
+    void genericSensorShouldOnlyKeepDomainsFromPreferredControlType() {
+        final var topology = discover("rapl/powercap-dual-socket");
+        final var domains = topology.domains(zone -> true);
+        // package-0 is also exposed by intel-rapl-mmio but should only be read once, from intel-rapl
+        assertEquals(7, domains.size());
+        assertEquals(1, domains.stream().filter(domain -> domain.name().equals("package-0")).count());
+
+        final var metadata = new PowercapSensor(domains).metadata();
+        assertEquals(11, metadata.componentCardinality());
+    }
+
+    @Test
+    void genericSensorShouldSupportAMD() {
+        final var topology = discover("rapl/powercap-amd");
+        assertEquals(Set.of("amd-rapl"), topology.controlTypes());
+
+        final var sensor = new PowercapSensor(topology.domains(zone -> true));
+        final var metadata = sensor.metadata();
+        assertEquals(5, metadata.componentCardinality());
+        assertEquals(SensorUnit.mW, metadata.metadataFor("package-0").unit());
+        assertEquals(SensorUnit.mW, metadata.metadataFor("package-1").unit());
+        assertEquals(SensorUnit.µJ, metadata.metadataFor("package-0-core_uj").unit());
+        assertFalse(metadata.exists("package-0-core"));
+        assertEquals(4294967295L, sensor.maxEnergyRange(0));
+
+        // the Intel-specific sensor shouldn't pick AMD zones
+        assertTrue(topology.domains(PowercapTopologyTest::isIntelRAPL).isEmpty());
+    }
+
+    @Test
+    void zoneNamesShouldBeNormalized() {
+        assertEquals("package-0", PowercapTopology.normalize("package-0\n"));
+        assertEquals("package-0", PowercapTopology.normalize(" Package_0 "));
+        assertEquals("dram", PowercapTopology.normalize("DRAM"));
+    }
+
+    @Test
+    void flattenedLinksShouldNotBeCountedTwice() throws IOException {
+        final var root = Files.createTempDirectory("powercap");
+        try {
+            // mimic sysfs: zones live under their control type, and the root exposes links to the control type and all zones
+            final var devices = Files.createDirectories(root.resolve("devices"));
+            final var controlType = Files.createDirectories(devices.resolve("intel-rapl"));
+            final var pkg = createZone(controlType.resolve("intel-rapl:0"), "package-0");
+            final var dram = createZone(pkg.resolve("intel-rapl:0:2"), "dram");
+            final var powercap = Files.createDirectories(root.resolve("powercap"));
+            Files.createSymbolicLink(powercap.resolve("intel-rapl"), controlType);
+            Files.createSymbolicLink(powercap.resolve("intel-rapl:0"), pkg);
+            Files.createSymbolicLink(powercap.resolve("intel-rapl:0:2"), dram);
+            // sysfs zones link back to their subsystem, which must not be followed
+            Files.createSymbolicLink(pkg.resolve("subsystem"), powercap);
+
+            final var topology = PowercapTopology.discover(powercap);
+            assertEquals(List.of("package-0", "package-0-dram"),
+                    topology.zones().stream().map(PowercapZone::componentName).toList());
+            assertEquals(1, topology.roots().size());
+            assertEquals(Set.of("intel-rapl"), topology.controlTypes());
+        } finally {
+            delete(root);
+        }
+    }
+
+    private static void delete(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static Path createZone(Path dir, String name) throws IOException {
+        Files.createDirectories(dir);
+        Files.writeString(dir.resolve("name"), name + "\n");
+        Files.writeString(dir.resolve("energy_uj"), "1000\n");
+        return dir;
+    }
+
+    private static boolean isIntelRAPL(PowercapZone zone) {
+        return IntelRAPLSensor.INTEL_RAPL_CONTROL_TYPE.equals(zone.controlType());
+    }
+
+    private PowercapTopology discover(String fixture) {
+        return PowercapTopology.discover(ResourceHelper.getResourcePath(getClass(), fixture));
+    }
+}
@@ -0,0 +1,67 @@
+package net.laprun.sustainability.power.sensors.linux.rapl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the cost of reading an energy counter by spawning a {@code cat} process on each read vs. reading it in-process
+ * from an open channel. Run with: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=net.laprun.sustainability.power.sensors.linux.rapl.RAPLFileBenchmark} from the {@code backend} directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RAPLFileBenchmark {
+    private Path file;
+    private RAPLFile processRead;
+    private RAPLFile byteBufferRead;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = Files.createTempFile("energy_uj", null);
+        Files.writeString(file, "262143328850\n");
+        processRead = new ProcessReadRAPLFile(file, false);
+        byteBufferRead = ByteBufferRAPLFile.createFrom(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        byteBufferRead.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long processRead() {
+        return processRead.extractEnergyInMicroJoules();
+    }
+
+    @Benchmark
+    public long byteBufferRead() {
+        return byteBufferRead.extractEnergyInMicroJoules();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RAPLFileBenchmark.class.getSimpleName()).build()).run();
+    }
+}
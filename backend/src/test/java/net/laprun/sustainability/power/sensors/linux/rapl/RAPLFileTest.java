@@ -19,6 +19,17 @@ public class RAPLFileTest {
         }
     }
 
+    @Test
+    void periodicByteBufferReadingShouldWork() throws IOException, InterruptedException {
+        final var file = Path.of("target/test-bytebuffer.txt");
+        Files.writeString(file, "0\n");
+        try (var raplFile = ByteBufferRAPLFile.createFrom(file)) {
+            for (int i = 0; i < 5; i++) {
+                writeThenRead(raplFile, file);
+            }
+        }
+    }
+
     private static void writeThenRead(RAPLFile raplFile, Path file) throws IOException, InterruptedException {
         final var value = Math.abs(new Random().nextLong());
         Files.writeString(file, value + "\n");
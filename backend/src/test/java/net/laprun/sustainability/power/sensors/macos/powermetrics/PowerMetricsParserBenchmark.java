@@ -0,0 +1,72 @@
+package net.laprun.sustainability.power.sensors.macos.powermetrics;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import net.laprun.sustainability.power.SensorMetadata;
+import net.laprun.sustainability.power.sensors.LongKeyedMeasures;
+import net.laprun.sustainability.power.sensors.RegisteredPID;
+
+/**
+ * Measures the cost of parsing a powermetrics sample, which is done in place: {@code gc.alloc.rate.norm}, as reported by
+ * the {@code gc} profiler, should not grow with the sample size, unlike when creating a {@code String} per line. Run with:
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=net.laprun.sustainability.power.sensors.macos.powermetrics.PowerMetricsParserBenchmark} from the
+ * {@code backend} directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PowerMetricsParserBenchmark {
+    private static final String RESOURCE = "tahoe-m4-summary.txt";
+
+    private ByteBuffer output;
+    private LongKeyedMeasures measures;
+    private ProcessIndex processes;
+    private SensorMetadata metadata;
+    private CPU cpu;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        output = ByteBuffer.wrap(ReplayProcessWrapper.read(RESOURCE).getBytes(StandardCharsets.UTF_8));
+        measures = new LongKeyedMeasures();
+        processes = ProcessIndex.of(Set.of(RegisteredPID.create(2976), RegisteredPID.create(406)));
+        metadata = new ResourceMacOSPowermetricsSensor(RESOURCE).metadata();
+        cpu = PowerMetricsParser.initCPU(new ByteArrayInputStream(output.array()));
+    }
+
+    @Benchmark
+    public LongKeyedMeasures parse() {
+        PowerMetricsParser.extractPowerMeasure(output, measures, 0, 1, processes, metadata, cpu, false);
+        return measures;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PowerMetricsParserBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
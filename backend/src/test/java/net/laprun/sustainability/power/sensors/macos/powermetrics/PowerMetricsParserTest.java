@@ -0,0 +1,133 @@
+package net.laprun.sustainability.power.sensors.macos.powermetrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import net.laprun.sustainability.power.SensorMeasure;
+import net.laprun.sustainability.power.sensors.LongKeyedMeasures;
+import net.laprun.sustainability.power.sensors.PIDRegistry;
+import net.laprun.sustainability.power.sensors.RegisteredPID;
+
+class PowerMetricsParserTest {
+
+    @Test
+    void numbersShouldBeParsedAsDoubleParseDoubleWould() {
+        for (String resource : new String[] { "sonoma-m1max.txt", "sonoma-intel.txt", "monterey-m2.txt",
+                "tahoe-m4-summary.txt" }) {
+            final var content = ReplayProcessWrapper.read(resource);
+            for (String token : content.split("[\\s\\[\\]():%,/]+")) {
+                if (token.matches("-?\\d+(\\.\\d*)?(e[+-]\\d+)?")) {
+                    final var bytes = ByteBuffer.wrap(token.getBytes(StandardCharsets.US_ASCII));
+                    assertEquals(Double.parseDouble(token), Bytes.parseDouble(bytes, 0, bytes.limit()), token);
+                }
+            }
+        }
+        final var bytes = ByteBuffer.wrap("x 1287.34 ".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(1287.34, Bytes.parseDouble(bytes, 2, 9));
+        assertEquals(-2, Bytes.parseLong(ByteBuffer.wrap("-2".getBytes(StandardCharsets.US_ASCII)), 0, 2));
+    }
+
+    @Test
+    void processNamesWithSpacesShouldBeSupported() {
+        final var sensor = new ResourceMacOSPowermetricsSensor("sonoma-m1max.txt");
+        final var metadata = sensor.metadata();
+        // "Signal Helper (GPU)                26193  2.58      2.59 ..."
+        final var pid = sensor.register(26193);
+        final var measure = sensor.update(0L);
+        final var cpuShare = metadata.metadataFor(MacOSPowermetricsSensor.CPU_SHARE);
+        assertEquals(2.59 / 1222.65, measure.getOrDefault(pid).components()[cpuShare.index()]);
+    }
+
+    @Test
+    void pidsShouldOnlyMatchTheIdColumn() {
+        final var original = ReplayProcessWrapper.read("sonoma-m1max.txt");
+        // add a process which name contains the pids we're looking for before the actual processes
+        final var content = original.replace("WindowServer ", """
+                Helper 29419 391 (GPU)             777    5.00      5.00       26.50  0.00    0.00               0.00    0.00              0.00
+                WindowServer\s""");
+        final var sensor = new ResourceMacOSPowermetricsSensor("sonoma-m1max.txt");
+        final var metadata = sensor.metadata();
+        final var pid1 = RegisteredPID.create(29419);
+        final var pid2 = RegisteredPID.create(391);
+        final var pids = new HashSet<RegisteredPID>();
+        pids.add(pid1);
+        pids.add(pid2);
+        // track many other processes, which shouldn't impact the result
+        for (int i = 100_000; i < 100_500; i++) {
+            pids.add(RegisteredPID.create(i));
+        }
+        final var measures = new LongKeyedMeasures();
+        final var cpu = PowerMetricsParser.initCPU(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        final var processes = ProcessIndex.of(pids);
+        PowerMetricsParser.extractPowerMeasure(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)), measures, 0, 1,
+                processes, metadata, cpu, false);
+
+        final var cpuShare = metadata.metadataFor(MacOSPowermetricsSensor.CPU_SHARE).index();
+        assertEquals(23.88 / 1222.65, measures.getOrDefault(pid1).components()[cpuShare]);
+        assertEquals(283.25 / 1222.65, measures.getOrDefault(pid2).components()[cpuShare]);
+        assertEquals(0, measures.getOrDefault(pid1).startMs());
+        assertEquals(1, measures.getOrDefault(pid1).endMs());
+
+        // streamed samples cover the time they report as elapsed
+        PowerMetricsParser.extractPowerMeasure(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)), measures, 0, 5000,
+                processes, metadata, cpu, true);
+        assertEquals(5000 - 1012, measures.getOrDefault(pid1).startMs());
+        assertEquals(5000, measures.getOrDefault(pid1).endMs());
+    }
+
+    @Test
+    void idShouldBeFoundWithoutHeader() {
+        final var line = "Signal Helper (GPU)                26193  2.58      2.59       26.50  0.00    0.00";
+        final var bytes = ByteBuffer.wrap(line.getBytes(StandardCharsets.US_ASCII));
+        final var idStart = PowerMetricsParser.idStartFor(bytes, 0, bytes.limit(), -1);
+        assertEquals(line.indexOf("26193"), idStart);
+        assertEquals(idStart, PowerMetricsParser.idStartFor(bytes, 0, bytes.limit(), idStart));
+    }
+
+    @Test
+    void parsingShouldNotConsumeTheSample() {
+        final var sensor = new ResourceMacOSPowermetricsSensor("tahoe-m4-summary.txt");
+        final var sample = ByteBuffer.wrap(ReplayProcessWrapper.read("tahoe-m4-summary.txt")
+                .getBytes(StandardCharsets.UTF_8));
+        final var pids = Set.of(RegisteredPID.create(2976), RegisteredPID.create(406));
+        final var measures = new LongKeyedMeasures();
+        final var cpu = PowerMetricsParser.initCPU(new ByteArrayInputStream(sample.array()));
+        final var processes = ProcessIndex.of(pids);
+
+        // parsing only reads the sample, which can therefore be parsed again
+        for (int i = 0; i < 2; i++) {
+            PowerMetricsParser.extractPowerMeasure(sample, measures, 0, 1, processes, sensor.metadata(), cpu, false);
+            assertEquals(0, sample.position());
+            pids.forEach(pid -> assertNotSame(SensorMeasure.missing, measures.getOrDefault(pid)));
+        }
+    }
+
+    @Test
+    void processIndexShouldOnlyBeRebuiltWhenRegisteredProcessesChange() {
+        final var registry = new PIDRegistry();
+        final var pid = RegisteredPID.create(2976);
+        registry.register(pid);
+        registry.register(RegisteredPID.create(2976, true));
+        registry.register(RegisteredPID.forCgroup("system.slice/foo.service"));
+
+        final var processes = ProcessIndex.EMPTY.updatedFor(registry.snapshot());
+        assertSame(processes, processes.updatedFor(registry.snapshot()));
+        // cgroups are ignored and both registrations of the same process are looked for once
+        assertEquals(2, processes.pids.length);
+        assertEquals(1, processes.distinctProcesses());
+
+        registry.unregister(pid);
+        final var updated = processes.updatedFor(registry.snapshot());
+        assertNotSame(processes, updated);
+        assertEquals(1, updated.pids.length);
+    }
+}
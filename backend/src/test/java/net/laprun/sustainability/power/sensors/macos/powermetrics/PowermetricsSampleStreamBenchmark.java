@@ -0,0 +1,69 @@
+package net.laprun.sustainability.power.sensors.macos.powermetrics;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the cost of splitting the output of powermetrics into samples, the output being received in chunks as it would
+ * be from the process. In steady state, the stream reuses its buffers: {@code gc.alloc.rate.norm}, as reported by the
+ * {@code gc} profiler, should remain a small fraction of the sample size. Run with: {@code mvn test-compile exec:java
+ * -Dexec.classpathScope=test
+ * -Dexec.mainClass=net.laprun.sustainability.power.sensors.macos.powermetrics.PowermetricsSampleStreamBenchmark} from the
+ * {@code backend} directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PowermetricsSampleStreamBenchmark {
+    private static final String RESOURCE = "tahoe-m4-summary.txt";
+
+    private PowermetricsSampleStream samples;
+    private ByteBuffer[] chunks;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final var replay = new ReplayProcessWrapper(RESOURCE);
+        final var sample = ByteBuffer.wrap(replay.sample());
+        samples = new PowermetricsSampleStream();
+        samples.onOutput(ByteBuffer.wrap(replay.preamble()));
+        chunks = new ByteBuffer[(sample.limit() + ReplayProcessWrapper.CHUNK_SIZE - 1) / ReplayProcessWrapper.CHUNK_SIZE];
+        for (int i = 0; i < chunks.length; i++) {
+            final var position = i * ReplayProcessWrapper.CHUNK_SIZE;
+            chunks[i] = sample.slice(position, Math.min(ReplayProcessWrapper.CHUNK_SIZE, sample.limit() - position));
+        }
+    }
+
+    @Benchmark
+    public ByteBuffer stream() {
+        for (ByteBuffer chunk : chunks) {
+            samples.onOutput(chunk.rewind());
+        }
+        return samples.nextSampleView(0, TimeUnit.MILLISECONDS);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PowermetricsSampleStreamBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
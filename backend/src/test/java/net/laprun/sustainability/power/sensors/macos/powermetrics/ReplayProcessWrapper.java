@@ -0,0 +1,109 @@
+package net.laprun.sustainability.power.sensors.macos.powermetrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ProcessWrapper} standing in for a long-running {@code powermetrics -i <period>} process by streaming the sample
+ * recorded in a test resource every period, in small chunks, as powermetrics would.
+ */
+class ReplayProcessWrapper implements ProcessWrapper {
+    static final int CHUNK_SIZE = 509;
+    private final byte[] preamble;
+    private final byte[] sample;
+    private PowermetricsSampleStream samples;
+    private Thread replay;
+    private long periodInMilliSeconds;
+
+    ReplayProcessWrapper(String resourceName) {
+        final var lines = read(resourceName).split("\n", -1);
+        final var preamble = new StringBuilder();
+        final var sample = new StringBuilder();
+        String header = null;
+        boolean inPreamble = true;
+        for (String line : lines) {
+            if (inPreamble && line.startsWith("*")) {
+                inPreamble = false;
+            }
+            if (inPreamble) {
+                preamble.append(line).append('\n');
+            } else if (line.startsWith(PowermetricsSampleStream.SAMPLE_HEADER)) {
+                // recorded files might contain several headers, only keep the first one at the start of the sample
+                if (header == null) {
+                    header = line;
+                }
+            } else {
+                sample.append(line).append('\n');
+            }
+        }
+        this.preamble = preamble.toString().getBytes(StandardCharsets.UTF_8);
+        if (header == null) {
+            // summary recordings don't contain sample headers
+            header = PowermetricsSampleStream.SAMPLE_HEADER + " (replay) ***";
+        }
+        this.sample = (header + "\n" + sample).getBytes(StandardCharsets.UTF_8);
+    }
+
+    static String read(String resourceName) {
+        try (var input = Thread.currentThread().getContextClassLoader().getResourceAsStream(resourceName)) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    byte[] sample() {
+        return sample;
+    }
+
+    byte[] preamble() {
+        return preamble;
+    }
+
+    @Override
+    public void start(long periodInMilliSeconds) {
+        this.periodInMilliSeconds = periodInMilliSeconds;
+    }
+
+    @Override
+    public void stop() {
+        if (replay != null) {
+            replay.interrupt();
+            replay = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return replay != null && replay.isAlive();
+    }
+
+    @Override
+    public InputStream streamForMeasure() {
+        if (!isRunning()) {
+            samples = new PowermetricsSampleStream();
+            replay = Thread.ofVirtual().start(() -> {
+                write(preamble);
+                while (!Thread.currentThread().isInterrupted()) {
+                    write(sample);
+                    try {
+                        Thread.sleep(periodInMilliSeconds);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+                samples.onClosed();
+            });
+        }
+        return samples.nextSample(2 * periodInMilliSeconds + 1000, TimeUnit.MILLISECONDS);
+    }
+
+    private void write(byte[] bytes) {
+        for (int i = 0; i < bytes.length; i += CHUNK_SIZE) {
+            samples.onOutput(ByteBuffer.wrap(bytes, i, Math.min(CHUNK_SIZE, bytes.length - i)));
+        }
+    }
+}
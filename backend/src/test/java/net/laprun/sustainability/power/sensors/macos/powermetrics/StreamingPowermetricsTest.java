@@ -0,0 +1,151 @@
+package net.laprun.sustainability.power.sensors.macos.powermetrics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import net.laprun.sustainability.power.SensorMetadata;
+import net.laprun.sustainability.power.sensors.Measures;
+import net.laprun.sustainability.power.sensors.RegisteredPID;
+
+class StreamingPowermetricsTest {
+
+    @Test
+    void samplesShouldBeSplitRegardlessOfChunkBoundaries() throws IOException {
+        final var replay = new ReplayProcessWrapper("sonoma-m1max.txt");
+        final var sample = replay.sample();
+        final var output = new byte[replay.preamble().length + 3 * sample.length];
+        System.arraycopy(replay.preamble(), 0, output, 0, replay.preamble().length);
+        for (int i = 0; i < 3; i++) {
+            System.arraycopy(sample, 0, output, replay.preamble().length + i * sample.length, sample.length);
+        }
+
+        // samples are complete once their overall power has been output, without waiting for the next one
+        final var content = new String(sample, StandardCharsets.UTF_8);
+        final var end = content.indexOf('\n', content.indexOf("Combined Power")) + 1;
+        final var expected = content.substring(0, end).getBytes(StandardCharsets.UTF_8);
+        for (int chunkSize : new int[] { 1, 7, 28, 4096, output.length }) {
+            final var samples = new PowermetricsSampleStream();
+            for (int i = 0; i < output.length; i += chunkSize) {
+                samples.onOutput(ByteBuffer.wrap(output, i, Math.min(chunkSize, output.length - i)));
+            }
+            assertEquals(3, samples.pendingSamples());
+            assertArrayEquals(expected, samples.nextSample(0, TimeUnit.MILLISECONDS).readAllBytes());
+            samples.onClosed();
+            assertThrows(IllegalStateException.class, () -> samples.nextSample(0, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    void samplesWithoutPowerLineShouldBeCompleteOnNextHeader() {
+        final var samples = new PowermetricsSampleStream();
+        samples.onOutput(ByteBuffer.wrap(
+                (PowermetricsSampleStream.SAMPLE_HEADER + " 0 ***\n\n").getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(0, samples.pendingSamples());
+        samples.onOutput(ByteBuffer.wrap(
+                (PowermetricsSampleStream.SAMPLE_HEADER + " 1 ***\n").getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(1, samples.pendingSamples());
+        samples.onClosed();
+        assertEquals(2, samples.pendingSamples());
+    }
+
+    @Test
+    void onlyMostRecentSampleShouldBeRetrieved() throws IOException {
+        final var samples = new PowermetricsSampleStream();
+        final var count = PowermetricsSampleStream.MAX_PENDING_SAMPLES + 3;
+        for (int i = 0; i < count; i++) {
+            samples.onOutput(ByteBuffer.wrap(
+                    (PowermetricsSampleStream.SAMPLE_HEADER + " " + i + " ***\n\n").getBytes(StandardCharsets.US_ASCII)));
+        }
+        samples.onClosed();
+        assertEquals(PowermetricsSampleStream.MAX_PENDING_SAMPLES, samples.pendingSamples());
+        final var newest = new String(samples.nextSample(0, TimeUnit.MILLISECONDS).readAllBytes(), StandardCharsets.US_ASCII);
+        assertEquals(PowermetricsSampleStream.SAMPLE_HEADER + " " + (count - 1) + " ***\n\n", newest);
+        assertEquals(0, samples.pendingSamples());
+    }
+
+    @Test
+    void steadyStateStreamingShouldRetrieveEachSample() {
+        final var replay = new ReplayProcessWrapper("tahoe-m4-summary.txt");
+        final var sample = ByteBuffer.wrap(replay.sample());
+        final var samples = new PowermetricsSampleStream();
+        samples.onOutput(ByteBuffer.wrap(replay.preamble()));
+
+        final var chunks = new ByteBuffer[(sample.limit() + ReplayProcessWrapper.CHUNK_SIZE - 1)
+                / ReplayProcessWrapper.CHUNK_SIZE];
+        for (int i = 0; i < chunks.length; i++) {
+            final var position = i * ReplayProcessWrapper.CHUNK_SIZE;
+            chunks[i] = sample.slice(position, Math.min(ReplayProcessWrapper.CHUNK_SIZE, sample.limit() - position));
+        }
+
+        for (int i = 0; i < 10; i++) {
+            for (ByteBuffer chunk : chunks) {
+                samples.onOutput(chunk.rewind());
+            }
+            if (i > 0) {
+                final var view = samples.nextSampleView(0, TimeUnit.MILLISECONDS);
+                // the trailing blank line follows the sample's overall power and is therefore not part of it
+                assertEquals(sample.limit() - 1, view.remaining());
+            }
+        }
+    }
+
+    @Test
+    void streamingSensorShouldReplayM1MaxSamples() throws Exception {
+        checkStreamedMeasures("sonoma-m1max.txt", 211, MacOSPowermetricsSensor.CPU, 1012);
+    }
+
+    @Test
+    void streamingSensorShouldReplayIntelSamples() throws Exception {
+        checkStreamedMeasures("sonoma-intel.txt", 8.53f, MacOSPowermetricsSensor.PACKAGE, 1002);
+    }
+
+    @Test
+    void subSecondPeriodsShouldBeAllowed() {
+        final var sensor = new ProcessMacOSPowermetricsSensor(new ReplayProcessWrapper("sonoma-m1max.txt"),
+                new ByteArrayInputStream(ReplayProcessWrapper.read("sonoma-m1max.txt").getBytes(StandardCharsets.UTF_8)));
+        assertEquals(100, sensor.adjustSamplingPeriodIfNeeded(100));
+        assertThrows(IllegalArgumentException.class, () -> sensor.adjustSamplingPeriodIfNeeded(10));
+        assertThrows(IllegalArgumentException.class, () -> sensor.effectiveSamplingPeriod(10));
+        // powermetrics is started with a fixed interval
+        assertFalse(sensor.supportsVariableSamplingPeriod());
+    }
+
+    private static void checkStreamedMeasures(String resourceName, float total, String totalMeasureName, long elapsed)
+            throws Exception {
+        final var sensor = new ProcessMacOSPowermetricsSensor(new ReplayProcessWrapper(resourceName),
+                new ByteArrayInputStream(ReplayProcessWrapper.read(resourceName).getBytes(StandardCharsets.UTF_8)));
+        final var metadata = sensor.metadata();
+        final var pid1 = sensor.register(29419);
+        final var pid2 = sensor.register(391);
+        sensor.adjustSamplingPeriodIfNeeded(100);
+        sensor.start();
+        try {
+            final var totalMeasureMetadata = metadata.metadataFor(totalMeasureName);
+            final var pid1CPUShare = 23.88 / 1222.65;
+            final var pid2CPUShare = 283.25 / 1222.65;
+            for (int i = 0; i < 3; i++) {
+                final var measure = sensor.update((long) i);
+                assertEquals(pid1CPUShare * total, getComponent(measure, pid1, totalMeasureMetadata), 0.0001);
+                final var pid1Measure = measure.getOrDefault(pid1);
+                assertEquals(elapsed, pid1Measure.endMs() - pid1Measure.startMs());
+                assertEquals(pid2CPUShare * total, getComponent(measure, pid2, totalMeasureMetadata), 0.0001);
+            }
+        } finally {
+            sensor.stop();
+        }
+    }
+
+    private static double getComponent(Measures measure, RegisteredPID pid, SensorMetadata.ComponentMetadata metadata) {
+        return measure.getOrDefault(pid).components()[metadata.index()];
+    }
+}
@@ -0,0 +1,88 @@
+package net.laprun.sustainability.power.sensors.replay;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import net.laprun.sustainability.power.SensorMeasure;
+import net.laprun.sustainability.power.SimulatedClock;
+import net.laprun.sustainability.power.measures.ExternalCPUShareSensorMeasure;
+
+class TraceReplaySensorTest {
+
+    @Test
+    void shouldReplayOnVirtualClockAtRequestedSpeed() throws Exception {
+        final var sensor = new TraceReplaySensor(trace(), 100, false);
+        final var reference = new SimulatedClock(10_000);
+        sensor.useClock(reference);
+        // the whole pipeline runs on virtual time so sampling periods are left untouched
+        final var clock = sensor.virtualClock();
+        assertSame(clock, sensor.clock());
+        assertEquals(200, sensor.adjustSamplingPeriodIfNeeded(200));
+        final var pid = sensor.register(1234);
+        sensor.start();
+        final var origin = clock.epochMillis();
+        assertEquals(10_000, origin);
+
+        // sleeping for 100ms of virtual time only takes 1ms of real time
+        assertTrue(clock.sleepUntil(clock.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100)));
+        assertEquals(10_001, reference.epochMillis());
+        assertEquals(origin + 100, clock.epochMillis());
+
+        var measure = sensor.update(1, origin + 100).getOrDefault(pid);
+        assertInstanceOf(ExternalCPUShareSensorMeasure.class, measure);
+        assertEquals(1000, measure.components()[0], 0.0001);
+        assertEquals(0.5, ((ExternalCPUShareSensorMeasure) measure).cpuShare(), 0.0001);
+        assertEquals(origin, measure.startMs());
+        assertEquals(origin + 100, measure.endMs());
+        assertEquals(100, measure.durationMs());
+
+        measure = sensor.update(2, origin + 200).getOrDefault(pid);
+        assertEquals(3000, measure.components()[0], 0.0001);
+        assertEquals(400000, measure.components()[1], 0.0001);
+
+        // measures stop once the trace has been fully replayed
+        assertSame(SensorMeasure.missing, sensor.update(3, origin + 300).getOrDefault(pid));
+    }
+
+    @Test
+    void loopingReplayShouldWrapAroundTrace() throws Exception {
+        final var sensor = new TraceReplaySensor(trace(), 1, true);
+        sensor.useClock(new SimulatedClock(10_000));
+        final var pid = sensor.register(5678);
+        sensor.start();
+        final var origin = sensor.clock().epochMillis();
+
+        sensor.update(1, origin + 150);
+        // 50ms at the end of the trace, 100ms from its start
+        final var measure = sensor.update(2, origin + 300).getOrDefault(pid);
+        assertEquals((50 * 3000 + 100 * 1000) / 150.0, measure.components()[0], 0.0001);
+        assertEquals((50 * 0.1) / 150.0, ((ExternalCPUShareSensorMeasure) measure).cpuShare(), 0.0001);
+        // only processes which shares were recorded get attributed one
+        final var other = sensor.register(42);
+        final var otherMeasure = sensor.update(3, origin + 350).getOrDefault(other);
+        assertFalse(otherMeasure instanceof ExternalCPUShareSensorMeasure);
+        assertEquals(3000, otherMeasure.components()[0], 0.0001);
+    }
+
+    @Test
+    void invalidReplaysShouldBeRejected() throws Exception {
+        final var trace = trace();
+        assertThrows(IllegalArgumentException.class, () -> new TraceReplaySensor(trace, 0, true));
+        assertThrows(IllegalArgumentException.class, () -> new TraceReplaySensor(trace, Double.NaN, true));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TraceReplaySensor(Trace.builder(trace.metadata()).build(), 1, true));
+    }
+
+    private static Trace trace() throws Exception {
+        return Trace.parse(new StringReader(TraceTest.TRACE));
+    }
+}
@@ -0,0 +1,83 @@
+package net.laprun.sustainability.power.sensors.replay;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import net.laprun.sustainability.power.SensorUnit;
+
+class TraceTest {
+    static final String TRACE = """
+            # Captured RAPL counters
+            offset_ms,package-0[mW],package-0_uj[µJ],cpu_shares
+            100,1000,100000,1234=0.5
+            200,3000,400000,1234=0.25;5678=0.1
+            """;
+
+    @Test
+    void shouldParseMetadataAndSamples() throws Exception {
+        final var trace = Trace.parse(new StringReader(TRACE));
+        assertEquals(2, trace.size());
+        assertEquals(200, trace.durationMs());
+        assertEquals("Captured RAPL counters", trace.metadata().documentation());
+        assertEquals(SensorUnit.mW, trace.metadata().metadataFor("package-0").unit());
+        assertEquals(1, trace.metadata().metadataFor("package-0_uj").index());
+        assertEquals(List.of("1234", "5678"), trace.cpuSharePids());
+    }
+
+    @Test
+    void writtenTraceShouldBeParsedBackIdentically() throws Exception {
+        final var trace = Trace.parse(new StringReader(TRACE));
+        final var written = new StringWriter();
+        trace.write(written);
+        final var parsed = Trace.parse(new StringReader(written.toString()));
+
+        final var original = new double[2];
+        final var originalShares = new double[2];
+        trace.integrate(0, 200, original, originalShares);
+        final var roundTripped = new double[2];
+        final var roundTrippedShares = new double[2];
+        parsed.integrate(0, 200, roundTripped, roundTrippedShares);
+        assertEquals(trace.metadata().components(), parsed.metadata().components());
+        assertEquals(trace.cpuSharePids(), parsed.cpuSharePids());
+        for (int i = 0; i < 2; i++) {
+            assertEquals(original[i], roundTripped[i], 0.0001);
+            assertEquals(originalShares[i], roundTrippedShares[i], 0.0001);
+        }
+    }
+
+    @Test
+    void integrationShouldWeightSamplesByOverlap() throws Exception {
+        final var trace = Trace.parse(new StringReader(TRACE));
+        final var sums = new double[2];
+        final var shares = new double[2];
+        // 50ms of the first sample, 25ms of the second
+        assertEquals(75, trace.integrate(50, 125, sums, shares));
+        assertEquals(50 * 1000 + 25 * 3000, sums[0], 0.0001);
+        // energy counters keep the last overlapping sample's value
+        assertEquals(400000, sums[1], 0.0001);
+        assertEquals(50 * 0.5 + 25 * 0.25, shares[0], 0.0001);
+        assertEquals(25 * 0.1, shares[1], 0.0001);
+
+        // nothing is recorded after the end of the trace
+        assertEquals(0, trace.integrate(200, 300, new double[2], new double[2]));
+    }
+
+    @Test
+    void invalidTracesShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> Trace.parse(new StringReader("")));
+        assertThrows(IllegalArgumentException.class, () -> Trace.parse(new StringReader("time,cpu[mW]\n")));
+        assertThrows(IllegalArgumentException.class, () -> Trace.parse(new StringReader("offset_ms,cpu\n")));
+        assertThrows(IllegalArgumentException.class,
+                () -> Trace.parse(new StringReader("offset_ms,cpu[mW]\n100,1\n100,2\n")));
+        assertThrows(IllegalArgumentException.class, () -> Trace.parse(new StringReader("offset_ms,cpu[mW]\n100,1,2\n")));
+        assertThrows(IllegalArgumentException.class,
+                () -> Trace.builder(Trace.parse(new StringReader(TRACE)).metadata()).sample(10, new double[1], Map.of()));
+    }
+}
@@ -55,6 +55,10 @@ public class Power implements Runnable {
             "--external-cpu-share" }, description = "Whether to use 'external' (as opposed to intrinsecally) defined CPU share attribution for processes. Note that this option is automatically activated on Linux since the mechanism measuring energy consumption only allows for system-wide measures.", defaultValue = CommandLine.Option.NULL_VALUE)
     Optional<Boolean> wantsCPUShareSamplingEnabled;
 
+    @CommandLine.Option(names = { "-d",
+            "--include-descendants" }, description = "Whether processes spawned by the command (e.g. by a shell or a build tool) should be tracked along with it, their CPU share being attributed to the command. Only supported with 'external' CPU share attribution, which it defaults to.", defaultValue = CommandLine.Option.NULL_VALUE, negatable = true)
+    Boolean includeDescendants;
+
     private final SamplingMeasurer measurer;
     private Totaler totaler;
 
@@ -70,7 +74,7 @@ public class Power implements Runnable {
         }
 
         name = name == null ? String.join(" ", cmd) : name;
-        session = session == null ? Persistence.defaultSession(name) : session;
+        session = session == null ? measurer.persistence().defaultSession(name) : session;
 
         // check whether we need to activate external CPU share attribution
         final var sensor = measurer.sensor();
@@ -98,9 +102,11 @@ public class Power implements Runnable {
             final var pid = process.getPID();
             Log.infof("Recording energy consumption for application '%s' (pid: %d) with session '%s'", name, pid,
                     session);
-            measurer.startTrackingApp(name, pid, session);
+            measurer.startTrackingApp(name, pid, session,
+                    includeDescendants != null ? includeDescendants : sensor.wantsCPUShareSamplingEnabled());
 
             process.waitFor(0, TimeUnit.SECONDS);
+            measurer.flushPersistedMeasures();
 
             final var measureTime = measurer.persistence()
                     .synthesizeAndAggregateForSession(Persistence.SYSTEM_TOTAL_APP_NAME, session, m -> (double) m.duration())
@@ -5,6 +5,19 @@ import java.time.Duration;
 public enum Cursors {
     ;
 
+    /**
+     * Computes a {@link Cursor} over the samples recorded at the specified timestamps, covering the specified interval.
+     * Intervals extending past the last sample are truncated to the last sample since nothing was recorded after it.
+     *
+     * @param timestamps the sorted timestamps at which samples were recorded, each sample covering the interval since the
+     *        previous one
+     * @param timestamp the start of the interval to cover
+     * @param duration the duration of the interval to cover
+     * @param initialOffset the time at which recording started, i.e. the start of the first sample's interval
+     * @param averagePeriodHint the expected duration covered by a sample, only used to scale the single sample when fewer
+     *        than two samples were recorded, ignored if not positive
+     * @return a {@link Cursor} over the samples covering the interval, {@link Cursor#empty} if no sample covers it
+     */
     public static Cursor cursorOver(long[] timestamps, long timestamp, Duration duration, long initialOffset,
             long averagePeriodHint) {
         // adjusted timestamp for modding
@@ -25,19 +38,23 @@ public enum Cursors {
             return new Cursor(0, 0, ratio, ratio);
         }
 
-        // estimate sample period based on 2 samples interval
-        if (averagePeriodHint <= 0) {
-            averagePeriodHint = timestamps[1] - timestamps[0];
+        // nothing was recorded after the last sample so only the part of the interval before it can be covered
+        final int lastIndex = timestamps.length - 1;
+        if (timestamp >= timestamps[lastIndex]) {
+            return Cursor.empty;
         }
+        final long end = Math.min(timestamp + durationAsMs, timestamps[lastIndex]);
 
-        // first, find potential first sample based on timestamp
-        int startIndex = (int) Math.floorDiv(timestampForDiv, averagePeriodHint);
-        int endIndex = (int) Math.floorDiv(timestampForDiv + durationAsMs, averagePeriodHint);
+        // each sample covers the interval between the previous sample's timestamp (or the initial offset for the first one)
+        // and its own so look for the samples covering both ends of the requested interval, which, contrary to deriving
+        // indices from an average period, works even when samples are not evenly spaced (e.g. with adaptive sampling)
+        int startIndex = indexOfSampleCovering(timestamps, timestamp);
+        int endIndex = Math.min(indexOfSampleCovering(timestamps, end), lastIndex);
 
         if (startIndex == endIndex) {
             final long previousTimestamp = startIndex == 0 ? initialOffset : timestamps[startIndex - 1];
             final long slotDuration = timestamps[startIndex] - previousTimestamp;
-            var ratio = (double) durationAsMs / slotDuration;
+            var ratio = (double) (end - timestamp) / slotDuration;
             return new Cursor(startIndex, endIndex, ratio, -1);
         }
 
@@ -46,13 +63,14 @@ public enum Cursors {
         final long startOffset = afterTimestamp - timestamp;
         double startRatio = 0;
         if (startOffset > 0) {
-            startRatio = (double) startOffset / (afterTimestamp - timestamps[startIndex - 1]);
+            final long previousTimestamp = startIndex == 0 ? initialOffset : timestamps[startIndex - 1];
+            startRatio = (double) startOffset / (afterTimestamp - previousTimestamp);
         }
 
         // look for the index that records the first timestamp that's after the one we're looking for added to the duration
         afterTimestamp = timestamps[endIndex];
         final long slotDuration = afterTimestamp - timestamps[endIndex - 1];
-        final long endOffset = slotDuration - (afterTimestamp - timestamp - durationAsMs);
+        final long endOffset = slotDuration - (afterTimestamp - end);
         double endRatio = 0;
         if (endOffset > 0) {
             endRatio = (double) endOffset / slotDuration;
@@ -60,4 +78,22 @@ public enum Cursors {
 
         return new Cursor(startIndex, endIndex, startRatio, endRatio);
     }
+
+    /**
+     * Finds the index of the first sample which timestamp is strictly after the specified one, i.e. the sample which covers
+     * the specified timestamp, assuming timestamps are sorted
+     */
+    private static int indexOfSampleCovering(long[] timestamps, long timestamp) {
+        int low = 0;
+        int high = timestamps.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (timestamps[middle] <= timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
 }
@@ -4,8 +4,10 @@ import java.time.Duration;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.DoubleStream;
 
+import net.laprun.sustainability.power.PowerClock;
 import net.laprun.sustainability.power.SensorMetadata;
 import net.laprun.sustainability.power.analysis.Processors;
 import net.laprun.sustainability.power.analysis.Recorder;
@@ -18,6 +20,7 @@ public class OngoingPowerMeasure extends ProcessorAware implements PowerMeasure
     private final BitSet nonZeroComponents;
     private final List<RegisteredSyntheticComponent> syntheticComponents;
     private final long samplePeriod;
+    private final PowerClock clock;
     private double[][] measures;
     private long startedAt;
     private int samples;
@@ -28,8 +31,22 @@ public class OngoingPowerMeasure extends ProcessorAware implements PowerMeasure
     }
 
     public OngoingPowerMeasure(SensorMetadata metadata, long samplePeriod, SyntheticComponent... syntheticComponents) {
+        this(metadata, samplePeriod, PowerClock.SYSTEM, syntheticComponents);
+    }
+
+    /**
+     * Creates a measure which samples are timestamped using the specified clock
+     *
+     * @param metadata the metadata of the sensor which measures are recorded
+     * @param samplePeriod the sampling period in milliseconds, {@code -1} if unknown
+     * @param clock the clock used to timestamp samples and compute the measure's duration
+     * @param syntheticComponents the synthetic components to compute from the recorded measures, if any
+     */
+    public OngoingPowerMeasure(SensorMetadata metadata, long samplePeriod, PowerClock clock,
+            SyntheticComponent... syntheticComponents) {
         super(Processors.empty);
 
+        this.clock = Objects.requireNonNull(clock, "Clock cannot be null");
         final int componentCardinality = metadata.componentCardinality();
         nonZeroComponents = new BitSet(componentCardinality);
         reset(componentCardinality);
@@ -55,7 +72,7 @@ public class OngoingPowerMeasure extends ProcessorAware implements PowerMeasure
     }
 
     private synchronized void reset(int componentCardinality) {
-        startedAt = System.currentTimeMillis();
+        startedAt = clock.epochMillis();
         nonZeroComponents.clear();
         measures = new double[componentCardinality][DEFAULT_SIZE];
         timestamps = new long[DEFAULT_SIZE];
@@ -75,7 +92,7 @@ public class OngoingPowerMeasure extends ProcessorAware implements PowerMeasure
     public void recordMeasure(double[] components) {
         ensureArraysSize();
 
-        final var timestamp = System.currentTimeMillis();
+        final var timestamp = clock.epochMillis();
 
         synchronized (this) {
             timestamps[samples - 1] = timestamp;
@@ -116,7 +133,7 @@ public class OngoingPowerMeasure extends ProcessorAware implements PowerMeasure
     }
 
     public Duration duration() {
-        return Duration.ofMillis(System.currentTimeMillis() - startedAt);
+        return Duration.ofMillis(clock.epochMillis() - startedAt);
     }
 
     @Override
@@ -158,9 +175,10 @@ public class OngoingPowerMeasure extends ProcessorAware implements PowerMeasure
         return new TimestampedMeasures(timestamps[n], result);
     }
 
-    public Timing timingInfo() {
-        final var result = new long[timestamps.length];
-        System.arraycopy(timestamps, 0, result, 0, timestamps.length);
+    public synchronized Timing timingInfo() {
+        // only copy recorded timestamps so that they are sorted, which is needed to locate samples
+        final var result = new long[samples];
+        System.arraycopy(timestamps, 0, result, 0, samples);
         return new Timing(result, startedAt, samplePeriod);
     }
 
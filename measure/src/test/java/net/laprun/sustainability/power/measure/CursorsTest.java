@@ -51,4 +51,60 @@ class CursorsTest {
         assertEquals(1, view.length);
         assertEquals(100 * 0.1, view[0], 0.0001);
     }
+
+    @Test
+    void cursorOverUnevenlySpacedMeasures() {
+        // adaptive sampling: fine-grained samples during a burst, coarse ones otherwise
+        final var timestamps = new long[] { 400, 800, 900, 1000, 1100, 1500 };
+
+        final var cursor = Cursors.cursorOver(timestamps, 600, Duration.ofMillis(1300 - 600), 0, 400);
+
+        assertEquals(1, cursor.startIndex());
+        assertEquals(5, cursor.endIndex());
+        assertEquals(0.5, cursor.firstMeasureRatio(), 0.0001);
+        assertEquals(0.5, cursor.lastMeasureRatio(), 0.0001);
+
+        final var measures = new double[] { 100, 200, 300, 400, 500, 600 };
+        assertEquals(200 * 0.5 + 300 + 400 + 500 + 0.5 * 600, cursor.sum(measures), 0.0001);
+    }
+
+    @Test
+    void cursorOverStartOfFirstMeasure() {
+        final var timestamps = new long[] { 1100, 1200, 1300 };
+
+        final var cursor = Cursors.cursorOver(timestamps, 1050, Duration.ofMillis(100), 1000, -1);
+
+        assertEquals(0, cursor.startIndex());
+        assertEquals(1, cursor.endIndex());
+        assertEquals(0.5, cursor.firstMeasureRatio(), 0.0001);
+        assertEquals(0.5, cursor.lastMeasureRatio(), 0.0001);
+    }
+
+    @Test
+    void cursorOverIntervalExtendingPastLastMeasure() {
+        final var timestamps = new long[] { 100, 200, 300, 400 };
+
+        var cursor = Cursors.cursorOver(timestamps, 250, Duration.ofMillis(500), 0, 100);
+        assertEquals(2, cursor.startIndex());
+        assertEquals(3, cursor.endIndex());
+        assertEquals(0.5, cursor.firstMeasureRatio(), 0.0001);
+        assertEquals(1, cursor.lastMeasureRatio(), 0.0001);
+        final var measures = new double[] { 100, 200, 300, 400 };
+        assertEquals(300 * 0.5 + 400, cursor.sum(measures), 0.0001);
+
+        // interval ending exactly on the last measure
+        cursor = Cursors.cursorOver(timestamps, 250, Duration.ofMillis(150), 0, 100);
+        assertEquals(3, cursor.endIndex());
+        assertEquals(1, cursor.lastMeasureRatio(), 0.0001);
+
+        // interval starting in the last measure
+        cursor = Cursors.cursorOver(timestamps, 350, Duration.ofMillis(100), 0, 100);
+        assertEquals(3, cursor.startIndex());
+        assertEquals(3, cursor.endIndex());
+        assertEquals(0.5, cursor.firstMeasureRatio(), 0.0001);
+        assertEquals(400 * 0.5, cursor.sum(measures), 0.0001);
+
+        // interval starting after the last measure
+        assertSame(Cursor.empty, Cursors.cursorOver(timestamps, 400, Duration.ofMillis(100), 0, 100));
+    }
 }
@@ -2,6 +2,7 @@ package net.laprun.sustainability.power.measure;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -11,6 +12,7 @@ import org.junit.jupiter.api.Test;
 
 import net.laprun.sustainability.power.SensorMetadata;
 import net.laprun.sustainability.power.SensorUnit;
+import net.laprun.sustainability.power.SimulatedClock;
 import net.laprun.sustainability.power.analysis.ComponentProcessor;
 import net.laprun.sustainability.power.analysis.MeasureProcessor;
 import net.laprun.sustainability.power.analysis.SyntheticComponent;
@@ -64,6 +66,25 @@ public class OngoingPowerMeasureTest {
         assertThat(measures.measures()).isEqualTo(new double[] { m3c1, m3c2, m3c3 });
     }
 
+    @Test
+    void samplesShouldBeTimestampedUsingProvidedClock() {
+        final var clock = new SimulatedClock(1_000);
+        final var measure = new OngoingPowerMeasure(metadata, 500, clock);
+        final var components = new double[metadata.componentCardinality()];
+        for (int i = 0; i < 3; i++) {
+            clock.advance(Duration.ofMillis(500));
+            measure.recordMeasure(components);
+        }
+
+        assertThat(measure.getNthTimestampedMeasures(0).timestamp()).isEqualTo(1_500);
+        assertThat(measure.getNthTimestampedMeasures(2).timestamp()).isEqualTo(2_500);
+        assertThat(measure.duration()).isEqualTo(Duration.ofMillis(1_500));
+
+        clock.advance(Duration.ofHours(1));
+        measure.reset();
+        assertThat(measure.timingInfo().startedAt()).isEqualTo(clock.epochMillis());
+    }
+
     @Test
     void processorsShouldBeCalled() {
         final var random = Random.from(RandomGenerator.getDefault());
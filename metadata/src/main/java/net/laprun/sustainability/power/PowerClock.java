@@ -0,0 +1,61 @@
+package net.laprun.sustainability.power;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The time base shared by the stages of the measuring pipeline (sensors, sampling, measures and persistence), providing
+ * both wall-clock time, used to timestamp measures, and monotonic time, used to compute intervals. Using a single clock
+ * makes it possible to substitute a {@link SimulatedClock} to run the pipeline faster than real time, e.g. in tests or
+ * benchmarks.
+ */
+public interface PowerClock {
+    /**
+     * The system clock, backed by {@link System#currentTimeMillis()} and {@link System#nanoTime()}
+     */
+    PowerClock SYSTEM = new PowerClock() {
+        @Override
+        public long epochMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public String toString() {
+            return "system clock";
+        }
+    };
+
+    /**
+     * @return the current wall-clock time, in milliseconds since the epoch
+     */
+    long epochMillis();
+
+    /**
+     * Retrieves the current value of the monotonic clock, which, as for {@link System#nanoTime()}, is only meaningful when
+     * compared with other values of the same clock
+     *
+     * @return the current value of the monotonic clock, in nanoseconds
+     */
+    long nanoTime();
+
+    /**
+     * Blocks the calling thread until the monotonic clock reaches the specified deadline
+     *
+     * @param deadlineNanos the deadline, as a value of this clock's {@link #nanoTime()}
+     * @return {@code true} if the deadline was reached, {@code false} if the calling thread was interrupted
+     */
+    default boolean sleepUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+        }
+        return !Thread.currentThread().isInterrupted();
+    }
+}
@@ -1,6 +1,7 @@
 package net.laprun.sustainability.power;
 
 import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A power consumption measure as recorded by a sensor, recorded over a given period of time. The meaning of each component
@@ -23,7 +24,8 @@ public interface SensorMeasure {
     }
 
     /**
-     * The start timestamp in milliseconds for this measure
+     * The start timestamp in milliseconds for this measure. Note that this is a wall-clock timestamp, only provided as
+     * metadata to locate the measure in time: use {@link #durationNs()} to compute rates such as power over the measure.
      *
      * @return the start timestamp in milliseconds for this measure
      */
@@ -53,6 +55,17 @@ public interface SensorMeasure {
         return endMs() - startMs();
     }
 
+    /**
+     * The measure duration in nanoseconds, as measured by a monotonic clock if the sensor provides this information, and
+     * therefore not subject to wall-clock adjustments (e.g. via NTP) or to millisecond quantization. If the sensor doesn't
+     * provide this information, this falls back to {@link #durationMs()}, converted to nanoseconds.
+     *
+     * @return the measure duration in nanoseconds
+     */
+    default long durationNs() {
+        return TimeUnit.MILLISECONDS.toNanos(durationMs());
+    }
+
     /**
      * Whether this measure didn't cover the totatility of the recorded time
      *
@@ -0,0 +1,64 @@
+package net.laprun.sustainability.power;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link PowerClock} which time only advances when told to, either explicitly or when a thread sleeps until a deadline,
+ * in which case time immediately jumps to that deadline instead of blocking. Wall-clock and monotonic time advance
+ * together so that both remain consistent, which makes it possible to simulate hours of sampling in milliseconds.
+ */
+public final class SimulatedClock implements PowerClock {
+    private final long originEpochMillis;
+    private final AtomicLong elapsedNanos = new AtomicLong();
+
+    /**
+     * Creates a simulated clock starting at the current system time
+     */
+    public SimulatedClock() {
+        this(System.currentTimeMillis());
+    }
+
+    /**
+     * Creates a simulated clock starting at the specified time
+     *
+     * @param originEpochMillis the initial wall-clock time of this clock, in milliseconds since the epoch
+     */
+    public SimulatedClock(long originEpochMillis) {
+        this.originEpochMillis = originEpochMillis;
+    }
+
+    @Override
+    public long epochMillis() {
+        return originEpochMillis + elapsedNanos.get() / 1_000_000;
+    }
+
+    @Override
+    public long nanoTime() {
+        return elapsedNanos.get();
+    }
+
+    /**
+     * Advances time by the specified duration
+     *
+     * @param duration how much time should pass
+     * @return this clock
+     * @throws IllegalArgumentException if the duration is negative
+     */
+    public SimulatedClock advance(Duration duration) {
+        if (duration.isNegative()) {
+            throw new IllegalArgumentException("Time cannot go backwards, was asked to advance by " + duration);
+        }
+        elapsedNanos.addAndGet(duration.toNanos());
+        return this;
+    }
+
+    /**
+     * Advances time up to the specified deadline, if it hasn't been reached yet, without blocking
+     */
+    @Override
+    public boolean sleepUntil(long deadlineNanos) {
+        elapsedNanos.accumulateAndGet(deadlineNanos, Math::max);
+        return !Thread.currentThread().isInterrupted();
+    }
+}
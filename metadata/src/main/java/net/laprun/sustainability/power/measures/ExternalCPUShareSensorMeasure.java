@@ -23,6 +23,11 @@ public record ExternalCPUShareSensorMeasure(SensorMeasure delegate, double cpuSh
         return delegate.durationMs();
     }
 
+    @Override
+    public long durationNs() {
+        return delegate.durationNs();
+    }
+
     @Override
     public boolean isPartial() {
         return delegate.isPartial();
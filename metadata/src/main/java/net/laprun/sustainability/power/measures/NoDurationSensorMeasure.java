@@ -1,5 +1,7 @@
 package net.laprun.sustainability.power.measures;
 
+import java.util.concurrent.TimeUnit;
+
 import net.laprun.sustainability.power.SensorMeasure;
 
 /**
@@ -7,10 +9,26 @@ import net.laprun.sustainability.power.SensorMeasure;
  * end and start times.
  *
  * @param components an array recording the power consumption reported by each component of this sensor
- * @param startMs the start timestamp in milliseconds for this measure
- * @param endMs the end timestamp in milliseconds for this measure
+ * @param startMs the start (wall-clock) timestamp in milliseconds for this measure
+ * @param endMs the end (wall-clock) timestamp in milliseconds for this measure
+ * @param durationNs the length of the interval between start and end, in nanoseconds, as measured by a monotonic clock
  */
-public record NoDurationSensorMeasure(double[] components, long startMs, long endMs) implements SensorMeasure {
+public record NoDurationSensorMeasure(double[] components, long startMs, long endMs, long durationNs)
+        implements SensorMeasure {
+
+    /**
+     * Creates a measure which duration is derived from its wall-clock start and end timestamps, when no monotonic measure of
+     * the interval is available.
+     */
+    public NoDurationSensorMeasure(double[] components, long startMs, long endMs) {
+        this(components, startMs, endMs, TimeUnit.MILLISECONDS.toNanos(endMs - startMs));
+    }
+
+    @Override
+    public long durationMs() {
+        return TimeUnit.NANOSECONDS.toMillis(durationNs);
+    }
+
     @Override
     public String toString() {
         return asString();
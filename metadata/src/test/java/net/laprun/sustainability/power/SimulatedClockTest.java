@@ -0,0 +1,37 @@
+package net.laprun.sustainability.power;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+class SimulatedClockTest {
+
+    @Test
+    void wallClockAndMonotonicTimeShouldAdvanceTogether() {
+        final var clock = new SimulatedClock(1_000);
+        final var startNanos = clock.nanoTime();
+        clock.advance(Duration.ofHours(2));
+        assertEquals(1_000 + Duration.ofHours(2).toMillis(), clock.epochMillis());
+        assertEquals(Duration.ofHours(2).toNanos(), clock.nanoTime() - startNanos);
+        assertThrows(IllegalArgumentException.class, () -> clock.advance(Duration.ofMillis(-1)));
+    }
+
+    @Test
+    void sleepingShouldAdvanceTimeWithoutBlocking() {
+        final var clock = new SimulatedClock(0);
+        final var realStart = System.nanoTime();
+        for (int i = 1; i <= 3600; i++) {
+            assertTrue(clock.sleepUntil(Duration.ofSeconds(i).toNanos()));
+        }
+        assertEquals(Duration.ofHours(1).toMillis(), clock.epochMillis());
+        assertTrue(System.nanoTime() - realStart < Duration.ofSeconds(5).toNanos());
+
+        // sleeping until a past deadline doesn't move time backwards
+        clock.sleepUntil(0);
+        assertEquals(Duration.ofHours(1).toMillis(), clock.epochMillis());
+    }
+}
@@ -0,0 +1,32 @@
+package net.laprun.sustainability.power.persistence;
+
+import java.util.Optional;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntity;
+
+/**
+ * An application measures are recorded for, stored once and referenced by its {@link Session}s
+ */
+@Entity
+public class Application extends PanacheEntity {
+    @Column(unique = true, nullable = false)
+    public String name;
+
+    public static Optional<Application> named(String name) {
+        return find("name", name).firstResultOptional();
+    }
+
+    static Application create(String name) {
+        final var application = new Application();
+        application.name = name;
+        return application;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
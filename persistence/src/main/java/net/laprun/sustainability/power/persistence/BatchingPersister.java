@@ -0,0 +1,87 @@
+package net.laprun.sustainability.power.persistence;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import jakarta.interceptor.Interceptor;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.ShutdownEvent;
+import net.laprun.sustainability.power.SensorMeasure;
+
+/**
+ * Persists measures asynchronously: measures are queued and written in batches by a dedicated thread, each batch in a
+ * single transaction, so that tracking many applications doesn't result in one transaction per measure competing for the
+ * single database connection. Callers are never blocked: while too many measures are waiting to be written, submitted
+ * measures wait to be accepted, callers being expected to hold off submitting more until then.
+ */
+@Singleton
+public class BatchingPersister {
+    /**
+     * The maximal number of measures written in a single transaction
+     */
+    @ConfigProperty(name = "power-server.persistence.batch-size", defaultValue = "256")
+    int batchSize;
+
+    /**
+     * The maximal amount of time a measure waits for its batch to fill up before being written
+     */
+    @ConfigProperty(name = "power-server.persistence.flush-interval", defaultValue = "PT1S")
+    Duration flushInterval;
+
+    /**
+     * The maximal number of measures waiting to be written, after which submitted measures wait to be accepted
+     */
+    @ConfigProperty(name = "power-server.persistence.queue-capacity", defaultValue = "4096")
+    int queueCapacity;
+
+    @Inject
+    Persistence persistence;
+
+    private WriteBehindQueue<Measure> queue;
+
+    @PostConstruct
+    void init() {
+        queue = new WriteBehindQueue<>(queueCapacity, batchSize, flushInterval, persistence::saveAll,
+                "power-server-persistence");
+    }
+
+    /**
+     * Queues the specified measure to be persisted, without blocking
+     *
+     * @param measure the measure to persist
+     * @param appName the name of the application the measure was taken for
+     * @param session the measuring session, {@code null} to use the application's default session
+     * @return a {@link CompletionStage} completed once the measure has been accepted, which happens immediately unless too
+     *         many measures are waiting to be written, with a {@link CompletionStage} completed with the identifier of the
+     *         persisted measure once it has been written, or with {@code null} if the measure is missing
+     */
+    public CompletionStage<CompletionStage<Long>> submit(SensorMeasure measure, String appName, String session) {
+        final var toPersist = persistence.newMeasure(measure, appName, session);
+        if (toPersist == null) {
+            return CompletableFuture.completedStage(CompletableFuture.completedStage(null));
+        }
+        return queue.submit(toPersist).thenApply(written -> written.thenApply(m -> m.id));
+    }
+
+    /**
+     * Waits until the measures submitted so far have been written
+     */
+    public void flush() {
+        queue.flush().toCompletableFuture().join();
+    }
+
+    // Write pending measures during shutdown, before the database is backed up
+    void onShutdown(@Observes @Priority(Interceptor.Priority.APPLICATION) ShutdownEvent event) {
+        Log.infof("Writing %d pending measures on shutdown", queue.pending());
+        queue.close();
+    }
+}
@@ -0,0 +1,141 @@
+package net.laprun.sustainability.power.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Encodes measure components compactly, each value being stored using the smallest lossless representation among: nothing
+ * for zero, a variable-length integer for integral values (e.g. energy counters), 4 bytes when the value is exactly
+ * representable as a float and 8 bytes otherwise. Representations are recorded as 2-bit tags packed after the header.
+ * <p>
+ * Each encoded array is self-contained so that measures can be read, and pruned, independently of one another. Values
+ * persisted before this encoding was introduced, i.e. Java-serialized arrays, are still decoded.
+ */
+@Converter
+public class ComponentsCodec implements AttributeConverter<double[], byte[]> {
+    static final byte VERSION = 1;
+    private static final int ZERO = 0;
+    private static final int INTEGRAL = 1;
+    private static final int FLOAT = 2;
+    private static final int DOUBLE = 3;
+    private static final double MAX_EXACT_INTEGRAL = 0x1p53;
+    private static final byte[] JAVA_SERIALIZATION_MAGIC = { (byte) 0xAC, (byte) 0xED };
+
+    public static byte[] encode(double[] components) {
+        if (components == null) {
+            return null;
+        }
+        final var count = components.length;
+        final var tagBytes = (count + 3) / 4;
+        // worst case: header, tags and every value on 8 bytes
+        final var buffer = ByteBuffer.allocate(1 + 5 + tagBytes + 8 * count);
+        buffer.put(VERSION);
+        putVarLong(buffer, count);
+        final var tagsPosition = buffer.position();
+        buffer.position(tagsPosition + tagBytes);
+        for (int i = 0; i < count; i++) {
+            final var value = components[i];
+            final int tag;
+            if (Double.doubleToRawLongBits(value) == 0) {
+                tag = ZERO;
+            } else if (isExactlyIntegral(value)) {
+                tag = INTEGRAL;
+                final var integral = (long) value;
+                putVarLong(buffer, (integral << 1) ^ (integral >> 63));
+            } else if ((float) value == value) {
+                tag = FLOAT;
+                buffer.putFloat((float) value);
+            } else {
+                tag = DOUBLE;
+                buffer.putDouble(value);
+            }
+            final var tagIndex = tagsPosition + i / 4;
+            buffer.put(tagIndex, (byte) (buffer.get(tagIndex) | tag << (2 * (i % 4))));
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    public static double[] decode(byte[] encoded) {
+        if (encoded == null) {
+            return null;
+        }
+        if (encoded.length >= 2 && encoded[0] == JAVA_SERIALIZATION_MAGIC[0] && encoded[1] == JAVA_SERIALIZATION_MAGIC[1]) {
+            return decodeLegacy(encoded);
+        }
+        final var buffer = ByteBuffer.wrap(encoded);
+        final var version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unknown components encoding version: " + version);
+        }
+        final var count = Math.toIntExact(getVarLong(buffer));
+        final var tagsPosition = buffer.position();
+        buffer.position(tagsPosition + (count + 3) / 4);
+        final var components = new double[count];
+        for (int i = 0; i < count; i++) {
+            final var tag = (buffer.get(tagsPosition + i / 4) >> (2 * (i % 4))) & 0b11;
+            components[i] = switch (tag) {
+                case ZERO -> 0;
+                case INTEGRAL -> {
+                    final var zigzag = getVarLong(buffer);
+                    yield (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+                case FLOAT -> buffer.getFloat();
+                default -> buffer.getDouble();
+            };
+        }
+        return components;
+    }
+
+    @Override
+    public byte[] convertToDatabaseColumn(double[] components) {
+        return encode(components);
+    }
+
+    @Override
+    public double[] convertToEntityAttribute(byte[] encoded) {
+        return decode(encoded);
+    }
+
+    private static boolean isExactlyIntegral(double value) {
+        // negative zero is not integral as it would be decoded as positive zero
+        return value != 0 && value == Math.rint(value) && Math.abs(value) < MAX_EXACT_INTEGRAL;
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final var b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable-length integer");
+    }
+
+    private static double[] decodeLegacy(byte[] encoded) {
+        try (var in = new ObjectInputStream(new ByteArrayInputStream(encoded))) {
+            in.setObjectInputFilter(info -> info.serialClass() == null || info.serialClass() == double[].class
+                    ? ObjectInputFilter.Status.ALLOWED
+                    : ObjectInputFilter.Status.REJECTED);
+            return (double[]) in.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            throw new IllegalArgumentException("Couldn't decode legacy components", e);
+        }
+    }
+}
@@ -4,7 +4,9 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Stream;
 
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
+import jakarta.persistence.ManyToOne;
 
 import io.quarkus.hibernate.orm.panache.PanacheEntity;
 import net.laprun.sustainability.power.SensorMeasure;
@@ -13,20 +15,21 @@ import net.laprun.sustainability.power.measures.PartialSensorMeasure;
 
 @Entity
 public class Measure extends PanacheEntity {
-    public String appName;
     public long startTime;
     public long endTime;
     public long duration;
+    @Convert(converter = ComponentsCodec.class)
     public double[] components;
     public double externalCPUShare;
-    public String session;
+    @ManyToOne(optional = false)
+    public Session session;
 
     public static List<Measure> forApplication(String appName) {
-        return find("appName", appName).list();
+        return find("session.application.name", appName).list();
     }
 
     public static Stream<Measure> forApplicationSession(String appName, String session) {
-        return find("appName = ?1 and session = ?2", appName, session).stream();
+        return find("session.application.name = ?1 and session.name = ?2", appName, session).stream();
     }
 
     public static Stream<Measure> all() {
@@ -42,6 +45,14 @@ public class Measure extends PanacheEntity {
         return isPartial() ? duration : endTime - startTime;
     }
 
+    public String appName() {
+        return session.appName();
+    }
+
+    public String sessionName() {
+        return session.name;
+    }
+
     public boolean isPartial() {
         return duration > 0;
     }
@@ -49,13 +60,13 @@ public class Measure extends PanacheEntity {
     @Override
     public String toString() {
         return super.toString() +
-                "{appName='" + appName + '\'' +
+                "{appName='" + appName() + '\'' +
                 ", startTime=" + startTime +
                 ", endTime=" + endTime +
                 ", duration=" + duration +
                 ", partial=" + isPartial() +
                 ", components=" + Arrays.toString(components) +
-                ", session='" + session + '\'' +
+                ", session='" + sessionName() + '\'' +
                 ", extCPU=" + externalCPUShare + '}';
     }
 }
@@ -0,0 +1,101 @@
+package net.laprun.sustainability.power.persistence;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.stream.Stream;
+
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntity;
+import net.laprun.sustainability.power.SensorMeasure;
+import net.laprun.sustainability.power.measures.PartialSensorMeasure;
+
+/**
+ * Aggregates the measures of a session over an interval of time, as maintained by the {@link RollupEngine}. Components are
+ * aggregated independently: for each of them, the rollup records its energy, i.e. the sum of the component's values
+ * weighted by the duration of their measure in seconds (e.g. mJ for a component in mW), along with its minimal and maximal
+ * values. Mean values are derived from the energy and the covered duration.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = { "session_id", "resolution", "startTime" }))
+public class MeasureRollup extends PanacheEntity {
+    @ManyToOne(optional = false)
+    public Session session;
+    @Enumerated(EnumType.STRING)
+    public RollupResolution resolution;
+    public long startTime;
+    /**
+     * The cumulated duration of the aggregated measures, in milliseconds, which is shorter than the interval covered by
+     * the rollup if measures were not taken during the whole interval
+     */
+    public long duration;
+    public int sampleCount;
+    @Convert(converter = ComponentsCodec.class)
+    public double[] energy;
+    @Convert(converter = ComponentsCodec.class)
+    public double[] minimum;
+    @Convert(converter = ComponentsCodec.class)
+    public double[] maximum;
+
+    public static Stream<MeasureRollup> forSession(String appName, String session, RollupResolution resolution) {
+        return find("session.application.name = ?1 and session.name = ?2 and resolution = ?3 order by startTime", appName,
+                session, resolution).stream();
+    }
+
+    /**
+     * Retrieves the rollups of the specified application at the specified resolution, rollups of sessions running
+     * concurrently being merged
+     *
+     * @param appName the name of the application
+     * @param resolution the resolution of the rollups
+     * @return the chronological list of rollups of the specified application
+     */
+    public static List<MeasureRollup> forApplication(String appName, RollupResolution resolution) {
+        final var merged = new LinkedHashMap<Long, RollupAccumulator>();
+        MeasureRollup.<MeasureRollup> find("session.application.name = ?1 and resolution = ?2 order by startTime", appName,
+                resolution).stream()
+                .forEach(rollup -> merged.computeIfAbsent(rollup.startTime, unused -> new RollupAccumulator()).add(rollup));
+        final var result = new ArrayList<MeasureRollup>(merged.size());
+        merged.forEach((startTime, accumulator) -> result.add(accumulator.toRollup(null, resolution, startTime)));
+        return result;
+    }
+
+    public long endTime() {
+        return startTime + resolution.millis();
+    }
+
+    /**
+     * @return the mean value of each component over the covered duration
+     */
+    public double[] mean() {
+        final var mean = new double[energy.length];
+        if (duration > 0) {
+            final var seconds = duration / 1000.0;
+            for (int i = 0; i < mean.length; i++) {
+                mean[i] = energy[i] / seconds;
+            }
+        }
+        return mean;
+    }
+
+    public SensorMeasure asSensorMeasure() {
+        return new PartialSensorMeasure(mean(), startTime, endTime(), duration);
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() +
+                "{session='" + session + '\'' +
+                ", resolution=" + resolution +
+                ", startTime=" + startTime +
+                ", duration=" + duration +
+                ", samples=" + sampleCount + '}';
+    }
+}
@@ -1,42 +1,121 @@
 package net.laprun.sustainability.power.persistence;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 
 import io.quarkus.logging.Log;
+import net.laprun.sustainability.power.PowerClock;
 import net.laprun.sustainability.power.SensorMeasure;
 
 @ApplicationScoped
 public class Persistence {
     public static final String SYSTEM_TOTAL_APP_NAME = "system:total";
 
+    @Inject
+    PowerClock clock;
+
+    private final Map<SessionKey, Long> sessionIds = new ConcurrentHashMap<>();
+
     @Transactional
     public Measure save(SensorMeasure measure, String appName, String session) {
-        if (SensorMeasure.missing == measure) {
-            Log.debugf("Ignoring missing measure for app: %s, session: %s", appName, session);
+        final var persisted = newMeasure(measure, appName, session);
+        if (persisted == null) {
             return null;
         }
-        final var persisted = new Measure();
-        persisted.components = measure.components();
-        persisted.appName = appName;
-        persisted.session = session == null ? defaultSession(appName) : session;
-        persisted.startTime = measure.startMs();
-        persisted.endTime = measure.endMs();
-        persisted.duration = measure.durationMs();
-        persisted.externalCPUShare = measure.externalCPUShare();
+        resolveSessions(List.of(persisted));
         persisted.persist();
         Log.debugf("Persisted %s, measure duration: %sms", persisted, persisted.endTime - persisted.startTime);
         return persisted;
     }
 
+    /**
+     * Persists the specified measures in a single transaction, inserts being batched at the JDBC level
+     *
+     * @param measures the measures to persist, as created by {@link #newMeasure(SensorMeasure, String, String)}
+     */
+    @Transactional
+    public void saveAll(List<Measure> measures) {
+        // measures which were part of a rolled back transaction keep their generated identifier, which would make them
+        // look detached when persisted again
+        measures.forEach(m -> m.id = null);
+        resolveSessions(measures);
+        Measure.persist(measures);
+        Log.debugf("Persisted %d measures", measures.size());
+    }
+
+    /**
+     * Creates a new, not yet persisted, {@link Measure} recording the specified measure for the specified application
+     *
+     * @param measure the measure to record
+     * @param appName the name of the application the measure was taken for
+     * @param session the measuring session, {@code null} to use the application's default session
+     * @return a new {@link Measure} or {@code null} if the specified measure is missing
+     */
+    public Measure newMeasure(SensorMeasure measure, String appName, String session) {
+        if (SensorMeasure.missing == measure) {
+            Log.debugf("Ignoring missing measure for app: %s, session: %s", appName, session);
+            return null;
+        }
+        final var result = new Measure();
+        result.components = measure.components();
+        // only record the names for now, the actual session being resolved when the measure is persisted
+        result.session = Session.create(Application.create(appName), session == null ? defaultSession(appName) : session);
+        result.startTime = measure.startMs();
+        result.endTime = measure.endMs();
+        result.duration = measure.durationMs();
+        result.externalCPUShare = measure.externalCPUShare();
+        return result;
+    }
+
     @Transactional
     public Measure save(SensorMeasure measure, String appName) {
         return save(measure, appName, null);
     }
 
+    /**
+     * Replaces the sessions of the specified measures by the matching persistent sessions, creating them along with their
+     * application if needed. Must be called within a transaction.
+     */
+    private void resolveSessions(List<Measure> measures) {
+        final var resolved = new HashMap<SessionKey, Session>();
+        for (var measure : measures) {
+            final var key = new SessionKey(measure.appName(), measure.sessionName());
+            measure.session = resolved.computeIfAbsent(key, this::sessionFor);
+        }
+    }
+
+    private Session sessionFor(SessionKey key) {
+        final var id = sessionIds.get(key);
+        if (id != null) {
+            return Session.findById(id);
+        }
+        return Session.named(key.appName(), key.name())
+                .map(session -> {
+                    // only cache committed sessions so that a rolled back transaction cannot leave a dangling identifier
+                    sessionIds.put(key, session.id);
+                    return session;
+                })
+                .orElseGet(() -> {
+                    final var application = Application.named(key.appName())
+                            .orElseGet(() -> {
+                                final var created = Application.create(key.appName());
+                                created.persist();
+                                return created;
+                            });
+                    final var created = Session.create(application, key.name());
+                    created.persist();
+                    return created;
+                });
+    }
+
     @Transactional
     public Optional<Double> synthesizeAndAggregateForSession(String appName, String session,
             Function<Measure, Double> synthesizer) {
@@ -45,7 +124,20 @@ public class Persistence {
                 .reduce(Double::sum);
     }
 
-    public static String defaultSession(String appName) {
-        return appName + "-" + System.currentTimeMillis();
+    /**
+     * Generates a session name for the specified application, based on the current time as given by the injected clock
+     *
+     * @param appName the name of the application
+     * @return a session name for the specified application
+     */
+    public String defaultSession(String appName) {
+        return defaultSession(appName, clock);
+    }
+
+    public static String defaultSession(String appName, PowerClock clock) {
+        return appName + "-" + clock.epochMillis();
+    }
+
+    private record SessionKey(String appName, String name) {
     }
 }
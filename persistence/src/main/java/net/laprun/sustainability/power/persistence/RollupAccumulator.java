@@ -0,0 +1,82 @@
+package net.laprun.sustainability.power.persistence;
+
+import java.util.Arrays;
+
+/**
+ * Accumulates measures, or rollups, into a single rollup
+ */
+final class RollupAccumulator {
+    private double[] energy = new double[0];
+    private double[] min = new double[0];
+    private double[] max = new double[0];
+    private long duration;
+    private int sampleCount;
+
+    /**
+     * Accumulates the specified measure values
+     *
+     * @param components the values of the measure components
+     * @param durationMs the duration of the measure, in milliseconds
+     */
+    void add(double[] components, long durationMs) {
+        ensureCapacity(components.length);
+        final var seconds = durationMs / 1000.0;
+        for (int i = 0; i < components.length; i++) {
+            final var value = components[i];
+            energy[i] += value * seconds;
+            min[i] = Math.min(min[i], value);
+            max[i] = Math.max(max[i], value);
+        }
+        duration += durationMs;
+        sampleCount++;
+    }
+
+    void add(Measure measure) {
+        add(measure.components, measure.duration());
+    }
+
+    void add(MeasureRollup rollup) {
+        ensureCapacity(rollup.energy.length);
+        for (int i = 0; i < rollup.energy.length; i++) {
+            energy[i] += rollup.energy[i];
+            min[i] = Math.min(min[i], rollup.minimum[i]);
+            max[i] = Math.max(max[i], rollup.maximum[i]);
+        }
+        duration += rollup.duration;
+        sampleCount += rollup.sampleCount;
+    }
+
+    MeasureRollup toRollup(Session session, RollupResolution resolution, long startTime) {
+        final var rollup = new MeasureRollup();
+        rollup.session = session;
+        rollup.resolution = resolution;
+        rollup.startTime = startTime;
+        writeTo(rollup);
+        return rollup;
+    }
+
+    /**
+     * Records the accumulated values into the specified rollup, replacing its own
+     *
+     * @param rollup the rollup to update
+     */
+    void writeTo(MeasureRollup rollup) {
+        rollup.duration = duration;
+        rollup.sampleCount = sampleCount;
+        rollup.energy = energy.clone();
+        rollup.minimum = min.clone();
+        rollup.maximum = max.clone();
+    }
+
+    // components might differ across sessions, e.g. if CPU share sampling was only enabled for some of them
+    private void ensureCapacity(int length) {
+        final var previous = energy.length;
+        if (length > previous) {
+            energy = Arrays.copyOf(energy, length);
+            min = Arrays.copyOf(min, length);
+            max = Arrays.copyOf(max, length);
+            Arrays.fill(min, previous, length, Double.POSITIVE_INFINITY);
+            Arrays.fill(max, previous, length, Double.NEGATIVE_INFINITY);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package net.laprun.sustainability.power.persistence;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.quarkus.logging.Log;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.scheduler.Scheduled;
+import net.laprun.sustainability.power.PowerClock;
+
+/**
+ * Periodically rolls raw measures up into per-session {@link MeasureRollup}s at {@link RollupResolution#MINUTE} resolution,
+ * themselves rolled up at {@link RollupResolution#HOUR} resolution, then prunes the raw measures and minute rollups which
+ * exceed their retention period, so that the database doesn't grow without bound.
+ * <p>
+ * Raw measures are rolled up in the order they were persisted, as given by their identifier, progress being recorded as the
+ * identifier of the last rolled up measure in {@link RollupProgress}. Measures of intervals which ended less than
+ * {@link #delay} ago, and measures persisted after them, are left for a later execution. Measures persisted late, e.g. after
+ * a persistence failure or a long flush, are therefore still rolled up: they are added to the rollups of their interval,
+ * which are updated if they already exist, including hour rollups. Nothing is pruned before it has been rolled up.
+ * <p>
+ * This relies on measure identifiers being allocated in the order measures are committed, which holds since measures are
+ * written by a single {@link WriteBehindQueue} over a single connection.
+ */
+@Singleton
+public class RollupEngine {
+    /**
+     * How long to wait after a minute ends before rolling it up, so that its measures are usually persisted by then and its
+     * rollups don't need to be updated afterwards
+     */
+    @ConfigProperty(name = "power-server.rollup.delay", defaultValue = "PT1M")
+    Duration delay;
+
+    /**
+     * How long raw measures are kept, unlimited if set to an empty value
+     */
+    @ConfigProperty(name = "power-server.retention.raw", defaultValue = "P7D")
+    Optional<Duration> rawRetention;
+
+    /**
+     * How long minute rollups are kept, unlimited if set to an empty value, hour rollups being kept indefinitely
+     */
+    @ConfigProperty(name = "power-server.retention.minute-rollups", defaultValue = "P90D")
+    Optional<Duration> minuteRollupRetention;
+
+    @Inject
+    PowerClock clock;
+
+    private static final int MAX_MEASURES_PER_TRANSACTION = 10_000;
+
+    private final AtomicBoolean executing = new AtomicBoolean(false);
+
+    // Periodical rollup
+    @Scheduled(delay = 1, delayUnit = TimeUnit.MINUTES, every = "${power-server.rollup.period:1m}")
+    void scheduled() {
+        run();
+    }
+
+    /**
+     * Rolls up the intervals which ended since the last execution and prunes expired data
+     */
+    public void run() {
+        if (executing.compareAndSet(false, true)) {
+            try {
+                final var now = clock.epochMillis();
+                final var minutesEnd = RollupResolution.MINUTE.truncate(now - delay.toMillis());
+                final var lastMeasureId = rollUpMeasures(minutesEnd);
+                final var hoursEnd = rollUpHours(RollupResolution.HOUR.truncate(minutesEnd));
+                prune(now, lastMeasureId, hoursEnd);
+            } finally {
+                executing.set(false);
+            }
+        } else {
+            Log.debug("Skipping rollup as the operation is already in progress");
+        }
+    }
+
+    /**
+     * Rolls up the raw measures persisted since the last execution into minute rollups, stopping at the first measure which
+     * started at or after the specified time, a bounded number of measures per transaction. Measures belonging to hours
+     * which have already been rolled up are also added to the matching hour rollups.
+     *
+     * @return the identifier of the last raw measure which has been rolled up
+     */
+    private long rollUpMeasures(long until) {
+        final var hoursEnd = QuarkusTransaction.requiringNew()
+                .call(() -> lastRollupEnd(RollupResolution.HOUR).orElse(Long.MIN_VALUE));
+        int count;
+        do {
+            count = QuarkusTransaction.requiringNew().call(() -> {
+                final var current = RollupProgress.measures();
+                final var from = current.lastMeasureId;
+                // measures of intervals which are not over yet are rolled up later, and so are measures persisted after them
+                final var to = Measure.<Measure> find("id > ?1 and startTime >= ?2 order by id", from, until)
+                        .firstResultOptional()
+                        .map(m -> m.id)
+                        .orElse(Long.MAX_VALUE);
+                final var measures = Measure.<Measure> find("id > ?1 and id < ?2 order by id", from, to)
+                        .page(0, MAX_MEASURES_PER_TRANSACTION)
+                        .list();
+                if (measures.isEmpty()) {
+                    return 0;
+                }
+                final var minutes = new HashMap<BucketKey, RollupAccumulator>();
+                final var hours = new HashMap<BucketKey, RollupAccumulator>();
+                measures.stream()
+                        // measures migrated without application or session cannot be attributed
+                        .filter(m -> m.session != null && m.components != null)
+                        .forEach(m -> {
+                            accumulator(minutes, m.session, RollupResolution.MINUTE.truncate(m.startTime)).add(m);
+                            final var hour = RollupResolution.HOUR.truncate(m.startTime);
+                            if (hour < hoursEnd) {
+                                accumulator(hours, m.session, hour).add(m);
+                            }
+                        });
+                merge(minutes, RollupResolution.MINUTE);
+                merge(hours, RollupResolution.HOUR);
+                current.lastMeasureId = measures.getLast().id;
+                Log.debugf("Rolled up %d measures into %d minute rollups, up to measure %d", measures.size(),
+                        minutes.size(), current.lastMeasureId);
+                return measures.size();
+            });
+        } while (count == MAX_MEASURES_PER_TRANSACTION);
+        return QuarkusTransaction.requiringNew().call(() -> RollupProgress.measures().lastMeasureId);
+    }
+
+    /**
+     * Rolls up minute rollups which started before the specified time into hour rollups, one hour per transaction
+     *
+     * @return the time up to which minute rollups have been rolled up
+     */
+    private long rollUpHours(long until) {
+        final var hour = RollupResolution.HOUR;
+        var from = QuarkusTransaction.requiringNew()
+                .call(() -> nextMinuteRollupHour(lastRollupEnd(hour).orElse(Long.MIN_VALUE)));
+        while (from < until) {
+            final var start = from;
+            final var end = start + hour.millis();
+            QuarkusTransaction.requiringNew().run(() -> {
+                final var accumulators = new HashMap<BucketKey, RollupAccumulator>();
+                MeasureRollup.<MeasureRollup> find("resolution = ?1 and startTime >= ?2 and startTime < ?3",
+                        RollupResolution.MINUTE, start, end).stream()
+                        .forEach(r -> accumulator(accumulators, r.session, start).add(r));
+                persist(accumulators, hour);
+            });
+            from = QuarkusTransaction.requiringNew().call(() -> nextMinuteRollupHour(end));
+        }
+        return until;
+    }
+
+    private void prune(long now, long lastMeasureId, long hoursEnd) {
+        QuarkusTransaction.requiringNew().run(() -> {
+            rawRetention.ifPresent(retention -> {
+                final var deleted = Measure.delete("startTime < ?1 and id <= ?2", now - retention.toMillis(), lastMeasureId);
+                Log.debugf("Pruned %d raw measures", deleted);
+            });
+            minuteRollupRetention.ifPresent(retention -> {
+                final var deleted = MeasureRollup.delete("resolution = ?1 and startTime < ?2", RollupResolution.MINUTE,
+                        Math.min(now - retention.toMillis(), hoursEnd));
+                Log.debugf("Pruned %d minute rollups", deleted);
+            });
+        });
+    }
+
+    private static void persist(HashMap<BucketKey, RollupAccumulator> accumulators, RollupResolution resolution) {
+        MeasureRollup.persist(accumulators.entrySet().stream()
+                .map(e -> e.getValue().toRollup(e.getKey().session(), resolution, e.getKey().startTime())));
+    }
+
+    /**
+     * Adds the accumulated values to the matching existing rollups, creating the missing ones
+     */
+    private static void merge(HashMap<BucketKey, RollupAccumulator> accumulators, RollupResolution resolution) {
+        accumulators.forEach((key, accumulator) -> MeasureRollup
+                .<MeasureRollup> find("session = ?1 and resolution = ?2 and startTime = ?3", key.session(), resolution,
+                        key.startTime())
+                .firstResultOptional()
+                .ifPresentOrElse(existing -> {
+                    accumulator.add(existing);
+                    accumulator.writeTo(existing);
+                }, () -> accumulator.toRollup(key.session(), resolution, key.startTime()).persist()));
+    }
+
+    private static RollupAccumulator accumulator(HashMap<BucketKey, RollupAccumulator> accumulators, Session session,
+            long startTime) {
+        return accumulators.computeIfAbsent(new BucketKey(session, startTime), unused -> new RollupAccumulator());
+    }
+
+    private static Optional<Long> lastRollupEnd(RollupResolution resolution) {
+        return MeasureRollup.<MeasureRollup> find("resolution = ?1 order by startTime desc", resolution)
+                .firstResultOptional()
+                .map(MeasureRollup::endTime);
+    }
+
+    // skip intervals without data by starting from the interval of the next minute rollup
+    private static long nextMinuteRollupHour(long from) {
+        return MeasureRollup.<MeasureRollup> find("resolution = ?1 and startTime >= ?2 order by startTime",
+                RollupResolution.MINUTE, from)
+                .firstResultOptional()
+                .map(r -> RollupResolution.HOUR.truncate(r.startTime))
+                .orElse(Long.MAX_VALUE);
+    }
+
+    private record BucketKey(Session session, long startTime) {
+    }
+}
@@ -0,0 +1,39 @@
+package net.laprun.sustainability.power.persistence;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+
+/**
+ * Records how far the {@link RollupEngine} went, so that it can resume where it stopped
+ */
+@Entity
+public class RollupProgress extends PanacheEntityBase {
+    static final String MEASURES = "measures";
+
+    @Id
+    public String name;
+    /**
+     * The identifier of the last raw measure which has been rolled up, all measures with a lower identifier having been
+     * rolled up as well
+     */
+    public long lastMeasureId;
+
+    /**
+     * Retrieves the progress of raw measures rollups, creating it if needed
+     */
+    static RollupProgress measures() {
+        return RollupProgress.<RollupProgress> findByIdOptional(MEASURES).orElseGet(() -> {
+            final var progress = new RollupProgress();
+            progress.name = MEASURES;
+            progress.persist();
+            return progress;
+        });
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + lastMeasureId;
+    }
+}
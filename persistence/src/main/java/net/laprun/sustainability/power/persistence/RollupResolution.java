@@ -0,0 +1,57 @@
+package net.laprun.sustainability.power.persistence;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * The resolutions at which measures are rolled up for long-term retention
+ */
+public enum RollupResolution {
+    MINUTE(Duration.ofMinutes(1)),
+    HOUR(Duration.ofHours(1));
+
+    private final long millis;
+
+    RollupResolution(Duration duration) {
+        this.millis = duration.toMillis();
+    }
+
+    /**
+     * @return the length of the interval covered by a rollup at this resolution, in milliseconds
+     */
+    public long millis() {
+        return millis;
+    }
+
+    /**
+     * Computes the start of the rollup interval containing the specified time
+     *
+     * @param timeMs a time, in milliseconds since the epoch
+     * @return the start of the interval containing the specified time, in milliseconds since the epoch
+     */
+    public long truncate(long timeMs) {
+        return Math.floorDiv(timeMs, millis) * millis;
+    }
+
+    /**
+     * Retrieves the resolution matching the specified duration
+     *
+     * @param duration the interval covered by a rollup
+     * @return the matching resolution
+     * @throws IllegalArgumentException if no resolution matches the specified duration
+     */
+    public static RollupResolution of(Duration duration) {
+        final var millis = duration.toMillis();
+        for (var resolution : values()) {
+            if (resolution.millis == millis) {
+                return resolution;
+            }
+        }
+        throw new IllegalArgumentException(
+                "Unsupported rollup resolution: " + duration + ", supported: " + Arrays.toString(durations()));
+    }
+
+    private static Duration[] durations() {
+        return Arrays.stream(values()).map(r -> Duration.ofMillis(r.millis)).toArray(Duration[]::new);
+    }
+}
@@ -0,0 +1,43 @@
+package net.laprun.sustainability.power.persistence;
+
+import java.util.Optional;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntity;
+
+/**
+ * A measuring session of an {@link Application}, stored once and referenced by the session's {@link Measure}s
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = { "application_id", "name" }))
+public class Session extends PanacheEntity {
+    @ManyToOne(optional = false)
+    public Application application;
+    @Column(nullable = false)
+    public String name;
+
+    public static Optional<Session> named(String appName, String name) {
+        return find("application.name = ?1 and name = ?2", appName, name).firstResultOptional();
+    }
+
+    static Session create(Application application, String name) {
+        final var session = new Session();
+        session.application = application;
+        session.name = name;
+        return session;
+    }
+
+    public String appName() {
+        return application.name;
+    }
+
+    @Override
+    public String toString() {
+        return application + "/" + name;
+    }
+}
@@ -0,0 +1,212 @@
+package net.laprun.sustainability.power.persistence;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import io.quarkus.logging.Log;
+
+/**
+ * A bounded queue of items written in batches by a dedicated thread, a batch being written as soon as it reaches its maximal
+ * size or once its first item has waited for the flush interval, whichever comes first. Submitting never blocks: while the
+ * queue is full, submitted items wait to be accepted, in submission order, until enough items have been written. Producers
+ * are expected to wait for their item to be accepted before submitting the next one, thus slowing down to the pace at which
+ * items can be written instead of piling them up in memory. If a batch fails, its items are written again one at a time so
+ * that only the items which cannot be written are dropped.
+ *
+ * @param <T> the type of the queued items
+ */
+final class WriteBehindQueue<T> {
+    private final BlockingQueue<Pending<T>> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Consumer<List<T>> writer;
+    private final Pending<T> close = new Pending<>(null, new CompletableFuture<>());
+    // items which couldn't be queued yet, guarded by itself along with closed
+    private final Queue<Accepting<T>> accepting = new ArrayDeque<>();
+    private final Thread thread;
+    private boolean closed;
+
+    /**
+     * @param capacity the maximal number of items waiting to be written
+     * @param batchSize the maximal number of items written at once
+     * @param flushInterval the maximal amount of time an item waits for its batch to fill up before being written
+     * @param writer writes the specified batch of items, any exception failing the whole batch, which must therefore be
+     *        possible to write again
+     * @param name the name of the writing thread
+     */
+    WriteBehindQueue(int capacity, int batchSize, Duration flushInterval, Consumer<List<T>> writer, String name) {
+        if (batchSize < 1 || capacity < batchSize) {
+            throw new IllegalArgumentException(
+                    "Batch size must be positive and at most the queue capacity (" + capacity + "), was: " + batchSize);
+        }
+        if (flushInterval.isNegative() || flushInterval.isZero()) {
+            throw new IllegalArgumentException("Flush interval must be positive, was: " + flushInterval);
+        }
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.writer = writer;
+        this.thread = Thread.ofPlatform().name(name).daemon().start(this::run);
+    }
+
+    /**
+     * Queues the specified item to be written, without blocking
+     *
+     * @param item the item to write
+     * @return a {@link CompletionStage} completed once the item has been accepted by the queue, which happens immediately
+     *         unless the queue is full, with a {@link CompletionStage} completed with the item once it has been written
+     */
+    CompletionStage<CompletionStage<T>> submit(T item) {
+        return accept(new Pending<>(item, new CompletableFuture<>()));
+    }
+
+    /**
+     * Writes the items submitted so far without waiting for their batch to fill up
+     *
+     * @return a {@link CompletionStage} completed once the items submitted before this call have been written
+     */
+    CompletionStage<Void> flush() {
+        return accept(new Pending<T>(null, new CompletableFuture<>()))
+                .thenCompose(Function.identity())
+                // nothing can be queued anymore and everything was written when closing
+                .exceptionally(e -> null)
+                .thenApply(unused -> null);
+    }
+
+    /**
+     * Writes the pending items and stops the writing thread, items submitted afterwards being rejected
+     */
+    void close() {
+        synchronized (accepting) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        try {
+            queue.put(close);
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // write items which made it into the queue while closing, or were still waiting to be accepted
+        final var remaining = new ArrayList<Pending<T>>();
+        queue.drainTo(remaining);
+        final List<Accepting<T>> accepted;
+        synchronized (accepting) {
+            accepted = new ArrayList<>(accepting);
+            accepting.clear();
+        }
+        accepted.forEach(a -> remaining.add(a.pending()));
+        accepted.forEach(Accepting::accept);
+        final var markers = remaining.stream().filter(p -> p.item == null).toList();
+        remaining.removeAll(markers);
+        write(remaining);
+        markers.forEach(m -> m.written.complete(null));
+    }
+
+    /**
+     * @return the number of items waiting to be written
+     */
+    int pending() {
+        synchronized (accepting) {
+            return queue.size() + accepting.size();
+        }
+    }
+
+    private CompletionStage<CompletionStage<T>> accept(Pending<T> pending) {
+        synchronized (accepting) {
+            if (closed) {
+                return CompletableFuture.failedStage(new IllegalStateException("Queue is closed"));
+            }
+            // items waiting to be accepted go first
+            if (accepting.isEmpty() && queue.offer(pending)) {
+                return CompletableFuture.completedStage(pending.written);
+            }
+            final var waiting = new Accepting<>(pending, new CompletableFuture<>());
+            accepting.add(waiting);
+            return waiting.accepted();
+        }
+    }
+
+    // called by the writing thread once it took items from the queue
+    private void acceptWaiting() {
+        final var accepted = new ArrayList<Accepting<T>>();
+        synchronized (accepting) {
+            while (!accepting.isEmpty() && queue.offer(accepting.peek().pending())) {
+                accepted.add(accepting.poll());
+            }
+        }
+        // notify producers outside the lock as they might submit their next item right away
+        accepted.forEach(Accepting::accept);
+    }
+
+    private void run() {
+        final var batch = new ArrayList<Pending<T>>(batchSize);
+        try {
+            while (true) {
+                var next = queue.take();
+                final var deadline = System.nanoTime() + flushIntervalNanos;
+                // accumulate items until the batch is full, the flush interval elapses or a marker is found
+                while (next != null && next.item != null) {
+                    batch.add(next);
+                    next = batch.size() < batchSize ? queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS) : null;
+                }
+                // room was made in the queue, accept waiting items while the batch is being written
+                acceptWaiting();
+                write(batch);
+                batch.clear();
+                if (next != null) {
+                    next.written.complete(null);
+                    if (next == close) {
+                        return;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            write(batch);
+        }
+    }
+
+    private void write(List<Pending<T>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        final var items = new ArrayList<T>(batch.size());
+        batch.forEach(p -> items.add(p.item));
+        try {
+            writer.accept(items);
+            batch.forEach(p -> p.written.complete(p.item));
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                final var failed = batch.getFirst();
+                Log.warnf("Dropping %s which couldn't be written, cause: %s", failed.item, e);
+                failed.written.completeExceptionally(e);
+            } else {
+                // isolate the failing items instead of losing the whole batch
+                Log.warnf("Failed to write batch of %d items, writing them one at a time, cause: %s", batch.size(), e);
+                batch.forEach(p -> write(List.of(p)));
+            }
+        }
+    }
+
+    private record Pending<T>(T item, CompletableFuture<T> written) {
+    }
+
+    private record Accepting<T>(Pending<T> pending, CompletableFuture<CompletionStage<T>> accepted) {
+        void accept() {
+            accepted.complete(pending.written);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+
+    create table Application (
+        id bigint not null,
+        name varchar(255) not null unique,
+        primary key (id)
+    );
+
+    create table Application_SEQ (
+        next_val bigint
+    );
+
+    create table Session (
+        id bigint not null,
+        application_id bigint not null,
+        name varchar(255) not null,
+        primary key (id),
+        unique (application_id, name),
+        foreign key (application_id) references Application
+    );
+
+    create table Session_SEQ (
+        next_val bigint
+    );
+
+    -- measures recorded without a session are attached to a default session of their application, named as
+    -- Persistence.defaultSession would, after the first such measure
+    update Measure set session = appName || '-' || (
+        select min(m.startTime) from Measure m where m.appName = Measure.appName and m.session is null)
+    where appName is not null and session is null;
+
+    insert into Application (id, name)
+        select row_number() over (order by appName), appName
+        from (select distinct appName from Measure where appName is not null);
+
+    insert into Session (id, application_id, name)
+        select row_number() over (order by a.id, m.session), a.id, m.session
+        from (select distinct appName, session from Measure where session is not null) m
+        join Application a on a.name = m.appName;
+
+    -- identifiers are allocated by blocks of 50: leave a full block after the migrated rows so that they cannot collide
+    -- with allocated identifiers whether the stored value is used as the low or high bound of the next block
+    insert into Application_SEQ ( next_val ) select coalesce(max(id), 0) + 51 from Application;
+    insert into Session_SEQ ( next_val ) select coalesce(max(id), 0) + 51 from Session;
+
+    alter table Measure add column session_id bigint references Session;
+
+    update Measure set session_id = (
+        select s.id from Session s join Application a on s.application_id = a.id
+        where a.name = Measure.appName and s.name = Measure.session);
+
+    create index Measure_session_id on Measure (session_id);
+
+    alter table Measure drop column appName;
+    alter table Measure drop column session;
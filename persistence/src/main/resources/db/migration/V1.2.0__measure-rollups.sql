@@ -0,0 +1,30 @@
+
+    create table MeasureRollup (
+        id bigint not null,
+        session_id bigint not null,
+        resolution varchar(255),
+        startTime bigint not null,
+        duration bigint not null,
+        sampleCount integer not null,
+        energy blob,
+        minimum blob,
+        maximum blob,
+        primary key (id),
+        unique (session_id, resolution, startTime),
+        foreign key (session_id) references Session
+    );
+
+    create table MeasureRollup_SEQ (
+        next_val bigint
+    );
+
+    insert into MeasureRollup_SEQ ( next_val ) values ( 1 );
+
+    create table RollupProgress (
+        name varchar(255) not null,
+        lastMeasureId bigint not null,
+        primary key (name)
+    );
+
+    create index MeasureRollup_resolution_startTime on MeasureRollup (resolution, startTime);
+    create index Measure_startTime on Measure (startTime);
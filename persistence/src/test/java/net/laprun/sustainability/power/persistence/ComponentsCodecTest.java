@@ -0,0 +1,59 @@
+package net.laprun.sustainability.power.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+class ComponentsCodecTest {
+
+    @Test
+    void shouldRoundTripValuesExactly() {
+        final var components = new double[] { 0, -0.0, 1234, -42, 123456789012L, 0.5, 1.1, Math.PI, -1e300,
+                Double.NaN, Double.POSITIVE_INFINITY, 0x1p53, Double.MIN_VALUE };
+        final var decoded = ComponentsCodec.decode(ComponentsCodec.encode(components));
+        assertEquals(components.length, decoded.length);
+        for (int i = 0; i < components.length; i++) {
+            assertEquals(Double.doubleToRawLongBits(components[i]), Double.doubleToRawLongBits(decoded[i]),
+                    "component " + i);
+        }
+        assertArrayEquals(new double[0], ComponentsCodec.decode(ComponentsCodec.encode(new double[0])));
+        assertNull(ComponentsCodec.encode(null));
+        assertNull(ComponentsCodec.decode(null));
+    }
+
+    @Test
+    void shouldEncodeTypicalMeasuresCompactly() throws Exception {
+        // power in mW, energy counter in µJ, unused component
+        final var components = new double[] { 12345.678, 98765432109.0, 0 };
+        final var encoded = ComponentsCodec.encode(components);
+        // header, count, tags, 8 bytes for power, 6 bytes for the counter, nothing for zero
+        assertEquals(1 + 1 + 1 + 8 + 6, encoded.length);
+        assertTrue(encoded.length < 3 * legacy(components).length / 4);
+    }
+
+    @Test
+    void shouldDecodeLegacyJavaSerializedComponents() throws Exception {
+        final var components = new double[] { 1.5, 2, 3 };
+        assertArrayEquals(components, ComponentsCodec.decode(legacy(components)));
+    }
+
+    @Test
+    void shouldRejectUnknownEncodings() {
+        assertThrows(IllegalArgumentException.class, () -> ComponentsCodec.decode(new byte[] { 42, 1, 0 }));
+    }
+
+    private static byte[] legacy(double[] components) throws Exception {
+        final var bytes = new ByteArrayOutputStream();
+        try (var out = new ObjectOutputStream(bytes)) {
+            out.writeObject(components);
+        }
+        return bytes.toByteArray();
+    }
+}
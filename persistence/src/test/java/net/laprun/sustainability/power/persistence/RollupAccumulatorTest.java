@@ -0,0 +1,62 @@
+package net.laprun.sustainability.power.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+class RollupAccumulatorTest {
+
+    @Test
+    void shouldAggregateMeasuresWeightedByDuration() {
+        final var accumulator = new RollupAccumulator();
+        accumulator.add(new double[] { 1000, 10 }, 1000);
+        accumulator.add(new double[] { 4000, 20 }, 500);
+        final var session = Session.create(Application.create("app"), "session");
+        final var rollup = accumulator.toRollup(session, RollupResolution.MINUTE, 60_000);
+
+        assertEquals(2, rollup.sampleCount);
+        assertEquals(1500, rollup.duration);
+        // mW over seconds gives mJ
+        assertArrayEquals(new double[] { 3000, 20 }, rollup.energy, 0.0001);
+        assertArrayEquals(new double[] { 1000, 10 }, rollup.minimum);
+        assertArrayEquals(new double[] { 4000, 20 }, rollup.maximum);
+        assertArrayEquals(new double[] { 2000, 20 / 1.5 }, rollup.mean(), 0.0001);
+
+        final var measure = rollup.asSensorMeasure();
+        assertEquals(60_000, measure.startMs());
+        assertEquals(120_000, measure.endMs());
+        assertEquals(1500, measure.durationMs());
+    }
+
+    @Test
+    void shouldMergeRollupsWithDifferentComponents() {
+        final var first = new RollupAccumulator();
+        first.add(new double[] { 1000 }, 1000);
+        final var second = new RollupAccumulator();
+        second.add(new double[] { 3000, 5 }, 1000);
+
+        final var merged = new RollupAccumulator();
+        merged.add(first.toRollup(null, RollupResolution.MINUTE, 0));
+        merged.add(second.toRollup(null, RollupResolution.MINUTE, 0));
+        final var rollup = merged.toRollup(null, RollupResolution.HOUR, 0);
+
+        assertEquals(2, rollup.sampleCount);
+        assertEquals(2000, rollup.duration);
+        assertArrayEquals(new double[] { 4000, 5 }, rollup.energy, 0.0001);
+        assertArrayEquals(new double[] { 1000, 5 }, rollup.minimum);
+        assertArrayEquals(new double[] { 3000, 5 }, rollup.maximum);
+    }
+
+    @Test
+    void resolutionsShouldTruncateToTheirIntervalStart() {
+        assertEquals(120_000, RollupResolution.MINUTE.truncate(179_999));
+        assertEquals(-60_000, RollupResolution.MINUTE.truncate(-1));
+        assertEquals(3_600_000, RollupResolution.HOUR.truncate(7_199_999));
+        assertEquals(RollupResolution.HOUR, RollupResolution.of(Duration.ofMinutes(60)));
+        assertThrows(IllegalArgumentException.class, () -> RollupResolution.of(Duration.ofSeconds(1)));
+    }
+}
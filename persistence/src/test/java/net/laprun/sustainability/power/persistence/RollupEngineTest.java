@@ -0,0 +1,174 @@
+package net.laprun.sustainability.power.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+
+import jakarta.inject.Inject;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import net.laprun.sustainability.power.SimulatedClock;
+import net.laprun.sustainability.power.measures.PartialSensorMeasure;
+
+@QuarkusTest
+class RollupEngineTest {
+    private static final String APP = "app";
+    private static final long MINUTE = RollupResolution.MINUTE.millis();
+    private static final long HOUR = RollupResolution.HOUR.millis();
+
+    @Inject
+    RollupEngine engine;
+    @Inject
+    Persistence persistence;
+    @Inject
+    SimulatedClock clock;
+
+    private long start;
+
+    @BeforeEach
+    void reset() {
+        QuarkusTransaction.requiringNew().run(() -> {
+            MeasureRollup.deleteAll();
+            Measure.deleteAll();
+        });
+        // the clock is shared by all tests and cannot go backwards: start each test at the beginning of the next hour
+        start = RollupResolution.HOUR.truncate(clock.epochMillis()) + HOUR;
+        advanceTo(start);
+    }
+
+    @Test
+    void shouldOnlyRollUpIntervalsWhichEnded() {
+        record("session", start + 10_000, 100);
+        record("session", start + 20_000, 300);
+        record("session", start + MINUTE + 10_000, 500);
+
+        // the second minute ended less than the configured delay ago
+        advanceTo(start + 2 * MINUTE);
+        engine.run();
+        var minutes = rollups("session", RollupResolution.MINUTE);
+        assertEquals(1, minutes.size());
+        assertEquals(start, minutes.getFirst().startTime);
+        assertEquals(2, minutes.getFirst().sampleCount);
+        assertArrayEquals(new double[] { 400 }, minutes.getFirst().energy, 0.0001);
+
+        advanceTo(start + 3 * MINUTE);
+        engine.run();
+        minutes = rollups("session", RollupResolution.MINUTE);
+        assertEquals(2, minutes.size());
+        // already rolled up minutes are left untouched
+        assertEquals(2, minutes.getFirst().sampleCount);
+        assertEquals(start + MINUTE, minutes.getLast().startTime);
+        assertEquals(1, minutes.getLast().sampleCount);
+        assertArrayEquals(new double[] { 500 }, minutes.getLast().energy, 0.0001);
+    }
+
+    @Test
+    void emptyIntervalsShouldBeSkipped() {
+        record("session", start + 10_000, 100);
+        record("session", start + 5 * HOUR + 10_000, 200);
+
+        advanceTo(start + 6 * HOUR + 2 * MINUTE);
+        engine.run();
+        assertEquals(List.of(start, start + 5 * HOUR), startTimes(rollups("session", RollupResolution.MINUTE)));
+        assertEquals(List.of(start, start + 5 * HOUR), startTimes(rollups("session", RollupResolution.HOUR)));
+    }
+
+    @Test
+    void hourRollupsShouldAggregateMinuteRollupsOnceTheHourEnded() {
+        record("first", start + 10_000, 1000);
+        record("first", start + 30 * MINUTE, 3000);
+        record("second", start + 10_000, 2000);
+
+        advanceTo(start + 50 * MINUTE);
+        engine.run();
+        assertEquals(2, rollups("first", RollupResolution.MINUTE).size());
+        assertTrue(rollups("first", RollupResolution.HOUR).isEmpty());
+
+        advanceTo(start + HOUR + 2 * MINUTE);
+        engine.run();
+        final var first = rollups("first", RollupResolution.HOUR);
+        assertEquals(1, first.size());
+        final var hour = first.getFirst();
+        assertEquals(start, hour.startTime);
+        assertEquals(2, hour.sampleCount);
+        assertEquals(2000, hour.duration);
+        assertArrayEquals(new double[] { 4000 }, hour.energy, 0.0001);
+        assertArrayEquals(new double[] { 1000 }, hour.minimum);
+        assertArrayEquals(new double[] { 3000 }, hour.maximum);
+        assertEquals(1, rollups("second", RollupResolution.HOUR).getFirst().sampleCount);
+    }
+
+    @Test
+    void lateMeasuresShouldBeAddedToExistingRollups() {
+        record("session", start + 10_000, 1000);
+        advanceTo(start + HOUR + 2 * MINUTE);
+        engine.run();
+        assertEquals(1, rollups("session", RollupResolution.HOUR).getFirst().sampleCount);
+
+        // persisted after their minute, and hour, have been rolled up
+        record("session", start + 20_000, 3000);
+        record("session", start + 5 * MINUTE, 500);
+        engine.run();
+        final var minutes = rollups("session", RollupResolution.MINUTE);
+        assertEquals(List.of(start, start + 5 * MINUTE), startTimes(minutes));
+        assertEquals(2, minutes.getFirst().sampleCount);
+        assertArrayEquals(new double[] { 4000 }, minutes.getFirst().energy, 0.0001);
+        assertArrayEquals(new double[] { 3000 }, minutes.getFirst().maximum);
+        final var hours = rollups("session", RollupResolution.HOUR);
+        assertEquals(1, hours.size());
+        assertEquals(3, hours.getFirst().sampleCount);
+        assertArrayEquals(new double[] { 4500 }, hours.getFirst().energy, 0.0001);
+        assertArrayEquals(new double[] { 500 }, hours.getFirst().minimum);
+    }
+
+    @Test
+    void measuresShouldOnlyBePrunedOnceRolledUpAndExpired() {
+        record("session", start + 10_000, 1000);
+        advanceTo(start + 2 * MINUTE);
+        engine.run();
+        assertEquals(1, measureCount());
+
+        // raw measures are kept 7 days, a late measure being rolled up before being pruned
+        advanceTo(start + Duration.ofDays(8).toMillis());
+        record("session", start + 20_000, 3000);
+        engine.run();
+        assertEquals(0, measureCount());
+        assertEquals(2, rollups("session", RollupResolution.MINUTE).getFirst().sampleCount);
+
+        // minute rollups are kept 90 days, hour rollups indefinitely
+        advanceTo(start + Duration.ofDays(91).toMillis());
+        engine.run();
+        assertTrue(rollups("session", RollupResolution.MINUTE).isEmpty());
+        final var hours = rollups("session", RollupResolution.HOUR);
+        assertEquals(1, hours.size());
+        assertEquals(2, hours.getFirst().sampleCount);
+    }
+
+    private void advanceTo(long epochMillis) {
+        clock.advance(Duration.ofMillis(epochMillis - clock.epochMillis()));
+    }
+
+    private void record(String session, long startTime, double power) {
+        final var measure = new PartialSensorMeasure(new double[] { power }, startTime, startTime + 1000, 1000);
+        persistence.saveAll(List.of(persistence.newMeasure(measure, APP, session)));
+    }
+
+    private static List<MeasureRollup> rollups(String session, RollupResolution resolution) {
+        return QuarkusTransaction.requiringNew().call(() -> MeasureRollup.forSession(APP, session, resolution).toList());
+    }
+
+    private static List<Long> startTimes(List<MeasureRollup> rollups) {
+        return rollups.stream().map(r -> r.startTime).toList();
+    }
+
+    private static long measureCount() {
+        return QuarkusTransaction.requiringNew().call(() -> Measure.count());
+    }
+}
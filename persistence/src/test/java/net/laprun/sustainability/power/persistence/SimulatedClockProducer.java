@@ -0,0 +1,16 @@
+package net.laprun.sustainability.power.persistence;
+
+import java.time.Instant;
+
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Singleton;
+
+import net.laprun.sustainability.power.SimulatedClock;
+
+public class SimulatedClockProducer {
+    @Produces
+    @Singleton
+    SimulatedClock clock() {
+        return new SimulatedClock(Instant.parse("2024-01-01T00:00:00Z").toEpochMilli());
+    }
+}
@@ -0,0 +1,141 @@
+package net.laprun.sustainability.power.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+class WriteBehindQueueTest {
+
+    @Test
+    void fullBatchesShouldBeWrittenWithoutWaitingForFlushInterval() throws Exception {
+        final var batches = new CopyOnWriteArrayList<List<Integer>>();
+        final var queue = new WriteBehindQueue<Integer>(10, 3, Duration.ofHours(1), batches::add, "test-writer");
+        final var submitted = new ArrayList<CompletableFuture<Integer>>();
+        for (int i = 0; i < 6; i++) {
+            submitted.add(written(queue.submit(i)));
+        }
+        final var written = new ArrayList<Integer>();
+        for (var item : submitted) {
+            written.add(item.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(List.of(0, 1, 2, 3, 4, 5), written);
+        assertEquals(List.of(List.of(0, 1, 2), List.of(3, 4, 5)), batches);
+        queue.close();
+    }
+
+    @Test
+    void partialBatchShouldBeWrittenAfterFlushInterval() throws Exception {
+        final var batches = new CopyOnWriteArrayList<List<Integer>>();
+        final var queue = new WriteBehindQueue<Integer>(10, 5, Duration.ofMillis(200), batches::add, "test-writer");
+        final var first = written(queue.submit(1));
+        final var second = written(queue.submit(2));
+        assertEquals((Integer) 2, second.get(5, TimeUnit.SECONDS));
+        assertEquals((Integer) 1, first.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of(List.of(1, 2)), batches);
+        queue.close();
+    }
+
+    @Test
+    void flushAndCloseShouldWritePendingItems() throws Exception {
+        final var batches = new CopyOnWriteArrayList<List<Integer>>();
+        final var queue = new WriteBehindQueue<Integer>(10, 5, Duration.ofHours(1), batches::add, "test-writer");
+        queue.submit(1);
+        queue.flush().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(List.of(1)), batches);
+
+        final var pending = written(queue.submit(2));
+        queue.close();
+        assertEquals((Integer) 2, pending.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of(List.of(1), List.of(2)), batches);
+
+        // nothing can be submitted once closed
+        final var rejected = written(queue.submit(3));
+        assertThrows(CompletionException.class, rejected::join);
+        assertTrue(queue.flush().toCompletableFuture().isDone());
+    }
+
+    @Test
+    void failedBatchShouldOnlyDropFailingItems() throws Exception {
+        final var batches = new CopyOnWriteArrayList<List<Integer>>();
+        final var queue = new WriteBehindQueue<Integer>(10, 3, Duration.ofHours(1), batch -> {
+            batches.add(batch);
+            if (batch.contains(2)) {
+                throw new IllegalStateException("boom");
+            }
+        }, "test-writer");
+        final var first = written(queue.submit(1));
+        final var second = written(queue.submit(2));
+        final var third = written(queue.submit(3));
+        assertEquals((Integer) 3, third.get(5, TimeUnit.SECONDS));
+        assertEquals((Integer) 1, first.get(5, TimeUnit.SECONDS));
+        assertThrows(CompletionException.class, second::join);
+        // the failed batch is retried one item at a time
+        assertEquals(List.of(List.of(1, 2, 3), List.of(1), List.of(2), List.of(3)), batches);
+        queue.close();
+    }
+
+    @Test
+    void fullQueueShouldHoldProducersBack() throws Exception {
+        final var writing = new CountDownLatch(1);
+        final var release = new CountDownLatch(1);
+        final var batches = new CopyOnWriteArrayList<List<Integer>>();
+        final var queue = new WriteBehindQueue<Integer>(1, 1, Duration.ofHours(1), batch -> {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            batches.add(batch);
+        }, "test-writer");
+        // first item is being written, second one fills the queue
+        assertTrue(queue.submit(1).toCompletableFuture().isDone());
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        assertTrue(queue.submit(2).toCompletableFuture().isDone());
+
+        // further items wait to be accepted, without blocking the producer
+        final var third = queue.submit(3).toCompletableFuture();
+        final var fourth = queue.submit(4).toCompletableFuture();
+        assertFalse(third.isDone());
+        assertFalse(fourth.isDone());
+        assertEquals(3, queue.pending());
+
+        release.countDown();
+        assertEquals((Integer) 4, fourth.get(5, TimeUnit.SECONDS).toCompletableFuture().get(5, TimeUnit.SECONDS));
+        assertTrue(third.isDone());
+        // accepted in submission order
+        assertEquals(List.of(List.of(1), List.of(2), List.of(3), List.of(4)), batches);
+        queue.close();
+    }
+
+    @Test
+    void invalidConfigurationsShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new WriteBehindQueue<Integer>(10, 0, Duration.ofSeconds(1), batch -> {
+                }, "test-writer"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new WriteBehindQueue<Integer>(1, 2, Duration.ofSeconds(1), batch -> {
+                }, "test-writer"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new WriteBehindQueue<Integer>(10, 2, Duration.ZERO, batch -> {
+                }, "test-writer"));
+    }
+
+    private static <T> CompletableFuture<T> written(CompletionStage<CompletionStage<T>> accepted) {
+        return accepted.thenCompose(Function.identity()).toCompletableFuture();
+    }
+}
@@ -1,23 +1,27 @@
 package net.laprun.sustainability.power;
 
 import java.time.Duration;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 
 import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.NotFoundException;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.core.MediaType;
 
+import org.jboss.resteasy.reactive.RestQuery;
 import org.jboss.resteasy.reactive.RestStreamElementType;
 
 import io.quarkus.logging.Log;
 import io.quarkus.runtime.StartupEvent;
 import io.smallrye.mutiny.Multi;
 import net.laprun.sustainability.power.persistence.Measure;
-import net.laprun.sustainability.power.persistence.Persistence;
+import net.laprun.sustainability.power.persistence.MeasureRollup;
+import net.laprun.sustainability.power.persistence.RollupResolution;
 import net.laprun.sustainability.power.sensors.SamplingMeasurer;
 
 /**
@@ -38,18 +42,61 @@ public class PowerResource {
      * system.
      *
      * @param pid the process identified for which we want to stream measures
+     * @param resolution an optional ISO-8601 duration (e.g. {@code PT0.1S}) specifying the interval each measure should
+     *        cover, only available when raw sampling is enabled, measures being otherwise streamed once per sampling period
      * @return a stream of {@link SensorMeasure}
      * @throws Exception if an error occurred while measuring the power consumption
      */
     @GET
     @RestStreamElementType(MediaType.APPLICATION_JSON)
     @Path("stream/{pid}")
-    public Multi<SensorMeasure> streamMeasuresFor(@PathParam("pid") String pid) throws Exception {
+    public Multi<SensorMeasure> streamMeasuresFor(@PathParam("pid") String pid, @RestQuery String resolution)
+            throws Exception {
+        final var requestedResolution = parseResolution(resolution);
+        final long parsedPID;
         try {
-            return measurer.stream(pid);
+            parsedPID = measurer.validPIDOrFail(pid);
+            if (requestedResolution == null) {
+                return measurer.uncheckedStream(parsedPID);
+            }
         } catch (IllegalArgumentException e) {
             throw new NotFoundException("Unknown process: " + pid);
         }
+        try {
+            return measurer.uncheckedStream(parsedPID, false, requestedResolution);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+    }
+
+    private static Duration parseResolution(String resolution) {
+        if (resolution == null || resolution.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.parse(resolution);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Invalid resolution: " + resolution);
+        }
+    }
+
+    /**
+     * Streams power consumption measures attributed to all the processes contained in the specified cgroup (v2), if such
+     * cgroup exists on the system.
+     *
+     * @param cgroupPath the path of the cgroup, relative to the cgroup hierarchy root (e.g. {@code system.slice/foo.service})
+     * @return a stream of {@link SensorMeasure}
+     * @throws Exception if an error occurred while measuring the power consumption
+     */
+    @GET
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    @Path("stream/cgroup/{cgroupPath: .+}")
+    public Multi<SensorMeasure> streamMeasuresForCgroup(@PathParam("cgroupPath") String cgroupPath) throws Exception {
+        try {
+            return measurer.streamCgroup(cgroupPath);
+        } catch (IllegalArgumentException e) {
+            throw new NotFoundException("Unknown cgroup: " + cgroupPath);
+        }
     }
 
     /**
@@ -64,12 +111,33 @@ public class PowerResource {
     @Path("start/{appName}/{pid}")
     public Multi<Long> startMeasure(@PathParam("appName") String appName, @PathParam("pid") String pid) throws Exception {
         try {
-            return measurer.measureIdStream(appName, measurer.validPIDOrFail(pid), Persistence.defaultSession(appName));
+            return measurer.measureIdStream(appName, measurer.validPIDOrFail(pid),
+                    measurer.persistence().defaultSession(appName));
         } catch (IllegalArgumentException e) {
             throw new NotFoundException("Unknown process: " + pid);
         }
     }
 
+    /**
+     * Starts measuring the power consumption of the specified application as identified with the specified name and the
+     * cgroup (v2) its processes belong to
+     *
+     * @param appName the application name, used to correlate several measures across different runs
+     * @param cgroupPath the path of the cgroup, relative to the cgroup hierarchy root (e.g. {@code system.slice/foo.service})
+     * @throws Exception if an error occurred while measuring the power consumption
+     */
+    @GET
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    @Path("start/{appName}/cgroup/{cgroupPath: .+}")
+    public Multi<Long> startCgroupMeasure(@PathParam("appName") String appName, @PathParam("cgroupPath") String cgroupPath)
+            throws Exception {
+        try {
+            return measurer.cgroupMeasureIdStream(appName, cgroupPath, measurer.persistence().defaultSession(appName));
+        } catch (IllegalArgumentException e) {
+            throw new NotFoundException("Unknown cgroup: " + cgroupPath);
+        }
+    }
+
     /**
      * Retrieves the metadata associated with the power sensors of the underlying platform
      *
@@ -96,11 +164,24 @@ public class PowerResource {
      * Retrieves all recorded measures associated with the specified application
      *
      * @param appName the application identifier as provided to {@link #startMeasure(String, String)}
+     * @param resolution an optional ISO-8601 duration ({@code PT1M} or {@code PT1H}) specifying the resolution at which
+     *        measures should be retrieved from their rollups, each measure then giving the mean value of its components over
+     *        its interval, raw measures, which are only retained for a limited time, being retrieved otherwise
      * @return the chronological list of measures associated with the specified application
      */
     @GET
     @Path("measures/{appName}")
-    public List<SensorMeasure> measures(@PathParam("appName") String appName) {
-        return Measure.forApplication(appName).stream().map(Measure::asSensorMeasure).toList();
+    public List<SensorMeasure> measures(@PathParam("appName") String appName, @RestQuery String resolution) {
+        final var requestedResolution = parseResolution(resolution);
+        if (requestedResolution == null) {
+            return Measure.forApplication(appName).stream().map(Measure::asSensorMeasure).toList();
+        }
+        final RollupResolution rollupResolution;
+        try {
+            rollupResolution = RollupResolution.of(requestedResolution);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+        return MeasureRollup.forApplication(appName, rollupResolution).stream().map(MeasureRollup::asSensorMeasure).toList();
     }
 }
@@ -1,5 +1,7 @@
 package net.laprun.sustainability.power;
 
+import java.util.List;
+
 import io.quarkus.test.Mock;
 import net.laprun.sustainability.power.persistence.Measure;
 import net.laprun.sustainability.power.persistence.Persistence;
@@ -15,4 +17,9 @@ public class MockPersistence extends Persistence {
         m.id = ID;
         return m;
     }
+
+    @Override
+    public void saveAll(List<Measure> measures) {
+        measures.forEach(m -> m.id = ID);
+    }
 }